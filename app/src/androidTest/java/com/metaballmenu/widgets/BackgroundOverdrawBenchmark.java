@@ -0,0 +1,56 @@
+package com.metaballmenu.widgets;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+/**
+ * Benchmark, not a test: logs the time per redraw of the single pass ElevatedBackgroundDrawable and of the five layer
+ * LayerDrawable it replaces, on a software canvas (@see BackgroundOverdrawTest). It asserts nothing, and is a large
+ * test so that runs filtered by size leave it out. Run it alone with
+ *
+ *  adb shell am instrument -w -e class com.metaballmenu.widgets.BackgroundOverdrawBenchmark ...
+ */
+@LargeTest
+public class BackgroundOverdrawBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "BackgroundOverdraw";
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 220;
+    private static final int ITERATIONS = 200;
+    private static final int ROUNDS = 5;
+
+    public void testDrawTime() throws Exception {
+        float density = getContext().getResources().getDisplayMetrics().density;
+        float radius = 30 * density;
+
+        long legacy = drawTime(BackgroundOverdrawTest.createLegacyBackground(radius, density));
+        long flattened = drawTime(new ElevatedBackgroundDrawable(radius, Color.MAGENTA, density));
+
+        Log.i(TAG, "ns per draw legacy: " + legacy + ", flattened: " + flattened);
+    }
+
+    private long drawTime(Drawable drawable) {
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        drawable.setBounds(0, 0, WIDTH, HEIGHT);
+
+        // Warm up (and let the flattened drawable bake its bitmap)
+        for(int nCtr = 0; nCtr < ITERATIONS / 10; ++nCtr)
+            drawable.draw(canvas);
+
+        // The best of a few rounds, so that a GC or a context switch in one round does not skew the numbers
+        long best = Long.MAX_VALUE;
+        for(int nRound = 0; nRound < ROUNDS; ++nRound) {
+            long start = System.nanoTime();
+            for(int nCtr = 0; nCtr < ITERATIONS; ++nCtr)
+                drawable.draw(canvas);
+            best = Math.min(best, (System.nanoTime() - start) / ITERATIONS);
+        }
+
+        return best;
+    }
+}
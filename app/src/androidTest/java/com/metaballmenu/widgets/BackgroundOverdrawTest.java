@@ -0,0 +1,144 @@
+package com.metaballmenu.widgets;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.LayerDrawable;
+import android.graphics.drawable.ShapeDrawable;
+import android.graphics.drawable.shapes.RoundRectShape;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+/**
+ * Compares the single pass ElevatedBackgroundDrawable with the five layer LayerDrawable it replaces: the rendered
+ * pixels and the overdraw (area filled per redraw / menu area). The time per redraw is logged by
+ * BackgroundOverdrawBenchmark.
+ */
+public class BackgroundOverdrawTest extends AndroidTestCase {
+
+    private static final String TAG = "BackgroundOverdraw";
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 220;
+
+    private float mfDensity;
+    private float mfRadius;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mfDensity = getContext().getResources().getDisplayMetrics().density;
+        mfRadius = 30 * mfDensity;
+    }
+
+    public void testRendersLikeTheLayerStack() throws Exception {
+        Bitmap legacy = render(createLegacyBackground());
+        Bitmap flattened = render(new ElevatedBackgroundDrawable(mfRadius, Color.MAGENTA, mfDensity));
+
+        for(int y = 0; y < HEIGHT; ++y) {
+            for(int x = 0; x < WIDTH; ++x) {
+                int nLegacy = legacy.getPixel(x, y);
+                int nFlattened = flattened.getPixel(x, y);
+                assertTrue("Pixel " + x + "," + y, maxChannelDifference(nLegacy, nFlattened) <= 2);
+            }
+        }
+    }
+
+    public void testOverdraw() throws Exception {
+        float legacy = overdraw(createLegacyBackground());
+        float flattened = overdraw(new ElevatedBackgroundDrawable(mfRadius, Color.MAGENTA, mfDensity));
+
+        Log.i(TAG, "Overdraw legacy: " + legacy + "x, flattened: " + flattened + "x");
+        assertTrue(legacy > 4.0f);
+        assertTrue(flattened <= 1.01f);
+    }
+
+    private Drawable createLegacyBackground() {
+        return createLegacyBackground(mfRadius, mfDensity);
+    }
+
+    /**
+     * The layer stack MetaballMenu used to build for the elevation
+     */
+    static Drawable createLegacyBackground(float fRadius, float fDensity) {
+        float[] radii = new float[] {fRadius, fRadius, fRadius, fRadius, fRadius, fRadius, fRadius, fRadius};
+        int[] colors = {Color.parseColor("#10000000"), Color.parseColor("#13000000"), Color.parseColor("#20000000"),
+                Color.parseColor("#13000000"), Color.MAGENTA};
+
+        Drawable[] layers = new Drawable[colors.length];
+        for(int nCtr = 0; nCtr < colors.length; ++nCtr) {
+            ShapeDrawable shape = new ShapeDrawable(new RoundRectShape(radii, null, null));
+            shape.getPaint().setColor(colors[nCtr]);
+            layers[nCtr] = shape;
+        }
+
+        LayerDrawable drawable = new LayerDrawable(layers);
+        drawable.setLayerInset(0, 0, 0, 0, 0);
+        drawable.setLayerInset(1, dp(1, fDensity), dp(1, fDensity), dp(1, fDensity), dp(1, fDensity));
+        drawable.setLayerInset(2, dp(2, fDensity), dp(2, fDensity), dp(2, fDensity), dp(2, fDensity));
+        drawable.setLayerInset(3, dp(3, fDensity), dp(3, fDensity), dp(3, fDensity), dp(3, fDensity));
+        drawable.setLayerInset(4, dp(2, fDensity), dp(2, fDensity), dp(2, fDensity), dp(4, fDensity));
+
+        return drawable;
+    }
+
+    private Bitmap render(Drawable drawable) {
+        Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, WIDTH, HEIGHT);
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+
+    private float overdraw(Drawable drawable) {
+        CountingCanvas canvas = new CountingCanvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        drawable.setBounds(0, 0, WIDTH, HEIGHT);
+        drawable.draw(canvas);
+        return canvas.mfFilledArea / (WIDTH * HEIGHT);
+    }
+
+    private static int dp(int nDp, float fDensity) {
+        return (int) (nDp * fDensity);
+    }
+
+    private static int maxChannelDifference(int nColor1, int nColor2) {
+        int nMax = 0;
+        for(int nShift = 0; nShift < 32; nShift += 8)
+            nMax = Math.max(nMax, Math.abs(((nColor1 >> nShift) & 0xFF) - ((nColor2 >> nShift) & 0xFF)));
+        return nMax;
+    }
+
+    /**
+     * Canvas that adds up the area of everything drawn on it
+     */
+    private static class CountingCanvas extends Canvas {
+        float mfFilledArea = 0;
+        private final RectF mBounds = new RectF();
+
+        CountingCanvas(Bitmap bitmap) {
+            super(bitmap);
+        }
+
+        @Override
+        public void drawPath(Path path, Paint paint) {
+            path.computeBounds(mBounds, true);
+            mfFilledArea += mBounds.width() * mBounds.height();
+            super.drawPath(path, paint);
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+            mfFilledArea += dst.width() * dst.height();
+            super.drawBitmap(bitmap, src, dst, paint);
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+            mfFilledArea += bitmap.getWidth() * bitmap.getHeight();
+            super.drawBitmap(bitmap, left, top, paint);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.metaballmenu.widgets;
+
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.test.AndroidTestCase;
+
+/**
+ * Checks that menus with the same background share the drawable state
+ */
+public class MetaballBackgroundCacheTest extends AndroidTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        MetaballBackgroundCache.clear();
+    }
+
+    public void testSameParametersShareTheState() throws Exception {
+        int nHits = MetaballBackgroundCache.getHitCount();
+
+        Drawable first = MetaballBackgroundCache.getBackground(getContext().getResources(), 30, Color.MAGENTA, true);
+        Drawable second = MetaballBackgroundCache.getBackground(getContext().getResources(), 30, Color.MAGENTA, true);
+
+        assertNotSame(first, second);
+        assertSame(first.getConstantState(), second.getConstantState());
+        assertEquals(nHits + 1, MetaballBackgroundCache.getHitCount());
+    }
+
+    public void testDifferentParametersDoNotShare() throws Exception {
+        Drawable elevated = MetaballBackgroundCache.getBackground(getContext().getResources(), 30, Color.MAGENTA, true);
+        Drawable flat = MetaballBackgroundCache.getBackground(getContext().getResources(), 30, Color.MAGENTA, false);
+        Drawable otherColor = MetaballBackgroundCache.getBackground(getContext().getResources(), 30, Color.RED, true);
+
+        assertNotSame(elevated.getConstantState(), flat.getConstantState());
+        assertNotSame(elevated.getConstantState(), otherColor.getConstantState());
+    }
+}
@@ -0,0 +1,98 @@
+package com.metaballmenu.widgets;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.metaballmenu.R;
+
+/**
+ * Checks that the frames of a transition allocate nothing: the frame clock tick (TransitionDriver.doFrame, which
+ * computes the frame and invalidates its area) and onDraw on a software canvas, over a whole transition. It runs on
+ * the device, as the Robolectric shadows allocate on their own (@see MetaballMenuRenderTest)
+ */
+public class MetaballMenuAllocationTest extends AndroidTestCase {
+
+    private static final int WIDTH = 1080;
+    private static final long FRAME_NANOS = 16666667L;
+    private static final long DURATION = 500;
+
+    /**
+     * Frames skipped before counting (the first frame of a hop samples its keyframes)
+     */
+    private static final int WARM_UP_FRAMES = 3;
+
+    private MetaballMenu mMenu;
+    private Canvas mCanvas;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mMenu = (MetaballMenu) LayoutInflater.from(getContext()).inflate(R.layout.menu_layout, null);
+        mMenu.setTransitionDuration(DURATION);
+        mMenu.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        mMenu.layout(0, 0, mMenu.getMeasuredWidth(), mMenu.getMeasuredHeight());
+        mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, mMenu.getMeasuredHeight(), Bitmap.Config.ARGB_8888));
+    }
+
+    public void testTransitionFramesDoNotAllocate() throws Exception {
+        tap(mMenu.getChildAt(3));
+        assertEquals(0, countAllocations(0, framesToTheEnd()));
+    }
+
+    public void testRetargetedFramesDoNotAllocate() throws Exception {
+        tap(mMenu.getChildAt(3));
+        long time = renderFrames(0, framesToTheEnd() / 2);
+
+        tap(mMenu.getChildAt(1));
+        assertEquals(0, countAllocations(time, framesToTheEnd()));
+    }
+
+    /**
+     * Render the frames of a transition after a warm up, counting the objects allocated on this thread
+     */
+    private int countAllocations(long time, int nFrames) {
+        time = renderFrames(time, WARM_UP_FRAMES);
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        renderFrames(time, nFrames - WARM_UP_FRAMES);
+        int nCount = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+
+        assertTrue(mMenu.getTransitionDriver().isRunning());
+        return nCount;
+    }
+
+    private long renderFrames(long time, int nFrames) {
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        for(int nFrame = 0; nFrame < nFrames; ++nFrame, time += FRAME_NANOS) {
+            driver.doFrame(time);
+            mMenu.onDraw(mCanvas);
+        }
+        return time;
+    }
+
+    /**
+     * The frames of a transition, stopping one frame short of the end, which ends the transition
+     */
+    private static int framesToTheEnd() {
+        return (int) ((DURATION * 1000000L) / FRAME_NANOS) - 1;
+    }
+
+    private void tap(View view) {
+        float x = view.getLeft() + (view.getWidth() / 2.0f);
+        float y = view.getTop() + (view.getHeight() / 2.0f);
+        MotionEvent down = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, x, y, 0);
+        MotionEvent up = MotionEvent.obtain(0, 10, MotionEvent.ACTION_UP, x, y, 0);
+        mMenu.onTouchEvent(down);
+        mMenu.onTouchEvent(up);
+        down.recycle();
+        up.recycle();
+    }
+}
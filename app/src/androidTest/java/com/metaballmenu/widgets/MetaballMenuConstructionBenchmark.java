@@ -0,0 +1,41 @@
+package com.metaballmenu.widgets;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+/**
+ * Benchmark, not a test: logs the time to construct a menu by inflating menu_layout.xml and from the equivalent
+ * MetaballMenuSpec (@see MetaballMenuConstructionTest). It asserts nothing, and is a large test so that runs
+ * filtered by size leave it out. Run it alone with
+ *
+ *  adb shell am instrument -w -e class com.metaballmenu.widgets.MetaballMenuConstructionBenchmark ...
+ */
+@LargeTest
+public class MetaballMenuConstructionBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "MetaballMenuConstruction";
+    private static final int ITERATIONS = 200;
+
+    public void testConstructionTime() throws Exception {
+        MetaballMenuSpec spec = MetaballMenuConstructionTest.createLayoutSpec(getContext());
+
+        // Warm up the icon and background caches, and the inflater
+        for(int nCtr = 0; nCtr < ITERATIONS / 10; ++nCtr) {
+            MetaballMenuConstructionTest.inflate(getContext());
+            spec.create(getContext());
+        }
+
+        long start = System.nanoTime();
+        for(int nCtr = 0; nCtr < ITERATIONS; ++nCtr)
+            MetaballMenuConstructionTest.inflate(getContext());
+        long inflated = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for(int nCtr = 0; nCtr < ITERATIONS; ++nCtr)
+            spec.create(getContext());
+        long created = (System.nanoTime() - start) / ITERATIONS;
+
+        Log.i(TAG, "ns per menu inflated: " + inflated + ", created from a spec: " + created);
+    }
+}
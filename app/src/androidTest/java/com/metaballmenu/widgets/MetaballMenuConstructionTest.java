@@ -0,0 +1,81 @@
+package com.metaballmenu.widgets;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.support.v4.content.ContextCompat;
+import android.test.AndroidTestCase;
+import android.view.LayoutInflater;
+import android.widget.LinearLayout;
+
+import com.metaballmenu.R;
+
+/**
+ * Checks that a menu created from a MetaballMenuSpec is the same menu as the one inflated from menu_layout.xml.
+ * MetaballMenuConstructionBenchmark compares the time to construct them
+ */
+public class MetaballMenuConstructionTest extends AndroidTestCase {
+
+    private MetaballMenuSpec mSpec;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mSpec = createLayoutSpec(getContext());
+    }
+
+    public void testBuildsTheSameMenuAsTheLayout() throws Exception {
+        MetaballMenu inflated = inflate(getContext());
+        MetaballMenu created = mSpec.create(getContext());
+
+        assertEquals(inflated.getOrientation(), created.getOrientation());
+        assertEquals(inflated.getPaddingLeft(), created.getPaddingLeft());
+        assertEquals(inflated.getMetaballColor(), created.getMetaballColor());
+        assertEquals(inflated.getItemCount(), created.getItemCount());
+        assertEquals(inflated.getSelectedIndex(), created.getSelectedIndex());
+
+        for(int nCtr = 0; nCtr < inflated.getItemCount(); ++nCtr) {
+            MetaballMenuImageView inflatedItem = (MetaballMenuImageView) inflated.getChildAt(nCtr);
+            MetaballMenuImageView createdItem = (MetaballMenuImageView) created.getChildAt(nCtr);
+            assertEquals(inflatedItem.getDefaultImage(), createdItem.getDefaultImage());
+            assertEquals(inflatedItem.getSelectedImage(), createdItem.getSelectedImage());
+            assertEquals(inflatedItem.getPaddingLeft(), createdItem.getPaddingLeft());
+            assertEquals(inflatedItem.isSelected(), createdItem.isSelected());
+            assertEquals(((LinearLayout.LayoutParams) inflatedItem.getLayoutParams()).weight,
+                    ((LinearLayout.LayoutParams) createdItem.getLayoutParams()).weight, 0.0f);
+        }
+    }
+
+    public void testSpecIsReusable() throws Exception {
+        MetaballMenu first = mSpec.create(getContext());
+        MetaballMenu second = mSpec.create(getContext());
+
+        assertNotSame(first.getChildAt(0), second.getChildAt(0));
+        assertEquals(4, second.getItemCount());
+        assertTrue(second.getChildAt(0).isSelected());
+    }
+
+    /**
+     * The spec of menu_layout.xml
+     */
+    static MetaballMenuSpec createLayoutSpec(Context context) {
+        return new MetaballMenuSpec.Builder(context)
+                .backgroundColor(ContextCompat.getColor(context, android.R.color.holo_purple))
+                .metaballColor(Color.WHITE)
+                .backgroundShapeRadius(30)
+                .elevation(true)
+                .padding(10)
+                .itemPadding(10)
+                .addItem(R.mipmap.card_sel, R.mipmap.card)
+                .addItem(R.mipmap.dash_sel, R.mipmap.dash)
+                .addItem(R.mipmap.desc_sel, R.mipmap.desc)
+                .addItem(R.mipmap.hist_sel, R.mipmap.hist)
+                .build();
+    }
+
+    /**
+     * Inflate menu_layout.xml
+     */
+    static MetaballMenu inflate(Context context) {
+        return (MetaballMenu) LayoutInflater.from(context).inflate(R.layout.menu_layout, null);
+    }
+}
@@ -0,0 +1,269 @@
+package com.metaballmenu.widgets;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.ShapeDrawable;
+import android.graphics.drawable.shapes.RoundRectShape;
+
+/**
+ * The elevated round rect background for pre-lollipop devices, drawn in a single pass.
+ *
+ * The elevation is faked with a stack of shapes with varying alphas and insets (shape1, shape2, shape3, shape4
+ * and the foreground, refer to menu_shape_shadow.xml). Drawing the stack as a LayerDrawable fills the whole menu
+ * five times on every redraw. Instead, the stack is baked once into a small bitmap which only holds the corners and
+ * a single pixel row and column for the edges, like a nine-patch, and that bitmap is stretched over the bounds.
+ * The baked bitmap lives in the constant state, so it is shared by all the drawables created from the same state
+ * (@see MetaballBackgroundCache).
+ *
+ * @author Melvin Lobo
+ */
+public class ElevatedBackgroundDrawable extends Drawable {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The shadow colors, from the bottom of the stack. Parsed once per process
+     */
+    private static final int SHAPE_1_COLOR = Color.parseColor("#10000000");
+    private static final int SHAPE_2_COLOR = Color.parseColor("#13000000");
+    private static final int SHAPE_3_COLOR = Color.parseColor("#20000000");
+
+    /**
+     * The insets of the layers in dp (left, top, right, bottom), from the bottom of the stack
+     */
+    private static final int[][] LAYER_INSETS = {{0, 0, 0, 0}, {1, 1, 1, 1}, {2, 2, 2, 2}, {3, 3, 3, 3}, {2, 2, 2, 4}};
+
+    /**
+     * The largest inset, in dp
+     */
+    private static final int MAX_INSET = 4;
+
+    /**
+     * The shared state (parameters and baked bitmap)
+     */
+    private final ElevatedState mState;
+
+    /**
+     * Fallback bitmap baked at the exact size, for bounds which are too small for the corners
+     */
+    private Bitmap mExactBitmap = null;
+
+    /**
+     * The paint used to draw the bitmap (alpha and color filter)
+     */
+    private final Paint mPaint = new Paint();
+
+    /**
+     * Scratch rects for the slices
+     */
+    private final Rect mSrcRect = new Rect();
+    private final Rect mDstRect = new Rect();
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Constructor
+     *
+     * @param radius
+     *      The corner radius in pixels
+     * @param nColor
+     *      The foreground color
+     * @param density
+     *      The screen density, used to convert the shadow insets to pixels
+     *
+     * @author Melvin Lobo
+     */
+    public ElevatedBackgroundDrawable(float radius, int nColor, float density) {
+        this(new ElevatedState(radius, nColor, density));
+    }
+
+    /**
+     * Constructor for drawables sharing a constant state
+     *
+     * @param state
+     *      The shared state
+     *
+     * @author Melvin Lobo
+     */
+    private ElevatedBackgroundDrawable(ElevatedState state) {
+        mState = state;
+    }
+
+    /**
+     * Get the constant state, so that other drawables can share the parameters and the baked bitmap
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    public ConstantState getConstantState() {
+        return mState;
+    }
+
+    /**
+     * Draw the background. If the bounds can hold the corners, the baked bitmap is drawn as nine slices, with
+     * the middle row and column stretched. Otherwise, a bitmap of the exact size is baked and drawn.
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    public void draw(Canvas canvas) {
+        Rect bounds = getBounds();
+        int nWidth = bounds.width();
+        int nHeight = bounds.height();
+
+        if((nWidth <= 0) || (nHeight <= 0))
+            return;
+
+        int nCorner = mState.mnCornerSize;
+        int nMinSize = (2 * nCorner) + 1;
+        if((nWidth < nMinSize) || (nHeight < nMinSize)) {
+            if((mExactBitmap == null) || (mExactBitmap.getWidth() != nWidth) || (mExactBitmap.getHeight() != nHeight))
+                mExactBitmap = mState.bake(nWidth, nHeight);
+
+            canvas.drawBitmap(mExactBitmap, bounds.left, bounds.top, mPaint);
+            return;
+        }
+
+        Bitmap baked = mState.getBakedBitmap();
+        int nSize = baked.getWidth();
+
+        // Source and destination columns and rows: corner, stretched edge, corner
+        for(int nRow = 0; nRow < 3; ++nRow) {
+            int nSrcTop = (nRow == 0) ? 0 : ((nRow == 1) ? nCorner : nCorner + 1);
+            int nSrcBottom = (nRow == 0) ? nCorner : ((nRow == 1) ? nCorner + 1 : nSize);
+            int nDstTop = (nRow == 0) ? bounds.top : ((nRow == 1) ? bounds.top + nCorner : bounds.bottom - nCorner);
+            int nDstBottom = (nRow == 0) ? bounds.top + nCorner : ((nRow == 1) ? bounds.bottom - nCorner : bounds.bottom);
+
+            for(int nCol = 0; nCol < 3; ++nCol) {
+                int nSrcLeft = (nCol == 0) ? 0 : ((nCol == 1) ? nCorner : nCorner + 1);
+                int nSrcRight = (nCol == 0) ? nCorner : ((nCol == 1) ? nCorner + 1 : nSize);
+                int nDstLeft = (nCol == 0) ? bounds.left : ((nCol == 1) ? bounds.left + nCorner : bounds.right - nCorner);
+                int nDstRight = (nCol == 0) ? bounds.left + nCorner : ((nCol == 1) ? bounds.right - nCorner : bounds.right);
+
+                mSrcRect.set(nSrcLeft, nSrcTop, nSrcRight, nSrcBottom);
+                mDstRect.set(nDstLeft, nDstTop, nDstRight, nDstBottom);
+                canvas.drawBitmap(baked, mSrcRect, mDstRect, mPaint);
+            }
+        }
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mPaint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    //////////////////////////////////// INNER CLASSES /////////////////////////////////////////////
+    /**
+     * The state shared by the drawables with the same parameters. It bakes the layer stack on first use
+     *
+     * @author Melvin Lobo
+     */
+    static final class ElevatedState extends ConstantState {
+        /**
+         * The corner radius, foreground color and screen density
+         */
+        final float mfRadius;
+        final int mnColor;
+        final float mfDensity;
+
+        /**
+         * The size of a corner in the baked bitmap. The bitmap is (2 * corner + 1) pixels square
+         */
+        final int mnCornerSize;
+
+        /**
+         * The baked nine-patch-like bitmap
+         */
+        private Bitmap mBakedBitmap = null;
+
+        ElevatedState(float radius, int nColor, float density) {
+            mfRadius = radius;
+            mnColor = nColor;
+            mfDensity = density;
+            mnCornerSize = (int) Math.ceil(radius) + inset(MAX_INSET) + 1;
+        }
+
+        @Override
+        public Drawable newDrawable() {
+            return new ElevatedBackgroundDrawable(this);
+        }
+
+        @Override
+        public Drawable newDrawable(Resources res) {
+            return new ElevatedBackgroundDrawable(this);
+        }
+
+        @Override
+        public int getChangingConfigurations() {
+            return 0;
+        }
+
+        /**
+         * Get the baked bitmap, baking it on first use
+         *
+         * @author Melvin Lobo
+         */
+        Bitmap getBakedBitmap() {
+            if(mBakedBitmap == null) {
+                int nSize = (2 * mnCornerSize) + 1;
+                mBakedBitmap = bake(nSize, nSize);
+            }
+
+            return mBakedBitmap;
+        }
+
+        /**
+         * Bake the layer stack into a bitmap
+         *
+         * @param nWidth
+         *      Width of the bitmap
+         * @param nHeight
+         *      Height of the bitmap
+         *
+         * @author Melvin Lobo
+         */
+        Bitmap bake(int nWidth, int nHeight) {
+            Bitmap bitmap = Bitmap.createBitmap(nWidth, nHeight, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+
+            float[] radii = new float[] {mfRadius, mfRadius, mfRadius, mfRadius, mfRadius, mfRadius, mfRadius, mfRadius};
+            int[] colors = {SHAPE_1_COLOR, SHAPE_2_COLOR, SHAPE_3_COLOR, SHAPE_2_COLOR, mnColor};
+
+            for(int nLayer = 0; nLayer < LAYER_INSETS.length; ++nLayer) {
+                int[] insets = LAYER_INSETS[nLayer];
+                ShapeDrawable shape = new ShapeDrawable(new RoundRectShape(radii, null, null));
+                shape.getPaint().setColor(colors[nLayer]);
+                shape.setBounds(inset(insets[0]), inset(insets[1]), nWidth - inset(insets[2]), nHeight - inset(insets[3]));
+                shape.draw(canvas);
+            }
+
+            return bitmap;
+        }
+
+        /**
+         * Convert an inset from dp to pixels, the same way as MetaballMenu.d2x
+         *
+         * @author Melvin Lobo
+         */
+        private int inset(int nDp) {
+            return (int) (nDp * mfDensity);
+        }
+    }
+}
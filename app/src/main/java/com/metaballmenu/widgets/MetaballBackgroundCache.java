@@ -0,0 +1,168 @@
+package com.metaballmenu.widgets;
+
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.ShapeDrawable;
+import android.graphics.drawable.shapes.RoundRectShape;
+import android.support.v4.util.LruCache;
+
+/**
+ * Process wide cache of the menu backgrounds. Menus with the same radius, background color and elevation get
+ * drawables created from the same constant state, so the shapes, paints and baked shadow bitmaps are not duplicated
+ * when dozens of menus are inflated (list rows, fragments). The cache is bounded, and keeps hit/miss counts so that
+ * its efficiency can be checked.
+ *
+ * All the calls have to be made on the UI thread.
+ *
+ * @author Melvin Lobo
+ */
+public final class MetaballBackgroundCache {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The maximum number of distinct backgrounds kept
+     */
+    private static final int MAX_ENTRIES = 16;
+
+    /**
+     * The cached constant states
+     */
+    private static final LruCache<Key, Drawable.ConstantState> sStates = new LruCache<Key, Drawable.ConstantState>(MAX_ENTRIES);
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * No instances
+     *
+     * @author Melvin Lobo
+     */
+    private MetaballBackgroundCache() {}
+
+    /**
+     * Get a background drawable. The drawable shares its constant state with every other drawable returned for the
+     * same parameters, so it must be mutate()d before changing it
+     *
+     * @param res
+     *      The resources, for the screen density
+     * @param radius
+     *      The corner radius in pixels
+     * @param nColor
+     *      The background color
+     * @param bElevation
+     *      True for the elevated (shadowed) background, false otherwise
+     *
+     * @return
+     *      A new drawable sharing the cached state
+     *
+     * @author Melvin Lobo
+     */
+    public static Drawable getBackground(Resources res, float radius, int nColor, boolean bElevation) {
+        float density = res.getDisplayMetrics().density;
+        Key key = new Key(radius, nColor, bElevation, density);
+
+        Drawable.ConstantState state = sStates.get(key);
+        if(state == null) {
+            state = createBackground(radius, nColor, bElevation, density).getConstantState();
+            sStates.put(key, state);
+        }
+
+        return state.newDrawable(res);
+    }
+
+    /**
+     * Create the background drawable
+     *
+     * @author Melvin Lobo
+     */
+    private static Drawable createBackground(float radius, int nColor, boolean bElevation, float density) {
+        if(bElevation)
+            return new ElevatedBackgroundDrawable(radius, nColor, density);
+
+        //The radius array to draw the round rect shape. Each pair is for one corner
+        float[] radiiFloat = new float[] {radius, radius, radius, radius, radius, radius, radius, radius};
+
+        ShapeDrawable foregroundShape = new ShapeDrawable(new RoundRectShape(radiiFloat, null, null));
+        foregroundShape.getPaint().setColor(nColor);
+
+        return foregroundShape;
+    }
+
+    /**
+     * Metrics
+     *
+     * @author Melvin Lobo
+     */
+    public static int getHitCount() {
+        return sStates.hitCount();
+    }
+
+    public static int getMissCount() {
+        return sStates.missCount();
+    }
+
+    public static int getEvictionCount() {
+        return sStates.evictionCount();
+    }
+
+    /**
+     * Get the hit rate
+     *
+     * @return
+     *      The ratio of lookups that were served from the cache (0 if there were no lookups)
+     *
+     * @author Melvin Lobo
+     */
+    public static float getHitRate() {
+        int nLookups = sStates.hitCount() + sStates.missCount();
+        return (nLookups == 0) ? 0.0f : (float) sStates.hitCount() / nLookups;
+    }
+
+    /**
+     * Drop all the cached backgrounds (e.g. on low memory). Existing drawables keep their state
+     *
+     * @author Melvin Lobo
+     */
+    public static void clear() {
+        sStates.evictAll();
+    }
+
+    //////////////////////////////////// INNER CLASSES /////////////////////////////////////////////
+    /**
+     * The cache key
+     *
+     * @author Melvin Lobo
+     */
+    private static final class Key {
+        final int mnRadiusBits;
+        final int mnColor;
+        final boolean mbElevation;
+        final int mnDensityBits;
+
+        Key(float radius, int nColor, boolean bElevation, float density) {
+            mnRadiusBits = Float.floatToIntBits(radius);
+            mnColor = nColor;
+            mbElevation = bElevation;
+            mnDensityBits = Float.floatToIntBits(density);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o)
+                return true;
+            if(!(o instanceof Key))
+                return false;
+
+            Key other = (Key) o;
+            return (mnRadiusBits == other.mnRadiusBits) && (mnColor == other.mnColor)
+                    && (mbElevation == other.mbElevation) && (mnDensityBits == other.mnDensityBits);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mnRadiusBits;
+            result = 31 * result + mnColor;
+            result = 31 * result + (mbElevation ? 1 : 0);
+            result = 31 * result + mnDensityBits;
+            return result;
+        }
+    }
+}
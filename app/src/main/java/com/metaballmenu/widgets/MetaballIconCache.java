@@ -0,0 +1,92 @@
+package com.metaballmenu.widgets;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.StateListDrawable;
+import android.support.v4.content.ContextCompat;
+
+/**
+ * The drawables of the menu icons. The icons are loaded through the framework, whose drawable cache is keyed by the
+ * configuration, so all the MetaballMenuImageViews using the same icon share the decoded bitmap, and a configuration
+ * change gets the right one. Each view gets its own StateListDrawable holding both the default and the selected
+ * icon, so a selection change is a drawable state change with no resource lookup or decode.
+ *
+ * All the calls have to be made on the UI thread.
+ *
+ * @author Melvin Lobo
+ */
+public final class MetaballIconCache {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The selected state set
+     */
+    private static final int[] STATE_SELECTED = {android.R.attr.state_selected};
+    private static final int[] STATE_DEFAULT = {};
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * No instances
+     *
+     * @author Melvin Lobo
+     */
+    private MetaballIconCache() {}
+
+    /**
+     * Create the drawable for a menu item, showing the selected image in the selected state and the default image
+     * otherwise
+     *
+     * @param context
+     *      The context to load the images with
+     * @param nDefaultImage
+     *      The default image resource
+     * @param nSelectedImage
+     *      The selected image resource
+     *
+     * @return
+     *      A new StateListDrawable which shares the decoded images
+     *
+     * @author Melvin Lobo
+     */
+    public static StateListDrawable createStateDrawable(Context context, int nDefaultImage, int nSelectedImage) {
+        return createStateDrawable(getDrawable(context, nDefaultImage), getDrawable(context, nSelectedImage));
+    }
+
+    /**
+     * Create the drawable for a menu item from already loaded images (@see MetaballIconLoader)
+     *
+     * @param defaultImage
+     *      The default image
+     * @param selectedImage
+     *      The selected image
+     *
+     * @return
+     *      A new StateListDrawable holding both images
+     *
+     * @author Melvin Lobo
+     */
+    public static StateListDrawable createStateDrawable(Drawable defaultImage, Drawable selectedImage) {
+        StateListDrawable drawable = new StateListDrawable();
+        drawable.addState(STATE_SELECTED, selectedImage);
+        drawable.addState(STATE_DEFAULT, defaultImage);
+        return drawable;
+    }
+
+    /**
+     * Get a drawable for a resource. The framework shares the decoded image with every other drawable loaded for
+     * the same resource in the same configuration
+     *
+     * @param context
+     *      The context to load the image with
+     * @param nResId
+     *      The image resource
+     *
+     * @return
+     *      A new drawable
+     *
+     * @author Melvin Lobo
+     */
+    public static Drawable getDrawable(Context context, int nResId) {
+        return ContextCompat.getDrawable(context, nResId);
+    }
+}
@@ -0,0 +1,306 @@
+package com.metaballmenu.widgets;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.util.LruCache;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads the menu icons off the main thread. The images are decoded on a background executor, sampled down to the
+ * size of the view, and handed back on the main thread. Decoded bitmaps are kept in a size bounded cache by resource,
+ * sample size and the configuration the resource is resolved with (density, night mode, locale, orientation), so
+ * menus showing the same icons only decode them once, and menus under another configuration get their own bitmaps.
+ * The bounds of the images are kept as well, so an icon which is already decoded costs no I/O.
+ *
+ * A load returns a Request, which holds the callback until the images are handed back. Cancelling it drops the
+ * callback, so a view which is detached or shows other images is not kept alive by the executor.
+ *
+ * @author Melvin Lobo
+ */
+public final class MetaballIconLoader {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The number of decoding threads
+     */
+    private static final int THREAD_COUNT = 2;
+
+    /**
+     * The size of the decoded bitmap cache in bytes
+     */
+    private static final int CACHE_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * The number of image bounds kept
+     */
+    private static final int MAX_BOUNDS = 64;
+
+    /**
+     * The decoding executor. The threads are daemons with a background priority, so they neither keep the process
+     * alive nor compete with the UI thread
+     */
+    private static Executor sExecutor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+        private int mnCount = 0;
+
+        @Override
+        public synchronized Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "MetaballIconLoader-" + (++mnCount));
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Handler to post the results to the main thread
+     */
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Decoded bitmaps by resource id, sample size and configuration (LruCache is thread safe)
+     */
+    private static final LruCache<String, Bitmap> sBitmaps = new LruCache<String, Bitmap>(CACHE_SIZE) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getRowBytes() * bitmap.getHeight();
+        }
+    };
+
+    /**
+     * The bounds of the images ({width, height}, both 0 if the resource is not a bitmap) by resource id and
+     * configuration
+     */
+    private static final LruCache<String, int[]> sBounds = new LruCache<String, int[]>(MAX_BOUNDS);
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * No instances
+     *
+     * @author Melvin Lobo
+     */
+    private MetaballIconLoader() {}
+
+    /**
+     * Load a pair of images in the background
+     *
+     * @param context
+     *      The context to load the images with
+     * @param nDefaultImage
+     *      The default image resource
+     * @param nSelectedImage
+     *      The selected image resource, 0 if there is none
+     * @param nRequiredWidth
+     *      The width the images will be shown at, 0 if unknown
+     * @param nRequiredHeight
+     *      The height the images will be shown at, 0 if unknown
+     * @param callback
+     *      The callback to be called on the main thread with the images, unless the request is cancelled first
+     *
+     * @return
+     *      The request, to cancel it
+     *
+     * @author Melvin Lobo
+     */
+    public static Request load(Context context, final int nDefaultImage, final int nSelectedImage, final int nRequiredWidth,
+                               final int nRequiredHeight, Callback callback) {
+        final Context appContext = context.getApplicationContext();
+        final Resources res = context.getResources();
+        final String configKey = getConfigurationKey(res);
+        final Request request = new Request(callback);
+
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if(request.isCancelled())
+                    return;
+
+                final Bitmap defaultBitmap = decode(res, configKey, nDefaultImage, nRequiredWidth, nRequiredHeight);
+                final Bitmap selectedBitmap = (nSelectedImage != 0) ? decode(res, configKey, nSelectedImage, nRequiredWidth, nRequiredHeight) : null;
+
+                sMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        Callback callback = request.take();
+                        if(callback == null)
+                            return;
+
+                        callback.onLoaded(toDrawable(appContext, res, nDefaultImage, defaultBitmap),
+                                (nSelectedImage != 0) ? toDrawable(appContext, res, nSelectedImage, selectedBitmap) : null);
+                    }
+                });
+            }
+        });
+
+        return request;
+    }
+
+    /**
+     * Replace the decoding executor (for the tests)
+     *
+     * @return
+     *      The previous executor
+     *
+     * @author Melvin Lobo
+     */
+    static Executor setExecutor(Executor executor) {
+        Executor previous = sExecutor;
+        sExecutor = executor;
+        return previous;
+    }
+
+    /**
+     * The part of the configuration which selects the resource qualifiers of a drawable. This runs on the calling
+     * thread, so the configuration is not read while it may change
+     *
+     * @author Melvin Lobo
+     */
+    private static String getConfigurationKey(Resources res) {
+        Configuration config = res.getConfiguration();
+        return res.getDisplayMetrics().densityDpi + ":" + config.uiMode + ":" + config.orientation + ":" + config.locale;
+    }
+
+    /**
+     * Wrap a decoded bitmap in a drawable. If the resource could not be decoded as a bitmap (e.g. a vector or
+     * shape drawable), it is loaded from the resources instead. This runs on the main thread
+     *
+     * @author Melvin Lobo
+     */
+    private static Drawable toDrawable(Context context, Resources res, int nResId, Bitmap bitmap) {
+        if(bitmap != null)
+            return new BitmapDrawable(res, bitmap);
+
+        return ContextCompat.getDrawable(context, nResId);
+    }
+
+    /**
+     * Decode a resource, sampled down to the required size. The bounds are read once per resource and
+     * configuration, and the bitmap cache is checked before anything is decoded. This runs on a background thread
+     *
+     * @return
+     *      The bitmap, or null if the resource is not a bitmap
+     *
+     * @author Melvin Lobo
+     */
+    private static Bitmap decode(Resources res, String configKey, int nResId, int nRequiredWidth, int nRequiredHeight) {
+        String boundsKey = nResId + ":" + configKey;
+        int[] bounds = sBounds.get(boundsKey);
+        if(bounds == null) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeResource(res, nResId, options);
+            bounds = new int[] {Math.max(0, options.outWidth), Math.max(0, options.outHeight)};
+            sBounds.put(boundsKey, bounds);
+        }
+
+        if((bounds[0] == 0) || (bounds[1] == 0))
+            return null;
+
+        int nSampleSize = calculateSampleSize(bounds[0], bounds[1], nRequiredWidth, nRequiredHeight);
+        String key = nResId + ":" + nSampleSize + ":" + configKey;
+        Bitmap bitmap = sBitmaps.get(key);
+        if(bitmap == null) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = nSampleSize;
+            bitmap = BitmapFactory.decodeResource(res, nResId, options);
+            if(bitmap != null)
+                sBitmaps.put(key, bitmap);
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Calculate the largest power of 2 sample size which keeps the image at least as large as the required size.
+     * A required dimension of 0 does not constrain the sample size
+     *
+     * @author Melvin Lobo
+     */
+    static int calculateSampleSize(int nWidth, int nHeight, int nRequiredWidth, int nRequiredHeight) {
+        if((nRequiredWidth <= 0) && (nRequiredHeight <= 0))
+            return 1;
+
+        int nSampleSize = 1;
+        while(((nWidth / (nSampleSize * 2)) >= nRequiredWidth) && ((nHeight / (nSampleSize * 2)) >= nRequiredHeight))
+            nSampleSize *= 2;
+
+        return nSampleSize;
+    }
+
+    //////////////////////////////////// INNER CLASSES /////////////////////////////////////////////
+    /**
+     * A pending load. Only the request holds the callback, and it lets go of it once the images are handed back or
+     * the request is cancelled
+     *
+     * @author Melvin Lobo
+     */
+    public static final class Request {
+
+        private volatile Callback mCallback;
+
+        private Request(Callback callback) {
+            mCallback = callback;
+        }
+
+        /**
+         * Cancel the load: the callback is not called, and is no longer referenced. Call it on the main thread
+         *
+         * @author Melvin Lobo
+         */
+        public void cancel() {
+            mCallback = null;
+        }
+
+        public boolean isCancelled() {
+            return mCallback == null;
+        }
+
+        /**
+         * Get the callback and let go of it, on the main thread
+         *
+         * @author Melvin Lobo
+         */
+        private Callback take() {
+            Callback callback = mCallback;
+            mCallback = null;
+            return callback;
+        }
+    }
+
+    //////////////////////////////////////// INTERFACES ////////////////////////////////////////////
+    /**
+     * Interface to receive the loaded images
+     *
+     * @author Melvin Lobo
+     */
+    public interface Callback {
+
+        /**
+         * Called on the main thread once the images are loaded
+         *
+         * @param defaultImage
+         *      The default image
+         * @param selectedImage
+         *      The selected image, null if none was requested
+         *
+         * @author Melvin Lobo
+         */
+        void onLoaded(Drawable defaultImage, Drawable selectedImage);
+    }
+}
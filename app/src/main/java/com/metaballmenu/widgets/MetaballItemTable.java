@@ -0,0 +1,335 @@
+package com.metaballmenu.widgets;
+
+import android.view.View;
+
+import java.util.Arrays;
+
+/**
+ * The centers and selector radii of the menu items, rebuilt on every layout, and an index to map a touch position to an item in
+ * constant time. The items are laid out in a row, a column, or a grid filled row by row. An item owns the positions
+ * closer to its center than to its neighbours' (per axis in a grid).
+ *
+ * Only the items which can be touched are indexed, in slots which map back to the item indices. GONE items are not
+ * laid out, so their centers are stale: they get no slot, and their neighbours share their room. In a row or a
+ * column, INVISIBLE items get no slot either. In a grid they keep their cell, as the layout does, but a touch on it
+ * finds no item.
+ *
+ * The arrays are grown when needed and reused otherwise, so a layout does not allocate.
+ *
+ * @author Melvin Lobo
+ */
+final class MetaballItemTable {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The initial capacity of the tables
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * The number of items
+     */
+    private int mnCount = 0;
+
+    /**
+     * The item centers
+     */
+    private float[] mfCenterX = new float[INITIAL_CAPACITY];
+    private float[] mfCenterY = new float[INITIAL_CAPACITY];
+
+    /**
+     * The selector radius of each item, which depends on its size and the radius policy of the menu
+     */
+    private float[] mfRadius = new float[INITIAL_CAPACITY];
+
+    /**
+     * The visibility of each item (View.VISIBLE, INVISIBLE or GONE)
+     */
+    private int[] mnVisibility = new int[INITIAL_CAPACITY];
+
+    /**
+     * The indexed slots: the item of each slot, and the position of the slot along the main axis
+     */
+    private int mnSlotCount = 0;
+    private int[] mnSlotItems = new int[INITIAL_CAPACITY];
+    private float[] mfSlotPositions = new float[INITIAL_CAPACITY];
+
+    /**
+     * The layout of the items: vertical for a column, and the number of columns for a grid (0 for a row or a column)
+     */
+    private boolean mbVertical = false;
+    private int mnColumns = 0;
+
+    /**
+     * The index along the items (or the columns of a grid), and the index of the rows of a grid
+     */
+    private final AxisIndex mMainIndex = new AxisIndex();
+    private final AxisIndex mRowIndex = new AxisIndex();
+
+    /**
+     * The row centers of a grid
+     */
+    private float[] mfRowCenters = new float[INITIAL_CAPACITY];
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Start rebuilding the table
+     *
+     * @param nCount
+     *      The number of items
+     *
+     * @author Melvin Lobo
+     */
+    void reset(int nCount) {
+        mnCount = nCount;
+        if(mfCenterX.length < nCount) {
+            int nCapacity = Math.max(nCount, mfCenterX.length * 2);
+            mfCenterX = new float[nCapacity];
+            mfCenterY = new float[nCapacity];
+            mfRadius = new float[nCapacity];
+            mnVisibility = new int[nCapacity];
+            mnSlotItems = new int[nCapacity];
+            mfSlotPositions = new float[nCapacity];
+        }
+        Arrays.fill(mnVisibility, 0, nCount, View.VISIBLE);
+    }
+
+    /**
+     * Set the center of an item
+     *
+     * @author Melvin Lobo
+     */
+    void setCenter(int nIndex, float x, float y) {
+        mfCenterX[nIndex] = x;
+        mfCenterY[nIndex] = y;
+    }
+
+    /**
+     * Set the selector radius of an item
+     *
+     * @author Melvin Lobo
+     */
+    void setRadius(int nIndex, float radius) {
+        mfRadius[nIndex] = radius;
+    }
+
+    /**
+     * Set the visibility of an item. Items are VISIBLE unless set otherwise
+     *
+     * @author Melvin Lobo
+     */
+    void setVisibility(int nIndex, int nVisibility) {
+        mnVisibility[nIndex] = nVisibility;
+    }
+
+    /**
+     * Build the lookup index once all the centers are set
+     *
+     * @param bVertical
+     *      True if the items are laid out in a column, false for a row. Ignored for a grid
+     * @param nColumns
+     *      The number of columns of a grid, 0 for a single row or column
+     *
+     * @author Melvin Lobo
+     */
+    void buildIndex(boolean bVertical, int nColumns) {
+        mbVertical = bVertical;
+
+        // A row or a column indexes the visible items, a grid its cells
+        mnSlotCount = 0;
+        for(int nCtr = 0; nCtr < mnCount; ++nCtr) {
+            if((mnVisibility[nCtr] == View.VISIBLE) || ((nColumns > 0) && (mnVisibility[nCtr] != View.GONE))) {
+                mnSlotItems[mnSlotCount] = nCtr;
+                mfSlotPositions[mnSlotCount] = (bVertical && (nColumns == 0)) ? mfCenterY[nCtr] : mfCenterX[nCtr];
+                ++mnSlotCount;
+            }
+        }
+
+        mnColumns = (nColumns > 0) ? Math.min(nColumns, mnSlotCount) : 0;
+        if(mnColumns == 0) {
+            mMainIndex.build(mfSlotPositions, mnSlotCount);
+            mRowIndex.build(mfRowCenters, 0);
+            return;
+        }
+
+        // The columns are the cells of the first row, and the rows are found by their first cell
+        int nRows = (mnSlotCount + mnColumns - 1) / mnColumns;
+        if(mfRowCenters.length < nRows)
+            mfRowCenters = new float[Math.max(nRows, mfRowCenters.length * 2)];
+        for(int nRow = 0; nRow < nRows; ++nRow)
+            mfRowCenters[nRow] = mfCenterY[mnSlotItems[nRow * mnColumns]];
+
+        mMainIndex.build(mfSlotPositions, mnColumns);
+        mRowIndex.build(mfRowCenters, nRows);
+    }
+
+    /**
+     * Get the item at a position
+     *
+     * @param x
+     *      The x co-ordinate, in the co-ordinates of the menu
+     * @param y
+     *      The y co-ordinate, in the co-ordinates of the menu
+     *
+     * @return
+     *      The index of the item, -1 if there are no visible items, or the cell of the grid holds an invisible one
+     *
+     * @author Melvin Lobo
+     */
+    int indexAt(float x, float y) {
+        if(mnSlotCount == 0)
+            return -1;
+
+        if(mnColumns == 0)
+            return mnSlotItems[mMainIndex.indexAt(mbVertical ? y : x)];
+
+        // The last row may not be full, so clamp to the last cell
+        int nItem = mnSlotItems[Math.min(mnSlotCount - 1, (mRowIndex.indexAt(y) * mnColumns) + mMainIndex.indexAt(x))];
+        return (mnVisibility[nItem] == View.VISIBLE) ? nItem : -1;
+    }
+
+    /**
+     * Getters
+     *
+     * @author Melvin Lobo
+     */
+    int getCount() {
+        return mnCount;
+    }
+
+    float getCenterX(int nIndex) {
+        return mfCenterX[nIndex];
+    }
+
+    float getCenterY(int nIndex) {
+        return mfCenterY[nIndex];
+    }
+
+    float getRadius(int nIndex) {
+        return mfRadius[nIndex];
+    }
+
+    /**
+     * Drop all the items
+     *
+     * @author Melvin Lobo
+     */
+    void clear() {
+        mnCount = 0;
+        mnSlotCount = 0;
+        mnColumns = 0;
+        mMainIndex.build(mfSlotPositions, 0);
+        mRowIndex.build(mfRowCenters, 0);
+    }
+
+    //////////////////////////////////// INNER CLASSES /////////////////////////////////////////////
+    /**
+     * Constant time lookup of the nearest of a set of ordered positions along one axis. The axis is split in
+     * buckets no wider than the narrowest gap between two boundaries, so a bucket holds at most one boundary and a
+     * lookup is a bucket read and at most one comparison, whatever the number of positions.
+     *
+     * @author Melvin Lobo
+     */
+    private static final class AxisIndex {
+        /**
+         * The number of positions
+         */
+        private int mnCount = 0;
+
+        /**
+         * The boundary between a position and the next one (their midpoint). The positions are indexed along a
+         * growing axis, so the co-ordinates are negated when they are laid out right to left (or bottom to top)
+         */
+        private float[] mfBoundaries = new float[INITIAL_CAPACITY];
+        private boolean mbReversed = false;
+
+        /**
+         * The buckets: the first position whose boundary lies beyond the start of each bucket
+         */
+        private int[] mnBuckets = new int[INITIAL_CAPACITY];
+        private int mnBucketCount = 0;
+        private float mfBucketOrigin = 0.0f;
+        private float mfBucketWidth = 1.0f;
+
+        /**
+         * Build the index
+         *
+         * @param positions
+         *      The positions, in order
+         * @param nCount
+         *      The number of positions
+         *
+         * @author Melvin Lobo
+         */
+        void build(float[] positions, int nCount) {
+            mnCount = nCount;
+            mnBucketCount = 0;
+            if(nCount < 2)
+                return;
+
+            if(mfBoundaries.length < nCount)
+                mfBoundaries = new float[Math.max(nCount, mfBoundaries.length * 2)];
+
+            mbReversed = positions[nCount - 1] < positions[0];
+
+            // The boundaries, and the narrowest gap between two of them
+            float minGap = Float.MAX_VALUE;
+            for(int nCtr = 0; nCtr < nCount - 1; ++nCtr) {
+                mfBoundaries[nCtr] = (axis(positions[nCtr]) + axis(positions[nCtr + 1])) / 2.0f;
+                if(nCtr > 0)
+                    minGap = Math.min(minGap, mfBoundaries[nCtr] - mfBoundaries[nCtr - 1]);
+            }
+
+            int nLastBoundary = nCount - 2;
+            mfBucketWidth = Math.max(1.0f, (nLastBoundary == 0) ? 1.0f : minGap);
+            mfBucketOrigin = mfBoundaries[0];
+
+            int nBucketCount = Math.max(1, (int) Math.ceil((mfBoundaries[nLastBoundary] - mfBucketOrigin) / mfBucketWidth) + 1);
+            if(mnBuckets.length < nBucketCount)
+                mnBuckets = new int[Math.max(nBucketCount, mnBuckets.length * 2)];
+
+            int nItem = 0;
+            for(int nBucket = 0; nBucket < nBucketCount; ++nBucket) {
+                float bucketStart = mfBucketOrigin + (nBucket * mfBucketWidth);
+                while((nItem < nCount - 1) && (mfBoundaries[nItem] <= bucketStart))
+                    ++nItem;
+                mnBuckets[nBucket] = nItem;
+            }
+
+            mnBucketCount = nBucketCount;
+        }
+
+        /**
+         * Get the nearest position
+         *
+         * @return
+         *      Its index, -1 if there are no positions
+         *
+         * @author Melvin Lobo
+         */
+        int indexAt(float coordinate) {
+            if(mnCount < 2)
+                return mnCount - 1;
+
+            float position = axis(coordinate);
+            if(position < mfBucketOrigin)
+                return 0;
+
+            int nBucket = Math.min(mnBucketCount - 1, (int) ((position - mfBucketOrigin) / mfBucketWidth));
+            int nItem = mnBuckets[nBucket];
+            while((nItem < mnCount - 1) && (position >= mfBoundaries[nItem]))
+                ++nItem;
+
+            return nItem;
+        }
+
+        /**
+         * Map a co-ordinate on the growing axis of the positions
+         *
+         * @author Melvin Lobo
+         */
+        private float axis(float coordinate) {
+            return mbReversed ? -coordinate : coordinate;
+        }
+    }
+}
@@ -1,27 +1,38 @@
 package com.metaballmenu.widgets;
 
+import android.animation.TimeInterpolator;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
-import android.graphics.drawable.LayerDrawable;
-import android.graphics.drawable.ShapeDrawable;
-import android.graphics.drawable.shapes.RoundRectShape;
 import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.v4.content.ContextCompat;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.MotionEvent;
 import android.view.View;
-import android.view.animation.Animation;
-import android.view.animation.BounceInterpolator;
-import android.view.animation.Transformation;
+import android.view.ViewGroup;
+import android.view.animation.AnimationUtils;
 import android.widget.LinearLayout;
 
 import com.metaballmenu.R;
+import com.metaballmenu.geometry.MarchingSquaresContour;
+import com.metaballmenu.geometry.MetaballDensityGrid;
+import com.metaballmenu.geometry.MetaballField;
+import com.metaballmenu.geometry.MetaballGeometry;
+import com.metaballmenu.geometry.MetaballMesh;
+import com.metaballmenu.geometry.SpringSimulation;
+import com.metaballmenu.geometry.TransitionKeyframeCache;
+import com.metaballmenu.geometry.TransitionKeyframes;
 
 /**
  * Created by Melvin Lobo on 10/19/2015.
@@ -39,11 +50,95 @@ public class MetaballMenu extends LinearLayout {
     /**
      * Static definitions
      */
-    private static final String SHAPE_1_COLOR = "#10000000";
-    private static final String SHAPE_2_COLOR = "#13000000";
-    private static final String SHAPE_3_COLOR = "#20000000";
-    private static final int DEFAULT_BACKGROUND_RADIUS = 20;
+    static final int DEFAULT_BACKGROUND_RADIUS = 20;
     private static final float ELEVATION = 6.0f;
+    static final int DEFAULT_ITEM_PADDING = 10;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /**
+     * The metaballs besides the selector, relative to the selector radius: the badge radius and its offset from the
+     * item center (on the selector circumference, top right), and the gap under which two metaballs merge
+     */
+    private static final float BADGE_RADIUS_RATIO = 0.35f;
+    private static final float BADGE_OFFSET_RATIO = 0.7f;
+    private static final float MERGE_GAP_RATIO = 0.5f;
+
+    /**
+     * Selector cache modes (@see attrs.xml selectorCacheMode)
+     * NONE   - The selector is drawn as a circle on every redraw
+     * BITMAP - The selector is rasterized once into a bitmap which is drawn on every redraw
+     * LAYER  - BITMAP, and the idle menu is kept in a hardware layer. The layer is dropped during transitions,
+     *          as its content changes on every frame
+     */
+    public static final int CACHE_MODE_NONE = 0;
+    public static final int CACHE_MODE_BITMAP = 1;
+    public static final int CACHE_MODE_LAYER = 2;
+
+    /**
+     * Render modes (@see attrs.xml renderMode)
+     * BRIDGE - The metaballs are circles joined by bezier bridges (@see MetaballGeometry)
+     * FIELD  - The metaballs are the surface of a true metaball field, sampled on a grid of FIELD_SAMPLE_SIZE pixel
+     *          cells and rasterized into a low resolution bitmap, which is scaled up with filtering
+     * CONTOUR - The same surface, traced with marching squares on the same grid and drawn as a path. The samples
+     *          are only updated around the metaballs which moved
+     * MESH   - BRIDGE, with the transition circles and bridge flattened into one triangle mesh and drawn with
+     *          drawVertices instead of a path (@see MetaballMesh). The mesh is not anti-aliased. Hardware canvases
+     *          only draw vertices from API 29 (MESH_MIN_HARDWARE_SDK), below that the path is drawn
+     */
+    public static final int RENDER_MODE_BRIDGE = 0;
+    public static final int RENDER_MODE_FIELD = 1;
+    public static final int RENDER_MODE_CONTOUR = 2;
+    public static final int RENDER_MODE_MESH = 3;
+    private static final int FIELD_SAMPLE_SIZE = 4;
+    private static final int MESH_MIN_HARDWARE_SDK = 29;
+
+    /**
+     * Selector radius policies (@see attrs.xml selectorRadiusPolicy)
+     * INSCRIBED     - The largest circle which fits in the item, i.e. half its smaller side. The padding of the item
+     *                 keeps the icon clear of the edge of the selector
+     * CIRCUMSCRIBED - The smallest circle which covers the item, i.e. half its diagonal
+     * FIXED         - The same radius for all the items (@see attrs.xml selectorRadius)
+     * LARGER_SIDE   - About half the larger side of the item, the radius the selector always had (the default). On
+     *                 an item which is not square, the selector goes past its shorter sides
+     */
+    public static final int SELECTOR_RADIUS_INSCRIBED = 0;
+    public static final int SELECTOR_RADIUS_CIRCUMSCRIBED = 1;
+    public static final int SELECTOR_RADIUS_FIXED = 2;
+    public static final int SELECTOR_RADIUS_LARGER_SIDE = 3;
+
+    /**
+     * Quality tiers of the transition, from the best to the cheapest. With adaptive quality, the menu steps through
+     * them when the frames come late (@see TransitionQualityGovernor)
+     * FULL          - The circles and the bridges, in the render mode of the menu
+     * NO_BRIDGE     - The circles only
+     * NO_ANTI_ALIAS - The circles only, without anti-aliasing
+     * INSTANT       - No transition, the selection jumps to the item
+     */
+    public static final int QUALITY_FULL = 0;
+    public static final int QUALITY_NO_BRIDGE = 1;
+    public static final int QUALITY_NO_ANTI_ALIAS = 2;
+    public static final int QUALITY_INSTANT = 3;
+
+    /**
+     * Transition timings (@see attrs.xml transitionTiming)
+     * CURVE  - A duration and an interpolator (@see TransitionDriver)
+     * SPRING - Springs on the center of the transitional circle and on both radii, integrated in fixed steps and run
+     *          till they settle (@see SpringSimulation). A transition started during another keeps the velocity
+     *          of the transitional circle, and the motion is the same at any refresh rate
+     */
+    public static final int TRANSITION_CURVE = 0;
+    public static final int TRANSITION_SPRING = 1;
+    private static final int SPRING_X = 0;
+    private static final int SPRING_Y = 1;
+    private static final int SPRING_ORIGIN_RADIUS = 2;
+    private static final int SPRING_DESTINATION_RADIUS = 3;
+    private static final int SPRING_CHANNELS = 4;
+
+    /**
+     * The most lobes of interrupted transitions which fade out at once, and the floats kept per lobe (x, y, radius)
+     */
+    private static final int MAX_FADING_LOBES = 4;
+    private static final int LOBE_SIZE = 3;
 
     /**
      * The background color for the view
@@ -72,49 +167,235 @@ public class MetaballMenu extends LinearLayout {
     private float mfInterpolatedTime = 0;
 
     /**
-     * The transition animation object so that we don't have to instantiate it every time
+     * The selector cache mode
+     */
+    private int mnCacheMode = CACHE_MODE_NONE;
+
+    /**
+     * The render mode, and in FIELD mode the sampled field, its pixels and the bitmap they are uploaded to. The
+     * buffers are allocated for the size of the menu and reused on every frame
+     */
+    private int mnRenderMode = RENDER_MODE_BRIDGE;
+    private final MetaballDensityGrid mDensityGrid = new MetaballDensityGrid();
+    private int[] mnFieldPixels = null;
+    private Bitmap mFieldBitmap = null;
+    private final Rect mFieldBitmapRect = new Rect();
+    private final Paint mFieldBitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    /**
+     * In CONTOUR mode, the incremental contour extractor and the path it traces on
+     */
+    private final MarchingSquaresContour mContour = new MarchingSquaresContour();
+    private final ContourPath mContourPath = new ContourPath();
+
+    /**
+     * In MESH mode, the triangles of the transition. Its buffers are reused on every frame
+     */
+    private final MetaballMesh mMesh = new MetaballMesh();
+
+    /**
+     * Indicates if the quality of the transitions adapts to the frame times, and the governor which picks the tier.
+     * It is off unless asked for, as it changes the look of the transitions
+     */
+    private boolean mbAdaptiveQuality = false;
+    private final TransitionQualityGovernor mQualityGovernor = new TransitionQualityGovernor();
+
+    /**
+     * The rasterized selector and the radius it was rasterized with
+     */
+    private Bitmap mSelectorBitmap = null;
+    private float mfSelectorBitmapRadius = 0.0f;
+
+    /**
+     * The frame clock for the transition. Created once and reused for every transition
+     */
+    private TransitionDriver mTransitionDriver = null;
+
+    /**
+     * The springs of TRANSITION_SPRING, reused for every transition
      */
-    private TransitionAnimation mTransitionAnimation = null;
+    private final SpringSimulation mSpring = new SpringSimulation(SPRING_CHANNELS);
 
     /**
      * The transitional circle (this represents the small circle which translates between the origin
      * and the destination. The bezier curves will be extending from this circle to the destination
-     * circle giving a blob appearance)
+     * circle giving a blob appearance). It is allocated once and reused for every transition
      */
-    private Circle mTransitionalCircle = null;
+    private final Circle mTransitionalCircle = new Circle();
 
     /**
      * The current destination point to move to. This is used to avoid repeated calls for getting
      * the point when performing calculations
      */
-    private Point mDestinationPoint = null;
+    private final Point mDestinationPoint = new Point();
 
     /**
      * The origin point. This is used to avoid repeated calls for getting
      * the point when performing calculations
      */
-    private Point mOriginPoint = null;
+    private final Point mOriginPoint = new Point();
+
+    /**
+     * Scratch point used by the selector so that we don't allocate in onDraw
+     */
+    private final Point mSelectorPoint = new Point();
+
+    /**
+     * Indicates if the destination point holds the center of the currently selected view
+     */
+    private boolean mbDestinationSet = false;
+
+    /**
+     * Scratch buffer for the bridge outline (@see MetaballGeometry). Reused on every frame
+     */
+    private final float[] mfOutline = new float[MetaballGeometry.OUTLINE_SIZE];
+
+    /**
+     * The path used to draw the bridge. It is rewound and reused on every frame
+     */
+    private final Path mMetaballPath = new Path();
+
+    /**
+     * The state of the current transition frame. The frame is computed once when the frame clock ticks, so that
+     * we know the area to invalidate, and then drawn in onDraw
+     */
+    private boolean mbFrameComputed = false;
+    private boolean mbBridge = false;
+    private float mfOriginRadius = 0.0f;
+    private float mfDestinationRadius = 0.0f;
+
+    /**
+     * The lobes left behind by retargeted transitions: the destination circle of each interrupted transition. They
+     * are bridged to the transitional circle, and merge into it as the transition goes on, shrinking to nothing.
+     * mfFadingLobes holds where they start from, mfFadingFrame where they are in the current frame
+     */
+    private final float[] mfFadingLobes = new float[MAX_FADING_LOBES * LOBE_SIZE];
+    private final float[] mfFadingFrame = new float[MAX_FADING_LOBES * LOBE_SIZE];
+    private final float[] mfFadingOutlines = new float[MAX_FADING_LOBES * MetaballGeometry.OUTLINE_SIZE];
+    private final boolean[] mbFadingBridges = new boolean[MAX_FADING_LOBES];
+    private int mnFadingLobeCount = 0;
+
+    /**
+     * The velocity of the transitional circle (in pixels per second), measured from frame to frame, and the center
+     * and frame time it was last measured at. A transition which is retargeted starts from the transitional circle,
+     * and carries this velocity into the next one
+     */
+    private float mfCircleVelocityX = 0.0f;
+    private float mfCircleVelocityY = 0.0f;
+    private float mfLastCircleX = 0.0f;
+    private float mfLastCircleY = 0.0f;
+    private long mnLastCircleTimeNanos = -1;
+
+    /**
+     * The velocity carried over from an interrupted transition (in pixels per second). It bends the path of the
+     * transitional circle at the start of the transition and dies out by its end
+     */
+    private float mfCarryVelocityX = 0.0f;
+    private float mfCarryVelocityY = 0.0f;
+
+    /**
+     * The field of all the metaballs when the items have badges or are checked. They merge with the selector and
+     * with each other. The field is refilled on every frame, the selector circles first. mnFieldItemCount is the
+     * number of items with a badge or checked, and nothing else is done while it is 0
+     */
+    private final MetaballField mField = new MetaballField();
+    private int mnFieldItemCount = 0;
+    private int mnFieldFirstBlob = 0;
+    private final Path mFieldPath = new Path();
+    private boolean mbFieldBridges = false;
+    private final Point mBlobPoint = new Point();
+
+    /**
+     * The area covered by the current and the previous transition frame. Only this area is invalidated
+     */
+    private final Rect mFrameRect = new Rect();
+    private final Rect mPreviousFrameRect = new Rect();
+    private final Rect mDirtyRect = new Rect();
+
+    /**
+     * Debug overlay to visualize the invalidated areas
+     */
+    private boolean mbShowDirtyRegions = false;
+    private Paint mDirtyRegionPaint = null;
+    private final Rect mDirtyRegionRect = new Rect();
+
+    /**
+     * Cache of the sampled transitions, so that hopping between the same items again only costs a lerp
+     * per frame. It is invalidated whenever the layout changes
+     */
+    private final TransitionKeyframeCache mKeyframeCache = new TransitionKeyframeCache();
+
+    /**
+     * The keyframes of the current transition
+     */
+    private TransitionKeyframes mCurrentKeyframes = null;
 
     /**
-     * The selector radius
+     * The radius of the selector on the selected item. The radius of every item is kept in the item table
      */
     private float mfSelectorRadius = 0.0f;
 
     /**
-     * The Currently selected Child View (Menu Option)
+     * The selector radius policy, and the radius of SELECTOR_RADIUS_FIXED in pixels
+     */
+    private int mnSelectorRadiusPolicy = SELECTOR_RADIUS_LARGER_SIDE;
+    private float mfFixedSelectorRadius = 0.0f;
+
+    /**
+     * The selector radii on both ends of the current transition. They differ when the items have different sizes,
+     * and the blob grows or shrinks from one to the other
+     */
+    private float mfOriginSelectorRadius = 0.0f;
+    private float mfDestinationSelectorRadius = 0.0f;
+
+    /**
+     * The Currently selected Child View (Menu Option) and its index
      */
     private View mSelectedView = null;
+    private int mnSelectedIndex = -1;
+
+    /**
+     * The item centers, rebuilt on every layout, to find the item under a touch and the selector position without
+     * going through the children
+     */
+    private final MetaballItemTable mItemTable = new MetaballItemTable();
+
+    /**
+     * The item under the finger when the touch went down, -1 if none
+     */
+    private int mnTouchIndex = -1;
+
+    /**
+     * The click listener shared by all the items, which keeps them clickable and focusable for accessibility services
+     * and keyboard or D-pad users. The touches are taken by the menu (@see onInterceptTouchEvent), so it only gets the
+     * clicks performed on an item by TalkBack or by a key press on the focused item
+     */
+    private final View.OnClickListener mItemClickListener = new View.OnClickListener() {
+        @Override
+        public void onClick(View view) {
+            int nIndex = indexOfChild(view);
+            if(isEnabled() && (nIndex >= 0) && (view.getVisibility() == View.VISIBLE))
+                onItemClick(nIndex);
+        }
+    };
 
     /**
-     * The current transition distance (Origin to Destination)
+     * The number of columns in the grid layout, 0 to lay the items out in a single row or column (@see
+     * attrs.xml gridColumns)
      */
-    private float mfTransitionDistance = 0.0f;
+    private int mnGridColumns = 0;
 
     /**
      * The Menu click listener
      */
     private MetaballMenuClickListener mMenuClickListener = null;
 
+    /**
+     * The transition metrics listener, and the recorder which is only created once a listener is attached
+     */
+    private TransitionMetricsListener mMetricsListener = null;
+    private TransitionMetricsRecorder mMetricsRecorder = null;
+
     /**
      * Note if the background color has been set
      */
@@ -142,7 +423,7 @@ public class MetaballMenu extends LinearLayout {
      */
     public MetaballMenu(Context context)    {
         super(context);
-        init(context, null);
+        init(context, null, null);
     }
 
     /**
@@ -158,7 +439,7 @@ public class MetaballMenu extends LinearLayout {
     public MetaballMenu(Context context, AttributeSet attrs)
     {
         super(context, attrs);
-        init(context, attrs);
+        init(context, attrs, null);
     }
 
     /**
@@ -176,7 +457,38 @@ public class MetaballMenu extends LinearLayout {
     public MetaballMenu(Context context, AttributeSet attrs, int defStyle)
     {
         super(context, attrs, defStyle);
-        init(context, attrs);
+        init(context, attrs, null);
+    }
+
+    /**
+     * Constructor to create the widget and its items in code, from a resolved spec. Nothing is inflated and no
+     * attributes are parsed. Usually called through MetaballMenuSpec.create
+     *
+     * @param context
+     * 		The context of the activity which acts as a parent to the widget
+     * @param spec
+     * 		The spec of the menu and its items
+     *
+     * @author Melvin Lobo
+     */
+    public MetaballMenu(Context context, MetaballMenuSpec spec)
+    {
+        super(context);
+        init(context, null, spec);
+
+        // The items, without the bookkeeping addItem does per item
+        int nPadding = spec.getItemPadding();
+        for(int nCtr = 0; nCtr < spec.getItemCount(); ++nCtr) {
+            MetaballMenuImageView item = new MetaballMenuImageView(context);
+            item.setImages(spec.getDefaultImage(nCtr), spec.getSelectedImage(nCtr));
+            item.setPadding(nPadding, nPadding, nPadding, nPadding);
+            registerItem(item);
+            addView(item, createItemLayoutParams());
+        }
+
+        //Set the first child as the selected View, as onFinishInflate does
+        if(getChildCount() > 0)
+            setSelection(0);
     }
 
 
@@ -188,10 +500,19 @@ public class MetaballMenu extends LinearLayout {
      *            The context of the widget, usually passed through the constructor
      * @param attrs
      *            The user-defined attributes specified in the xml. @see values/attrs.xml for the definitions
+     * @param spec
+     *            The spec of a menu created in code, used when there are no attributes
      *
      * @author Melvin Lobo
      */
-    private void init( Context context, AttributeSet attrs ) {
+    private void init( Context context, AttributeSet attrs, MetaballMenuSpec spec ) {
+        int nTransitionDuration = (int) TransitionDriver.DEFAULT_DURATION;
+        int nInterpolatorId = 0;
+        float frameBudget = 0.0f;
+        int nTransitionTiming = TRANSITION_CURVE;
+        float springStiffness = 0.0f;
+        float springDampingRatio = 0.0f;
+
         if(attrs != null) {
             TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.MetaballMenu, 0, 0);
 
@@ -199,6 +520,19 @@ public class MetaballMenu extends LinearLayout {
             mnMetaballColor = a.getColor(R.styleable.MetaballMenu_metaballColor, ContextCompat.getColor(context, android.R.color.white));
             mfBackgroundShapeRadius = a.getDimension(R.styleable.MetaballMenu_backgroundShapeRadius, d2x(DEFAULT_BACKGROUND_RADIUS));
             mbElevationRequired = a.getBoolean(R.styleable.MetaballMenu_needsElevation, false);
+            nTransitionDuration = a.getInt(R.styleable.MetaballMenu_transitionDuration, (int) TransitionDriver.DEFAULT_DURATION);
+            nInterpolatorId = a.getResourceId(R.styleable.MetaballMenu_transitionInterpolator, 0);
+            mnCacheMode = a.getInt(R.styleable.MetaballMenu_selectorCacheMode, CACHE_MODE_NONE);
+            mnRenderMode = a.getInt(R.styleable.MetaballMenu_renderMode, RENDER_MODE_BRIDGE);
+            mnGridColumns = Math.max(0, a.getInt(R.styleable.MetaballMenu_gridColumns, 0));
+            mfFixedSelectorRadius = Math.max(0.0f, a.getDimension(R.styleable.MetaballMenu_selectorRadius, 0.0f));
+            mnSelectorRadiusPolicy = a.getInt(R.styleable.MetaballMenu_selectorRadiusPolicy,
+                    a.hasValue(R.styleable.MetaballMenu_selectorRadius) ? SELECTOR_RADIUS_FIXED : SELECTOR_RADIUS_LARGER_SIDE);
+            mbAdaptiveQuality = a.getBoolean(R.styleable.MetaballMenu_adaptiveQuality, false);
+            frameBudget = a.getFloat(R.styleable.MetaballMenu_frameBudget, 0.0f);
+            nTransitionTiming = a.getInt(R.styleable.MetaballMenu_transitionTiming, TRANSITION_CURVE);
+            springStiffness = a.getFloat(R.styleable.MetaballMenu_springStiffness, 0.0f);
+            springDampingRatio = a.getFloat(R.styleable.MetaballMenu_springDampingRatio, 0.0f);
 
             // Initialize the Metaball paint
             mMetaballDestination.setColor(mnMetaballColor);
@@ -206,6 +540,24 @@ public class MetaballMenu extends LinearLayout {
 
             a.recycle();
         }
+        else if(spec != null) {
+            // Everything was resolved when the spec was built
+            mnBackgroundColor = spec.getBackgroundColor();
+            mnMetaballColor = spec.getMetaballColor();
+            mfBackgroundShapeRadius = spec.getBackgroundShapeRadius();
+            mbElevationRequired = spec.isElevationRequired();
+            nTransitionDuration = (int) spec.getTransitionDuration();
+            mnRenderMode = spec.getRenderMode();
+            mnSelectorRadiusPolicy = spec.getSelectorRadiusPolicy();
+            mfFixedSelectorRadius = spec.getSelectorRadius();
+
+            mMetaballDestination.setColor(mnMetaballColor);
+            mMetaballDestination.setStyle(Paint.Style.FILL);
+
+            setOrientation(spec.getOrientation());
+            setGravity(Gravity.CENTER);
+            setPadding(spec.getPadding(), spec.getPadding(), spec.getPadding(), spec.getPadding());
+        }
 
         /*
          * A very nasty bug that exists pre-kitkat which I spent hours figuring out. If we assign a
@@ -218,234 +570,1861 @@ public class MetaballMenu extends LinearLayout {
         int pT = getPaddingTop();
         int pB = getPaddingBottom();
 
-        setBackgroundResource();
-        setPadding(pL, pT, pR, pB);
+        setBackgroundResource();
+        setPadding(pL, pT, pR, pB);
+
+        // The orientation comes from android:orientation (horizontal by default). The transitions work in any direction
+
+        // Set up the transition clock
+        mTransitionDriver = new TransitionDriver(new TransitionDriver.Callback() {
+            @Override
+            public void onTransitionFrame(float interpolatedTime, long frameTimeNanos) {
+                if(mMetricsListener != null)
+                    mMetricsRecorder.onFrame(frameTimeNanos);
+
+                if(mbAdaptiveQuality && mQualityGovernor.onFrame(frameTimeNanos) && !onQualityTierChanged())
+                    return;             // Down to QUALITY_INSTANT, the transition is over
+
+                mfInterpolatedTime = interpolatedTime;
+                mbFrameComputed = false;
+                invalidateTransition();
+                trackCircleVelocity(frameTimeNanos);
+            }
+
+            @Override
+            public void onTransitionEnd() {
+                endTransition();
+            }
+        });
+        mTransitionDriver.setDuration(nTransitionDuration);
+        if(nInterpolatorId != 0)
+            mTransitionDriver.setInterpolator(AnimationUtils.loadInterpolator(context, nInterpolatorId));
+        if(frameBudget > 0.0f)
+            setFrameBudget(frameBudget);
+        if(springStiffness > 0.0f)
+            setSpringStiffness(springStiffness);
+        if(springDampingRatio > 0.0f)
+            setSpringDampingRatio(springDampingRatio);
+        setTransitionTiming(nTransitionTiming);
+
+        updateLayerType();
+    }
+
+    /**
+     * Getter for the Click Listener
+     *
+     * @return
+     *      The listener
+     *
+     * @author Melvin Lobo
+     */
+    public MetaballMenuClickListener getMenuClickListener() {
+        return mMenuClickListener;
+    }
+
+    /**
+     * Setter for the Click Listener
+     *
+     * @param menuClickListener
+     *      The MenuClickListener
+     *
+     * @author Melvin Lobo
+     */
+    public void setMenuClickListener(MetaballMenuClickListener menuClickListener) {
+        mMenuClickListener = menuClickListener;
+    }
+
+    /**
+     * Set the listener for the frame statistics of the transitions. Nothing is measured while no listener is set
+     *
+     * @param listener
+     *      The listener, null to stop measuring
+     *
+     * @author Melvin Lobo
+     */
+    public void setTransitionMetricsListener(TransitionMetricsListener listener) {
+        mMetricsListener = listener;
+        if((listener != null) && (mMetricsRecorder == null))
+            mMetricsRecorder = new TransitionMetricsRecorder();
+    }
+
+    /**
+     * Getter for the transition metrics listener
+     *
+     * @return
+     *      The listener
+     *
+     * @author Melvin Lobo
+     */
+    public TransitionMetricsListener getTransitionMetricsListener() {
+        return mMetricsListener;
+    }
+
+    /**
+     * Getter for the frame clock, so that the JVM render tests can drive the transition frame by frame
+     *
+     * @return
+     *      The transition driver
+     *
+     * @author Melvin Lobo
+     */
+    TransitionDriver getTransitionDriver() {
+        return mTransitionDriver;
+    }
+
+    /**
+     * Set the duration of the transition
+     *
+     * @param nDuration
+     *      The duration in milliseconds
+     *
+     * @author Melvin Lobo
+     */
+    public void setTransitionDuration(long nDuration) {
+        mTransitionDriver.setDuration(nDuration);
+    }
+
+    /**
+     * Getter for the transition duration
+     *
+     * @return
+     *      The duration in milliseconds
+     *
+     * @author Melvin Lobo
+     */
+    public long getTransitionDuration() {
+        return mTransitionDriver.getDuration();
+    }
+
+    /**
+     * Set the interpolator of the transition. The default is a BounceInterpolator
+     *
+     * @param interpolator
+     *      The interpolator, null for a linear transition
+     *
+     * @author Melvin Lobo
+     */
+    public void setTransitionInterpolator(TimeInterpolator interpolator) {
+        mTransitionDriver.setInterpolator(interpolator);
+    }
+
+    /**
+     * Getter for the transition interpolator
+     *
+     * @return
+     *      The interpolator
+     *
+     * @author Melvin Lobo
+     */
+    public TimeInterpolator getTransitionInterpolator() {
+        return mTransitionDriver.getInterpolator();
+    }
+
+    /**
+     * Set how the transitions are timed. A running transition is stopped
+     *
+     * @param nTiming
+     *      TRANSITION_CURVE or TRANSITION_SPRING
+     *
+     * @author Melvin Lobo
+     */
+    public void setTransitionTiming(int nTiming) {
+        if((nTiming < TRANSITION_CURVE) || (nTiming > TRANSITION_SPRING))
+            throw new IllegalArgumentException("Unknown transition timing " + nTiming);
+
+        if(mbShowAnimation)
+            stopAnimation();
+        mTransitionDriver.setSpring((nTiming == TRANSITION_SPRING) ? mSpring : null);
+    }
+
+    /**
+     * Getter for the transition timing
+     *
+     * @return
+     *      TRANSITION_CURVE or TRANSITION_SPRING
+     *
+     * @author Melvin Lobo
+     */
+    public int getTransitionTiming() {
+        return (mTransitionDriver.getSpring() != null) ? TRANSITION_SPRING : TRANSITION_CURVE;
+    }
+
+    /**
+     * Set the stiffness of the springs of TRANSITION_SPRING: the higher, the faster the transition
+     *
+     * @param stiffness
+     *      The stiffness, in (0, SpringSimulation.MAX_STIFFNESS]. The default is SpringSimulation.DEFAULT_STIFFNESS
+     *
+     * @author Melvin Lobo
+     */
+    public void setSpringStiffness(float stiffness) {
+        mSpring.setStiffness(stiffness);
+    }
+
+    /**
+     * Getter for the spring stiffness
+     *
+     * @return
+     *      The stiffness
+     *
+     * @author Melvin Lobo
+     */
+    public float getSpringStiffness() {
+        return mSpring.getStiffness();
+    }
+
+    /**
+     * Set the damping ratio of the springs of TRANSITION_SPRING: under 1 the blob overshoots and bounces, from 1
+     * it does not
+     *
+     * @param dampingRatio
+     *      The damping ratio, positive. The default is SpringSimulation.DEFAULT_DAMPING_RATIO
+     *
+     * @author Melvin Lobo
+     */
+    public void setSpringDampingRatio(float dampingRatio) {
+        mSpring.setDampingRatio(dampingRatio);
+    }
+
+    /**
+     * Getter for the spring damping ratio
+     *
+     * @return
+     *      The damping ratio
+     *
+     * @author Melvin Lobo
+     */
+    public float getSpringDampingRatio() {
+        return mSpring.getDampingRatio();
+    }
+
+    /**
+     * Set the metaball color
+     *
+     * @param nColor
+     *      The color of the selector and the transition
+     *
+     * @author Melvin Lobo
+     */
+    public void setMetaballColor(int nColor) {
+        mnMetaballColor = nColor;
+        mMetaballDestination.setColor(nColor);
+        releaseSelectorBitmap();
+        invalidate();
+    }
+
+    /**
+     * Getter for the metaball color
+     *
+     * @return
+     *      The color of the selector and the transition
+     *
+     * @author Melvin Lobo
+     */
+    public int getMetaballColor() {
+        return mnMetaballColor;
+    }
+
+    /**
+     * Set the selector cache mode
+     *
+     * @param nCacheMode
+     *      One of CACHE_MODE_NONE, CACHE_MODE_BITMAP or CACHE_MODE_LAYER
+     *
+     * @author Melvin Lobo
+     */
+    public void setSelectorCacheMode(int nCacheMode) {
+        if((nCacheMode < CACHE_MODE_NONE) || (nCacheMode > CACHE_MODE_LAYER))
+            throw new IllegalArgumentException("Unknown cache mode " + nCacheMode);
+
+        mnCacheMode = nCacheMode;
+        if(mnCacheMode == CACHE_MODE_NONE)
+            releaseSelectorBitmap();
+
+        updateLayerType();
+        invalidate();
+    }
+
+    /**
+     * Getter for the selector cache mode
+     *
+     * @return
+     *      The cache mode
+     *
+     * @author Melvin Lobo
+     */
+    public int getSelectorCacheMode() {
+        return mnCacheMode;
+    }
+
+    /**
+     * Set the render mode
+     *
+     * @param nRenderMode
+     *      RENDER_MODE_BRIDGE, RENDER_MODE_FIELD, RENDER_MODE_CONTOUR or RENDER_MODE_MESH
+     *
+     * @author Melvin Lobo
+     */
+    public void setRenderMode(int nRenderMode) {
+        if((nRenderMode < RENDER_MODE_BRIDGE) || (nRenderMode > RENDER_MODE_MESH))
+            throw new IllegalArgumentException("Unknown render mode " + nRenderMode);
+
+        mnRenderMode = nRenderMode;
+        if(mnRenderMode != RENDER_MODE_FIELD)
+            releaseFieldBitmap();
+
+        invalidate();
+    }
+
+    /**
+     * Getter for the render mode
+     *
+     * @return
+     *      The render mode
+     *
+     * @author Melvin Lobo
+     */
+    public int getRenderMode() {
+        return mnRenderMode;
+    }
+
+    /**
+     * Set how the selector radius is derived from the size of an item
+     *
+     * @param nPolicy
+     *      SELECTOR_RADIUS_LARGER_SIDE, SELECTOR_RADIUS_INSCRIBED, SELECTOR_RADIUS_CIRCUMSCRIBED or
+     *      SELECTOR_RADIUS_FIXED
+     *
+     * @author Melvin Lobo
+     */
+    public void setSelectorRadiusPolicy(int nPolicy) {
+        if((nPolicy < SELECTOR_RADIUS_INSCRIBED) || (nPolicy > SELECTOR_RADIUS_LARGER_SIDE))
+            throw new IllegalArgumentException("Unknown selector radius policy " + nPolicy);
+
+        mnSelectorRadiusPolicy = nPolicy;
+        onSelectorRadiiChanged();
+    }
+
+    /**
+     * Getter for the selector radius policy
+     *
+     * @return
+     *      The policy
+     *
+     * @author Melvin Lobo
+     */
+    public int getSelectorRadiusPolicy() {
+        return mnSelectorRadiusPolicy;
+    }
+
+    /**
+     * Give the selector the same radius on all the items. This switches to SELECTOR_RADIUS_FIXED
+     *
+     * @param radius
+     *      The radius in pixels
+     *
+     * @author Melvin Lobo
+     */
+    public void setFixedSelectorRadius(float radius) {
+        if(radius < 0.0f)
+            throw new IllegalArgumentException("The selector radius cannot be negative");
+
+        mfFixedSelectorRadius = radius;
+        mnSelectorRadiusPolicy = SELECTOR_RADIUS_FIXED;
+        onSelectorRadiiChanged();
+    }
+
+    /**
+     * Getter for the radius of SELECTOR_RADIUS_FIXED
+     *
+     * @return
+     *      The radius in pixels
+     *
+     * @author Melvin Lobo
+     */
+    public float getFixedSelectorRadius() {
+        return mfFixedSelectorRadius;
+    }
+
+    /**
+     * Get the selector radius on an item. The radii are computed on every layout, or from the item itself if the
+     * items changed since the last layout
+     *
+     * @param nIndex
+     *      The index of the item
+     *
+     * @return
+     *      The radius in pixels
+     *
+     * @author Melvin Lobo
+     */
+    public float getSelectorRadius(int nIndex) {
+        if(nIndex < mItemTable.getCount())
+            return mItemTable.getRadius(nIndex);
+
+        return computeSelectorRadius(getChildAt(nIndex));
+    }
+
+    /**
+     * Let the quality of the transitions adapt to the frame times. It is off by default, so that a few janky frames,
+     * e.g. while the app starts, do not change the look of the menu unless the app opts in: the transitions may then
+     * lose their bridges and anti-aliasing, and at last become instant. Turning it off goes back to QUALITY_FULL
+     *
+     * @param bAdaptive
+     *      True to adapt the quality, false to always run the full transition
+     *
+     * @author Melvin Lobo
+     */
+    public void setAdaptiveQuality(boolean bAdaptive) {
+        mbAdaptiveQuality = bAdaptive;
+        if(!bAdaptive)
+            mQualityGovernor.reset();
+    }
+
+    /**
+     * Getter for the adaptive quality
+     *
+     * @return
+     *      True if the quality adapts to the frame times, false otherwise
+     *
+     * @author Melvin Lobo
+     */
+    public boolean isAdaptiveQuality() {
+        return mbAdaptiveQuality;
+    }
+
+    /**
+     * Set the frame budget of the adaptive quality. The quality steps down when the frames take well over the
+     * budget, and back up when they are within it again for a while
+     *
+     * @param milliseconds
+     *      The budget of a frame in milliseconds. The default is a frame at 60Hz
+     *
+     * @author Melvin Lobo
+     */
+    public void setFrameBudget(float milliseconds) {
+        mQualityGovernor.setFrameBudgetNanos((long) (milliseconds * 1000000.0f));
+    }
+
+    /**
+     * Getter for the frame budget
+     *
+     * @return
+     *      The budget of a frame in milliseconds
+     *
+     * @author Melvin Lobo
+     */
+    public float getFrameBudget() {
+        return mQualityGovernor.getFrameBudgetNanos() / 1000000.0f;
+    }
+
+    /**
+     * Get the quality tier the transitions currently run at, e.g. for telemetry
+     *
+     * @return
+     *      QUALITY_FULL, QUALITY_NO_BRIDGE, QUALITY_NO_ANTI_ALIAS or QUALITY_INSTANT
+     *
+     * @author Melvin Lobo
+     */
+    public int getQualityTier() {
+        return mbAdaptiveQuality ? mQualityGovernor.getTier() : QUALITY_FULL;
+    }
+
+    /**
+     * Show the areas invalidated by the transition frames. Meant for debugging
+     *
+     * @param bShow
+     *      True to outline the invalidated areas, false otherwise
+     *
+     * @author Melvin Lobo
+     */
+    public void setShowDirtyRegions(boolean bShow) {
+        mbShowDirtyRegions = bShow;
+        if(bShow && (mDirtyRegionPaint == null)) {
+            mDirtyRegionPaint = new Paint();
+            mDirtyRegionPaint.setStyle(Paint.Style.STROKE);
+            mDirtyRegionPaint.setColor(Color.RED);
+            mDirtyRegionPaint.setStrokeWidth(d2x(1));
+        }
+        invalidate();
+    }
+
+    /**
+     * Getter for the dirty region overlay
+     *
+     * @return
+     *      True if the invalidated areas are shown, false otherwise
+     *
+     * @author Melvin Lobo
+     */
+    public boolean isShowDirtyRegions() {
+        return mbShowDirtyRegions;
+    }
+
+    /**
+     * Set the orientation of the items. The transitions move in any direction, so a vertical rail works the same
+     * way as a horizontal menu
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    public void setOrientation(int orientation) {
+        super.setOrientation(orientation);
+
+        // Called by the LinearLayout constructor, before our members are set up
+        if(mKeyframeCache != null)
+            onItemsChanged();
+    }
+
+    /**
+     * Lay the items out in a grid, filled row by row. The cells share the width equally and each row is as high
+     * as its highest item. The orientation is ignored in a grid
+     *
+     * @param nColumns
+     *      The number of columns, 0 to go back to a single row or column
+     *
+     * @author Melvin Lobo
+     */
+    public void setGridColumns(int nColumns) {
+        if(nColumns < 0)
+            throw new IllegalArgumentException("The number of columns cannot be negative");
+
+        mnGridColumns = nColumns;
+        onItemsChanged();
+        requestLayout();
+    }
+
+    /**
+     * Getter for the number of grid columns
+     *
+     * @return
+     *      The number of columns, 0 if the items are in a single row or column
+     *
+     * @author Melvin Lobo
+     */
+    public int getGridColumns() {
+        return mnGridColumns;
+    }
+
+    /**
+     * Show or hide a badge on an item. The badge is a small metaball on the top right of the item, which merges
+     * with the selector and the other metaballs around it
+     *
+     * @param nIndex
+     *      The index of the item
+     * @param bVisible
+     *      True to show the badge, false to hide it
+     *
+     * @author Melvin Lobo
+     */
+    public void setBadgeVisible(int nIndex, boolean bVisible) {
+        ((MetaballMenuImageView) getChildAt(nIndex)).setBadgeVisible(bVisible);
+        onFieldItemsChanged();
+    }
+
+    public boolean isBadgeVisible(int nIndex) {
+        return ((MetaballMenuImageView) getChildAt(nIndex)).isBadgeVisible();
+    }
+
+    /**
+     * Check or uncheck an item, for multi-select. A checked item gets a metaball of the selector size, which merges
+     * with the selector and the checked items next to it. The selection and the click listener are not affected
+     *
+     * @param nIndex
+     *      The index of the item
+     * @param bChecked
+     *      True to check the item, false to uncheck it
+     *
+     * @author Melvin Lobo
+     */
+    public void setItemChecked(int nIndex, boolean bChecked) {
+        ((MetaballMenuImageView) getChildAt(nIndex)).setChecked(bChecked);
+        onFieldItemsChanged();
+    }
+
+    public boolean isItemChecked(int nIndex) {
+        return ((MetaballMenuImageView) getChildAt(nIndex)).isChecked();
+    }
+
+    /**
+     * Set the background elevation
+     *
+     * @param bRequired
+     *      True if elevation is required, false otherwise
+     *
+     * @author Melvin Lobo
+     */
+    public void setElevationRequired(boolean bRequired) {
+        mbElevationRequired = bRequired;
+        setBackground(createBackgroundShape());
+    }
+
+    /**
+     * Handle the finish inflate event to set up the first item as selected. The touches are handled by a single
+     * touch handler on the menu (@see onTouchEvent), the items only share a click listener for accessibility
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    protected void onFinishInflate() {
+
+        for(int nCtr = 0; nCtr < getChildCount(); ++nCtr)
+            registerItem(getChildAt(nCtr));
+
+        //Set the first child as the selected View  during initialization
+        if(getChildCount() > 0)
+            setSelection(0);
+
+        invalidate();
+
+        super.onFinishInflate();
+    }
+
+    /**
+     * Make an item clickable and focusable, with the shared click listener, so that accessibility services and
+     * keyboard or D-pad users can select it
+     *
+     * @author Melvin Lobo
+     */
+    private void registerItem(View item) {
+        item.setOnClickListener(mItemClickListener);
+        item.setFocusable(true);
+    }
+
+    /**
+     * Take all the touches from the items, so that they go through the item table of onTouchEvent instead of the
+     * click handling of every item
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent event) {
+        return true;
+    }
+
+    /**
+     * Handle the touches for all the items. The item under the finger is found in the item table, so the work per
+     * click does not depend on the number of items. An item is selected if the finger goes up on the item it went
+     * down on, and the menu performs its click (sound and accessibility event) only then.
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if(!isEnabled() || (mItemTable.getCount() == 0))
+            return super.onTouchEvent(event);
+
+        switch(event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mnTouchIndex = mItemTable.indexAt(event.getX(), event.getY());
+                break;
+
+            case MotionEvent.ACTION_UP:
+                if((mnTouchIndex >= 0) && (mItemTable.indexAt(event.getX(), event.getY()) == mnTouchIndex)) {
+                    int nIndex = mnTouchIndex;
+                    mnTouchIndex = -1;
+                    if((nIndex < getChildCount()) && (getChildAt(nIndex).getVisibility() == View.VISIBLE)) {
+                        onItemClick(nIndex);
+                        performClick();                 // Sound and accessibility event
+                    }
+                }
+                mnTouchIndex = -1;
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                mnTouchIndex = -1;
+                break;
+        }
+
+        return true;
+    }
+
+    /**
+     * Move the selection to an item with the metaball transition. The listener is notified at the end of the
+     * transition
+     *
+     * @param nIndex
+     *      The index of the item
+     *
+     * @author Melvin Lobo
+     */
+    private void onItemClick(int nIndex) {
+        if(mbAdaptiveQuality && (mQualityGovernor.onTransitionRequested(System.nanoTime()) == QUALITY_INSTANT)) {
+            jumpTo(nIndex);
+            return;
+        }
+
+        int nOrigin = mnSelectedIndex;
+        boolean bRetarget = mbShowAnimation;
+
+        if(bRetarget) {
+            // Retarget the running transition. The new hop starts from the transitional circle as it is, with its
+            // velocity, instead of jumping back to an item. The destination circle it was heading to is left behind
+            // as a lobe which merges into it. Nothing is torn down, the driver is simply restarted
+            if(mbFrameComputed) {
+                mOriginPoint.setX(mTransitionalCircle.getCenterX());
+                mOriginPoint.setY(mTransitionalCircle.getCenterY());
+                mfOriginSelectorRadius = mfOriginRadius;
+                keepFadingLobes();
+            }
+            mfCarryVelocityX = mfCircleVelocityX;
+            mfCarryVelocityY = mfCircleVelocityY;
+            mTransitionDriver.cancel();
+            reportMetrics(true);
+        }
+        else {
+            getCenter(nOrigin, mOriginPoint);
+            mfOriginSelectorRadius = mfSelectorRadius;
+            mnFadingLobeCount = 0;
+            mfCarryVelocityX = 0.0f;
+            mfCarryVelocityY = 0.0f;
+        }
+
+        mbShowAnimation = true;
+        setSelection(nIndex);
+        getCenter(nIndex, mDestinationPoint);
+        mbDestinationSet = true;
+        mfDestinationSelectorRadius = mfSelectorRadius;
+
+        // Get the keyframes for this hop. The transitional circle moves along the vector from the origin to the
+        // destination. A retargeted transition starts in between the items, so its outline is computed per frame
+        if(bRetarget) {
+            mCurrentKeyframes = null;
+            if(mTransitionDriver.getSpring() == null)
+                limitCarryVelocity();           // The springs damp the velocity on their own
+        }
+        else
+            mCurrentKeyframes = mKeyframeCache.get(nOrigin, nIndex, mfOriginSelectorRadius, mfDestinationSelectorRadius, getWidth(),
+                    mOriginPoint.getX(), mOriginPoint.getY(), mDestinationPoint.getX(), mDestinationPoint.getY());
+
+        if(mTransitionDriver.getSpring() != null)
+            setSprings();
+        startAnimation(bRetarget);
+    }
+
+    /**
+     * Set the springs for a hop from the origin to the destination: the transitional circle goes from the origin to
+     * the destination with the carried velocity, its radius shrinks to 0 and the destination radius grows
+     *
+     * @author Melvin Lobo
+     */
+    private void setSprings() {
+        mSpring.setChannel(SPRING_X, mOriginPoint.getX(), mfCarryVelocityX, mDestinationPoint.getX());
+        mSpring.setChannel(SPRING_Y, mOriginPoint.getY(), mfCarryVelocityY, mDestinationPoint.getY());
+        mSpring.setChannel(SPRING_ORIGIN_RADIUS, mfOriginSelectorRadius, 0.0f, 0.0f);
+        mSpring.setChannel(SPRING_DESTINATION_RADIUS, 0.0f, 0.0f, mfDestinationSelectorRadius);
+    }
+
+    /**
+     * Move the selection to an item without a transition (QUALITY_INSTANT). The listener is notified right away
+     *
+     * @param nIndex
+     *      The index of the item
+     *
+     * @author Melvin Lobo
+     */
+    private void jumpTo(int nIndex) {
+        if(mbShowAnimation)
+            stopAnimation();
+
+        setSelection(nIndex);
+        invalidate();
+        if(mMenuClickListener != null)
+            mMenuClickListener.onClick(mSelectedView);
+    }
+
+    /**
+     * The governor changed the quality tier during a transition. The whole menu is redrawn, as the area of the
+     * previous frame may have been drawn in another way. Down to QUALITY_INSTANT, the transition ends right away
+     *
+     * @return
+     *      True if the transition goes on, false if it ended
+     *
+     * @author Melvin Lobo
+     */
+    private boolean onQualityTierChanged() {
+        if(mQualityGovernor.getTier() == QUALITY_INSTANT) {
+            mTransitionDriver.cancel();
+            endTransition();
+            return false;
+        }
+
+        mMetaballDestination.setAntiAlias(mQualityGovernor.getTier() < QUALITY_NO_ANTI_ALIAS);
+        invalidate();
+        return true;
+    }
+
+    /**
+     * Keep the lobes of the current frame, and add the destination circle to them, as they start to merge into the
+     * transitional circle of a retargeted transition. When there are too many of them, the smallest one is dropped
+     *
+     * @author Melvin Lobo
+     */
+    private void keepFadingLobes() {
+        System.arraycopy(mfFadingFrame, 0, mfFadingLobes, 0, mnFadingLobeCount * LOBE_SIZE);
+        if(mfDestinationRadius <= 0.0f)
+            return;
+
+        int nLobe = mnFadingLobeCount;
+        if(nLobe == MAX_FADING_LOBES) {
+            nLobe = 0;
+            for(int nCtr = 1; nCtr < MAX_FADING_LOBES; ++nCtr) {
+                if(mfFadingLobes[(nCtr * LOBE_SIZE) + 2] < mfFadingLobes[(nLobe * LOBE_SIZE) + 2])
+                    nLobe = nCtr;
+            }
+        }
+        else
+            ++mnFadingLobeCount;
+
+        mfFadingLobes[nLobe * LOBE_SIZE] = mDestinationPoint.getX();
+        mfFadingLobes[(nLobe * LOBE_SIZE) + 1] = mDestinationPoint.getY();
+        mfFadingLobes[(nLobe * LOBE_SIZE) + 2] = mfDestinationRadius;
+    }
+
+    /**
+     * Measure the velocity of the transitional circle after a transition frame was computed
+     *
+     * @param nFrameTimeNanos
+     *      The vsync time of the frame
+     *
+     * @author Melvin Lobo
+     */
+    private void trackCircleVelocity(long nFrameTimeNanos) {
+        if(!mbFrameComputed)
+            return;
+
+        float circleX = mTransitionalCircle.getCenterX();
+        float circleY = mTransitionalCircle.getCenterY();
+        if((mnLastCircleTimeNanos >= 0) && (nFrameTimeNanos > mnLastCircleTimeNanos)) {
+            float seconds = (nFrameTimeNanos - mnLastCircleTimeNanos) / (float) NANOS_PER_SECOND;
+            mfCircleVelocityX = (circleX - mfLastCircleX) / seconds;
+            mfCircleVelocityY = (circleY - mfLastCircleY) / seconds;
+        }
+
+        mfLastCircleX = circleX;
+        mfLastCircleY = circleY;
+        mnLastCircleTimeNanos = nFrameTimeNanos;
+    }
+
+    /**
+     * Keep the carried velocity from throwing the blob further off its path than the length of the hop (or the
+     * selector size for a short hop). The detour peaks at about a seventh of the velocity times the duration
+     *
+     * @author Melvin Lobo
+     */
+    private void limitCarryVelocity() {
+        float dx = mDestinationPoint.getX() - mOriginPoint.getX();
+        float dy = mDestinationPoint.getY() - mOriginPoint.getY();
+        float maxDetour = Math.max((float) Math.sqrt((dx * dx) + (dy * dy)), mfSelectorRadius * 2.0f);
+        float speed = (float) Math.sqrt((mfCarryVelocityX * mfCarryVelocityX) + (mfCarryVelocityY * mfCarryVelocityY));
+        float detour = speed * (mTransitionDriver.getDuration() / 1000.0f);
+        if(detour > maxDetour) {
+            mfCarryVelocityX *= maxDetour / detour;
+            mfCarryVelocityY *= maxDetour / detour;
+        }
+    }
+
+    /**
+     * Move the selected state to an item, without a transition
+     *
+     * @param nIndex
+     *      The index of the item, -1 for none
+     *
+     * @author Melvin Lobo
+     */
+    private void setSelection(int nIndex) {
+        if(mSelectedView != null)
+            ((MetaballMenuImageView)mSelectedView).setSelected(false);      // unselect the previoud selection if any
+
+        mnSelectedIndex = nIndex;
+        mSelectedView = (nIndex >= 0) ? getChildAt(nIndex) : null;
+
+        if(mSelectedView != null)
+            ((MetaballMenuImageView)mSelectedView).setSelected(true);       // select the new selection
+
+        updateSelectorRadius();
+    }
+
+    /**
+     * Get the index of the selected item
+     *
+     * @return
+     *      The index, -1 if the menu has no items
+     *
+     * @author Melvin Lobo
+     */
+    public int getSelectedIndex() {
+        return mnSelectedIndex;
+    }
+
+    /**
+     * Get the number of items
+     *
+     * @author Melvin Lobo
+     */
+    public int getItemCount() {
+        return getChildCount();
+    }
+
+    /**
+     * Bind the menu to a selection, e.g. when a recycled list row shows other data. The selection moves without a
+     * transition and the listener is not notified. A running transition is stopped
+     *
+     * @param nSelectedIndex
+     *      The index of the item to select
+     *
+     * @author Melvin Lobo
+     */
+    public void bind(int nSelectedIndex) {
+        if((nSelectedIndex < 0) || (nSelectedIndex >= getChildCount()))
+            throw new IllegalArgumentException("No item at " + nSelectedIndex + " in a menu of " + getChildCount());
+
+        if(mbShowAnimation)
+            stopAnimation();
+
+        if(nSelectedIndex != mnSelectedIndex) {
+            setSelection(nSelectedIndex);
+            invalidate();
+        }
+    }
+
+    /**
+     * Bind the menu to a selection and to the images of its items. Items are added or removed to match the number
+     * of images, and an item whose images did not change is left as it is, so rebinding a row of the same shape
+     * inflates nothing and allocates nothing
+     *
+     * @param nSelectedIndex
+     *      The index of the item to select
+     * @param nDefaultImages
+     *      The default image resource of every item
+     * @param nSelectedImages
+     *      The selected image resource of every item
+     *
+     * @author Melvin Lobo
+     */
+    public void bind(int nSelectedIndex, int[] nDefaultImages, int[] nSelectedImages) {
+        if(nDefaultImages.length != nSelectedImages.length)
+            throw new IllegalArgumentException("The default and selected images do not pair up");
+
+        if(mbShowAnimation)
+            stopAnimation();
+
+        while(getChildCount() > nDefaultImages.length)
+            removeItem(getChildCount() - 1);
+        for(int nCtr = 0; nCtr < nDefaultImages.length; ++nCtr) {
+            if(nCtr < getChildCount())
+                ((MetaballMenuImageView) getChildAt(nCtr)).setImages(nDefaultImages[nCtr], nSelectedImages[nCtr]);
+            else
+                addItem(nDefaultImages[nCtr], nSelectedImages[nCtr]);
+        }
+
+        bind(nSelectedIndex);
+    }
+
+    /**
+     * Release the menu from its data, e.g. when a list row is recycled: a running transition is stopped without
+     * notifying the listener, and a touch in progress is dropped
+     *
+     * @author Melvin Lobo
+     */
+    public void unbind() {
+        if(mbShowAnimation)
+            stopAnimation();
+
+        mnTouchIndex = -1;
+    }
+
+    /**
+     * Add an item at the end of the menu
+     *
+     * @param nDefaultImage
+     *      The default image resource
+     * @param nSelectedImage
+     *      The selected image resource
+     *
+     * @return
+     *      The new item
+     *
+     * @author Melvin Lobo
+     */
+    public MetaballMenuImageView addItem(int nDefaultImage, int nSelectedImage) {
+        return addItem(getChildCount(), nDefaultImage, nSelectedImage);
+    }
+
+    /**
+     * Add an item. It gets the layout parameters and padding of the existing items, so that it looks like them
+     *
+     * @param nIndex
+     *      The position of the new item
+     * @param nDefaultImage
+     *      The default image resource
+     * @param nSelectedImage
+     *      The selected image resource
+     *
+     * @return
+     *      The new item
+     *
+     * @author Melvin Lobo
+     */
+    public MetaballMenuImageView addItem(int nIndex, int nDefaultImage, int nSelectedImage) {
+        MetaballMenuImageView item = new MetaballMenuImageView(getContext());
+        item.setImages(nDefaultImage, nSelectedImage);
+
+        LayoutParams params;
+        if(getChildCount() > 0) {
+            View template = getChildAt(0);
+            LayoutParams templateParams = (LayoutParams) template.getLayoutParams();
+            params = new LayoutParams((ViewGroup.MarginLayoutParams) templateParams);
+            params.weight = templateParams.weight;
+            params.gravity = templateParams.gravity;
+            item.setPadding(template.getPaddingLeft(), template.getPaddingTop(), template.getPaddingRight(), template.getPaddingBottom());
+        }
+        else {
+            params = createItemLayoutParams();
+            int nPadding = (int) d2x(DEFAULT_ITEM_PADDING);
+            item.setPadding(nPadding, nPadding, nPadding, nPadding);
+        }
+
+        addItem(nIndex, item, params);
+        return item;
+    }
+
+    /**
+     * The layout parameters of an item when there is no item to copy them from: the items share the length of
+     * a row or a column equally
+     *
+     * @author Melvin Lobo
+     */
+    private LayoutParams createItemLayoutParams() {
+        if((getOrientation() == LinearLayout.VERTICAL) && (mnGridColumns == 0))
+            return new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, 0, 1.0f);
+
+        return new LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1.0f);
+    }
+
+    /**
+     * Add an item
+     *
+     * @param nIndex
+     *      The position of the new item
+     * @param item
+     *      The item, with both its images set
+     * @param params
+     *      The layout parameters of the item
+     *
+     * @author Melvin Lobo
+     */
+    public void addItem(int nIndex, MetaballMenuImageView item, LayoutParams params) {
+        if(mbShowAnimation)
+            stopAnimation();
+
+        registerItem(item);
+        addView(item, nIndex, params);
+
+        if(mSelectedView == null)
+            setSelection(nIndex);
+        else if(nIndex <= mnSelectedIndex)
+            ++mnSelectedIndex;
+
+        onItemsChanged();
+    }
+
+    /**
+     * Remove an item. If it was selected, the selection moves to the next item (or the previous one for the last
+     * item) without a transition
+     *
+     * @param nIndex
+     *      The index of the item
+     *
+     * @author Melvin Lobo
+     */
+    public void removeItem(int nIndex) {
+        if(mbShowAnimation)
+            stopAnimation();
+
+        if(nIndex == mnSelectedIndex) {
+            setSelection(-1);
+            removeViewAt(nIndex);
+            if(getChildCount() > 0)
+                setSelection(Math.min(nIndex, getChildCount() - 1));
+        }
+        else {
+            removeViewAt(nIndex);
+            if(nIndex < mnSelectedIndex)
+                --mnSelectedIndex;
+        }
+
+        onItemsChanged();
+    }
+
+    /**
+     * The items moved: drop what depends on their positions. The item table is rebuilt by the coming layout
+     *
+     * @author Melvin Lobo
+     */
+    private void onItemsChanged() {
+        mKeyframeCache.invalidate();
+        mItemTable.clear();
+        mnTouchIndex = -1;
+        updateSelectorRadius();
+        onFieldItemsChanged();
+    }
+
+    /**
+     * Count the items which have metaballs besides the selector, and redraw
+     *
+     * @author Melvin Lobo
+     */
+    private void onFieldItemsChanged() {
+        int nCount = 0;
+        for(int nCtr = 0; nCtr < getChildCount(); ++nCtr) {
+            MetaballMenuImageView item = (MetaballMenuImageView) getChildAt(nCtr);
+            if(item.isBadgeVisible() || item.isChecked())
+                ++nCount;
+        }
+
+        mnFieldItemCount = nCount;
+        invalidate();
+    }
+
+    /**
+     * The sampled transitions hold absolute co-ordinates, so drop them when the size changes. The selector radii
+     * are computed again by the layout which follows
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mKeyframeCache.invalidate();
+        releaseSelectorBitmap();
+        releaseFieldBitmap();
+    }
+
+    /**
+     * The children may have moved without the menu changing its size, so drop the sampled transitions on
+     * every layout change as well
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        if(mnGridColumns > 0)
+            layoutGrid(r - l);
+        else
+            super.onLayout(changed, l, t, r, b);
+
+        if(changed)
+            mKeyframeCache.invalidate();
+
+        updateItemTable();
+    }
+
+    /**
+     * Measure the grid layout, or let LinearLayout measure the row or column
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if(mnGridColumns > 0)
+            measureGrid(widthMeasureSpec, heightMeasureSpec);
+        else
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    /**
+     * Measure the grid. Every item gets the width of a cell, and keeps its own height. Without a width to fill,
+     * the cells are as wide as the widest item
+     *
+     * @author Melvin Lobo
+     */
+    private void measureGrid(int widthMeasureSpec, int heightMeasureSpec) {
+        int nCount = getChildCount();
+        int nColumns = Math.max(1, Math.min(mnGridColumns, getGridCellCount()));
+        int nHorizontalPadding = getPaddingLeft() + getPaddingRight();
+        int nVerticalPadding = getPaddingTop() + getPaddingBottom();
+
+        int nWidth;
+        if(MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED) {
+            int nWidestItem = 0;
+            for(int nCtr = 0; nCtr < nCount; ++nCtr) {
+                View child = getChildAt(nCtr);
+                if(child.getVisibility() == View.GONE)
+                    continue;
+
+                measureChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, 0);
+                LayoutParams params = (LayoutParams) child.getLayoutParams();
+                nWidestItem = Math.max(nWidestItem, child.getMeasuredWidth() + params.leftMargin + params.rightMargin);
+            }
+            nWidth = (nWidestItem * nColumns) + nHorizontalPadding;
+        }
+        else {
+            nWidth = MeasureSpec.getSize(widthMeasureSpec);
+        }
+
+        int nCellWidth = Math.max(0, nWidth - nHorizontalPadding) / nColumns;
+        int nHeight = nVerticalPadding;
+        int nRowHeight = 0;
+        int nCell = 0;
+        int nCellCount = getGridCellCount();
+
+        for(int nCtr = 0; nCtr < nCount; ++nCtr) {
+            View child = getChildAt(nCtr);
+            if(child.getVisibility() == View.GONE)
+                continue;
+
+            LayoutParams params = (LayoutParams) child.getLayoutParams();
+            int nChildWidthSpec = MeasureSpec.makeMeasureSpec(Math.max(0, nCellWidth - params.leftMargin - params.rightMargin), MeasureSpec.EXACTLY);
+            int nChildHeightSpec = getChildMeasureSpec(heightMeasureSpec, nVerticalPadding + params.topMargin + params.bottomMargin,
+                    (params.height == 0) ? ViewGroup.LayoutParams.WRAP_CONTENT : params.height);
+            child.measure(nChildWidthSpec, nChildHeightSpec);
+
+            nRowHeight = Math.max(nRowHeight, child.getMeasuredHeight() + params.topMargin + params.bottomMargin);
+            ++nCell;
+            if((nCell % nColumns == 0) || (nCell == nCellCount)) {
+                nHeight += nRowHeight;
+                nRowHeight = 0;
+            }
+        }
+
+        setMeasuredDimension(resolveSize(nWidth, widthMeasureSpec), resolveSize(nHeight, heightMeasureSpec));
+    }
+
+    /**
+     * Lay the grid out, row by row. The items are centered vertically in their row. GONE items take no cell
+     *
+     * @param nWidth
+     *      The width of the menu
+     *
+     * @author Melvin Lobo
+     */
+    private void layoutGrid(int nWidth) {
+        int nCount = getChildCount();
+        int nColumns = Math.max(1, Math.min(mnGridColumns, getGridCellCount()));
+        int nCellWidth = Math.max(0, nWidth - getPaddingLeft() - getPaddingRight()) / nColumns;
+        int nTop = getPaddingTop();
+
+        int nRowStart = nextGridItem(0);
+        while(nRowStart < nCount) {
+            // The row holds the next nColumns items which are not GONE
+            int nRowEnd = nRowStart;
+            int nRowHeight = 0;
+            for(int nColumn = 0; (nColumn < nColumns) && (nRowEnd < nCount); ++nColumn) {
+                View child = getChildAt(nRowEnd);
+                LayoutParams params = (LayoutParams) child.getLayoutParams();
+                nRowHeight = Math.max(nRowHeight, child.getMeasuredHeight() + params.topMargin + params.bottomMargin);
+                nRowEnd = nextGridItem(nRowEnd + 1);
+            }
+
+            int nColumn = 0;
+            for(int nCtr = nRowStart; nCtr < nRowEnd; nCtr = nextGridItem(nCtr + 1), ++nColumn) {
+                View child = getChildAt(nCtr);
+                LayoutParams params = (LayoutParams) child.getLayoutParams();
+                int nLeft = getPaddingLeft() + (nColumn * nCellWidth) + params.leftMargin;
+                int nChildTop = nTop + params.topMargin
+                        + ((nRowHeight - child.getMeasuredHeight() - params.topMargin - params.bottomMargin) / 2);
+                child.layout(nLeft, nChildTop, nLeft + child.getMeasuredWidth(), nChildTop + child.getMeasuredHeight());
+            }
+
+            nTop += nRowHeight;
+            nRowStart = nRowEnd;
+        }
+    }
+
+    /**
+     * The number of cells of the grid: the items which are not GONE
+     *
+     * @author Melvin Lobo
+     */
+    private int getGridCellCount() {
+        int nCells = 0;
+        for(int nCtr = 0; nCtr < getChildCount(); ++nCtr) {
+            if(getChildAt(nCtr).getVisibility() != View.GONE)
+                ++nCells;
+        }
+        return nCells;
+    }
+
+    /**
+     * The first item from an index which is not GONE, the child count if there is none
+     *
+     * @author Melvin Lobo
+     */
+    private int nextGridItem(int nIndex) {
+        while((nIndex < getChildCount()) && (getChildAt(nIndex).getVisibility() == View.GONE))
+            ++nIndex;
+        return nIndex;
+    }
+
+    /**
+     * Rebuild the item centers and selector radii after a layout. Only the visible items can be touched
+     *
+     * @author Melvin Lobo
+     */
+    private void updateItemTable() {
+        int nCount = getChildCount();
+        mItemTable.reset(nCount);
+        for(int nCtr = 0; nCtr < nCount; ++nCtr) {
+            View child = getChildAt(nCtr);
+            mItemTable.setCenter(nCtr, child.getLeft() + (child.getMeasuredWidth() / 2), child.getTop() + (child.getMeasuredHeight() / 2));
+            mItemTable.setRadius(nCtr, computeSelectorRadius(child));
+            mItemTable.setVisibility(nCtr, child.getVisibility());
+        }
+        mItemTable.buildIndex(getOrientation() == LinearLayout.VERTICAL, mnGridColumns);
+        updateSelectorRadius();
+    }
+
+    /**
+     * The radius policy changed: compute the radii of the laid out items again, and redraw. A running transition
+     * is stopped, as it would end on another radius
+     *
+     * @author Melvin Lobo
+     */
+    private void onSelectorRadiiChanged() {
+        if(mbShowAnimation)
+            stopAnimation();
+
+        for(int nCtr = 0; nCtr < mItemTable.getCount(); ++nCtr)
+            mItemTable.setRadius(nCtr, computeSelectorRadius(getChildAt(nCtr)));
+        updateSelectorRadius();
+        invalidate();
+    }
+
+    /**
+     * Take the radius of the selected item as the selector radius
+     *
+     * @author Melvin Lobo
+     */
+    private void updateSelectorRadius() {
+        mfSelectorRadius = (mSelectedView != null) ? getSelectorRadius(mnSelectedIndex) : 0.0f;
+    }
+
+    /**
+     * Set the background drawable
+     * @author Melvin Lobo
+     */
+    private void setBackgroundResource() {
+        //Set the background shape
+        if(mbElevationRequired) {
+            //For Lollipop and above, you can set the elevation programmatically
+            if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                mbElevationRequired = false;
+                ViewCompat.setElevation(this, ELEVATION);
+                setBackground(createBackgroundShape());
+            }
+            else
+                setBackground(createBackgroundShape());
+        }
+        else {
+            setBackground(createBackgroundShape());
+        }
+    }
+
+    /**
+     * Create the background shape programmatically. TO have the shadow effect, we need shapes placed on top of
+     * the other with varying Alphas and with an inset, to give an illusion of elevation.
+     * An xml can also be provided to do this statically (included: menu_shape_shadow)
+     * The shape stack (starting from bottom) is: Shape1, Shape2, Shape3, foreground. It is baked into a bitmap by
+     * ElevatedBackgroundDrawable so that the menu is filled once per redraw instead of once per layer.
+     * The drawables come from a process wide cache, so menus with the same background share their shapes
+     *
+     * @author Melvin Lobo
+     */
+    private Drawable createBackgroundShape() {
+        return MetaballBackgroundCache.getBackground(getResources(), mfBackgroundShapeRadius, mnBackgroundColor, mbElevationRequired);
+    }
+
+    /**
+     * Override onDraw to draw the selector cicle. We will also use this function to draw the Metaball Animation
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        long nStartTime = (mMetricsListener != null) ? System.nanoTime() : 0;
+
+        if(isFieldRendered() && (mnRenderMode == RENDER_MODE_FIELD))
+            drawDensityField(canvas);
+        else if(isFieldRendered())
+            drawContourField(canvas);
+        else {
+            if(!mbShowAnimation)
+                drawSelector(canvas);
+            else
+                drawMetaballTransition(canvas);
+
+            if(mnFieldItemCount > 0)
+                drawField(canvas);
+        }
+
+        if(mbShowDirtyRegions && mbShowAnimation && !mDirtyRegionRect.isEmpty())
+            canvas.drawRect(mDirtyRegionRect, mDirtyRegionPaint);
+
+        super.onDraw(canvas);
+
+        if((mMetricsListener != null) && mbShowAnimation)
+            mMetricsRecorder.addDrawTime(System.nanoTime() - nStartTime);
+    }
+
+    /**
+     * Check if the metaballs are drawn as the surface of a field (RENDER_MODE_FIELD or RENDER_MODE_CONTOUR). Below
+     * QUALITY_FULL, the transition only draws its circles, whatever the render mode
+     *
+     * @author Melvin Lobo
+     */
+    private boolean isFieldRendered() {
+        return ((mnRenderMode == RENDER_MODE_FIELD) || (mnRenderMode == RENDER_MODE_CONTOUR))
+                && !(mbShowAnimation && (getQualityTier() >= QUALITY_NO_BRIDGE));
+    }
+
+    /**
+     * Check if the transition is drawn as a mesh: in RENDER_MODE_MESH at QUALITY_FULL, if the canvas can draw
+     * vertices
+     *
+     * @author Melvin Lobo
+     */
+    private boolean isMeshDrawn() {
+        return (mnRenderMode == RENDER_MODE_MESH) && (getQualityTier() == QUALITY_FULL)
+                && (!isHardwareAccelerated() || (Build.VERSION.SDK_INT >= MESH_MIN_HARDWARE_SDK));
+    }
+
+    /**
+     * Convert dip to pixels
+     *
+     * param size
+     *            The size to be converted
+     *
+     * @author Melvin Lobo
+     */
+    private float d2x(int size) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, size, getContext().getResources().getDisplayMetrics());
+    }
+
+    /**
+     * Draw the selector when we are done with the animation ie.e in a static state
+     *
+     * @param canvas
+     *      The canvas to draw on
+     *
+     * @author Melvin Lobo
+     */
+    private void drawSelector(Canvas canvas) {
+        if(mSelectedView == null)
+            return;
+
+        // Find the center of the view, so that the selector circle can be drawn
+        getCenter(mnSelectedIndex, mSelectorPoint);
+
+        // Draw the cached circle, if we have one
+        if((mnCacheMode != CACHE_MODE_NONE) && (mfSelectorRadius > 0)) {
+            Bitmap selector = getSelectorBitmap();
+            float offset = selector.getWidth() / 2.0f;
+            canvas.drawBitmap(selector, mSelectorPoint.getX() - offset, mSelectorPoint.getY() - offset, null);
+            return;
+        }
+
+        // Draw the circle
+        canvas.drawCircle(mSelectorPoint.getX(), mSelectorPoint.getY(), mfSelectorRadius, mMetaballDestination);
+    }
+
+    /**
+     * Get the rasterized selector, rasterizing it if the radius changed or if we don't have it yet. The circle
+     * is centered in the bitmap with a pixel to spare on each side for the anti-aliasing
+     *
+     * @return
+     *      The selector bitmap
+     *
+     * @author Melvin Lobo
+     */
+    private Bitmap getSelectorBitmap() {
+        if((mSelectorBitmap == null) || (mfSelectorBitmapRadius != mfSelectorRadius)) {
+            releaseSelectorBitmap();
+
+            int nSize = (int) Math.ceil(mfSelectorRadius * 2) + 2;
+            mSelectorBitmap = Bitmap.createBitmap(nSize, nSize, Bitmap.Config.ARGB_8888);
+            new Canvas(mSelectorBitmap).drawCircle(nSize / 2.0f, nSize / 2.0f, mfSelectorRadius, mMetaballDestination);
+            mfSelectorBitmapRadius = mfSelectorRadius;
+        }
+
+        return mSelectorBitmap;
+    }
+
+    /**
+     * Release the rasterized selector. It will be rasterized again on the next redraw if required
+     *
+     * @author Melvin Lobo
+     */
+    private void releaseSelectorBitmap() {
+        if(mSelectorBitmap != null) {
+            mSelectorBitmap.recycle();
+            mSelectorBitmap = null;
+        }
+        mfSelectorBitmapRadius = 0.0f;
+    }
+
+    /**
+     * Keep the idle menu in a hardware layer in CACHE_MODE_LAYER. During a transition the content changes on every
+     * frame, so the layer would only add an extra pass. Drop it till the transition is done.
+     *
+     * @author Melvin Lobo
+     */
+    private void updateLayerType() {
+        int nLayerType = ((mnCacheMode == CACHE_MODE_LAYER) && !mbShowAnimation) ? View.LAYER_TYPE_HARDWARE : View.LAYER_TYPE_NONE;
+        if(getLayerType() != nLayerType)
+            setLayerType(nLayerType, null);
+    }
+
+    /**
+     * Get the center of an item. The Left and Top is to get teh actual location onthe screen. The centers come
+     * from the item table, or from the view if the items changed since the last layout
+     *
+     * @param nIndex
+     *      The index of the item whose center is to be determined
+     * @param center
+     *      The point to store the center in. Passed in so that we don't allocate on every frame
+     *
+     * @author Melvin Lobo
+     */
+    private void getCenter(int nIndex, Point center) {
+        if(nIndex < mItemTable.getCount()) {
+            center.setX(mItemTable.getCenterX(nIndex));
+            center.setY(mItemTable.getCenterY(nIndex));
+            return;
+        }
+
+        View view = getChildAt(nIndex);
+        center.setX(view.getLeft() + (view.getMeasuredWidth() / 2));
+        center.setY(view.getTop() + (view.getMeasuredHeight() / 2));
+    }
+
+    /**
+     * Compute the current Metaball transitional state based on the interpolator value. This runs on every
+     * animation frame, so nothing should be allocated here. The geometry is computed by MetaballGeometry into
+     * a reused buffer and traced on a reused path.
+     *
+     * @return
+     *      True if there is something to draw, false otherwise
+     *
+     * @author Melvin Lobo
+     */
+    private boolean computeTransitionFrame() {
+        // No destination to go to??
+        if(!mbDestinationSet) {
+            if(mSelectedView == null)       //No View selected. Do Nothing
+                return false;
+            else {
+                getCenter(mnSelectedIndex, mDestinationPoint);
+                mbDestinationSet = true;
+            }
+        }
+
+        boolean bSpring = mTransitionDriver.getSpring() != null;
+        if(bSpring)
+            applySprings();
+        else {
+            // Calculate the radii of the two circles which will be a function of the interpolator value. Between items
+            // of different sizes, the blob goes from the origin radius to the destination radius
+            mfOriginRadius = mfOriginSelectorRadius - (mfOriginSelectorRadius * mfInterpolatedTime);   // This circle will reduce in size based on the interpolator value
+            mfDestinationRadius = (mfDestinationSelectorRadius * mfInterpolatedTime);                  // This circle will increase in size based on the interpolator value
+
+            // Set the radius of the transitional circle
+            mTransitionalCircle.setRadius(mfOriginRadius);
+
+            // Set the center of the transitional circle. It moves along the vector between the two centers, based on the
+            // current interpolation value, so that rows, columns and grids all work. A retargeted transition also drifts
+            // along the velocity it was carrying, which fades out as f * (1 - f)^2 over the elapsed fraction f, so that
+            // the motion is continuous when it starts and settles exactly on the destination
+            float fraction = mTransitionDriver.getFraction();
+            float carry = fraction * (1.0f - fraction) * (1.0f - fraction) * (mTransitionDriver.getDuration() / 1000.0f);
+            mTransitionalCircle.setCenterX(mOriginPoint.getX() + ((mDestinationPoint.getX() - mOriginPoint.getX()) * mfInterpolatedTime)
+                    + (mfCarryVelocityX * carry));
+            mTransitionalCircle.setCenterY(mOriginPoint.getY() + ((mDestinationPoint.getY() - mOriginPoint.getY()) * mfInterpolatedTime)
+                    + (mfCarryVelocityY * carry));
+        }
+
+        // Calculate the bezier curves for covering the path between the two circles to form a blob. Replay the
+        // sampled keyframes if we have them. The keyframes hold the hop between the items, which the springs only
+        // follow while they have not overshot
+        if(getQualityTier() >= QUALITY_NO_BRIDGE)
+            mbBridge = false;
+        else if((mCurrentKeyframes != null) && (!bSpring || ((mfInterpolatedTime >= 0.0f) && (mfInterpolatedTime <= 1.0f))))
+            mbBridge = mCurrentKeyframes.outlineAt(mfInterpolatedTime, mfOutline);
+        else
+            mbBridge = MetaballGeometry.computeOutline(mTransitionalCircle.getCenterX(), mTransitionalCircle.getCenterY(), mfOriginRadius,
+                    mDestinationPoint.getX(), mDestinationPoint.getY(), mfDestinationRadius, mfOutline);
+
+        if(mnFadingLobeCount > 0)
+            computeFadingLobes();
+
+        if(isMeshDrawn())
+            buildMesh();
+        else if(mbBridge || (mnFadingLobeCount > 0)) {
+            mMetaballPath.rewind();
+            if(mbBridge)
+                appendOutlinePath(mfOutline, 0, mMetaballPath);
+            for(int nLobe = 0; nLobe < mnFadingLobeCount; ++nLobe) {
+                if(mbFadingBridges[nLobe])
+                    appendOutlinePath(mfFadingOutlines, nLobe * MetaballGeometry.OUTLINE_SIZE, mMetaballPath);
+            }
+        }
+
+        if((mnFieldItemCount > 0) && !isFieldRendered())
+            computeField();
 
-        //Set the orientation
-        setOrientation(LinearLayout.HORIZONTAL);
+        mbFrameComputed = true;
+        return true;
     }
 
     /**
-     * Getter for the Click Listener
-     *
-     * @return
-     *      The listener
+     * Merge the lobes of the interrupted transitions into the transitional circle: they move to its center and
+     * shrink to nothing along the interpolated time, bridged to it, so that the first frame of a retargeted
+     * transition is the last frame of the interrupted one
      *
      * @author Melvin Lobo
      */
-    public MetaballMenuClickListener getMenuClickListener() {
-        return mMenuClickListener;
+    private void computeFadingLobes() {
+        float t = Math.max(0.0f, Math.min(1.0f, mfInterpolatedTime));
+        float circleX = mTransitionalCircle.getCenterX();
+        float circleY = mTransitionalCircle.getCenterY();
+        boolean bBridges = getQualityTier() < QUALITY_NO_BRIDGE;
+        for(int nLobe = 0; nLobe < mnFadingLobeCount; ++nLobe) {
+            int nOffset = nLobe * LOBE_SIZE;
+            float x = mfFadingLobes[nOffset] + ((circleX - mfFadingLobes[nOffset]) * t);
+            float y = mfFadingLobes[nOffset + 1] + ((circleY - mfFadingLobes[nOffset + 1]) * t);
+            float radius = mfFadingLobes[nOffset + 2] * (1.0f - t);
+            mfFadingFrame[nOffset] = x;
+            mfFadingFrame[nOffset + 1] = y;
+            mfFadingFrame[nOffset + 2] = radius;
+            mbFadingBridges[nLobe] = bBridges && MetaballGeometry.computeOutline(circleX, circleY, mfOriginRadius, x, y, radius,
+                    mfFadingOutlines, nLobe * MetaballGeometry.OUTLINE_SIZE);
+        }
     }
 
     /**
-     * Setter for the Click Listener
-     *
-     * @param menuClickListener
-     *      The MenuClickListener
+     * Take the transitional circle and the radii from the springs (TRANSITION_SPRING). The radii swing past their
+     * targets when the springs bounce, and are kept from going negative. Started from rest, all the springs move in
+     * step, so the progress of the destination radius is the interpolated time of the hop
      *
      * @author Melvin Lobo
      */
-    public void setMenuClickListener(MetaballMenuClickListener menuClickListener) {
-        mMenuClickListener = menuClickListener;
+    private void applySprings() {
+        mfOriginRadius = Math.max(0.0f, mSpring.getValue(SPRING_ORIGIN_RADIUS));
+        mfDestinationRadius = Math.max(0.0f, mSpring.getValue(SPRING_DESTINATION_RADIUS));
+        mTransitionalCircle.setRadius(mfOriginRadius);
+        mTransitionalCircle.setCenterX(mSpring.getValue(SPRING_X));
+        mTransitionalCircle.setCenterY(mSpring.getValue(SPRING_Y));
+        mfInterpolatedTime = (mfDestinationSelectorRadius > 0.0f) ? mSpring.getValue(SPRING_DESTINATION_RADIUS) / mfDestinationSelectorRadius : 1.0f;
     }
 
     /**
-     * Set the background elevation
-     *
-     * @param bRequired
-     *      True if elevation is required, false otherwise
+     * Flatten the transition circles and the bridge into the mesh (RENDER_MODE_MESH). The number of segments of the
+     * circles follows their radius
      *
      * @author Melvin Lobo
      */
-    public void setElevationRequired(boolean bRequired) {
-        mbElevationRequired = bRequired;
-        setBackground(createBackgroundShape());
+    private void buildMesh() {
+        mMesh.clear();
+        mMesh.addCircle(mTransitionalCircle.getCenterX(), mTransitionalCircle.getCenterY(), mfOriginRadius);
+        mMesh.addCircle(mDestinationPoint.getX(), mDestinationPoint.getY(), mfDestinationRadius);
+        if(mbBridge)
+            mMesh.addBridge(mfOutline, 0);
+
+        for(int nLobe = 0; nLobe < mnFadingLobeCount; ++nLobe) {
+            int nOffset = nLobe * LOBE_SIZE;
+            mMesh.addCircle(mfFadingFrame[nOffset], mfFadingFrame[nOffset + 1], mfFadingFrame[nOffset + 2]);
+            if(mbFadingBridges[nLobe])
+                mMesh.addBridge(mfFadingOutlines, nLobe * MetaballGeometry.OUTLINE_SIZE);
+        }
     }
 
     /**
-     * Handle the finish inflate event to set up click listeners for the MetaBallImageViews (menu items).
-     * Also, set up the first item as selected.
+     * Fill the field with the selector (or the two circles of the transition) and the metaballs of the items, and
+     * trace the bridges between the ones that merge. The bridges of the transitional circle to the other transition
+     * circles are left out, as the transition draws them
      *
      * @author Melvin Lobo
      */
-    @Override
-    protected void onFinishInflate() {
-
-        for(int nCtr = 0; nCtr < getChildCount(); ++nCtr) {
-            getChildAt(nCtr).setOnClickListener(new View.OnClickListener() {
-
-                @Override
-                public void onClick(View v) {
-                    // Stop the previous animation
-                    if(mbShowAnimation)
-                       stopAnimation();
-
-                    mbShowAnimation = true;
-                    mOriginPoint = getCenter(mSelectedView);
-                    ((MetaballMenuImageView)mSelectedView).setSelected(false);      // unselect the previoud selection if any
-                    mSelectedView = v;
-                    ((MetaballMenuImageView)mSelectedView).setSelected(true);       // select the new selection
-                    mDestinationPoint = getCenter(mSelectedView);
-                    mfTransitionDistance = mDestinationPoint.getX() - mOriginPoint.getX();
-                    mfSelectorRadius = 0.0f; //Reset the selector radius, so that it can be calculated
-                                             // based on the currently selected view size
-                    startAnimation();
-                }
-            });
-        }
+    private void computeField() {
+        mbFieldBridges = false;
+        mFieldPath.rewind();
+        if(!fillField() || (mbShowAnimation && (getQualityTier() >= QUALITY_NO_BRIDGE)))
+            return;
 
-        //Set the first child as the selected View  during initialization
-        mSelectedView = getChildAt(0);
-        ((MetaballMenuImageView)mSelectedView).setSelected(true);
-        invalidate();
+        int nBridges = mField.computeBridges();
+        for(int nBridge = 0; nBridge < nBridges; ++nBridge) {
+            if(mbShowAnimation && (mField.getBridgeFirst(nBridge) == 0) && (mField.getBridgeSecond(nBridge) < mnFieldFirstBlob))
+                continue;
 
-        super.onFinishInflate();
+            appendOutlinePath(mField.getOutlines(), nBridge * MetaballGeometry.OUTLINE_SIZE, mFieldPath);
+            mbFieldBridges = true;
+        }
     }
 
     /**
-     * Set the background drawable
+     * Fill the field with the circles: the selector (or the circles of the transition) first, then the
+     * metaballs of the items from mnFieldFirstBlob on
+     *
+     * @return
+     *      True if there is a selector, false otherwise (the field is empty)
+     *
      * @author Melvin Lobo
      */
-    private void setBackgroundResource() {
-        //Set the background shape
-        if(mbElevationRequired) {
-            //For Lollipop and above, you can set the elevation programmatically
-            if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                mbElevationRequired = false;
-                ViewCompat.setElevation(this, ELEVATION);
-                setBackground(createBackgroundShape());
+    private boolean fillField() {
+        mField.clear();
+        if(mSelectedView == null)
+            return false;
+
+        mField.setMergeGap(mfSelectorRadius * MERGE_GAP_RATIO);
+
+        if(mbShowAnimation) {
+            mField.add(mTransitionalCircle.getCenterX(), mTransitionalCircle.getCenterY(), mfOriginRadius);
+            mField.add(mDestinationPoint.getX(), mDestinationPoint.getY(), mfDestinationRadius);
+            for(int nLobe = 0; nLobe < mnFadingLobeCount; ++nLobe) {
+                int nOffset = nLobe * LOBE_SIZE;
+                mField.add(mfFadingFrame[nOffset], mfFadingFrame[nOffset + 1], mfFadingFrame[nOffset + 2]);
             }
-            else
-                setBackground(createBackgroundShape());
         }
         else {
-            setBackground(createBackgroundShape());
+            getCenter(mnSelectedIndex, mBlobPoint);
+            mField.add(mBlobPoint.getX(), mBlobPoint.getY(), mfSelectorRadius);
+        }
+        mnFieldFirstBlob = mField.getCount();
+
+        for(int nCtr = 0; nCtr < getChildCount(); ++nCtr) {
+            MetaballMenuImageView item = (MetaballMenuImageView) getChildAt(nCtr);
+            if(item.getVisibility() == View.GONE)
+                continue;
+
+            float radius = getSelectorRadius(nCtr);
+            if(item.isChecked()) {
+                getCenter(nCtr, mBlobPoint);
+                mField.add(mBlobPoint.getX(), mBlobPoint.getY(), radius);
+            }
+            if(item.isBadgeVisible()) {
+                getCenter(nCtr, mBlobPoint);
+                float badgeOffset = radius * BADGE_OFFSET_RATIO;
+                mField.add(mBlobPoint.getX() + badgeOffset, mBlobPoint.getY() - badgeOffset, radius * BADGE_RADIUS_RATIO);
+            }
         }
+
+        return true;
     }
 
     /**
-     * Create the background shape / Layer -List programmatically. TO have the shadow effect, we need
-     * shapes placed on top of the other with varying Alphas and with an inset, to give an illusion of elevation
-     * An xml can also be provided to do this statically (included: menu_shape_shadow)
-     * The shape stack (starting from bottom) is: Shape1, Shape2, Shape3, foreground
+     * Draw all the metaballs as the surface of a true metaball field (RENDER_MODE_FIELD). The field is sampled on a
+     * grid of FIELD_SAMPLE_SIZE pixel cells, rasterized into a low resolution bitmap and scaled up with filtering
+     *
+     * @param canvas
+     *      The canvas to draw on
      *
      * @author Melvin Lobo
      */
-    private Drawable createBackgroundShape() {
-        //The radius array to draw the round rect shape. Each pair is for one corner
-        float[] radiiFloat = new float[] {mfBackgroundShapeRadius, mfBackgroundShapeRadius, mfBackgroundShapeRadius, mfBackgroundShapeRadius,
-                mfBackgroundShapeRadius, mfBackgroundShapeRadius, mfBackgroundShapeRadius, mfBackgroundShapeRadius};
-        Drawable backgroundDrawable = null;
-
-        //Foreground Shape
-        RoundRectShape foregroundRect = new RoundRectShape(radiiFloat, null, null);
-        ShapeDrawable foregroundShape = new ShapeDrawable(foregroundRect);
-        foregroundShape.getPaint().setColor(mnBackgroundColor);
-
-        if(mbElevationRequired) {
-            //First Shape
-            RoundRectShape rect1 = new RoundRectShape(radiiFloat, null, null);
-            ShapeDrawable shape1 = new ShapeDrawable(rect1);
-            shape1.getPaint().setColor(Color.parseColor(SHAPE_1_COLOR));
-
-            //Second Shape
-            RoundRectShape rect2 = new RoundRectShape(radiiFloat, null, null);
-            ShapeDrawable shape2 = new ShapeDrawable(rect2);
-            shape2.getPaint().setColor(Color.parseColor(SHAPE_2_COLOR));
-
-            //Third Shape
-            RoundRectShape rect3 = new RoundRectShape(radiiFloat, null, null);
-            ShapeDrawable shape3 = new ShapeDrawable(rect3);
-            shape3.getPaint().setColor(Color.parseColor(SHAPE_3_COLOR));
+    private void drawDensityField(Canvas canvas) {
+        if(mbShowAnimation && !mbFrameComputed && !computeTransitionFrameTimed())
+            return;
 
-            //Fourth Shape
-            RoundRectShape rect4 = new RoundRectShape(radiiFloat, null, null);
-            ShapeDrawable shape4 = new ShapeDrawable(rect4);
-            shape4.getPaint().setColor(Color.parseColor(SHAPE_2_COLOR));
+        int nColumns = (getWidth() + FIELD_SAMPLE_SIZE - 1) / FIELD_SAMPLE_SIZE;
+        int nRows = (getHeight() + FIELD_SAMPLE_SIZE - 1) / FIELD_SAMPLE_SIZE;
+        if((nColumns == 0) || (nRows == 0) || !fillField())
+            return;
 
-            //Create an array of shapes for the layer list
-            Drawable[] layerArray = {shape1, shape2, shape3, shape4, foregroundShape};
+        long nStartTime = (mMetricsListener != null) ? System.nanoTime() : 0;
 
-            LayerDrawable drawable = new LayerDrawable(layerArray);
+        if((mFieldBitmap == null) || (mFieldBitmap.getWidth() != nColumns) || (mFieldBitmap.getHeight() != nRows)) {
+            releaseFieldBitmap();
+            mFieldBitmap = Bitmap.createBitmap(nColumns, nRows, Bitmap.Config.ARGB_8888);
+            mnFieldPixels = new int[nColumns * nRows];
+        }
 
-            //Set the insets to get the elevates shadow effect (refer to the menu_shape_xml for better understanding)
-            drawable.setLayerInset(0, 0, 0, 0, 0);
-            drawable.setLayerInset(1, (int) d2x(1), (int) d2x(1), (int) d2x(1), (int) d2x(1));
-            drawable.setLayerInset(2, (int) d2x(2), (int) d2x(2), (int) d2x(2), (int) d2x(2));
-            drawable.setLayerInset(3, (int) d2x(3), (int) d2x(3), (int) d2x(3), (int) d2x(3));
-            drawable.setLayerInset(4, (int) d2x(2), (int) d2x(2), (int) d2x(2), (int) d2x(4));
+        // The samples are at the center of their cells, so that the bitmap pixels line up with them once scaled up
+        mDensityGrid.setBounds(FIELD_SAMPLE_SIZE / 2.0f, FIELD_SAMPLE_SIZE / 2.0f, nColumns, nRows, FIELD_SAMPLE_SIZE);
+        for(int nCtr = 0; nCtr < mField.getCount(); ++nCtr)
+            mDensityGrid.addBlob(mField.getX(nCtr), mField.getY(nCtr), mField.getRadius(nCtr));
+        mDensityGrid.rasterize(mnFieldPixels, mnMetaballColor);
+        mFieldBitmap.setPixels(mnFieldPixels, 0, nColumns, 0, 0, nColumns, nRows);
 
-            backgroundDrawable = drawable;
-        }
-        else {
-            backgroundDrawable = foregroundShape;
-        }
+        mFieldBitmapRect.set(0, 0, nColumns * FIELD_SAMPLE_SIZE, nRows * FIELD_SAMPLE_SIZE);
+        canvas.drawBitmap(mFieldBitmap, null, mFieldBitmapRect, mFieldBitmapPaint);
 
-        return backgroundDrawable;
+        if(mMetricsListener != null)
+            mMetricsRecorder.addCanvasTime(System.nanoTime() - nStartTime);
     }
 
     /**
-     * Override onDraw to draw the selector cicle. We will also use this function to draw the Metaball Animation
+     * Draw all the metaballs as the contour of a true metaball field (RENDER_MODE_CONTOUR). The contour extractor
+     * keeps its samples from frame to frame, so only the cells around the metaballs which moved are evaluated
+     *
+     * @param canvas
+     *      The canvas to draw on
      *
      * @author Melvin Lobo
      */
-    @Override
-    protected void onDraw(Canvas canvas) {
+    private void drawContourField(Canvas canvas) {
+        if(mbShowAnimation && !mbFrameComputed && !computeTransitionFrameTimed())
+            return;
 
-        if(!mbShowAnimation)
-            drawSelector(canvas);
-        else
-            drawMetaballTransition(canvas);
+        // One more sample than cells, so that the samples reach the edges of the menu
+        int nColumns = ((getWidth() + FIELD_SAMPLE_SIZE - 1) / FIELD_SAMPLE_SIZE) + 1;
+        int nRows = ((getHeight() + FIELD_SAMPLE_SIZE - 1) / FIELD_SAMPLE_SIZE) + 1;
+        if((getWidth() == 0) || (getHeight() == 0) || !fillField())
+            return;
 
+        long nStartTime = (mMetricsListener != null) ? System.nanoTime() : 0;
 
-        super.onDraw(canvas);
+        mContour.setBounds(0, 0, nColumns, nRows, FIELD_SAMPLE_SIZE);
+        mContour.setCount(mField.getCount());
+        for(int nCtr = 0; nCtr < mField.getCount(); ++nCtr)
+            mContour.setCircle(nCtr, mField.getX(nCtr), mField.getY(nCtr), mField.getRadius(nCtr));
+        mContour.update();
+
+        mContourPath.mPath.rewind();
+        mContour.trace(mContourPath);
+
+        long nTraceTime = (mMetricsListener != null) ? System.nanoTime() : 0;
+        canvas.drawPath(mContourPath.mPath, mMetaballDestination);
+
+        if(mMetricsListener != null) {
+            mMetricsRecorder.addGeometryTime(nTraceTime - nStartTime);
+            mMetricsRecorder.addCanvasTime(System.nanoTime() - nTraceTime);
+        }
     }
 
     /**
-     * Convert dip to pixels
-     *
-     * param size
-     *            The size to be converted
+     * Release the field bitmap. It is allocated again for the current size when needed
      *
      * @author Melvin Lobo
      */
-    private float d2x(int size) {
-        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, size, getContext().getResources().getDisplayMetrics());
+    private void releaseFieldBitmap() {
+        if(mFieldBitmap != null) {
+            mFieldBitmap.recycle();
+            mFieldBitmap = null;
+        }
+        mnFieldPixels = null;
     }
 
     /**
-     * Draw the selector when we are done with the animation ie.e in a static state
+     * Draw the metaballs of the items and the bridges of the field. The selector circles are drawn by the selector
+     * or the transition
      *
      * @param canvas
      *      The canvas to draw on
      *
      * @author Melvin Lobo
      */
-    private void drawSelector(Canvas canvas) {
-        if(mfSelectorRadius == 0.0)
-            calculateSelectorRadius();            //Calculate the selector radius
-
-        // Find the center of the view, so that the selector circle can be drawn
-        Point center = getCenter(mSelectedView);
+    private void drawField(Canvas canvas) {
+        if(!mbShowAnimation)
+            computeField();
 
-        // Draw the circle
-        canvas.drawCircle(center.getX(), center.getY(), mfSelectorRadius, mMetaballDestination);
-    }
+        for(int nCtr = mnFieldFirstBlob; nCtr < mField.getCount(); ++nCtr)
+            canvas.drawCircle(mField.getX(nCtr), mField.getY(nCtr), mField.getRadius(nCtr), mMetaballDestination);
 
-    /**
-     * Get the center of a View. The Left and Top is to get teh actual location onthe screen
-     *
-     * @param view
-     *      The View whose center is to be determined
-     *
-     * @author Melvin Lobo
-     */
-    private Point getCenter(View view) {
-        return new Point(view.getLeft() + (view.getMeasuredWidth() / 2), view.getTop() + (view.getMeasuredHeight() / 2));
+        if(mbFieldBridges)
+            canvas.drawPath(mFieldPath, mMetaballDestination);
     }
 
     /**
-     * Draw the current Metaball transitional state based on the interpolator value.
+     * Draw the current Metaball transitional state
      *
      * @param canvas
      *      The canvas to draw on
@@ -453,281 +2432,387 @@ public class MetaballMenu extends LinearLayout {
      * @author Melvin Lobo
      */
     public void drawMetaballTransition(Canvas canvas) {
-        final float v = 0.5f;           //??
-        final float handleLenRate = 2.4f;
-
-        // No destination to go to??
-        if(mDestinationPoint == null) {
-            if(mSelectedView == null)       //No View selected. Do Nothing
-                return;
-            else
-                mDestinationPoint = getCenter(mSelectedView);
-        }
-
-        // Define and initialize both radii for the calculations
-        float originRadius, destinationRadius = 0.0f;
+        if(!mbFrameComputed && !computeTransitionFrameTimed())
+            return;
 
-        // Calculate the radii of the two circles which will be a function of the interpolator value.
-        originRadius = mfSelectorRadius - (mfSelectorRadius * mfInterpolatedTime);       // This circle will reduce in size based on the interpolator value
-        destinationRadius = (mfSelectorRadius * mfInterpolatedTime);                     // This circle will increase in size based on the interpolator value
+        long nStartTime = (mMetricsListener != null) ? System.nanoTime() : 0;
 
-         // Initialize the transitional circle if required (First animation frame)
-        if(mTransitionalCircle == null) {
-            if(mfSelectorRadius == 0.0)
-                calculateSelectorRadius();                                                  //Calculate the selector radius
+        // The whole transition in one mesh
+        if(isMeshDrawn()) {
+            canvas.drawVertices(Canvas.VertexMode.TRIANGLES, mMesh.getVertexCount(), mMesh.getVertices(), 0, null, 0,
+                    null, 0, mMesh.getIndices(), 0, mMesh.getIndexCount(), mMetaballDestination);
 
-			mTransitionalCircle = new Circle();
-            mTransitionalCircle.setCenterPoint(new Point(0, mDestinationPoint.getY()));    //Get a center. The x-co-ordinate will change anyways
+            if(mMetricsListener != null)
+                mMetricsRecorder.addCanvasTime(System.nanoTime() - nStartTime);
+            return;
         }
 
-        // Set the radius of the transitional circle
-        mTransitionalCircle.setRadius(originRadius);
-
-        // Set the x co-ordinate of center of the transitional circle. This is based on the current interpolation value
-        // of the distance between the two centers
-        mTransitionalCircle.setCenterX(mOriginPoint.getX() + (mfTransitionDistance * mfInterpolatedTime));
-
         // Draw the transitional circle
-        canvas.drawCircle(mTransitionalCircle.getCenterX(), mTransitionalCircle.getCenterY(), originRadius, mMetaballDestination);
+        canvas.drawCircle(mTransitionalCircle.getCenterX(), mTransitionalCircle.getCenterY(), mfOriginRadius, mMetaballDestination);
 
         // Draw the destination Circle
-        canvas.drawCircle(mDestinationPoint.getX(), mDestinationPoint.getY(), destinationRadius, mMetaballDestination);
-
-        // Get the distance between the two circles (straight line length between two points)
-        float nDistance = getDistance(mTransitionalCircle.getCenterPoint(), mDestinationPoint);
-
-        // Get the radius sum
-        float radiusSum = originRadius + destinationRadius;
-
-        // Calculate the bezier curves for covering the path between the two circles to form a blob
-        float arc1, arc2 = 0.0f;
+        canvas.drawCircle(mDestinationPoint.getX(), mDestinationPoint.getY(), mfDestinationRadius, mMetaballDestination);
 
-        /*
-         * Note:
-         * The remainder of the math calculations are based on the references mentioned above.
-         * I'm not a math enthusiast.
-         * Will try to comment where it makes sense to me.
-         */
-        if((originRadius == 0) || (destinationRadius == 0))
-            return;
-        else if(nDistance < radiusSum) {
-            arc1 = (float) Math.acos(( (originRadius * originRadius) + (nDistance * nDistance) - (destinationRadius * destinationRadius)) /
-                    (2 * originRadius * nDistance));
-
-            arc2 = (float) Math.acos(( (destinationRadius * destinationRadius) + (nDistance * nDistance) - (originRadius * originRadius)) /
-                    (2 * destinationRadius * nDistance));
+        // Draw the lobes of the interrupted transitions
+        for(int nLobe = 0; nLobe < mnFadingLobeCount; ++nLobe) {
+            int nOffset = nLobe * LOBE_SIZE;
+            canvas.drawCircle(mfFadingFrame[nOffset], mfFadingFrame[nOffset + 1], mfFadingFrame[nOffset + 2], mMetaballDestination);
         }
-        else {
-            arc1 = arc2 = 0.0f;
-        }
-
-        // Get the difference of the two centres
-        Point diffPoint = new Point(mDestinationPoint.getX() - mTransitionalCircle.getCenterX(),
-                                    mDestinationPoint.getY() - mTransitionalCircle.getCenterY());
-
-        // Get the angle in radians
-        float angle1 = (float) Math.atan2(diffPoint.getY(), diffPoint.getX());
-        float angle2 = (float) Math.acos((originRadius - destinationRadius) / nDistance);
 
-        // ??
-        float angle1a = angle1 + arc1 + (angle2 - arc1) * v;
-        float angle1b = angle1 - arc1 - (angle2 - arc1) * v;
-        float angle2a = (float) (angle1 + Math.PI - arc2 - (Math.PI - arc2 - angle2) * v);
-        float angle2b = (float) (angle1 - Math.PI + arc2 + (Math.PI - arc2 - angle2) * v);
+        // Draw the actual Path, with the bridges to the lobes
+        if(mbBridge || (mnFadingLobeCount > 0))
+            canvas.drawPath(mMetaballPath, mMetaballDestination);
 
-        // Get the vectors
-        Point p1aTemp = getVector(angle1a, originRadius);
-        Point p1bTemp = getVector(angle1b, originRadius);
-        Point p2aTemp = getVector(angle2a, destinationRadius);
-        Point p2bTemp = getVector(angle2b, destinationRadius);
-
-        // Calculate points
-        Point p1a = new Point(p1aTemp.getX() + mTransitionalCircle.getCenterX(), p1aTemp.getY() + mTransitionalCircle.getCenterY());
-        Point p1b = new Point(p1bTemp.getX() + mTransitionalCircle.getCenterX(), p1bTemp.getY() + mTransitionalCircle.getCenterY());
-        Point p2a = new Point(p2aTemp.getX() + mDestinationPoint.getX(), p2aTemp.getY() + mDestinationPoint.getY());
-        Point p2b = new Point(p2bTemp.getX() + mDestinationPoint.getX(), p2bTemp.getY() + mDestinationPoint.getY());
-
-        // Define handle length by the distance between both ends of the curve to draw
-        Point diffp1p2 = new Point(p1a.getX() - p2a.getX(), p1a.getY() - p2a.getY());   //Diff point
-
-        float totalRadius = originRadius + destinationRadius;
-        float minDist = Math.min(v * handleLenRate, getLength(diffp1p2.getX(), diffp1p2.getY()) / totalRadius);
-
-        // In case circles are overlapping
-        minDist *= Math.min(1, (nDistance * 2) / radiusSum);
-
-        float radius1 = originRadius * minDist;
-        float radius2 = destinationRadius * minDist;
-        float pi2 = (float) (Math.PI / 2);
+        if(mMetricsListener != null)
+            mMetricsRecorder.addCanvasTime(System.nanoTime() - nStartTime);
+    }
 
-        // Get the final segment vectors to draw the path
-        Point segment1 = getVector(angle1a - pi2, radius1);
-        Point segment2 = getVector(angle2a + pi2, radius2);
-        Point segment3 = getVector(angle2b - pi2, radius2);
-        Point segment4 = getVector(angle1b + pi2, radius1);
+    /**
+     * Compute the transition frame, adding the time it takes to the metrics if a listener is attached
+     *
+     * @return
+     *      True if there is something to draw, false otherwise
+     *
+     * @author Melvin Lobo
+     */
+    private boolean computeTransitionFrameTimed() {
+        if(mMetricsListener == null)
+            return computeTransitionFrame();
+
+        long nStartTime = System.nanoTime();
+        boolean bResult = computeTransitionFrame();
+        mMetricsRecorder.addGeometryTime(System.nanoTime() - nStartTime);
+        return bResult;
+    }
 
-        // Trace the path. The path is like a rectangle with two of its sides curved. The vertices
-        // lie on the circle circumference
-        Path path = new Path();
-        path.moveTo(p1a.getX(), p1a.getY());
+    /**
+     * Trace a bridge outline on the given path, after what it already holds. The path is like a rectangle with two
+     * of its sides curved. The vertices lie on the circle circumference
+     *
+     * @param outline
+     *      The buffer holding the outline
+     * @param nOffset
+     *      The offset of the outline in the buffer
+     * @param path
+     *      The path to trace on
+     *
+     * @return
+     *      The traced path
+     *
+     * @author Melvin Lobo
+     */
+    private static Path appendOutlinePath(float[] outline, int nOffset, Path path) {
+        path.moveTo(outline[nOffset + MetaballGeometry.P1A], outline[nOffset + MetaballGeometry.P1A + 1]);
 
         // Curve 1
-        path.cubicTo(p1a.getX() + segment1.getX(), p1a.getY() + segment1.getY(), p2a.getX() + segment2.getX(),
-                p2a.getY() + segment2.getY(), p2a.getX(), p2a.getY());
+        path.cubicTo(outline[nOffset + MetaballGeometry.C1], outline[nOffset + MetaballGeometry.C1 + 1],
+                outline[nOffset + MetaballGeometry.C2], outline[nOffset + MetaballGeometry.C2 + 1],
+                outline[nOffset + MetaballGeometry.P2A], outline[nOffset + MetaballGeometry.P2A + 1]);
 
         // Line 1
-        path.lineTo(p2b.getX(), p2b.getY());
+        path.lineTo(outline[nOffset + MetaballGeometry.P2B], outline[nOffset + MetaballGeometry.P2B + 1]);
 
         // Curve 2
-        path.cubicTo(p2b.getX() + segment3.getX(), p2b.getY() + segment3.getY(), p1b.getX() + segment4.getX(),
-                p1b.getY() + segment4.getY(), p1b.getX(), p1b.getY());
+        path.cubicTo(outline[nOffset + MetaballGeometry.C3], outline[nOffset + MetaballGeometry.C3 + 1],
+                outline[nOffset + MetaballGeometry.C4], outline[nOffset + MetaballGeometry.C4 + 1],
+                outline[nOffset + MetaballGeometry.P1B], outline[nOffset + MetaballGeometry.P1B + 1]);
 
         // Line 2
-        path.lineTo(p1a.getX(), p1a.getY());
-
         path.close();
 
-        // Draw the actual Path
-        canvas.drawPath(path, mMetaballDestination);
+        return path;
     }
 
     /**
-     * Get the Vector point.
+     * Start the animation
+     *
+     * @param bRetarget
+     *      True if a running transition is being redirected. The area of its last frame is kept, so that the next
+     *      frame clears it
      *
      * @author Melvin Lobo
      */
-    private Point getVector(float radianAngle, float length) {
-        return new Point((float) (Math.cos(radianAngle) * length), (float) (Math.sin(radianAngle) * length));
+    private void startAnimation(boolean bRetarget) {
+        if((getVisibility() == View.GONE) || (getVisibility() == View.INVISIBLE))
+            return;
+
+        updateLayerType();
+        if(mMetricsListener != null)
+            mMetricsRecorder.begin();
+
+        mfInterpolatedTime = 0;
+        mbFrameComputed = false;
+        mMetaballDestination.setAntiAlias(getQualityTier() < QUALITY_NO_ANTI_ALIAS);
+        mfCircleVelocityX = mfCarryVelocityX;
+        mfCircleVelocityY = mfCarryVelocityY;
+        mnLastCircleTimeNanos = -1;
+        if(!bRetarget) {
+            mPreviousFrameRect.setEmpty();
+            mDirtyRegionRect.setEmpty();
+        }
+        mTransitionDriver.start();
     }
 
     /**
-     * Get the distance between two points. The formula for two points (x0, y0) and (x1,y1) is
-     *   _____________________
-     * \/(x1-x0)^2 + (y1-y0)^2
-     *          OR
-     * Math.sqrt((x1-x0)^2 + (y1-y0)^2)
+     * The transition is over: back to the selector on the destination, and notify the listener
      *
      * @author Melvin Lobo
      */
-    private float getDistance(Point p1, Point p2) {
-        float distX = p2.getX() - p1.getX();
-        float distY = p2.getY() - p1.getX();
+    private void endTransition() {
+        mbShowAnimation = false;
+        clearValues();
+        invalidate();           // Redraw the selector
+        reportMetrics(false);
+        if(mMenuClickListener != null)
+            mMenuClickListener.onClick(mSelectedView);
+    }
 
-        return (float)(Math.sqrt((distX * distX) + (distY * distY)));
+    /**
+     * Stop the animation
+     *
+     * @author Melvin Lobo
+     */
+    private void stopAnimation() {
+        mbShowAnimation = false;
+        clearValues();
+        invalidate();           // The stopped transition may have left the blob outside the next transition's area
+        reportMetrics(true);
     }
 
     /**
-     * Get the length
+     * Report the metrics of the transition that just ended to the listener, if there is one
      *
-     * @param x1
-     *      Co-ordinate 1
+     * @param bCancelled
+     *      True if the transition was interrupted, false otherwise
      *
-     *  @param x2
-     *      Co-ordinate 2
+     * @author Melvin Lobo
+     */
+    private void reportMetrics(boolean bCancelled) {
+        if((mMetricsListener == null) || !mMetricsRecorder.isRecording())
+            return;
+
+        mMetricsListener.onTransitionMetrics(this, mMetricsRecorder.end(bCancelled));
+    }
+
+    /**
+     * Clear values in transitional state. The points and circle are kept around and reused for the next transition
      *
      * @author Melvin Lobo
      */
-    private float getLength(float x1, float x2) {
-        return (float) Math.sqrt((x1 * x1) + (x2 * x2));
+    private void clearValues() {
+        mTransitionDriver.cancel();
+        mbShowAnimation = false;
+        updateLayerType();
+        mbDestinationSet = false;
+        mCurrentKeyframes = null;
+        mnFadingLobeCount = 0;
+        mMetaballDestination.setAntiAlias(true);
     }
 
     /**
-     * Start the animation
+     * Invalidate the area covered by the transition frame, i.e. the transitional circle, the destination circle and
+     * the bridge between them, together with the area of the previous frame which has to be cleared. The rest of
+     * the menu (background and icons) does not change during a transition
      *
      * @author Melvin Lobo
      */
-    private void startAnimation() {
-        if((getVisibility() == View.GONE) || (getVisibility() == View.INVISIBLE))
+    private void invalidateTransition() {
+        // The field bitmap and the contours cover the whole menu
+        if(!computeTransitionFrameTimed() || isFieldRendered()) {
+            invalidate();
             return;
-
-        // Initialize the animation object
-        if(mTransitionAnimation == null) {
-            mTransitionAnimation = new TransitionAnimation();
-            mTransitionAnimation.setDuration(500);
-            mTransitionAnimation.setInterpolator(new BounceInterpolator());
         }
 
-        // Set the listener
-        mTransitionAnimation.setAnimationListener(new Animation.AnimationListener() {
-            @Override
-            public void onAnimationStart(Animation animation) {
+        // The circles
+        float left = Math.min(mTransitionalCircle.getCenterX() - mfOriginRadius, mDestinationPoint.getX() - mfDestinationRadius);
+        float top = Math.min(mTransitionalCircle.getCenterY() - mfOriginRadius, mDestinationPoint.getY() - mfDestinationRadius);
+        float right = Math.max(mTransitionalCircle.getCenterX() + mfOriginRadius, mDestinationPoint.getX() + mfDestinationRadius);
+        float bottom = Math.max(mTransitionalCircle.getCenterY() + mfOriginRadius, mDestinationPoint.getY() + mfDestinationRadius);
+
+        // The bridge. A bezier curve lies within the hull of its control points, so the bounds of all the outline
+        // points cover it
+        if(mbBridge) {
+            for(int nCtr = 0; nCtr < MetaballGeometry.OUTLINE_SIZE; nCtr += 2) {
+                left = Math.min(left, mfOutline[nCtr]);
+                right = Math.max(right, mfOutline[nCtr]);
+                top = Math.min(top, mfOutline[nCtr + 1]);
+                bottom = Math.max(bottom, mfOutline[nCtr + 1]);
+            }
+        }
 
+        // The lobes of the interrupted transitions and their bridges
+        for(int nLobe = 0; nLobe < mnFadingLobeCount; ++nLobe) {
+            int nOffset = nLobe * LOBE_SIZE;
+            float radius = mfFadingFrame[nOffset + 2];
+            left = Math.min(left, mfFadingFrame[nOffset] - radius);
+            right = Math.max(right, mfFadingFrame[nOffset] + radius);
+            top = Math.min(top, mfFadingFrame[nOffset + 1] - radius);
+            bottom = Math.max(bottom, mfFadingFrame[nOffset + 1] + radius);
+            if(!mbFadingBridges[nLobe])
+                continue;
+
+            int nEnd = (nLobe + 1) * MetaballGeometry.OUTLINE_SIZE;
+            for(int nCtr = nLobe * MetaballGeometry.OUTLINE_SIZE; nCtr < nEnd; nCtr += 2) {
+                left = Math.min(left, mfFadingOutlines[nCtr]);
+                right = Math.max(right, mfFadingOutlines[nCtr]);
+                top = Math.min(top, mfFadingOutlines[nCtr + 1]);
+                bottom = Math.max(bottom, mfFadingOutlines[nCtr + 1]);
             }
+        }
 
-            @Override
-            public void onAnimationEnd(Animation animation) {
-                mbShowAnimation = false;
-                clearValues();
-                if(mMenuClickListener != null)
-                    mMenuClickListener.onClick(mSelectedView);
+        // The bridges of the field change with the transition as well. The item metaballs do not move
+        if(mbFieldBridges) {
+            float[] outlines = mField.getOutlines();
+            int nEnd = mField.getBridgeCount() * MetaballGeometry.OUTLINE_SIZE;
+            for(int nCtr = 0; nCtr < nEnd; nCtr += 2) {
+                left = Math.min(left, outlines[nCtr]);
+                right = Math.max(right, outlines[nCtr]);
+                top = Math.min(top, outlines[nCtr + 1]);
+                bottom = Math.max(bottom, outlines[nCtr + 1]);
             }
+        }
 
-            @Override
-            public void onAnimationRepeat(Animation animation) {
+        // Round out, with a pixel to spare for the anti-aliasing
+        mFrameRect.set((int) Math.floor(left) - 1, (int) Math.floor(top) - 1, (int) Math.ceil(right) + 1, (int) Math.ceil(bottom) + 1);
+
+        mDirtyRect.set(mFrameRect);
+        if(!mPreviousFrameRect.isEmpty())
+            mDirtyRect.union(mPreviousFrameRect);
+        mPreviousFrameRect.set(mFrameRect);
+
+        if(mbShowDirtyRegions) {
+            // Clear the previous overlay as well
+            if(!mDirtyRegionRect.isEmpty())
+                mDirtyRect.union(mDirtyRegionRect);
+            mDirtyRegionRect.set(mDirtyRect);
+            int nStroke = (int) Math.ceil(mDirtyRegionPaint.getStrokeWidth());
+            mDirtyRect.set(mDirtyRect.left - nStroke, mDirtyRect.top - nStroke, mDirtyRect.right + nStroke, mDirtyRect.bottom + nStroke);
+        }
 
-            }
-        });
+        invalidate(mDirtyRect);
+    }
+
+    /**
+     * Stop any running transition when we go off the window, so that the frame clock does not keep the view alive.
+     * The selection stays on the destination of the transition. The rasterized selector is released as well
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        unbind();
 
-        startAnimation(mTransitionAnimation);
+        releaseSelectorBitmap();
+        releaseFieldBitmap();
+
+        super.onDetachedFromWindow();
     }
 
     /**
-     * Stop the animation
+     * Save the selection. Everything else comes from the layout or from the bind calls
      *
      * @author Melvin Lobo
      */
-    private void stopAnimation() {
-        mbShowAnimation = false;
-        clearValues();
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.mnSelectedIndex = mnSelectedIndex;
+        return state;
     }
 
     /**
-     * Clear values in transitional state as we don't need them post the animation and they can be cleared by the GC
-     * if required
+     * Restore the selection, without a transition. An index the menu no longer has is ignored
      *
      * @author Melvin Lobo
      */
-    private void clearValues() {
-        if(mTransitionAnimation.hasStarted() && !mTransitionAnimation.hasEnded()) {
-            mTransitionAnimation.reset();
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if(!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
         }
 
-        clearAnimation();
-        mTransitionAnimation = null;
-        mbShowAnimation = false;
-        mTransitionalCircle = null;
-        mDestinationPoint = null;
-        mfTransitionDistance = 0.0f;
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        if((savedState.mnSelectedIndex >= 0) && (savedState.mnSelectedIndex < getChildCount()))
+            bind(savedState.mnSelectedIndex);
     }
 
-
     /**
-     * Calculate Selector Radius
+     * Calculate the selector radius of an item from its size, following the radius policy. The padding of the item
+     * is part of its size, so it acts as the room between the icon and the edge of the selector
+     *
+     * @param item
+     *      The item
      *
-     * The selector radius can be calculated by a simple math calculation of the larger side.
+     * @return
+     *      The radius in pixels
      *
      * @author Melvin Lobo
      */
-    private float calculateSelectorRadius() {
-
-		if (mfSelectorRadius == 0.0f) {
+    private float computeSelectorRadius(View item) {
+        int nWidth = item.getWidth();
+        int nHeight = item.getHeight();
 
-            // Get the height and width of the child. Tha padding on the child acts as bounds for the
-            // selector to be drawn
-            int nHeight = mSelectedView.getHeight();
-            int nWidth = mSelectedView.getWidth();
+        switch(mnSelectorRadiusPolicy) {
+            case SELECTOR_RADIUS_CIRCUMSCRIBED:
+                return (float) Math.sqrt((nWidth * nWidth) + (nHeight * nHeight)) / 2.0f;
 
-			// Calculate the selector radius
-			int nLargerSide = Math.max(nWidth, nHeight);
+            case SELECTOR_RADIUS_FIXED:
+                return mfFixedSelectorRadius;
 
-			// Diag of a square = (side)^2. Therefore, mnRadius = Diag / 2
-			mfSelectorRadius = ((nLargerSide ^ 2) / 2) ;
-		}
+            case SELECTOR_RADIUS_INSCRIBED:
+                return Math.min(nWidth, nHeight) / 2.0f;
 
-        return mfSelectorRadius;
+            default:
+                // Exactly the radius menus always had, so that they look the same. The XOR was meant as a square,
+                // and puts it within a pixel of half the larger side
+                int nLargerSide = Math.max(nWidth, nHeight);
+                return (float) ((nLargerSide ^ 2) / 2);
+        }
     }
 
     //////////////////////////////////// INNER CLASSES /////////////////////////////////////////////
+    /**
+     * The saved state of the menu: only the selected index, so that a list of menus saves little
+     *
+     * @author Melvin Lobo
+     */
+    static class SavedState extends BaseSavedState {
+
+        /**
+         * The index of the selected item
+         */
+        int mnSelectedIndex = -1;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            mnSelectedIndex = in.readInt();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(mnSelectedIndex);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int nSize) {
+                return new SavedState[nSize];
+            }
+        };
+    }
+
     /**
      * Inner class to store point
      *
@@ -810,7 +2895,9 @@ public class MetaballMenu extends LinearLayout {
          *
          * @author Melvin Lobo
          */
-        public Circle() {}
+        public Circle() {
+            mPoint = new Point();
+        }
 
         /**
          * Constructor with radius
@@ -818,6 +2905,7 @@ public class MetaballMenu extends LinearLayout {
          * @author Melvin Lobo
          */
         public Circle(float nRadius) {
+            this();
             mnRadius = nRadius;
         }
 
@@ -855,17 +2943,29 @@ public class MetaballMenu extends LinearLayout {
     }
 
     /**
-     * Animation class to store the interpolation time so that we can use it during our onDraw phase
-     * to transition the metaball
+     * The path the contours of RENDER_MODE_CONTOUR are traced on
      *
      * @author Melvin Lobo
      */
-    public class TransitionAnimation extends Animation {
+    private static final class ContourPath implements MarchingSquaresContour.PathSink {
+        /**
+         * The path. It is rewound and reused on every frame
+         */
+        final Path mPath = new Path();
+
         @Override
-        protected void applyTransformation(float interpolatedTime, Transformation t) {
-            super.applyTransformation(interpolatedTime, t);
-            mfInterpolatedTime = interpolatedTime;
-            invalidate();
+        public void moveTo(float x, float y) {
+            mPath.moveTo(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            mPath.lineTo(x, y);
+        }
+
+        @Override
+        public void close() {
+            mPath.close();
         }
     }
 
@@ -888,4 +2988,25 @@ public class MetaballMenu extends LinearLayout {
          */
         public void onClick(View view);
     }
+
+    /**
+     * Interface to receive the frame statistics of every transition, e.g. to aggregate jank data. It is called on
+     * the UI thread when a transition ends or is interrupted
+     *
+     * @author Melvin Lobo
+     */
+    public interface TransitionMetricsListener {
+
+        /**
+         * Called with the statistics of a transition
+         *
+         * @param menu
+         *      The menu which ran the transition
+         * @param metrics
+         *      The statistics of the transition
+         *
+         * @author Melvin Lobo
+         */
+        void onTransitionMetrics(MetaballMenu menu, TransitionMetrics metrics);
+    }
 }
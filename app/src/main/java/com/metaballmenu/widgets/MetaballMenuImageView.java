@@ -2,6 +2,7 @@ package com.metaballmenu.widgets;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
 import android.widget.ImageView;
 
@@ -10,7 +11,11 @@ import com.metaballmenu.R;
 /**
  * Created by Melvin Lobo on 11/29/2015.
  *
- * Just a basic extension of the Imageview class to support selected and non-selected Images
+ * Just a basic extension of the Imageview class to support selected and non-selected Images.
+ * Both images are loaded once into a StateListDrawable (@see MetaballIconCache), so changing the selection only
+ * changes the drawable state.
+ * In the async loading mode, the images are decoded off the main thread at the view's size (@see MetaballIconLoader)
+ * and a placeholder is shown until they are ready, so inflating many menus does not block the first frame.
  */
 public class MetaballMenuImageView extends ImageView {
     ///////////////////////////////////// CLASS MEMBERS ////////////////////////////////////////////
@@ -29,6 +34,38 @@ public class MetaballMenuImageView extends ImageView {
      */
     private boolean mbSelected = false;
 
+    /**
+     * Decode the images off the main thread
+     */
+    private boolean mbAsyncLoading = false;
+
+    /**
+     * The image shown while the images are loading in the async mode
+     */
+    private int mnPlaceholderImage = 0;
+
+    /**
+     * True if an async load is waiting for the view to be sized
+     */
+    private boolean mbLoadPending = false;
+
+    /**
+     * The running async load. It is cancelled on every image change, so that the result of a stale load is dropped,
+     * and when the view is detached, so that the loader does not keep the view alive
+     */
+    private MetaballIconLoader.Request mLoadRequest = null;
+
+    /**
+     * The listener to be notified when the images are loaded
+     */
+    private OnImagesLoadedListener mImagesLoadedListener = null;
+
+    /**
+     * The metaballs the menu draws for this item besides the selector: a badge, and a checked blob for multi-select
+     * (@see MetaballMenu setBadgeVisible and setItemChecked)
+     */
+    private boolean mbBadgeVisible = false;
+    private boolean mbChecked = false;
 
     //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
     /**
@@ -94,14 +131,116 @@ public class MetaballMenuImageView extends ImageView {
             TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.MetaballMenuImageView, 0, 0);
             mnDefaultImage = a.getResourceId(R.styleable.MetaballMenuImageView_defaultImage, 0);
             mnSelectedImage = a.getResourceId(R.styleable.MetaballMenuImageView_selectedImage, 0);
+            mbAsyncLoading = a.getBoolean(R.styleable.MetaballMenuImageView_asyncLoading, false);
+            mnPlaceholderImage = a.getResourceId(R.styleable.MetaballMenuImageView_placeholderImage, 0);
 
             a.recycle();
         }
 
-        //Set the background image
-        if(mnDefaultImage != 0)
-            setImageResource(mnDefaultImage);
+        //Set the images
+        updateImageDrawable();
+    }
+
+    /**
+     * Set the image drawable for the image references. With both references, the drawable holds both images and
+     * the view's selected state picks the one to show
+     *
+     * @author Melvin Lobo
+     */
+    private void updateImageDrawable() {
+        cancelAsyncLoad();
+        mbLoadPending = false;
+
+        if(mbAsyncLoading && (mnDefaultImage != 0)) {
+            if(mnPlaceholderImage != 0)
+                setImageDrawable(MetaballIconCache.getDrawable(getContext(), mnPlaceholderImage));
+
+            // The images are sampled to the view's size, so wait for the layout if it is not known yet
+            if((getWidth() > 0) || (getHeight() > 0))
+                startAsyncLoad();
+            else
+                mbLoadPending = true;
+        }
+        else if((mnSelectedImage != 0) && (mnDefaultImage != 0))
+            setImageDrawable(MetaballIconCache.createStateDrawable(getContext(), mnDefaultImage, mnSelectedImage));
+        else if(mnDefaultImage != 0)
+            setImageDrawable(MetaballIconCache.getDrawable(getContext(), mnDefaultImage));
+    }
+
+    /**
+     * Decode the images in the background, at the content size of the view, and set them once they are ready.
+     * The load is cancelled if the images are changed or the view is detached in the meantime
+     *
+     * @author Melvin Lobo
+     */
+    private void startAsyncLoad() {
+        mbLoadPending = false;
+        int nWidth = Math.max(0, getWidth() - getPaddingLeft() - getPaddingRight());
+        int nHeight = Math.max(0, getHeight() - getPaddingTop() - getPaddingBottom());
+
+        mLoadRequest = MetaballIconLoader.load(getContext(), mnDefaultImage, mnSelectedImage, nWidth, nHeight, new MetaballIconLoader.Callback() {
+            @Override
+            public void onLoaded(Drawable defaultImage, Drawable selectedImage) {
+                mLoadRequest = null;
+                setImageDrawable((selectedImage != null) ? MetaballIconCache.createStateDrawable(defaultImage, selectedImage) : defaultImage);
+
+                if(mImagesLoadedListener != null)
+                    mImagesLoadedListener.onImagesLoaded(MetaballMenuImageView.this);
+            }
+        });
+    }
+
+    /**
+     * Cancel the running async load, if any
+     *
+     * @author Melvin Lobo
+     */
+    private void cancelAsyncLoad() {
+        if(mLoadRequest != null) {
+            mLoadRequest.cancel();
+            mLoadRequest = null;
+        }
+    }
+
+    /**
+     * Restart a load which was cancelled when the view was detached, e.g. a recycled list row
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        if(mbLoadPending && ((getWidth() > 0) || (getHeight() > 0)))
+            startAsyncLoad();
+    }
+
+    /**
+     * Cancel the running load, so that the loader does not hold the view, and load again once attached
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        if(mLoadRequest != null) {
+            cancelAsyncLoad();
+            mbLoadPending = true;
+        }
+
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Start the pending async load once the view has a size
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
 
+        if(mbLoadPending && ((w > 0) || (h > 0)))
+            startAsyncLoad();
     }
 
     /**
@@ -113,21 +252,75 @@ public class MetaballMenuImageView extends ImageView {
         return mnDefaultImage;
     }
 
+    /**
+     * Set the default image. To set both images, use setImages, which builds the drawable once
+     *
+     * @author Melvin Lobo
+     */
     public void setDefaultImage(int nDefaultImage) {
-        mnDefaultImage = nDefaultImage;
+        setImages(nDefaultImage, mnSelectedImage);
     }
 
     public int getSelectedImage() {
         return mnSelectedImage;
     }
 
+    /**
+     * Set the selected image. To set both images, use setImages, which builds the drawable once
+     *
+     * @author Melvin Lobo
+     */
     public void setSelectedImage(int nSelectedImage) {
+        setImages(mnDefaultImage, nSelectedImage);
+    }
+
+    /**
+     * Set both images at once, e.g. when an item is created in code or a recycled menu is bound to other data. The
+     * drawable is built once for both, and only if an image changed, so binding the same images again costs nothing
+     *
+     * @param nDefaultImage
+     *      The default image resource
+     * @param nSelectedImage
+     *      The selected image resource
+     *
+     * @author Melvin Lobo
+     */
+    public void setImages(int nDefaultImage, int nSelectedImage) {
+        if((nDefaultImage == mnDefaultImage) && (nSelectedImage == mnSelectedImage))
+            return;
+
+        mnDefaultImage = nDefaultImage;
         mnSelectedImage = nSelectedImage;
+        updateImageDrawable();
+    }
+
+    public boolean isAsyncLoading() {
+        return mbAsyncLoading;
+    }
+
+    public void setAsyncLoading(boolean bAsyncLoading) {
+        if(mbAsyncLoading != bAsyncLoading) {
+            mbAsyncLoading = bAsyncLoading;
+            updateImageDrawable();
+        }
+    }
+
+    public int getPlaceholderImage() {
+        return mnPlaceholderImage;
+    }
+
+    public void setPlaceholderImage(int nPlaceholderImage) {
+        mnPlaceholderImage = nPlaceholderImage;
+    }
+
+    public void setOnImagesLoadedListener(OnImagesLoadedListener listener) {
+        mImagesLoadedListener = listener;
     }
 
     /**
      * Set if this view is the seledted view. it will change its image to the selected image on selection
-     * or move back to default depending on the image references provided
+     * or move back to default depending on the image references provided. Both images are already loaded, so
+     * this only changes the drawable state
      *
      * @param bSelected
      *      True if this imageview has to be selected, false otherwise
@@ -137,7 +330,7 @@ public class MetaballMenuImageView extends ImageView {
     public void setSelected(boolean bSelected) throws IllegalArgumentException {
         if((mnSelectedImage != 0) && (mnDefaultImage != 0)) {
             mbSelected = bSelected;
-            setImageResource((mbSelected) ? mnSelectedImage : mnDefaultImage);
+            super.setSelected(bSelected);
         }
         else {
             throw new IllegalArgumentException("The default or selected image references are not provided");
@@ -155,4 +348,44 @@ public class MetaballMenuImageView extends ImageView {
     public boolean isSelected() {
         return mbSelected;
     }
+
+    /**
+     * Getters and setters for the metaballs of this item. They are set through the menu, which draws them
+     *
+     * @author Melvin Lobo
+     */
+    boolean isBadgeVisible() {
+        return mbBadgeVisible;
+    }
+
+    void setBadgeVisible(boolean bVisible) {
+        mbBadgeVisible = bVisible;
+    }
+
+    boolean isChecked() {
+        return mbChecked;
+    }
+
+    void setChecked(boolean bChecked) {
+        mbChecked = bChecked;
+    }
+
+    //////////////////////////////////////// INTERFACES ////////////////////////////////////////////
+    /**
+     * Interface to be notified when the images of an async loading view are ready
+     *
+     * @author Melvin Lobo
+     */
+    public interface OnImagesLoadedListener {
+
+        /**
+         * Called on the main thread once the images are set
+         *
+         * @param view
+         *      The view whose images were loaded
+         *
+         * @author Melvin Lobo
+         */
+        void onImagesLoaded(MetaballMenuImageView view);
+    }
 }
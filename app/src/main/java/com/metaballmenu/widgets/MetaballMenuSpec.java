@@ -0,0 +1,346 @@
+package com.metaballmenu.widgets;
+
+import android.content.Context;
+import android.support.v4.content.ContextCompat;
+import android.widget.LinearLayout;
+
+/**
+ * An immutable description of a MetaballMenu and its items, to create menus in code without inflating a layout
+ * or parsing attributes. All the values are resolved when the spec is built (colors as ARGB, sizes in pixels), so
+ * creating a menu from it only sets fields, and one spec can create any number of menus:
+ *
+ *  MetaballMenuSpec spec = new MetaballMenuSpec.Builder(context)
+ *          .metaballColor(Color.WHITE)
+ *          .addItem(R.mipmap.card, R.mipmap.card_sel)
+ *          .addItem(R.mipmap.dash, R.mipmap.dash_sel)
+ *          .build();
+ *  MetaballMenu menu = spec.create(context);
+ *
+ * The defaults are the ones of an inflated menu, and the item padding of addItem.
+ *
+ * @author Melvin Lobo
+ */
+public final class MetaballMenuSpec {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The colors, as ARGB
+     */
+    private final int mnBackgroundColor;
+    private final int mnMetaballColor;
+
+    /**
+     * The background shape, in pixels, and its elevation
+     */
+    private final float mfBackgroundShapeRadius;
+    private final boolean mbElevationRequired;
+
+    /**
+     * The layout of the menu and of the items, in pixels
+     */
+    private final int mnOrientation;
+    private final int mnPadding;
+    private final int mnItemPadding;
+
+    /**
+     * The transition
+     */
+    private final long mnTransitionDuration;
+    private final int mnRenderMode;
+
+    /**
+     * The selector radius policy, and the radius of the fixed policy in pixels
+     */
+    private final int mnSelectorRadiusPolicy;
+    private final float mfSelectorRadius;
+
+    /**
+     * The image resources of the items, in pairs
+     */
+    private final int[] mnDefaultImages;
+    private final int[] mnSelectedImages;
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Constructor. Use the Builder
+     *
+     * @author Melvin Lobo
+     */
+    private MetaballMenuSpec(Builder builder) {
+        mnBackgroundColor = builder.mnBackgroundColor;
+        mnMetaballColor = builder.mnMetaballColor;
+        mfBackgroundShapeRadius = builder.mfBackgroundShapeRadius;
+        mbElevationRequired = builder.mbElevationRequired;
+        mnOrientation = builder.mnOrientation;
+        mnPadding = builder.mnPadding;
+        mnItemPadding = builder.mnItemPadding;
+        mnTransitionDuration = builder.mnTransitionDuration;
+        mnRenderMode = builder.mnRenderMode;
+        mnSelectorRadiusPolicy = builder.mnSelectorRadiusPolicy;
+        mfSelectorRadius = builder.mfSelectorRadius;
+
+        mnDefaultImages = new int[builder.mnItemCount];
+        mnSelectedImages = new int[builder.mnItemCount];
+        System.arraycopy(builder.mnDefaultImages, 0, mnDefaultImages, 0, builder.mnItemCount);
+        System.arraycopy(builder.mnSelectedImages, 0, mnSelectedImages, 0, builder.mnItemCount);
+    }
+
+    /**
+     * Create a menu with its items, the first one selected
+     *
+     * @param context
+     *      The context of the menu
+     *
+     * @return
+     *      The new menu
+     *
+     * @author Melvin Lobo
+     */
+    public MetaballMenu create(Context context) {
+        return new MetaballMenu(context, this);
+    }
+
+    /**
+     * Getters
+     *
+     * @author Melvin Lobo
+     */
+    public int getBackgroundColor() {
+        return mnBackgroundColor;
+    }
+
+    public int getMetaballColor() {
+        return mnMetaballColor;
+    }
+
+    public float getBackgroundShapeRadius() {
+        return mfBackgroundShapeRadius;
+    }
+
+    public boolean isElevationRequired() {
+        return mbElevationRequired;
+    }
+
+    public int getOrientation() {
+        return mnOrientation;
+    }
+
+    public int getPadding() {
+        return mnPadding;
+    }
+
+    public int getItemPadding() {
+        return mnItemPadding;
+    }
+
+    public long getTransitionDuration() {
+        return mnTransitionDuration;
+    }
+
+    public int getRenderMode() {
+        return mnRenderMode;
+    }
+
+    public int getSelectorRadiusPolicy() {
+        return mnSelectorRadiusPolicy;
+    }
+
+    public float getSelectorRadius() {
+        return mfSelectorRadius;
+    }
+
+    public int getItemCount() {
+        return mnDefaultImages.length;
+    }
+
+    public int getDefaultImage(int nIndex) {
+        return mnDefaultImages[nIndex];
+    }
+
+    public int getSelectedImage(int nIndex) {
+        return mnSelectedImages[nIndex];
+    }
+
+    //////////////////////////////////// INNER CLASSES /////////////////////////////////////////////
+    /**
+     * Fluent builder of a MetaballMenuSpec. The context is only used to resolve the defaults and the dp sizes
+     *
+     * @author Melvin Lobo
+     */
+    public static final class Builder {
+
+        private final float mfDensity;
+
+        private int mnBackgroundColor;
+        private int mnMetaballColor;
+        private float mfBackgroundShapeRadius;
+        private boolean mbElevationRequired = false;
+        private int mnOrientation = LinearLayout.HORIZONTAL;
+        private int mnPadding = 0;
+        private int mnItemPadding;
+        private long mnTransitionDuration = TransitionDriver.DEFAULT_DURATION;
+        private int mnRenderMode = MetaballMenu.RENDER_MODE_BRIDGE;
+        private int mnSelectorRadiusPolicy = MetaballMenu.SELECTOR_RADIUS_LARGER_SIDE;
+        private float mfSelectorRadius = 0.0f;
+
+        private int[] mnDefaultImages = new int[4];
+        private int[] mnSelectedImages = new int[4];
+        private int mnItemCount = 0;
+
+        /**
+         * Constructor
+         *
+         * @param context
+         *      The context to resolve the defaults with
+         *
+         * @author Melvin Lobo
+         */
+        public Builder(Context context) {
+            mfDensity = context.getResources().getDisplayMetrics().density;
+            mnBackgroundColor = ContextCompat.getColor(context, android.R.color.holo_purple);
+            mnMetaballColor = ContextCompat.getColor(context, android.R.color.white);
+            mfBackgroundShapeRadius = MetaballMenu.DEFAULT_BACKGROUND_RADIUS * mfDensity;
+            mnItemPadding = dp(MetaballMenu.DEFAULT_ITEM_PADDING);
+        }
+
+        public Builder backgroundColor(int nColor) {
+            mnBackgroundColor = nColor;
+            return this;
+        }
+
+        public Builder metaballColor(int nColor) {
+            mnMetaballColor = nColor;
+            return this;
+        }
+
+        /**
+         * The corner radius of the background shape, in dp
+         */
+        public Builder backgroundShapeRadius(float radius) {
+            mfBackgroundShapeRadius = radius * mfDensity;
+            return this;
+        }
+
+        public Builder elevation(boolean bRequired) {
+            mbElevationRequired = bRequired;
+            return this;
+        }
+
+        /**
+         * LinearLayout.HORIZONTAL or LinearLayout.VERTICAL
+         */
+        public Builder orientation(int nOrientation) {
+            if((nOrientation != LinearLayout.HORIZONTAL) && (nOrientation != LinearLayout.VERTICAL))
+                throw new IllegalArgumentException("Unknown orientation " + nOrientation);
+
+            mnOrientation = nOrientation;
+            return this;
+        }
+
+        /**
+         * The padding of the menu, in dp
+         */
+        public Builder padding(int nPadding) {
+            mnPadding = dp(nPadding);
+            return this;
+        }
+
+        /**
+         * The padding of every item, in dp: the room between the icon and the edge of the selector
+         */
+        public Builder itemPadding(int nPadding) {
+            mnItemPadding = dp(nPadding);
+            return this;
+        }
+
+        /**
+         * The transition duration, in milliseconds
+         */
+        public Builder transitionDuration(long nDuration) {
+            if(nDuration < 0)
+                throw new IllegalArgumentException("The duration cannot be negative");
+
+            mnTransitionDuration = nDuration;
+            return this;
+        }
+
+        /**
+         * One of the MetaballMenu RENDER_MODE_* values
+         */
+        public Builder renderMode(int nRenderMode) {
+            if((nRenderMode < MetaballMenu.RENDER_MODE_BRIDGE) || (nRenderMode > MetaballMenu.RENDER_MODE_MESH))
+                throw new IllegalArgumentException("Unknown render mode " + nRenderMode);
+
+            mnRenderMode = nRenderMode;
+            return this;
+        }
+
+        /**
+         * One of the MetaballMenu SELECTOR_RADIUS_* values
+         */
+        public Builder selectorRadiusPolicy(int nPolicy) {
+            if((nPolicy < MetaballMenu.SELECTOR_RADIUS_INSCRIBED) || (nPolicy > MetaballMenu.SELECTOR_RADIUS_LARGER_SIDE))
+                throw new IllegalArgumentException("Unknown selector radius policy " + nPolicy);
+
+            mnSelectorRadiusPolicy = nPolicy;
+            return this;
+        }
+
+        /**
+         * The same selector radius on all the items, in dp. This switches to SELECTOR_RADIUS_FIXED
+         */
+        public Builder selectorRadius(float radius) {
+            if(radius < 0.0f)
+                throw new IllegalArgumentException("The selector radius cannot be negative");
+
+            mfSelectorRadius = radius * mfDensity;
+            mnSelectorRadiusPolicy = MetaballMenu.SELECTOR_RADIUS_FIXED;
+            return this;
+        }
+
+        /**
+         * Add an item at the end of the menu
+         *
+         * @param nDefaultImage
+         *      The default image resource
+         * @param nSelectedImage
+         *      The selected image resource
+         *
+         * @author Melvin Lobo
+         */
+        public Builder addItem(int nDefaultImage, int nSelectedImage) {
+            if((nDefaultImage == 0) || (nSelectedImage == 0))
+                throw new IllegalArgumentException("An item needs both its images");
+
+            if(mnItemCount == mnDefaultImages.length) {
+                int[] defaultImages = new int[mnItemCount * 2];
+                int[] selectedImages = new int[mnItemCount * 2];
+                System.arraycopy(mnDefaultImages, 0, defaultImages, 0, mnItemCount);
+                System.arraycopy(mnSelectedImages, 0, selectedImages, 0, mnItemCount);
+                mnDefaultImages = defaultImages;
+                mnSelectedImages = selectedImages;
+            }
+
+            mnDefaultImages[mnItemCount] = nDefaultImage;
+            mnSelectedImages[mnItemCount] = nSelectedImage;
+            ++mnItemCount;
+            return this;
+        }
+
+        /**
+         * Build the spec. The builder can go on to build other specs
+         *
+         * @return
+         *      The immutable spec
+         *
+         * @author Melvin Lobo
+         */
+        public MetaballMenuSpec build() {
+            return new MetaballMenuSpec(this);
+        }
+
+        private int dp(int nDp) {
+            return (int) (nDp * mfDensity);
+        }
+    }
+}
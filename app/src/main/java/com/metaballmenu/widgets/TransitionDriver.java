@@ -0,0 +1,227 @@
+package com.metaballmenu.widgets;
+
+import android.animation.TimeInterpolator;
+import android.view.Choreographer;
+import android.view.animation.BounceInterpolator;
+
+import com.metaballmenu.geometry.SpringSimulation;
+
+/**
+ * Frame clock for the metaball transition. It runs on the vsync aligned Choreographer frame callbacks instead
+ * of the view animation system, so a transition frame does not go through the transformation pass of the view
+ * tree. One instance is created per menu and reused for every transition.
+ *
+ * A transition is timed either by a duration and an interpolator, or by a spring simulation: it then runs till the
+ * springs settle, and the simulation is advanced to the time of every frame. The callback reads the state from the
+ * simulation.
+ *
+ * All the calls have to be made on the UI thread.
+ *
+ * @author Melvin Lobo
+ */
+public class TransitionDriver implements Choreographer.FrameCallback {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The default transition duration, in milliseconds
+     */
+    public static final long DEFAULT_DURATION = 500;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * The callback to report frames to
+     */
+    private final Callback mCallback;
+
+    /**
+     * The transition duration in milliseconds
+     */
+    private long mnDuration = DEFAULT_DURATION;
+
+    /**
+     * The interpolator applied to the elapsed fraction
+     */
+    private TimeInterpolator mInterpolator = new BounceInterpolator();
+
+    /**
+     * The spring simulation timing the transition, null for the duration and the interpolator
+     */
+    private SpringSimulation mSpring = null;
+
+    /**
+     * The frame time of the first frame. -1 till the first frame arrives
+     */
+    private long mnStartTimeNanos = -1;
+
+    /**
+     * Indicates if a transition is running
+     */
+    private boolean mbRunning = false;
+
+    /**
+     * The elapsed fraction (before interpolation) of the last frame
+     */
+    private float mfFraction = 0.0f;
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Constructor
+     *
+     * @param callback
+     *      The callback that gets the frames
+     *
+     * @author Melvin Lobo
+     */
+    public TransitionDriver(Callback callback) {
+        mCallback = callback;
+    }
+
+    /**
+     * Getters and Setters
+     *
+     * @author Melvin Lobo
+     */
+    public long getDuration() {
+        return mnDuration;
+    }
+
+    public void setDuration(long nDuration) {
+        if(nDuration < 0)
+            throw new IllegalArgumentException("The duration cannot be negative");
+
+        mnDuration = nDuration;
+    }
+
+    public TimeInterpolator getInterpolator() {
+        return mInterpolator;
+    }
+
+    public void setInterpolator(TimeInterpolator interpolator) {
+        mInterpolator = interpolator;
+    }
+
+    public SpringSimulation getSpring() {
+        return mSpring;
+    }
+
+    /**
+     * Time the transitions by a spring simulation instead of the duration and the interpolator. The channels of
+     * the simulation are set by the caller before every start
+     *
+     * @param spring
+     *      The simulation, null to go back to the duration and the interpolator
+     *
+     * @author Melvin Lobo
+     */
+    public void setSpring(SpringSimulation spring) {
+        mSpring = spring;
+    }
+
+    public boolean isRunning() {
+        return mbRunning;
+    }
+
+    public float getFraction() {
+        return mfFraction;
+    }
+
+    /**
+     * Start a transition. A running transition is restarted
+     *
+     * @author Melvin Lobo
+     */
+    public void start() {
+        Choreographer choreographer = Choreographer.getInstance();
+        if(mbRunning)
+            choreographer.removeFrameCallback(this);
+
+        mbRunning = true;
+        mnStartTimeNanos = -1;
+        mfFraction = 0.0f;
+        choreographer.postFrameCallback(this);
+    }
+
+    /**
+     * Cancel the running transition, if any. The callback's onTransitionEnd is not called
+     *
+     * @author Melvin Lobo
+     */
+    public void cancel() {
+        if(mbRunning) {
+            mbRunning = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    /**
+     * Handle a vsync frame
+     *
+     * @param frameTimeNanos
+     *      The time at which the frame started rendering
+     *
+     * @author Melvin Lobo
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if(!mbRunning)
+            return;
+
+        if(mnStartTimeNanos < 0)
+            mnStartTimeNanos = frameTimeNanos;
+
+        float fraction;
+        float interpolatedTime;
+        if(mSpring != null) {
+            // The transition is over when the springs settle
+            fraction = mSpring.advanceTo(frameTimeNanos - mnStartTimeNanos) ? 1.0f : 0.0f;
+            interpolatedTime = fraction;
+        }
+        else {
+            fraction = (mnDuration == 0) ? 1.0f : Math.min(1.0f, (float) (frameTimeNanos - mnStartTimeNanos) / (mnDuration * NANOS_PER_MILLI));
+            interpolatedTime = (mInterpolator != null) ? mInterpolator.getInterpolation(fraction) : fraction;
+        }
+        mfFraction = fraction;
+        mCallback.onTransitionFrame(interpolatedTime, frameTimeNanos);
+
+        // The callback may have cancelled or restarted the transition
+        if(!mbRunning || (mnStartTimeNanos < 0))
+            return;
+
+        if(fraction >= 1.0f) {
+            mbRunning = false;
+            mCallback.onTransitionEnd();
+        }
+        else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    //////////////////////////////////////// INTERFACES ////////////////////////////////////////////
+    /**
+     * Interface to receive the transition frames
+     *
+     * @author Melvin Lobo
+     */
+    public interface Callback {
+
+        /**
+         * Called once per vsync frame while the transition runs
+         *
+         * @param interpolatedTime
+         *      The interpolated time of the frame. With a spring, 0 till the springs settle and 1 on the last frame
+         * @param frameTimeNanos
+         *      The vsync time of the frame
+         *
+         * @author Melvin Lobo
+         */
+        void onTransitionFrame(float interpolatedTime, long frameTimeNanos);
+
+        /**
+         * Called after the last frame of a transition that was not cancelled
+         *
+         * @author Melvin Lobo
+         */
+        void onTransitionEnd();
+    }
+}
@@ -0,0 +1,146 @@
+package com.metaballmenu.widgets;
+
+/**
+ * The frame statistics of one metaball transition, reported to a MetaballMenu.TransitionMetricsListener.
+ * All the times are in nanoseconds.
+ *
+ * @author Melvin Lobo
+ */
+public final class TransitionMetrics {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * Common display refresh rates, in Hz
+     */
+    public static final int REFRESH_RATE_60 = 60;
+    public static final int REFRESH_RATE_90 = 90;
+    public static final int REFRESH_RATE_120 = 120;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /**
+     * The number of frames drawn during the transition
+     */
+    private final int mnFrameCount;
+
+    /**
+     * The time between the first and the last frame of the transition
+     */
+    private final long mnDurationNanos;
+
+    /**
+     * The onDraw time percentiles
+     */
+    private final long mnDrawTimeP50Nanos;
+    private final long mnDrawTimeP95Nanos;
+    private final long mnDrawTimeMaxNanos;
+
+    /**
+     * The total time spent computing the transition geometry and issuing the canvas calls
+     */
+    private final long mnGeometryTimeNanos;
+    private final long mnCanvasTimeNanos;
+
+    /**
+     * Indicates if the transition was interrupted before it ended
+     */
+    private final boolean mbCancelled;
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Constructor (@see TransitionMetricsRecorder)
+     *
+     * @author Melvin Lobo
+     */
+    TransitionMetrics(int nFrameCount, long nDurationNanos, long nDrawTimeP50Nanos, long nDrawTimeP95Nanos,
+                      long nDrawTimeMaxNanos, long nGeometryTimeNanos, long nCanvasTimeNanos, boolean bCancelled) {
+        mnFrameCount = nFrameCount;
+        mnDurationNanos = nDurationNanos;
+        mnDrawTimeP50Nanos = nDrawTimeP50Nanos;
+        mnDrawTimeP95Nanos = nDrawTimeP95Nanos;
+        mnDrawTimeMaxNanos = nDrawTimeMaxNanos;
+        mnGeometryTimeNanos = nGeometryTimeNanos;
+        mnCanvasTimeNanos = nCanvasTimeNanos;
+        mbCancelled = bCancelled;
+    }
+
+    /**
+     * Getters
+     *
+     * @author Melvin Lobo
+     */
+    public int getFrameCount() {
+        return mnFrameCount;
+    }
+
+    public long getDurationNanos() {
+        return mnDurationNanos;
+    }
+
+    public long getDrawTimeP50Nanos() {
+        return mnDrawTimeP50Nanos;
+    }
+
+    public long getDrawTimeP95Nanos() {
+        return mnDrawTimeP95Nanos;
+    }
+
+    public long getDrawTimeMaxNanos() {
+        return mnDrawTimeMaxNanos;
+    }
+
+    public long getGeometryTimeNanos() {
+        return mnGeometryTimeNanos;
+    }
+
+    public long getCanvasTimeNanos() {
+        return mnCanvasTimeNanos;
+    }
+
+    public boolean isCancelled() {
+        return mbCancelled;
+    }
+
+    /**
+     * Get the number of frames the transition should have had at a refresh rate, i.e. one per vsync from the first
+     * to the last frame
+     *
+     * @param nRefreshRate
+     *      The refresh rate in Hz
+     *
+     * @author Melvin Lobo
+     */
+    public int getExpectedFrames(int nRefreshRate) {
+        if(mnFrameCount == 0)
+            return 0;
+
+        return (int) Math.round((double) mnDurationNanos * nRefreshRate / NANOS_PER_SECOND) + 1;
+    }
+
+    /**
+     * Get the number of frames dropped at a refresh rate
+     *
+     * @param nRefreshRate
+     *      The refresh rate in Hz
+     *
+     * @author Melvin Lobo
+     */
+    public int getDroppedFrames(int nRefreshRate) {
+        return Math.max(0, getExpectedFrames(nRefreshRate) - mnFrameCount);
+    }
+
+    @Override
+    public String toString() {
+        return "TransitionMetrics{frames=" + mnFrameCount
+                + ", durationMs=" + (mnDurationNanos / 1000000L)
+                + ", dropped60=" + getDroppedFrames(REFRESH_RATE_60)
+                + ", dropped90=" + getDroppedFrames(REFRESH_RATE_90)
+                + ", dropped120=" + getDroppedFrames(REFRESH_RATE_120)
+                + ", drawP50Us=" + (mnDrawTimeP50Nanos / 1000L)
+                + ", drawP95Us=" + (mnDrawTimeP95Nanos / 1000L)
+                + ", drawMaxUs=" + (mnDrawTimeMaxNanos / 1000L)
+                + ", geometryUs=" + (mnGeometryTimeNanos / 1000L)
+                + ", canvasUs=" + (mnCanvasTimeNanos / 1000L)
+                + ", cancelled=" + mbCancelled + "}";
+    }
+}
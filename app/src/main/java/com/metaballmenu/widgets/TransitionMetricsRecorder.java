@@ -0,0 +1,149 @@
+package com.metaballmenu.widgets;
+
+import java.util.Arrays;
+
+/**
+ * Records the frames of a transition and builds its TransitionMetrics. The buffers are allocated once and reused
+ * for every transition, so recording a frame does not allocate. MetaballMenu only creates a recorder once a
+ * metrics listener is attached.
+ *
+ * All the calls have to be made on the UI thread.
+ *
+ * @author Melvin Lobo
+ */
+final class TransitionMetricsRecorder {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The initial number of frames the buffer holds. A transition of a second at 120Hz fits
+     */
+    private static final int INITIAL_CAPACITY = 128;
+
+    /**
+     * Indicates if a transition is being recorded
+     */
+    private boolean mbRecording = false;
+
+    /**
+     * The onDraw times of the frames. Grown if a transition has more frames
+     */
+    private long[] mnDrawTimes = new long[INITIAL_CAPACITY];
+    private int mnFrameCount = 0;
+
+    /**
+     * The frame clock times of the first, the last and the one before the last frame
+     */
+    private long mnFirstFrameTimeNanos = -1;
+    private long mnLastFrameTimeNanos = -1;
+    private long mnPreviousFrameTimeNanos = -1;
+
+    /**
+     * The total geometry and canvas times
+     */
+    private long mnGeometryTimeNanos = 0;
+    private long mnCanvasTimeNanos = 0;
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Start recording a transition
+     *
+     * @author Melvin Lobo
+     */
+    void begin() {
+        mbRecording = true;
+        mnFrameCount = 0;
+        mnFirstFrameTimeNanos = -1;
+        mnLastFrameTimeNanos = -1;
+        mnPreviousFrameTimeNanos = -1;
+        mnGeometryTimeNanos = 0;
+        mnCanvasTimeNanos = 0;
+    }
+
+    boolean isRecording() {
+        return mbRecording;
+    }
+
+    /**
+     * Record a tick of the frame clock
+     *
+     * @param nFrameTimeNanos
+     *      The vsync time of the frame
+     *
+     * @author Melvin Lobo
+     */
+    void onFrame(long nFrameTimeNanos) {
+        if(!mbRecording)
+            return;
+
+        if(mnFirstFrameTimeNanos < 0)
+            mnFirstFrameTimeNanos = nFrameTimeNanos;
+        mnPreviousFrameTimeNanos = mnLastFrameTimeNanos;
+        mnLastFrameTimeNanos = nFrameTimeNanos;
+    }
+
+    /**
+     * Record the onDraw time of a frame
+     *
+     * @author Melvin Lobo
+     */
+    void addDrawTime(long nNanos) {
+        if(!mbRecording)
+            return;
+
+        if(mnFrameCount == mnDrawTimes.length)
+            mnDrawTimes = Arrays.copyOf(mnDrawTimes, mnDrawTimes.length * 2);
+
+        mnDrawTimes[mnFrameCount++] = nNanos;
+    }
+
+    void addGeometryTime(long nNanos) {
+        if(mbRecording)
+            mnGeometryTimeNanos += nNanos;
+    }
+
+    void addCanvasTime(long nNanos) {
+        if(mbRecording)
+            mnCanvasTimeNanos += nNanos;
+    }
+
+    /**
+     * Stop recording and build the metrics of the transition
+     *
+     * @param bCancelled
+     *      True if the transition was interrupted, false otherwise
+     *
+     * @return
+     *      The metrics, or null if no transition was being recorded
+     *
+     * @author Melvin Lobo
+     */
+    TransitionMetrics end(boolean bCancelled) {
+        if(!mbRecording)
+            return null;
+
+        mbRecording = false;
+
+        // The draw times are not needed in order any more, so sort them in place for the percentiles
+        Arrays.sort(mnDrawTimes, 0, mnFrameCount);
+
+        // The last tick of a completed transition ends it, and is drawn as the idle selector. So the transition
+        // frames span up to the tick before
+        long nLastFrameTime = (bCancelled || (mnPreviousFrameTimeNanos < 0)) ? mnLastFrameTimeNanos : mnPreviousFrameTimeNanos;
+        long nDuration = (mnFirstFrameTimeNanos < 0) ? 0 : (nLastFrameTime - mnFirstFrameTimeNanos);
+        return new TransitionMetrics(mnFrameCount, nDuration, percentile(50), percentile(95),
+                (mnFrameCount == 0) ? 0 : mnDrawTimes[mnFrameCount - 1], mnGeometryTimeNanos, mnCanvasTimeNanos, bCancelled);
+    }
+
+    /**
+     * Get a percentile of the sorted draw times (nearest rank)
+     *
+     * @author Melvin Lobo
+     */
+    private long percentile(int nPercentile) {
+        if(mnFrameCount == 0)
+            return 0;
+
+        int nRank = (int) Math.ceil(nPercentile / 100.0 * mnFrameCount);
+        return mnDrawTimes[Math.max(0, nRank - 1)];
+    }
+}
@@ -0,0 +1,202 @@
+package com.metaballmenu.widgets;
+
+/**
+ * Picks the quality tier of the transitions from the recent frame times. When the frames come late, the transition
+ * steps down a tier (@see MetaballMenu QUALITY_*), and when they are on time again for a while, it steps back up.
+ *
+ * The frame time is the interval between two ticks of the frame clock, so it counts whatever kept the UI thread
+ * busy, not only the drawing of the menu. A tier is judged on the mean of the last WINDOW intervals. The hysteresis
+ * comes from three things: stepping down takes a mean well over the budget while stepping up takes RECOVERY_FRAMES
+ * frames in a row close to it, the window starts over after every change, and the intervals between two
+ * transitions are never counted.
+ *
+ * In QUALITY_INSTANT there are no frames to judge, so the next transition requested INSTANT_PROBE_DELAY after the
+ * step down runs one tier up again, to probe.
+ *
+ * The buffer is allocated once, so a frame does not allocate. All the calls have to be made on the UI thread.
+ *
+ * @author Melvin Lobo
+ */
+final class TransitionQualityGovernor {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The default frame budget: a frame at 60Hz
+     */
+    static final long DEFAULT_FRAME_BUDGET_NANOS = 16666667L;
+
+    /**
+     * The number of frame intervals averaged to judge the tier
+     */
+    static final int WINDOW = 8;
+
+    /**
+     * Step down when the mean interval is over DEGRADE_RATIO budgets, i.e. when about every other frame is dropped
+     */
+    static final float DEGRADE_RATIO = 1.5f;
+
+    /**
+     * Step up after RECOVERY_FRAMES intervals in a row within RECOVERY_RATIO budgets
+     */
+    static final float RECOVERY_RATIO = 1.1f;
+    static final int RECOVERY_FRAMES = 45;
+
+    /**
+     * The time after a step down to QUALITY_INSTANT before a transition is tried again
+     */
+    static final long INSTANT_PROBE_DELAY_NANOS = 5000000000L;
+
+    /**
+     * The frame budget
+     */
+    private long mnFrameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+
+    /**
+     * The current tier, and the time it was entered
+     */
+    private int mnTier = MetaballMenu.QUALITY_FULL;
+    private long mnTierTimeNanos = 0;
+
+    /**
+     * The last frame intervals, as a ring, and their sum
+     */
+    private final long[] mnIntervals = new long[WINDOW];
+    private int mnIntervalCount = 0;
+    private int mnNextInterval = 0;
+    private long mnIntervalSum = 0;
+
+    /**
+     * The time of the last frame, -1 at the start of a transition
+     */
+    private long mnLastFrameTimeNanos = -1;
+
+    /**
+     * The number of frames in a row within the recovery budget
+     */
+    private int mnGoodFrames = 0;
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Getters and Setters
+     *
+     * @author Melvin Lobo
+     */
+    int getTier() {
+        return mnTier;
+    }
+
+    long getFrameBudgetNanos() {
+        return mnFrameBudgetNanos;
+    }
+
+    void setFrameBudgetNanos(long nFrameBudgetNanos) {
+        if(nFrameBudgetNanos <= 0)
+            throw new IllegalArgumentException("The frame budget has to be positive");
+
+        mnFrameBudgetNanos = nFrameBudgetNanos;
+        restartWindow();
+    }
+
+    /**
+     * Go back to QUALITY_FULL and forget the frames seen so far
+     *
+     * @author Melvin Lobo
+     */
+    void reset() {
+        mnTier = MetaballMenu.QUALITY_FULL;
+        mnTierTimeNanos = 0;
+        mnLastFrameTimeNanos = -1;
+        restartWindow();
+    }
+
+    /**
+     * A transition is about to start. In QUALITY_INSTANT, this is where a transition is tried again once the
+     * probe delay is over
+     *
+     * @param nNowNanos
+     *      The current time, on the clock of the frame times
+     *
+     * @return
+     *      The tier to run the transition at
+     *
+     * @author Melvin Lobo
+     */
+    int onTransitionRequested(long nNowNanos) {
+        if((mnTier == MetaballMenu.QUALITY_INSTANT) && (nNowNanos - mnTierTimeNanos >= INSTANT_PROBE_DELAY_NANOS))
+            setTier(mnTier - 1, nNowNanos);
+
+        // The time between two transitions is not a frame
+        mnLastFrameTimeNanos = -1;
+        return mnTier;
+    }
+
+    /**
+     * Record a tick of the frame clock
+     *
+     * @param nFrameTimeNanos
+     *      The vsync time of the frame
+     *
+     * @return
+     *      True if the tier changed, false otherwise
+     *
+     * @author Melvin Lobo
+     */
+    boolean onFrame(long nFrameTimeNanos) {
+        long nLastFrameTimeNanos = mnLastFrameTimeNanos;
+        mnLastFrameTimeNanos = nFrameTimeNanos;
+        if((nLastFrameTimeNanos < 0) || (nFrameTimeNanos <= nLastFrameTimeNanos))
+            return false;
+
+        long nInterval = nFrameTimeNanos - nLastFrameTimeNanos;
+        if(mnIntervalCount == WINDOW)
+            mnIntervalSum -= mnIntervals[mnNextInterval];
+        else
+            ++mnIntervalCount;
+        mnIntervals[mnNextInterval] = nInterval;
+        mnIntervalSum += nInterval;
+        mnNextInterval = (mnNextInterval + 1) % WINDOW;
+
+        if(nInterval <= mnFrameBudgetNanos * RECOVERY_RATIO)
+            ++mnGoodFrames;
+        else
+            mnGoodFrames = 0;
+
+        // Step down on a full window over the budget
+        if((mnIntervalCount == WINDOW) && (mnIntervalSum > mnFrameBudgetNanos * DEGRADE_RATIO * WINDOW)
+                && (mnTier < MetaballMenu.QUALITY_INSTANT)) {
+            setTier(mnTier + 1, nFrameTimeNanos);
+            return true;
+        }
+
+        // Step up after a long enough run of good frames
+        if((mnGoodFrames >= RECOVERY_FRAMES) && (mnTier > MetaballMenu.QUALITY_FULL)) {
+            setTier(mnTier - 1, nFrameTimeNanos);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Change the tier, and judge the new one on its own frames
+     *
+     * @author Melvin Lobo
+     */
+    private void setTier(int nTier, long nTimeNanos) {
+        mnTier = nTier;
+        mnTierTimeNanos = nTimeNanos;
+        restartWindow();
+    }
+
+    /**
+     * Forget the frame intervals seen so far
+     *
+     * @author Melvin Lobo
+     */
+    private void restartWindow() {
+        mnIntervalCount = 0;
+        mnNextInterval = 0;
+        mnIntervalSum = 0;
+        mnGoodFrames = 0;
+    }
+}
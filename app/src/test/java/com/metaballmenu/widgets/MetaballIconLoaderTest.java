@@ -0,0 +1,144 @@
+package com.metaballmenu.widgets;
+
+import android.graphics.drawable.Drawable;
+
+import com.metaballmenu.BuildConfig;
+import com.metaballmenu.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * The sample size of the decoded icons, and the cancellation of the loads. The loads run on a queue drained by the
+ * test, so that the order of the decode, the cancel and the delivery is known
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MetaballIconLoaderTest {
+
+    private final List<Runnable> mQueue = new ArrayList<Runnable>();
+    private Executor mExecutor = null;
+    private int mnLoaded = 0;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        mExecutor = MetaballIconLoader.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                mQueue.add(runnable);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        MetaballIconLoader.setExecutor(mExecutor);
+    }
+
+    @Test
+    public void unconstrainedSizeKeepsTheFullImage() {
+        assertEquals(1, MetaballIconLoader.calculateSampleSize(512, 512, 0, 0));
+        assertEquals(1, MetaballIconLoader.calculateSampleSize(512, 512, -1, -1));
+    }
+
+    @Test
+    public void zeroDimensionDoesNotConstrain() {
+        assertEquals(4, MetaballIconLoader.calculateSampleSize(400, 100, 100, 0));
+        assertEquals(4, MetaballIconLoader.calculateSampleSize(100, 400, 0, 100));
+    }
+
+    @Test
+    public void exactMultiplesAreSampledDownToTheRequiredSize() {
+        assertEquals(4, MetaballIconLoader.calculateSampleSize(400, 400, 100, 100));
+        assertEquals(2, MetaballIconLoader.calculateSampleSize(400, 400, 101, 101));
+        assertEquals(1, MetaballIconLoader.calculateSampleSize(400, 400, 400, 400));
+        assertEquals(1, MetaballIconLoader.calculateSampleSize(50, 50, 100, 100));
+    }
+
+    @Test
+    public void nonSquareBoundsKeepBothSidesLargeEnough() {
+        assertEquals(2, MetaballIconLoader.calculateSampleSize(400, 200, 100, 100));
+        assertEquals(2, MetaballIconLoader.calculateSampleSize(200, 400, 100, 100));
+        assertEquals(8, MetaballIconLoader.calculateSampleSize(1600, 800, 100, 100));
+    }
+
+    @Test
+    public void loadCallsBackOnTheMainThread() {
+        MetaballIconLoader.Request request = MetaballIconLoader.load(RuntimeEnvironment.application, R.mipmap.card,
+                R.mipmap.card_sel, 48, 48, new CountingCallback());
+        drainQueue();
+        assertEquals(0, mnLoaded);
+
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(1, mnLoaded);
+        assertTrue(request.isCancelled());          // The callback was let go of once called
+    }
+
+    @Test
+    public void cancelledRequestNeverCallsBack() {
+        // Cancelled before the decode
+        MetaballIconLoader.Request before = MetaballIconLoader.load(RuntimeEnvironment.application, R.mipmap.card, 0,
+                48, 48, new CountingCallback());
+        before.cancel();
+        drainQueue();
+        ShadowLooper.runUiThreadTasks();
+
+        // Cancelled after the decode, with the images on their way to the main thread
+        MetaballIconLoader.Request after = MetaballIconLoader.load(RuntimeEnvironment.application, R.mipmap.card, 0,
+                48, 48, new CountingCallback());
+        drainQueue();
+        after.cancel();
+        ShadowLooper.runUiThreadTasks();
+
+        assertTrue(before.isCancelled());
+        assertTrue(after.isCancelled());
+        assertEquals(0, mnLoaded);
+    }
+
+    @Test
+    public void cancelledRequestDropsItsCallback() {
+        CountingCallback callback = new CountingCallback();
+        WeakReference<CountingCallback> reference = new WeakReference<CountingCallback>(callback);
+        MetaballIconLoader.Request request = MetaballIconLoader.load(RuntimeEnvironment.application, R.mipmap.card, 0,
+                48, 48, callback);
+        callback = null;
+        request.cancel();
+
+        // The request and the queued decode are still alive, the callback is not
+        for(int nCtr = 0; (nCtr < 10) && (reference.get() != null); ++nCtr)
+            System.gc();
+        assertNull(reference.get());
+        assertEquals(1, mQueue.size());
+
+        drainQueue();
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(0, mnLoaded);
+    }
+
+    private void drainQueue() {
+        while(!mQueue.isEmpty())
+            mQueue.remove(0).run();
+    }
+
+    private class CountingCallback implements MetaballIconLoader.Callback {
+        @Override
+        public void onLoaded(Drawable defaultImage, Drawable selectedImage) {
+            assertNotNull(defaultImage);
+            ++mnLoaded;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.metaballmenu.widgets;
+
+import android.view.View;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MetaballItemTableTest {
+
+    @Test
+    public void emptyAndSingleItemTables() throws Exception {
+        MetaballItemTable table = new MetaballItemTable();
+        table.reset(0);
+        table.buildIndex(false, 0);
+        assertEquals(-1, table.indexAt(10, 0));
+
+        table.reset(1);
+        table.setCenter(0, 50, 20);
+        table.buildIndex(false, 0);
+        assertEquals(0, table.indexAt(-100, 0));
+        assertEquals(0, table.indexAt(1000, 0));
+    }
+
+    @Test
+    public void touchMapsToTheNearestCenter() throws Exception {
+        // Items of varying widths
+        float[] centers = {10, 40, 55, 130, 300, 310};
+        MetaballItemTable table = build(centers);
+
+        for(float x = -50; x < 400; x += 0.25f)
+            assertEquals("x = " + x, nearest(centers, x), table.indexAt(x, 0));
+    }
+
+    @Test
+    public void manyItemsInAScrollableStrip() throws Exception {
+        float[] centers = new float[50];
+        for(int nCtr = 0; nCtr < centers.length; ++nCtr)
+            centers[nCtr] = 60 + (nCtr * 120);
+
+        MetaballItemTable table = build(centers);
+        assertEquals(50, table.getCount());
+        for(int nCtr = 0; nCtr < centers.length; ++nCtr) {
+            assertEquals(nCtr, table.indexAt(centers[nCtr], 0));
+            assertEquals(nCtr, table.indexAt(centers[nCtr] - 59, 0));
+            assertEquals(nCtr, table.indexAt(centers[nCtr] + 59, 0));
+        }
+    }
+
+    @Test
+    public void rightToLeftItems() throws Exception {
+        float[] centers = {500, 300, 100};
+        MetaballItemTable table = build(centers);
+
+        assertEquals(0, table.indexAt(450, 0));
+        assertEquals(1, table.indexAt(250, 0));
+        assertEquals(2, table.indexAt(0, 0));
+    }
+
+    @Test
+    public void tableIsReusedWhenItemsChange() throws Exception {
+        MetaballItemTable table = build(new float[] {10, 20, 30, 40, 50, 60, 70, 80, 90, 100});
+        assertEquals(9, table.indexAt(200, 0));
+
+        table.reset(2);
+        table.setCenter(0, 100, 0);
+        table.setCenter(1, 300, 0);
+        table.buildIndex(false, 0);
+        assertEquals(0, table.indexAt(199, 0));
+        assertEquals(1, table.indexAt(201, 0));
+        assertEquals(300, table.getCenterX(1), 0);
+    }
+
+    @Test
+    public void verticalRail() throws Exception {
+        MetaballItemTable table = new MetaballItemTable();
+        table.reset(3);
+        table.setCenter(0, 40, 50);
+        table.setCenter(1, 40, 150);
+        table.setCenter(2, 40, 250);
+        table.buildIndex(true, 0);
+
+        assertEquals(0, table.indexAt(500, 20));
+        assertEquals(1, table.indexAt(0, 160));
+        assertEquals(2, table.indexAt(40, 999));
+    }
+
+    @Test
+    public void gridFilledRowByRow() throws Exception {
+        // 3 columns, 7 items: the last row has a single item
+        MetaballItemTable table = new MetaballItemTable();
+        table.reset(7);
+        for(int nCtr = 0; nCtr < 7; ++nCtr)
+            table.setCenter(nCtr, 50 + ((nCtr % 3) * 100), 50 + ((nCtr / 3) * 100));
+        table.buildIndex(false, 3);
+
+        assertEquals(0, table.indexAt(10, 10));
+        assertEquals(2, table.indexAt(260, 40));
+        assertEquals(4, table.indexAt(150, 150));
+        assertEquals(5, table.indexAt(290, 120));
+        assertEquals(6, table.indexAt(40, 260));
+        assertEquals(6, table.indexAt(250, 260));          // Past the end of the last row
+    }
+
+    @Test
+    public void goneItemsAreSkipped() throws Exception {
+        // The first item is GONE, with a center from before it was hidden, and the third is GONE and was never laid
+        // out: the visible items share the whole axis
+        MetaballItemTable table = new MetaballItemTable();
+        table.reset(5);
+        table.setCenter(0, 60, 40);
+        table.setCenter(1, 60, 40);
+        table.setCenter(2, 0, 0);
+        table.setCenter(3, 180, 40);
+        table.setCenter(4, 300, 40);
+        table.setVisibility(0, View.GONE);
+        table.setVisibility(2, View.GONE);
+        table.buildIndex(false, 0);
+
+        assertEquals(5, table.getCount());
+        assertEquals(1, table.indexAt(0, 40));
+        assertEquals(1, table.indexAt(119, 40));
+        assertEquals(3, table.indexAt(121, 40));
+        assertEquals(3, table.indexAt(239, 40));
+        assertEquals(4, table.indexAt(241, 40));
+        assertEquals(4, table.indexAt(1000, 40));
+        assertEquals(180, table.getCenterX(3), 0);
+
+        // Nothing left to touch
+        table.setVisibility(1, View.INVISIBLE);
+        table.setVisibility(3, View.GONE);
+        table.setVisibility(4, View.GONE);
+        table.buildIndex(false, 0);
+        assertEquals(-1, table.indexAt(60, 40));
+    }
+
+    @Test
+    public void invisibleItemsKeepTheirGridCell() throws Exception {
+        // 2 columns: the second item is GONE and takes no cell, the third is INVISIBLE and keeps its cell
+        MetaballItemTable table = new MetaballItemTable();
+        table.reset(5);
+        table.setCenter(0, 50, 50);
+        table.setCenter(1, 0, 0);
+        table.setCenter(2, 150, 50);
+        table.setCenter(3, 50, 150);
+        table.setCenter(4, 150, 150);
+        table.setVisibility(1, View.GONE);
+        table.setVisibility(2, View.INVISIBLE);
+        table.buildIndex(false, 2);
+
+        assertEquals(0, table.indexAt(10, 10));
+        assertEquals(-1, table.indexAt(160, 40));
+        assertEquals(3, table.indexAt(40, 160));
+        assertEquals(4, table.indexAt(190, 190));
+    }
+
+    private static MetaballItemTable build(float[] centers) {
+        MetaballItemTable table = new MetaballItemTable();
+        table.reset(centers.length);
+        for(int nCtr = 0; nCtr < centers.length; ++nCtr)
+            table.setCenter(nCtr, centers[nCtr], 0);
+        table.buildIndex(false, 0);
+        return table;
+    }
+
+    /**
+     * Linear scan reference. Ties go to the later item, like the table
+     */
+    private static int nearest(float[] centers, float x) {
+        int nNearest = 0;
+        for(int nCtr = 1; nCtr < centers.length; ++nCtr) {
+            if(x >= (centers[nCtr - 1] + centers[nCtr]) / 2.0f)
+                nNearest = nCtr;
+        }
+        return nNearest;
+    }
+}
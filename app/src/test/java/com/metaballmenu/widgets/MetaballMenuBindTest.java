@@ -0,0 +1,98 @@
+package com.metaballmenu.widgets;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.metaballmenu.BuildConfig;
+import com.metaballmenu.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Binding a recycled menu to other data, and saving the selection with the instance state
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MetaballMenuBindTest extends MetaballMenuRenderHarness {
+
+    @Test
+    public void rebindingKeepsTheItemsAndSkipsTheTransition() throws Exception {
+        View first = mMenu.getChildAt(0);
+        View last = mMenu.getChildAt(3);
+
+        // A tap in flight when the row is rebound: the transition stops, silently
+        tap(last);
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        driver.doFrame(0);
+        mMenu.bind(2, new int[] {R.mipmap.card, R.mipmap.dash, R.mipmap.hist},
+                new int[] {R.mipmap.card_sel, R.mipmap.dash_sel, R.mipmap.hist_sel});
+        assertFalse(driver.isRunning());
+        assertNull(mClickedView);
+        assertTrue(mMetrics.isCancelled());
+
+        // The same item views, one fewer, with their new images
+        assertEquals(3, mMenu.getItemCount());
+        assertSame(first, mMenu.getChildAt(0));
+        assertEquals(R.mipmap.dash, ((MetaballMenuImageView) mMenu.getChildAt(1)).getDefaultImage());
+        assertEquals(R.mipmap.hist_sel, ((MetaballMenuImageView) mMenu.getChildAt(2)).getSelectedImage());
+        assertEquals(2, mMenu.getSelectedIndex());
+        assertTrue(mMenu.getChildAt(2).isSelected());
+        assertFalse(last.isSelected());
+
+        // Selection only
+        mMenu.bind(0);
+        assertEquals(0, mMenu.getSelectedIndex());
+        assertTrue(first.isSelected());
+        assertFalse(driver.isRunning());
+    }
+
+    @Test
+    public void unbindDropsTheTransitionAndTheTouch() throws Exception {
+        View destination = mMenu.getChildAt(2);
+        tap(destination);
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        driver.doFrame(0);
+
+        mMenu.unbind();
+        assertFalse(driver.isRunning());
+        assertNull(mClickedView);
+        assertEquals(2, mMenu.getSelectedIndex());
+
+        // An up without its down does not select anything
+        MotionEvent down = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, centerX(mMenu.getChildAt(1)), centerY(mMenu.getChildAt(1)), 0);
+        mMenu.onTouchEvent(down);
+        down.recycle();
+        mMenu.unbind();
+        MotionEvent up = MotionEvent.obtain(0, 10, MotionEvent.ACTION_UP, centerX(mMenu.getChildAt(1)), centerY(mMenu.getChildAt(1)), 0);
+        mMenu.onTouchEvent(up);
+        up.recycle();
+        assertFalse(driver.isRunning());
+        assertEquals(2, mMenu.getSelectedIndex());
+    }
+
+    @Test
+    public void selectionIsSavedAndRestored() throws Exception {
+        mMenu.bind(3);
+        Parcelable state = mMenu.onSaveInstanceState();
+
+        // Through a parcel, as on process death
+        Parcel parcel = Parcel.obtain();
+        ((MetaballMenu.SavedState) state).writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        MetaballMenu.SavedState restored = MetaballMenu.SavedState.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+
+        mMenu.bind(0);
+        mMenu.onRestoreInstanceState(restored);
+        assertEquals(3, mMenu.getSelectedIndex());
+        assertTrue(mMenu.getChildAt(3).isSelected());
+        assertFalse(mMenu.getChildAt(0).isSelected());
+    }
+}
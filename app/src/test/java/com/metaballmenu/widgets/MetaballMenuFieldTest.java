@@ -0,0 +1,120 @@
+package com.metaballmenu.widgets;
+
+import com.metaballmenu.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * The metaballs besides the selector (badges and checked items), and the render modes which draw them
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MetaballMenuFieldTest extends MetaballMenuRenderHarness {
+
+    @Test
+    public void badgesAndCheckedItemsMergeWithTheSelector() throws Exception {
+        // A badge away from the selector is a lone small metaball
+        mMenu.setBadgeVisible(2, true);
+        assertTrue(mMenu.isBadgeVisible(2));
+        mMenu.onDraw(mCanvas);
+        assertEquals(2, mCanvas.mnCount);
+        assertEquals(RecordingCanvas.CIRCLE, mCanvas.mnOps[1]);
+        assertTrue(mCanvas.arg(1, 2) < mCanvas.arg(0, 2));
+        assertTrue(mCanvas.arg(1, 0) > centerX(mMenu.getChildAt(2)));
+
+        // A badge on the selected item merges with the selector: one more circle and the bridges
+        mMenu.setBadgeVisible(0, true);
+        renderIdle();
+        assertEquals(4, mCanvas.mnCount);
+        assertEquals(RecordingCanvas.PATH, mCanvas.mnOps[3]);
+
+        // Checked items do not change the selection
+        mMenu.setItemChecked(3, true);
+        assertTrue(mMenu.isItemChecked(3));
+        assertEquals(0, mMenu.getSelectedIndex());
+
+        // The field follows the transition, and is back to the idle metaballs at its end
+        tap(mMenu.getChildAt(1));
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        for(long time = 0; driver.isRunning(); time += FRAME_NANOS) {
+            driver.doFrame(time);
+            renderIdle();
+        }
+
+        mMenu.setBadgeVisible(0, false);
+        mMenu.setBadgeVisible(2, false);
+        mMenu.setItemChecked(3, false);
+        renderIdle();
+        assertEquals(1, mCanvas.mnCount);
+        assertEquals(centerX(mMenu.getChildAt(1)), mCanvas.arg(0, 0), 0.5f);
+    }
+
+    @Test
+    public void fieldModeDrawsTheMetaballsAsOneBitmap() throws Exception {
+        mMenu.setRenderMode(MetaballMenu.RENDER_MODE_FIELD);
+        mMenu.setBadgeVisible(0, true);
+        mMenu.onDraw(mCanvas);
+        assertEquals(1, mCanvas.mnCount);
+        assertEquals(RecordingCanvas.BITMAP, mCanvas.mnOps[0]);
+
+        tap(mMenu.getChildAt(2));
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        for(long time = 0; driver.isRunning(); time += FRAME_NANOS) {
+            driver.doFrame(time);
+            renderIdle();
+            assertEquals(1, mCanvas.mnCount);
+        }
+
+        assertEquals(2, mMenu.getSelectedIndex());
+        assertNotNull(mMetrics);
+    }
+
+    @Test
+    public void contourModeDrawsTheMetaballsAsOnePath() throws Exception {
+        mMenu.setRenderMode(MetaballMenu.RENDER_MODE_CONTOUR);
+        mMenu.setBadgeVisible(3, true);
+        mMenu.onDraw(mCanvas);
+        assertEquals(1, mCanvas.mnCount);
+        assertEquals(RecordingCanvas.PATH, mCanvas.mnOps[0]);
+
+        tap(mMenu.getChildAt(3));
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        for(long time = 0; driver.isRunning(); time += FRAME_NANOS) {
+            driver.doFrame(time);
+            renderIdle();
+            assertEquals(1, mCanvas.mnCount);
+        }
+
+        assertEquals(3, mMenu.getSelectedIndex());
+    }
+
+    @Test
+    public void meshModeDrawsTheTransitionAsOneMesh() throws Exception {
+        mMenu.setRenderMode(MetaballMenu.RENDER_MODE_MESH);
+
+        // The idle selector is still a circle
+        mMenu.onDraw(mCanvas);
+        assertEquals(1, mCanvas.mnCount);
+        assertEquals(RecordingCanvas.CIRCLE, mCanvas.mnOps[0]);
+
+        tap(mMenu.getChildAt(2));
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        for(long time = 0; driver.isRunning(); time += FRAME_NANOS) {
+            renderFrame(driver, time);
+            if(!driver.isRunning())
+                break;
+
+            assertEquals(1, mCanvas.mnCount);
+            assertEquals(RecordingCanvas.VERTICES, mCanvas.mnOps[0]);
+            assertTrue(mCanvas.arg(0, 0) > 0);
+            assertEquals(0, mCanvas.arg(0, 1) % 3, 0.0f);
+        }
+
+        assertEquals(2, mMenu.getSelectedIndex());
+    }
+}
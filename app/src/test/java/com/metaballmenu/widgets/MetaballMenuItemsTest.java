@@ -0,0 +1,110 @@
+package com.metaballmenu.widgets;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.metaballmenu.BuildConfig;
+import com.metaballmenu.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * The items of the menu: adding and removing them at runtime, and finding the tapped one through the center table
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MetaballMenuItemsTest extends MetaballMenuRenderHarness {
+
+    @Test
+    public void itemsCanBeAddedAndRemoved() throws Exception {
+        MetaballMenuImageView item = mMenu.addItem(1, R.mipmap.card_sel, R.mipmap.card);
+        layoutMenu();
+
+        assertEquals(5, mMenu.getItemCount());
+        assertSame(item, mMenu.getChildAt(1));
+        assertEquals(0, mMenu.getSelectedIndex());
+
+        tap(item);
+        assertEquals(1, mMenu.getSelectedIndex());
+        assertTrue(item.isSelected());
+
+        // Removing the selected item moves the selection to the next one
+        mMenu.removeItem(1);
+        assertEquals(4, mMenu.getItemCount());
+        assertEquals(1, mMenu.getSelectedIndex());
+        assertTrue(((MetaballMenuImageView) mMenu.getChildAt(1)).isSelected());
+
+        // Removing an item before the selection keeps the same item selected
+        View selected = mMenu.getChildAt(1);
+        mMenu.removeItem(0);
+        assertEquals(0, mMenu.getSelectedIndex());
+        assertTrue(selected.isSelected());
+    }
+
+    @Test
+    public void goneItemsGiveTheirRoomToTheVisibleOnes() throws Exception {
+        mMenu.getChildAt(0).setVisibility(View.GONE);
+        layoutMenu();
+
+        // A tap on the left edge of the first visible item selects it
+        View first = mMenu.getChildAt(1);
+        tap(first.getLeft() + 1, centerY(first));
+        assertEquals(1, mMenu.getSelectedIndex());
+        assertTrue(first.isSelected());
+
+        // And left of it, where the GONE item used to be
+        tap(mMenu.getChildAt(3));
+        tap(0, centerY(first));
+        assertEquals(1, mMenu.getSelectedIndex());
+    }
+
+    @Test
+    public void itemsStayClickableForAccessibility() throws Exception {
+        View item = mMenu.getChildAt(2);
+        assertTrue(item.isClickable());
+        assertTrue(item.isFocusable());
+
+        // A click performed on the item, as TalkBack or the D-pad do, runs the transition
+        assertTrue(item.performClick());
+        assertEquals(2, mMenu.getSelectedIndex());
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        for(long time = 0; driver.isRunning(); time += FRAME_NANOS)
+            renderFrame(driver, time);
+        assertSame(item, mClickedView);
+
+        // Items added at runtime too
+        assertTrue(mMenu.addItem(R.mipmap.card_sel, R.mipmap.card).isClickable());
+    }
+
+    @Test
+    public void menuClicksOnlyWhenAnItemIsClicked() throws Exception {
+        final int[] nClicks = {0};
+        mMenu.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                ++nClicks[0];
+            }
+        });
+
+        tap(mMenu.getChildAt(1));
+        assertEquals(1, nClicks[0]);
+
+        // The item is hidden between the down and the up: no item click, and no menu click
+        View item = mMenu.getChildAt(2);
+        MotionEvent down = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, centerX(item), centerY(item), 0);
+        mMenu.onTouchEvent(down);
+        down.recycle();
+        item.setVisibility(View.INVISIBLE);
+        MotionEvent up = MotionEvent.obtain(0, 10, MotionEvent.ACTION_UP, centerX(item), centerY(item), 0);
+        mMenu.onTouchEvent(up);
+        up.recycle();
+
+        assertEquals(1, nClicks[0]);
+        assertEquals(1, mMenu.getSelectedIndex());
+    }
+}
@@ -0,0 +1,101 @@
+package com.metaballmenu.widgets;
+
+import android.view.View;
+
+import com.metaballmenu.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * The layouts of the menu and the selector sizes: grids, the selector radius policy, and items of different sizes
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MetaballMenuLayoutTest extends MetaballMenuRenderHarness {
+
+    @Test
+    public void gridTransitionMovesAlongTheDiagonal() throws Exception {
+        mMenu.setGridColumns(2);
+        layoutMenu();
+
+        View origin = mMenu.getChildAt(0);
+        View destination = mMenu.getChildAt(3);
+        assertTrue(destination.getTop() > origin.getTop());
+        assertTrue(destination.getLeft() > origin.getLeft());
+
+        tap(destination);
+        assertEquals(3, mMenu.getSelectedIndex());
+
+        // Halfway through the linear transition, the transitional circle is halfway along both axes
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        driver.doFrame(0);
+        driver.doFrame(DURATION * 1000000L / 2);
+        renderIdle();
+
+        assertEquals((centerX(origin) + centerX(destination)) / 2, mCanvas.arg(0, 0), 1.0f);
+        assertEquals((centerY(origin) + centerY(destination)) / 2, mCanvas.arg(0, 1), 1.0f);
+    }
+
+    @Test
+    public void selectorRadiusFollowsThePolicy() throws Exception {
+        View item = mMenu.getChildAt(0);
+        float width = item.getWidth();
+        float height = item.getHeight();
+
+        // By default, the radius the selector had before the policies
+        assertEquals(MetaballMenu.SELECTOR_RADIUS_LARGER_SIDE, mMenu.getSelectorRadiusPolicy());
+        int nLargerSide = (int) Math.max(width, height);
+        mMenu.onDraw(mCanvas);
+        assertEquals((nLargerSide ^ 2) / 2, mCanvas.arg(0, 2), 0.0f);
+        assertEquals(Math.max(width, height) / 2, mMenu.getSelectorRadius(3), 1.0f);
+
+        mMenu.setSelectorRadiusPolicy(MetaballMenu.SELECTOR_RADIUS_INSCRIBED);
+        renderIdle();
+        assertEquals(Math.min(width, height) / 2, mCanvas.arg(0, 2), 0.01f);
+
+        mMenu.setSelectorRadiusPolicy(MetaballMenu.SELECTOR_RADIUS_CIRCUMSCRIBED);
+        renderIdle();
+        assertEquals(Math.sqrt((width * width) + (height * height)) / 2, mCanvas.arg(0, 2), 0.01f);
+
+        mMenu.setFixedSelectorRadius(24);
+        assertEquals(MetaballMenu.SELECTOR_RADIUS_FIXED, mMenu.getSelectorRadiusPolicy());
+        renderIdle();
+        assertEquals(24, mCanvas.arg(0, 2), 0.0f);
+    }
+
+    @Test
+    public void radiusIsInterpolatedBetweenItemsOfDifferentSizes() throws Exception {
+        // A taller last item gets a larger selector
+        mMenu.setSelectorRadiusPolicy(MetaballMenu.SELECTOR_RADIUS_INSCRIBED);
+        View destination = mMenu.getChildAt(3);
+        destination.setPadding(destination.getPaddingLeft(), 40, destination.getPaddingRight(), 40);
+        layoutMenu();
+
+        float originRadius = mMenu.getSelectorRadius(0);
+        float destinationRadius = mMenu.getSelectorRadius(3);
+        assertTrue(destinationRadius > originRadius);
+
+        tap(destination);
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        float previousRadii = originRadius;
+        for(long time = 0; driver.isRunning(); time += FRAME_NANOS) {
+            renderFrame(driver, time);
+            if(!driver.isRunning())
+                break;
+
+            // Linear: the blob grows steadily from one radius to the other
+            float radii = mCanvas.arg(0, 2) + mCanvas.arg(1, 2);
+            assertTrue(radii >= previousRadii - 0.01f);
+            assertTrue(radii <= destinationRadius + 0.01f);
+            previousRadii = radii;
+        }
+
+        renderIdle();
+        assertEquals(destinationRadius, mCanvas.arg(0, 2), 0.01f);
+    }
+}
@@ -0,0 +1,66 @@
+package com.metaballmenu.widgets;
+
+import android.view.View;
+
+import com.metaballmenu.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * The quality tiers of the adaptive quality, as the frames of a transition come late
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MetaballMenuQualityTest extends MetaballMenuRenderHarness {
+
+    @Test
+    public void lateFramesDegradeTheTransitionStepByStep() throws Exception {
+        assertFalse(mMenu.isAdaptiveQuality());
+        mMenu.setAdaptiveQuality(true);
+        mMenu.setTransitionDuration(DURATION * 10);
+        mMenu.setRenderMode(MetaballMenu.RENDER_MODE_CONTOUR);
+        View destination = mMenu.getChildAt(3);
+        tap(destination);
+        assertEquals(MetaballMenu.QUALITY_FULL, mMenu.getQualityTier());
+
+        // Every frame three vsyncs late
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        int nFrames = 0;
+        boolean bNoBridge = false;
+        for(long time = 0; driver.isRunning(); time += 3 * FRAME_NANOS) {
+            driver.doFrame(time);
+            if(!driver.isRunning())
+                break;
+
+            renderIdle();
+            ++nFrames;
+
+            // Below the full quality, only the two circles are drawn, whatever the render mode
+            if(mMenu.getQualityTier() == MetaballMenu.QUALITY_FULL) {
+                assertEquals(1, mCanvas.mnCount);
+                assertEquals(RecordingCanvas.PATH, mCanvas.mnOps[0]);
+            }
+            else {
+                bNoBridge = true;
+                assertEquals(2, mCanvas.mnCount);
+                assertEquals(RecordingCanvas.CIRCLE, mCanvas.mnOps[0]);
+                assertEquals(RecordingCanvas.CIRCLE, mCanvas.mnOps[1]);
+            }
+        }
+
+        // Down to the instant selection, well before the end of the transition
+        assertTrue(bNoBridge);
+        assertEquals(MetaballMenu.QUALITY_INSTANT, mMenu.getQualityTier());
+        assertTrue(nFrames < transitionFrames());
+        assertSame(destination, mClickedView);
+        assertEquals(3, mMenu.getSelectedIndex());
+
+        mMenu.setAdaptiveQuality(false);
+        assertEquals(MetaballMenu.QUALITY_FULL, mMenu.getQualityTier());
+    }
+}
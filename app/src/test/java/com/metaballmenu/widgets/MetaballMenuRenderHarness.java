@@ -0,0 +1,134 @@
+package com.metaballmenu.widgets;
+
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.metaballmenu.R;
+
+import org.junit.Before;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Headless render harness shared by the MetaballMenu Robolectric tests. It inflates menu_layout.xml, drives the
+ * transition clock frame by frame with synthetic vsync times, and records the canvas calls of every frame.
+ */
+abstract class MetaballMenuRenderHarness {
+
+    static final int WIDTH = 1080;
+    static final long FRAME_NANOS = 16666667L;
+    static final long DURATION = 500;
+
+    /**
+     * Budget of draw calls in a transition frame: the transitional circle, the destination circle and the bridge
+     */
+    static final int MAX_DRAW_CALLS_PER_FRAME = 3;
+
+    MetaballMenu mMenu;
+    RecordingCanvas mCanvas;
+    View mClickedView;
+    TransitionMetrics mMetrics;
+
+    @Before
+    public void setUp() throws Exception {
+        // The frame clock is driven by the tests, not by the looper
+        ShadowLooper.pauseMainLooper();
+
+        setMenu((MetaballMenu) LayoutInflater.from(RuntimeEnvironment.application).inflate(R.layout.menu_layout, null));
+        mMenu.setTransitionDuration(DURATION);
+        mCanvas = new RecordingCanvas();
+    }
+
+    /**
+     * Use a menu: linear transitions, so that the positions are easy to check, listeners recording the clicks and
+     * the metrics, and laid out at the harness width
+     */
+    void setMenu(MetaballMenu menu) {
+        mMenu = menu;
+        mMenu.setTransitionInterpolator(null);
+        mMenu.setMenuClickListener(new MetaballMenu.MetaballMenuClickListener() {
+            @Override
+            public void onClick(View view) {
+                mClickedView = view;
+            }
+        });
+        mMenu.setTransitionMetricsListener(new MetaballMenu.TransitionMetricsListener() {
+            @Override
+            public void onTransitionMetrics(MetaballMenu menu, TransitionMetrics metrics) {
+                mMetrics = metrics;
+            }
+        });
+        layoutMenu();
+    }
+
+    /**
+     * Measure and lay out the menu again, e.g. after its items changed
+     */
+    void layoutMenu() {
+        mMenu.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        mMenu.layout(0, 0, mMenu.getMeasuredWidth(), mMenu.getMeasuredHeight());
+    }
+
+    /**
+     * Tap the center of an item through the menu's touch handler
+     */
+    void tap(View view) {
+        tap(centerX(view), centerY(view));
+    }
+
+    /**
+     * Tap a point through the menu's touch handler
+     */
+    void tap(float x, float y) {
+        MotionEvent down = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, x, y, 0);
+        MotionEvent up = MotionEvent.obtain(0, 10, MotionEvent.ACTION_UP, x, y, 0);
+        mMenu.onTouchEvent(down);
+        mMenu.onTouchEvent(up);
+        down.recycle();
+        up.recycle();
+    }
+
+    /**
+     * Tick the frame clock and record the frame drawn
+     */
+    void renderFrame(TransitionDriver driver, long time) {
+        renderFrame(driver, time, MAX_DRAW_CALLS_PER_FRAME);
+    }
+
+    /**
+     * Tick the frame clock and record the frame drawn, within a budget of draw calls
+     */
+    void renderFrame(TransitionDriver driver, long time, int nMaxDrawCalls) {
+        driver.doFrame(time);
+        mCanvas.reset();
+        mMenu.onDraw(mCanvas);
+        assertTrue(mCanvas.mnCount <= nMaxDrawCalls);
+    }
+
+    /**
+     * Record the idle frame
+     */
+    void renderIdle() {
+        mCanvas.reset();
+        mMenu.onDraw(mCanvas);
+    }
+
+    /**
+     * The number of frames drawn before the frame clock reaches the end of the transition
+     */
+    static int transitionFrames() {
+        return (int) Math.ceil((double) (DURATION * 1000000L) / FRAME_NANOS);
+    }
+
+    static float centerX(View view) {
+        return view.getLeft() + (view.getMeasuredWidth() / 2);
+    }
+
+    static float centerY(View view) {
+        return view.getTop() + (view.getMeasuredHeight() / 2);
+    }
+}
@@ -0,0 +1,131 @@
+package com.metaballmenu.widgets;
+
+import android.view.View;
+
+import com.metaballmenu.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Renders the default transition of menu_layout.xml frame by frame. The build fails if a transition frame needs
+ * more draw calls or allocates more than its budget.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MetaballMenuRenderTest extends MetaballMenuRenderHarness {
+
+    /**
+     * Budget of the bytes allocated by the frame clock tick and onDraw together. The Robolectric shadows of Path
+     * keep some bookkeeping, the widget itself allocates nothing (@see MetaballMenuAllocationTest on the device)
+     */
+    private static final long MAX_BYTES_PER_FRAME = 1024;
+
+    /**
+     * Frames skipped before measuring the allocations (class loading, first keyframe sampling)
+     */
+    private static final int WARM_UP_FRAMES = 3;
+
+    @Test
+    public void inflatesWithTheFirstItemSelected() throws Exception {
+        assertEquals(4, mMenu.getChildCount());
+        assertTrue(((MetaballMenuImageView) mMenu.getChildAt(0)).isSelected());
+        assertFalse(((MetaballMenuImageView) mMenu.getChildAt(1)).isSelected());
+    }
+
+    @Test
+    public void idleMenuDrawsOneSelector() throws Exception {
+        mMenu.onDraw(mCanvas);
+
+        assertEquals(1, mCanvas.mnCount);
+        assertEquals(RecordingCanvas.CIRCLE, mCanvas.mnOps[0]);
+        assertEquals(centerX(mMenu.getChildAt(0)), mCanvas.arg(0, 0), 0.5f);
+    }
+
+    @Test
+    public void transitionIsDrawnFrameByFrame() throws Exception {
+        View destination = mMenu.getChildAt(3);
+        tap(destination);
+
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        float previousX = -1;
+        float selectorRadius = -1;
+        int nFrames = 0;
+
+        for(long time = 0; driver.isRunning(); time += FRAME_NANOS) {
+            driver.doFrame(time);
+            if(!driver.isRunning())
+                break;
+
+            mCanvas.reset();
+            mMenu.onDraw(mCanvas);
+            ++nFrames;
+
+            assertTrue("Draw calls in frame " + nFrames, mCanvas.mnCount <= MAX_DRAW_CALLS_PER_FRAME);
+            assertEquals(RecordingCanvas.CIRCLE, mCanvas.mnOps[0]);
+            assertEquals(RecordingCanvas.CIRCLE, mCanvas.mnOps[1]);
+
+            // The transitional circle moves towards the destination, and both circles share the selector radius
+            float x = mCanvas.arg(0, 0);
+            assertTrue(x >= previousX);
+            previousX = x;
+
+            float radii = mCanvas.arg(0, 2) + mCanvas.arg(1, 2);
+            if(selectorRadius < 0)
+                selectorRadius = radii;
+            assertEquals(selectorRadius, radii, 0.01f);
+            assertEquals(centerX(destination), mCanvas.arg(1, 0), 0.5f);
+        }
+
+        assertEquals(transitionFrames(), nFrames);
+        assertSame(destination, mClickedView);
+        assertTrue(((MetaballMenuImageView) destination).isSelected());
+        assertFalse(((MetaballMenuImageView) mMenu.getChildAt(0)).isSelected());
+
+        assertNotNull(mMetrics);
+        assertEquals(nFrames, mMetrics.getFrameCount());
+        assertEquals("Dropped frames in " + mMetrics, 0, mMetrics.getDroppedFrames(TransitionMetrics.REFRESH_RATE_60));
+
+        // Back to the idle selector on the destination
+        renderIdle();
+        assertEquals(1, mCanvas.mnCount);
+        assertEquals(centerX(destination), mCanvas.arg(0, 0), 0.5f);
+    }
+
+    @Test
+    public void transitionFramesStayWithinTheAllocationBudget() throws Exception {
+        // The allocation counter is a HotSpot extension, the test is skipped on other JVMs
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        tap(mMenu.getChildAt(2));
+        TransitionDriver driver = mMenu.getTransitionDriver();
+
+        long time = 0;
+        for(int nFrame = 0; nFrame < WARM_UP_FRAMES; ++nFrame, time += FRAME_NANOS)
+            renderFrame(driver, time);
+
+        // Stop one frame short of the end, which reports the metrics and clears the transition
+        int nFrames = transitionFrames() - WARM_UP_FRAMES - 1;
+        threadBean.getThreadAllocatedBytes(threadId);
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for(int nFrame = 0; nFrame < nFrames; ++nFrame, time += FRAME_NANOS)
+            renderFrame(driver, time);
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+
+        long bytesPerFrame = (after - before) / nFrames;
+        assertTrue("Allocated " + bytesPerFrame + " bytes per frame", bytesPerFrame <= MAX_BYTES_PER_FRAME);
+    }
+}
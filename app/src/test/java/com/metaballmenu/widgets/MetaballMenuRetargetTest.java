@@ -0,0 +1,174 @@
+package com.metaballmenu.widgets;
+
+import android.view.View;
+
+import com.metaballmenu.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * A tap during a transition, which redirects the blob from where it is
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MetaballMenuRetargetTest extends MetaballMenuRenderHarness {
+
+    /**
+     * Budget of draw calls in a retargeted frame: a circle more for each lobe of an interrupted transition
+     */
+    private static final int MAX_RETARGET_DRAW_CALLS = MAX_DRAW_CALLS_PER_FRAME + 4;
+
+    /**
+     * How far, in pixels, the circles of the first retargeted frame may be from the last frame before the tap
+     */
+    private static final float TOLERANCE = 0.5f;
+
+    /**
+     * The last frame rendered before a tap
+     */
+    private final RecordingCanvas mPreviousCanvas = new RecordingCanvas();
+
+    @Test
+    public void tapDuringATransitionRetargetsTheBlob() throws Exception {
+        tap(mMenu.getChildAt(3));
+        TransitionDriver driver = mMenu.getTransitionDriver();
+
+        long time = 0;
+        int nFrames = transitionFrames() / 2;
+        for(int nFrame = 0; nFrame < nFrames; ++nFrame, time += FRAME_NANOS)
+            renderFrame(driver, time);
+        float blobX = blobX();
+
+        // Change the mind halfway
+        View destination = mMenu.getChildAt(1);
+        tap(destination);
+        assertNotNull(mMetrics);
+        assertTrue(mMetrics.isCancelled());
+        assertNull(mClickedView);
+
+        // The next frame heads to the new item
+        renderFrame(driver, time, MAX_RETARGET_DRAW_CALLS);
+        time += FRAME_NANOS;
+        assertEquals(centerX(destination), mCanvas.arg(1, 0), 0.5f);
+
+        // And the blob moves on smoothly
+        float selectorRadius = mMenu.getSelectorRadius(1);
+        float previousX = blobX;
+        while(driver.isRunning()) {
+            renderFrame(driver, time, MAX_RETARGET_DRAW_CALLS);
+            time += FRAME_NANOS;
+            if(!driver.isRunning())
+                break;
+
+            float x = blobX();
+            assertTrue("Blob jumped from " + previousX + " to " + x, Math.abs(x - previousX) < selectorRadius);
+            previousX = x;
+        }
+
+        assertSame(destination, mClickedView);
+        assertFalse(mMetrics.isCancelled());
+        renderIdle();
+        assertEquals(1, mCanvas.mnCount);
+        assertEquals(centerX(destination), mCanvas.arg(0, 0), 0.5f);
+    }
+
+    @Test
+    public void firstRetargetedFrameMatchesTheLastFrame() throws Exception {
+        tap(mMenu.getChildAt(3));
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        long time = renderFrames(driver, 0, transitionFrames() / 2);
+
+        // Redirected halfway, and again before the first redirection is over
+        tap(mMenu.getChildAt(1));
+        renderFrame(driver, time, MAX_RETARGET_DRAW_CALLS);
+        assertSameFrame();
+        time = renderFrames(driver, time, transitionFrames() / 4);
+
+        tap(mMenu.getChildAt(2));
+        renderFrame(driver, time, MAX_RETARGET_DRAW_CALLS);
+        assertSameFrame();
+    }
+
+    @Test
+    public void firstRetargetedSpringFrameMatchesTheLastFrame() throws Exception {
+        mMenu.setTransitionTiming(MetaballMenu.TRANSITION_SPRING);
+        tap(mMenu.getChildAt(3));
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        long time = renderFrames(driver, 0, transitionFrames() / 2);
+
+        tap(mMenu.getChildAt(0));
+        renderFrame(driver, time, MAX_RETARGET_DRAW_CALLS);
+        assertSameFrame();
+    }
+
+    /**
+     * Render frames and keep the last one as the previous frame
+     *
+     * @return
+     *      The time of the frame after the last one
+     */
+    private long renderFrames(TransitionDriver driver, long time, int nFrames) {
+        for(int nFrame = 0; nFrame < nFrames; ++nFrame, time += FRAME_NANOS)
+            renderFrame(driver, time, MAX_RETARGET_DRAW_CALLS);
+
+        mPreviousCanvas.copyFrom(mCanvas);
+        return time;
+    }
+
+    /**
+     * Every circle of the last recorded frame matches a circle of the previous frame, and the other way round.
+     * Empty circles do not count, and both frames draw a bridge
+     */
+    private void assertSameFrame() {
+        assertTrue(hasPath(mCanvas));
+        assertTrue(hasPath(mPreviousCanvas));
+        assertCirclesCovered(mPreviousCanvas, mCanvas);
+        assertCirclesCovered(mCanvas, mPreviousCanvas);
+    }
+
+    private static boolean hasPath(RecordingCanvas canvas) {
+        for(int nCall = 0; nCall < canvas.mnCount; ++nCall) {
+            if(canvas.mnOps[nCall] == RecordingCanvas.PATH)
+                return true;
+        }
+        return false;
+    }
+
+    private static void assertCirclesCovered(RecordingCanvas frame, RecordingCanvas other) {
+        for(int nCall = 0; nCall < frame.mnCount; ++nCall) {
+            if((frame.mnOps[nCall] != RecordingCanvas.CIRCLE) || (frame.arg(nCall, 2) <= TOLERANCE))
+                continue;
+
+            boolean bFound = false;
+            for(int nOther = 0; (nOther < other.mnCount) && !bFound; ++nOther) {
+                bFound = (other.mnOps[nOther] == RecordingCanvas.CIRCLE)
+                        && (Math.abs(frame.arg(nCall, 0) - other.arg(nOther, 0)) <= TOLERANCE)
+                        && (Math.abs(frame.arg(nCall, 1) - other.arg(nOther, 1)) <= TOLERANCE)
+                        && (Math.abs(frame.arg(nCall, 2) - other.arg(nOther, 2)) <= TOLERANCE);
+            }
+            assertTrue("No match for the circle at " + frame.arg(nCall, 0) + ", " + frame.arg(nCall, 1) + " of radius "
+                    + frame.arg(nCall, 2), bFound);
+        }
+    }
+
+    /**
+     * The center of the blob in the last recorded frame: the centers of all its circles, weighed by their radii
+     */
+    private float blobX() {
+        float sum = 0.0f;
+        float radii = 0.0f;
+        for(int nCall = 0; nCall < mCanvas.mnCount; ++nCall) {
+            if(mCanvas.mnOps[nCall] != RecordingCanvas.CIRCLE)
+                continue;
+
+            sum += mCanvas.arg(nCall, 0) * mCanvas.arg(nCall, 2);
+            radii += mCanvas.arg(nCall, 2);
+        }
+        return sum / radii;
+    }
+}
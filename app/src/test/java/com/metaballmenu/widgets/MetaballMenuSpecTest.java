@@ -0,0 +1,64 @@
+package com.metaballmenu.widgets;
+
+import android.view.View;
+
+import com.metaballmenu.BuildConfig;
+import com.metaballmenu.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Menus created in code from a MetaballMenuSpec
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MetaballMenuSpecTest extends MetaballMenuRenderHarness {
+
+    @Test
+    public void menuFromASpecRunsTheTransition() throws Exception {
+        MetaballMenuSpec spec = new MetaballMenuSpec.Builder(RuntimeEnvironment.application)
+                .addItem(R.mipmap.card_sel, R.mipmap.card)
+                .addItem(R.mipmap.dash_sel, R.mipmap.dash)
+                .build();
+        setMenu(spec.create(RuntimeEnvironment.application));
+
+        assertEquals(2, mMenu.getItemCount());
+        assertEquals(0, mMenu.getSelectedIndex());
+        mMenu.onDraw(mCanvas);
+        assertEquals(1, mCanvas.mnCount);
+        assertEquals(centerX(mMenu.getChildAt(0)), mCanvas.arg(0, 0), 0.5f);
+
+        View destination = mMenu.getChildAt(1);
+        tap(destination);
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        for(long time = 0; driver.isRunning(); time += FRAME_NANOS)
+            renderFrame(driver, time);
+        assertEquals(1, mMenu.getSelectedIndex());
+        assertTrue(destination.isSelected());
+        assertSame(destination, mClickedView);
+    }
+
+    @Test
+    public void specSetsTheSelectorRadius() throws Exception {
+        MetaballMenuSpec.Builder builder = new MetaballMenuSpec.Builder(RuntimeEnvironment.application)
+                .addItem(R.mipmap.card_sel, R.mipmap.card)
+                .addItem(R.mipmap.dash_sel, R.mipmap.dash);
+        assertEquals(MetaballMenu.SELECTOR_RADIUS_LARGER_SIDE, builder.build().getSelectorRadiusPolicy());
+
+        setMenu(builder.selectorRadiusPolicy(MetaballMenu.SELECTOR_RADIUS_INSCRIBED).build().create(RuntimeEnvironment.application));
+        View item = mMenu.getChildAt(0);
+        assertEquals(MetaballMenu.SELECTOR_RADIUS_INSCRIBED, mMenu.getSelectorRadiusPolicy());
+        assertEquals(Math.min(item.getWidth(), item.getHeight()) / 2.0f, mMenu.getSelectorRadius(0), 0.01f);
+
+        setMenu(builder.selectorRadius(20).build().create(RuntimeEnvironment.application));
+        assertEquals(MetaballMenu.SELECTOR_RADIUS_FIXED, mMenu.getSelectorRadiusPolicy());
+        assertEquals(20 * RuntimeEnvironment.application.getResources().getDisplayMetrics().density,
+                mMenu.getSelectorRadius(0), 0.01f);
+    }
+}
@@ -0,0 +1,63 @@
+package com.metaballmenu.widgets;
+
+import android.view.View;
+
+import com.metaballmenu.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * The spring timing of the transitions
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MetaballMenuSpringTest extends MetaballMenuRenderHarness {
+
+    @Test
+    public void springTransitionSettlesAtTheSameTimeAtAnyFrameRate() throws Exception {
+        mMenu.setTransitionTiming(MetaballMenu.TRANSITION_SPRING);
+        View first = mMenu.getChildAt(0);
+        View last = mMenu.getChildAt(3);
+
+        // The same hop there and back, at 60Hz then at 120Hz
+        long settled60 = springHop(last, FRAME_NANOS);
+        long settled120 = springHop(first, FRAME_NANOS / 2);
+
+        // The springs settle early, and the frame rate only changes which frame sees it
+        assertTrue(settled60 < 1000000000L);
+        assertEquals(settled60, settled120, FRAME_NANOS);
+        renderIdle();
+        assertEquals(centerX(first), mCanvas.arg(0, 0), 0.5f);
+    }
+
+    /**
+     * Tap an item with the spring timing and render frames at an interval till the springs settle
+     *
+     * @return
+     *      The time of the last frame
+     */
+    private long springHop(View destination, long nFrameNanos) {
+        mClickedView = null;
+        tap(destination);
+        float selectorRadius = mMenu.getSelectorRadius(mMenu.getSelectedIndex());
+
+        TransitionDriver driver = mMenu.getTransitionDriver();
+        boolean bBounced = false;
+        long time = 0;
+        for(; driver.isRunning(); time += nFrameNanos) {
+            renderFrame(driver, time);
+            if(driver.isRunning())
+                bBounced |= mCanvas.arg(1, 2) > selectorRadius + 0.5f;
+        }
+
+        // The default springs swell the destination circle past the selector before they settle
+        assertTrue(bBounced);
+        assertSame(destination, mClickedView);
+        return time - nFrameNanos;
+    }
+}
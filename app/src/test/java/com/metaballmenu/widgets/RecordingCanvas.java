@@ -0,0 +1,79 @@
+package com.metaballmenu.widgets;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+
+/**
+ * Canvas that records the draw calls of a frame into preallocated arrays instead of drawing, so that recording
+ * does not show up in the allocation counts
+ */
+class RecordingCanvas extends Canvas {
+    static final int CIRCLE = 1;
+    static final int PATH = 2;
+    static final int BITMAP = 3;
+    static final int RECT = 4;
+    static final int VERTICES = 5;
+
+    private static final int MAX_CALLS = 64;
+    private static final int ARGS = 3;
+
+    final int[] mnOps = new int[MAX_CALLS];
+    final float[] mfArgs = new float[MAX_CALLS * ARGS];
+    int mnCount = 0;
+
+    void reset() {
+        mnCount = 0;
+    }
+
+    void copyFrom(RecordingCanvas canvas) {
+        System.arraycopy(canvas.mnOps, 0, mnOps, 0, canvas.mnCount);
+        System.arraycopy(canvas.mfArgs, 0, mfArgs, 0, canvas.mnCount * ARGS);
+        mnCount = canvas.mnCount;
+    }
+
+    float arg(int nCall, int nArg) {
+        return mfArgs[(nCall * ARGS) + nArg];
+    }
+
+    private void record(int nOp, float a0, float a1, float a2) {
+        mnOps[mnCount] = nOp;
+        mfArgs[(mnCount * ARGS)] = a0;
+        mfArgs[(mnCount * ARGS) + 1] = a1;
+        mfArgs[(mnCount * ARGS) + 2] = a2;
+        ++mnCount;
+    }
+
+    @Override
+    public void drawVertices(VertexMode mode, int vertexCount, float[] verts, int vertOffset, float[] texs, int texOffset,
+                             int[] colors, int colorOffset, short[] indices, int indexOffset, int indexCount, Paint paint) {
+        record(VERTICES, vertexCount, indexCount, 0);
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        record(CIRCLE, cx, cy, radius);
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+        record(PATH, 0, 0, 0);
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        record(BITMAP, left, top, 0);
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+        record(BITMAP, dst.left, dst.top, 0);
+    }
+
+    @Override
+    public void drawRect(Rect rect, Paint paint) {
+        record(RECT, rect.left, rect.top, 0);
+    }
+}
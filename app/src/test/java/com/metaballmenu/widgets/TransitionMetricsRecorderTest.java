@@ -0,0 +1,90 @@
+package com.metaballmenu.widgets;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TransitionMetricsRecorderTest {
+
+    private static final long VSYNC_60 = 16666667L;
+
+    @Test
+    public void nothingIsReportedWithoutATransition() throws Exception {
+        TransitionMetricsRecorder recorder = new TransitionMetricsRecorder();
+        recorder.addDrawTime(1000);
+        assertNull(recorder.end(false));
+    }
+
+    @Test
+    public void smoothTransitionDropsNoFrames() throws Exception {
+        TransitionMetricsRecorder recorder = new TransitionMetricsRecorder();
+        recorder.begin();
+
+        // 30 drawn frames, and the final tick which ends the transition
+        for(int nFrame = 0; nFrame <= 30; ++nFrame) {
+            recorder.onFrame(nFrame * VSYNC_60);
+            if(nFrame < 30)
+                recorder.addDrawTime(nFrame + 1);
+        }
+
+        TransitionMetrics metrics = recorder.end(false);
+        assertEquals(30, metrics.getFrameCount());
+        assertEquals(0, metrics.getDroppedFrames(TransitionMetrics.REFRESH_RATE_60));
+        assertTrue(metrics.getDroppedFrames(TransitionMetrics.REFRESH_RATE_120) >= 29);
+        assertFalse(metrics.isCancelled());
+    }
+
+    @Test
+    public void skippedVsyncsAreDropped() throws Exception {
+        TransitionMetricsRecorder recorder = new TransitionMetricsRecorder();
+        recorder.begin();
+
+        // Every other vsync is missed
+        for(int nFrame = 0; nFrame <= 20; nFrame += 2) {
+            recorder.onFrame(nFrame * VSYNC_60);
+            recorder.addDrawTime(10);
+        }
+
+        TransitionMetrics metrics = recorder.end(true);
+        assertEquals(11, metrics.getFrameCount());
+        assertEquals(10, metrics.getDroppedFrames(TransitionMetrics.REFRESH_RATE_60));
+        assertTrue(metrics.isCancelled());
+    }
+
+    @Test
+    public void drawTimePercentiles() throws Exception {
+        TransitionMetricsRecorder recorder = new TransitionMetricsRecorder();
+        recorder.begin();
+
+        // More frames than the initial buffer, in reverse order
+        for(int nFrame = 200; nFrame >= 1; --nFrame)
+            recorder.addDrawTime(nFrame);
+        recorder.addGeometryTime(7);
+        recorder.addCanvasTime(5);
+
+        TransitionMetrics metrics = recorder.end(false);
+        assertEquals(200, metrics.getFrameCount());
+        assertEquals(100, metrics.getDrawTimeP50Nanos());
+        assertEquals(190, metrics.getDrawTimeP95Nanos());
+        assertEquals(200, metrics.getDrawTimeMaxNanos());
+        assertEquals(7, metrics.getGeometryTimeNanos());
+        assertEquals(5, metrics.getCanvasTimeNanos());
+    }
+
+    @Test
+    public void recorderIsReusedForTheNextTransition() throws Exception {
+        TransitionMetricsRecorder recorder = new TransitionMetricsRecorder();
+        recorder.begin();
+        recorder.addDrawTime(500);
+        recorder.end(true);
+
+        recorder.begin();
+        recorder.addDrawTime(3);
+        TransitionMetrics metrics = recorder.end(false);
+        assertEquals(1, metrics.getFrameCount());
+        assertEquals(3, metrics.getDrawTimeMaxNanos());
+    }
+}
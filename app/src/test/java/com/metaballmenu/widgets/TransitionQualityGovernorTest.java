@@ -0,0 +1,109 @@
+package com.metaballmenu.widgets;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TransitionQualityGovernorTest {
+
+    private static final long VSYNC_60 = 16666667L;
+
+    @Test
+    public void onTimeFramesKeepTheFullQuality() throws Exception {
+        TransitionQualityGovernor governor = new TransitionQualityGovernor();
+        long time = runTransition(governor, 0, 100, VSYNC_60);
+        runTransition(governor, time, 100, VSYNC_60);
+        assertEquals(MetaballMenu.QUALITY_FULL, governor.getTier());
+    }
+
+    @Test
+    public void lateFramesStepDownOneTierPerWindow() throws Exception {
+        TransitionQualityGovernor governor = new TransitionQualityGovernor();
+        assertEquals(MetaballMenu.QUALITY_FULL, governor.onTransitionRequested(0));
+
+        // Every other frame dropped: the first window steps down, and the next one starts over
+        long time = 0;
+        int nChanges = 0;
+        for(int nFrame = 0; nFrame <= 3 * TransitionQualityGovernor.WINDOW; ++nFrame, time += 2 * VSYNC_60) {
+            if(governor.onFrame(time))
+                ++nChanges;
+        }
+
+        assertEquals(3, nChanges);
+        assertEquals(MetaballMenu.QUALITY_INSTANT, governor.getTier());
+    }
+
+    @Test
+    public void aSingleSpikeDoesNotStepDown() throws Exception {
+        TransitionQualityGovernor governor = new TransitionQualityGovernor();
+        governor.onTransitionRequested(0);
+
+        long time = 0;
+        for(int nFrame = 0; nFrame < 30; ++nFrame) {
+            assertFalse(governor.onFrame(time));
+            time += (nFrame == 10) ? 4 * VSYNC_60 : VSYNC_60;
+        }
+        assertEquals(MetaballMenu.QUALITY_FULL, governor.getTier());
+    }
+
+    @Test
+    public void qualityIsRecoveredOverSeveralTransitions() throws Exception {
+        TransitionQualityGovernor governor = new TransitionQualityGovernor();
+        long time = runTransition(governor, 0, TransitionQualityGovernor.WINDOW + 1, 3 * VSYNC_60);
+        assertEquals(MetaballMenu.QUALITY_NO_BRIDGE, governor.getTier());
+
+        // Slightly late frames are not good enough to step up, nor bad enough to step down
+        time = runTransition(governor, time, 100, (long) (VSYNC_60 * 1.3f));
+        assertEquals(MetaballMenu.QUALITY_NO_BRIDGE, governor.getTier());
+
+        // The pause between two transitions does not count as a late frame, and the good frames add up
+        int nFrames = (TransitionQualityGovernor.RECOVERY_FRAMES / 2) + 2;
+        time = runTransition(governor, time + 1000000000L, nFrames, VSYNC_60);
+        assertEquals(MetaballMenu.QUALITY_NO_BRIDGE, governor.getTier());
+        runTransition(governor, time + 1000000000L, nFrames, VSYNC_60);
+        assertEquals(MetaballMenu.QUALITY_FULL, governor.getTier());
+    }
+
+    @Test
+    public void instantSelectionIsProbedAfterADelay() throws Exception {
+        TransitionQualityGovernor governor = new TransitionQualityGovernor();
+        long time = runTransition(governor, 0, (3 * TransitionQualityGovernor.WINDOW) + 1, 3 * VSYNC_60);
+        assertEquals(MetaballMenu.QUALITY_INSTANT, governor.getTier());
+
+        assertEquals(MetaballMenu.QUALITY_INSTANT, governor.onTransitionRequested(time + 1000000000L));
+        assertEquals(MetaballMenu.QUALITY_NO_ANTI_ALIAS,
+                governor.onTransitionRequested(time + TransitionQualityGovernor.INSTANT_PROBE_DELAY_NANOS));
+    }
+
+    @Test
+    public void frameBudgetSetsTheThresholds() throws Exception {
+        // 30Hz frames are on time for a 30Hz budget
+        TransitionQualityGovernor governor = new TransitionQualityGovernor();
+        governor.setFrameBudgetNanos(2 * VSYNC_60);
+        runTransition(governor, 0, 100, 2 * VSYNC_60);
+        assertEquals(MetaballMenu.QUALITY_FULL, governor.getTier());
+
+        governor.setFrameBudgetNanos(VSYNC_60 / 2);
+        runTransition(governor, 0, TransitionQualityGovernor.WINDOW + 1, VSYNC_60);
+        assertTrue(governor.getTier() > MetaballMenu.QUALITY_FULL);
+
+        governor.reset();
+        assertEquals(MetaballMenu.QUALITY_FULL, governor.getTier());
+    }
+
+    /**
+     * Run the frames of a transition at a fixed interval
+     *
+     * @return
+     *      The time of the last frame
+     */
+    private static long runTransition(TransitionQualityGovernor governor, long startTime, int nFrames, long interval) {
+        governor.onTransitionRequested(startTime);
+        long time = startTime;
+        for(int nFrame = 0; nFrame < nFrames; ++nFrame, time += interval)
+            governor.onFrame(time);
+        return time - interval;
+    }
+}
@@ -0,0 +1,64 @@
+package com.metaballmenu.geometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for a frame of the multi-blob field: a selector sweeping over a strip of items which all have a
+ * badge. The cost per frame should grow with the number of blobs, not with the number of pairs. Run with
+ * ./gradlew :geometry:jmh and look at the score (ns per frame) and gc.alloc.rate.norm (should be 0)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetaballFieldBenchmark {
+
+    private static final float ITEM_SIZE = 120;
+    private static final float RADIUS = 48;
+
+    /**
+     * The number of items with a badge
+     */
+    @Param({"4", "64", "1024"})
+    public int items;
+
+    private MetaballField field;
+    private int nFrame;
+
+    @Setup
+    public void setup() {
+        field = new MetaballField();
+        field.setMergeGap(RADIUS / 2);
+        field.add(0, 0, RADIUS);
+        for(int nCtr = 0; nCtr < items; ++nCtr)
+            field.add((nCtr * ITEM_SIZE) + (RADIUS * 0.7f), -RADIUS * 0.7f, RADIUS * 0.35f);
+
+        // Warm the buffers up, so that the benchmark measures the frames and not their growth
+        field.computeBridges();
+        nFrame = 0;
+    }
+
+    /**
+     * One frame: the selector moves, and the bridges are computed again
+     */
+    @Benchmark
+    public int frame() {
+        nFrame = (nFrame + 1) % (items * 8);
+        field.set(0, nFrame * (ITEM_SIZE / 8), 0, RADIUS);
+        return field.computeBridges();
+    }
+}
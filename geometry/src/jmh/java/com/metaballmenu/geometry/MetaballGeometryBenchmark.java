@@ -0,0 +1,83 @@
+package com.metaballmenu.geometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the per-frame bridge computation. Run with ./gradlew :geometry:jmh and look at
+ * the score (ns per frame) and gc.alloc.rate.norm (bytes allocated per frame, should be 0)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetaballGeometryBenchmark {
+
+    /**
+     * The number of frames in one simulated transition (500ms at 60Hz)
+     */
+    private static final int FRAMES = 30;
+
+    /**
+     * Distance between the origin and destination centers, in pixels
+     */
+    @Param({"60", "240", "960"})
+    public float distance;
+
+    /**
+     * The selector radius, in pixels
+     */
+    @Param({"8", "48", "160"})
+    public float radius;
+
+    private float[] outline;
+
+    @Setup
+    public void setup() {
+        outline = new float[MetaballGeometry.OUTLINE_SIZE];
+    }
+
+    /**
+     * A single frame half way through the transition
+     */
+    @Benchmark
+    public boolean frame() {
+        return MetaballGeometry.computeOutline(distance / 2, 0, radius / 2, distance, 0, radius / 2, outline);
+    }
+
+    /**
+     * The same frame with the trigonometry of java.lang.Math instead of the lookup tables
+     */
+    @Benchmark
+    public boolean exactFrame() {
+        return MetaballGeometry.computeOutline(distance / 2, 0, radius / 2, distance, 0, radius / 2, outline, 0, null);
+    }
+
+    /**
+     * A complete transition, reported per frame
+     */
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void transition(Blackhole blackhole) {
+        for(int nFrame = 0; nFrame < FRAMES; ++nFrame) {
+            float t = (float) nFrame / FRAMES;
+            blackhole.consume(MetaballGeometry.computeOutline(distance * t, 0, radius - (radius * t),
+                    distance, 0, radius * t, outline));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.metaballmenu.geometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the work of a transition frame in RENDER_MODE_BRIDGE and RENDER_MODE_MESH. The path of the bridge mode
+ * is flattened and tessellated by the renderer after this, on every frame, which a JVM cannot measure: path()
+ * flattens it the way a renderer would (the curves in CURVE_SEGMENT_LENGTH segments, the circles within the
+ * tolerance), without the triangulation. mesh() is the whole CPU side of the mesh mode. The canvas time of both modes on
+ * a device is reported by TransitionMetrics. Run with ./gradlew :geometry:jmh and look at the score (ns per frame)
+ * and gc.alloc.rate.norm (should be 0)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetaballMeshBenchmark {
+
+    /**
+     * The selector radius, in pixels
+     */
+    @Param({"8", "48", "160"})
+    public float radius;
+
+    private float[] outline;
+    private float[] flattened;
+    private MetaballMesh mesh;
+    private int nFrame;
+
+    @Setup
+    public void setup() {
+        outline = new float[MetaballGeometry.OUTLINE_SIZE];
+        flattened = new float[2 * ((2 * (MetaballMesh.MAX_CIRCLE_SEGMENTS + 1)) + (2 * (MetaballMesh.MAX_CURVE_SEGMENTS + 1)))];
+        mesh = new MetaballMesh();
+    }
+
+    /**
+     * RENDER_MODE_BRIDGE: the outline, and the flattening of the path of the circles and the bridge
+     */
+    @Benchmark
+    public float path() {
+        float t = nextFrame();
+        float originX = radius * 6 * t;
+        float originRadius = radius - (radius * t);
+        float destinationRadius = radius * t;
+        boolean bBridge = MetaballGeometry.computeOutline(originX, 0, originRadius, radius * 6, 0, destinationRadius, outline);
+
+        int nCount = flattenCircle(0, originX, 0, originRadius);
+        nCount = flattenCircle(nCount, radius * 6, 0, destinationRadius);
+        if(bBridge) {
+            nCount = flattenCurve(nCount, MetaballGeometry.P1A, MetaballGeometry.C1, MetaballGeometry.C2, MetaballGeometry.P2A);
+            nCount = flattenCurve(nCount, MetaballGeometry.P2B, MetaballGeometry.C3, MetaballGeometry.C4, MetaballGeometry.P1B);
+        }
+        return flattened[nCount - 1];
+    }
+
+    /**
+     * RENDER_MODE_MESH: the outline, and the mesh of the circles and the bridge
+     */
+    @Benchmark
+    public int mesh() {
+        float t = nextFrame();
+        float originX = radius * 6 * t;
+        float originRadius = radius - (radius * t);
+        float destinationRadius = radius * t;
+        boolean bBridge = MetaballGeometry.computeOutline(originX, 0, originRadius, radius * 6, 0, destinationRadius, outline);
+
+        mesh.clear();
+        mesh.addCircle(originX, 0, originRadius);
+        mesh.addCircle(radius * 6, 0, destinationRadius);
+        if(bBridge)
+            mesh.addBridge(outline, 0);
+        return mesh.getIndexCount();
+    }
+
+    private float nextFrame() {
+        nFrame = (nFrame + 1) % 30;
+        return (nFrame + 0.5f) / 30.0f;
+    }
+
+    private int flattenCircle(int nCount, float x, float y, float r) {
+        int nSegments = MetaballMesh.circleSegments(r, MetaballMesh.DEFAULT_TOLERANCE);
+        for(int nCtr = 0; nCtr <= nSegments; ++nCtr) {
+            double angle = (2 * Math.PI * nCtr) / nSegments;
+            flattened[nCount++] = x + (float) (r * Math.cos(angle));
+            flattened[nCount++] = y + (float) (r * Math.sin(angle));
+        }
+        return nCount;
+    }
+
+    private int flattenCurve(int nCount, int nP0, int nP1, int nP2, int nP3) {
+        for(int nCtr = 0; nCtr <= MetaballMesh.MAX_CURVE_SEGMENTS; ++nCtr) {
+            float t = (float) nCtr / MetaballMesh.MAX_CURVE_SEGMENTS;
+            float u = 1 - t;
+            flattened[nCount++] = (u * u * u * outline[nP0]) + (3 * u * u * t * outline[nP1]) + (3 * u * t * t * outline[nP2]) + (t * t * t * outline[nP3]);
+            flattened[nCount++] = (u * u * u * outline[nP0 + 1]) + (3 * u * u * t * outline[nP1 + 1]) + (3 * u * t * t * outline[nP2 + 1]) + (t * t * t * outline[nP3 + 1]);
+        }
+        return nCount;
+    }
+}
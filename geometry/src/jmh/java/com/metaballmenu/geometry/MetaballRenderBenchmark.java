@@ -0,0 +1,130 @@
+package com.metaballmenu.geometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the CPU work of a transition frame in the render modes of MetaballMenu, for a 1080x300 pixel menu:
+ * the bezier bridge between two circles, the sampled metaball field rasterized into the pixels of the low
+ * resolution bitmap, and the incremental contour of the same field. The upload of the bitmap and the drawing
+ * itself are not included. Run with ./gradlew :geometry:jmh and look at the score (ns per frame)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetaballRenderBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 300;
+    private static final int SAMPLE_SIZE = 4;
+    private static final float RADIUS = 120;
+
+    /**
+     * The number of metaballs on top of the two circles of the transition (badges)
+     */
+    @Param({"0", "4", "16"})
+    public int badges;
+
+    private float[] outline;
+    private MetaballField field;
+    private MetaballDensityGrid grid;
+    private int[] pixels;
+    private int nColumns;
+    private int nRows;
+    private MarchingSquaresContour contour;
+    private MarchingSquaresContour.PathSink sink;
+    private int nFrame;
+
+    @Setup
+    public void setup() {
+        outline = new float[MetaballGeometry.OUTLINE_SIZE];
+
+        field = new MetaballField();
+        field.setMergeGap(RADIUS / 2);
+        field.add(400, HEIGHT / 2, RADIUS / 2);
+        field.add(700, HEIGHT / 2, RADIUS / 2);
+        for(int nCtr = 0; nCtr < badges; ++nCtr)
+            field.add(60 + (nCtr * (WIDTH / Math.max(1, badges))), HEIGHT / 4, RADIUS * 0.35f);
+
+        nColumns = WIDTH / SAMPLE_SIZE;
+        nRows = HEIGHT / SAMPLE_SIZE;
+        grid = new MetaballDensityGrid();
+        pixels = new int[nColumns * nRows];
+
+        contour = new MarchingSquaresContour();
+        contour.setBounds(0, 0, nColumns + 1, nRows + 1, SAMPLE_SIZE);
+        contour.setCount(field.getCount());
+        for(int nCtr = 0; nCtr < field.getCount(); ++nCtr)
+            contour.setCircle(nCtr, field.getX(nCtr), field.getY(nCtr), field.getRadius(nCtr));
+        contour.update();
+        sink = new MarchingSquaresContour.PathSink() {
+            float sum;
+
+            @Override
+            public void moveTo(float x, float y) {
+                sum += x + y;
+            }
+
+            @Override
+            public void lineTo(float x, float y) {
+                sum += x - y;
+            }
+
+            @Override
+            public void close() {
+                sum = 0;
+            }
+        };
+    }
+
+    /**
+     * RENDER_MODE_BRIDGE: the bridges between the circles which merge
+     */
+    @Benchmark
+    public int bridge() {
+        if(badges == 0)
+            return MetaballGeometry.computeOutline(400, HEIGHT / 2, RADIUS / 2, 700, HEIGHT / 2, RADIUS / 2, outline) ? 1 : 0;
+
+        return field.computeBridges();
+    }
+
+    /**
+     * RENDER_MODE_FIELD: the field sampled and rasterized
+     */
+    @Benchmark
+    public int[] field() {
+        grid.setBounds(SAMPLE_SIZE / 2.0f, SAMPLE_SIZE / 2.0f, nColumns, nRows, SAMPLE_SIZE);
+        for(int nCtr = 0; nCtr < field.getCount(); ++nCtr)
+            grid.addBlob(field.getX(nCtr), field.getY(nCtr), field.getRadius(nCtr));
+        grid.rasterize(pixels, 0xFFFFFFFF);
+        return pixels;
+    }
+
+    /**
+     * RENDER_MODE_CONTOUR: the two transition circles move, the samples around them are updated and the contours
+     * traced
+     */
+    @Benchmark
+    public int contour() {
+        nFrame = (nFrame + 1) % 30;
+        float t = nFrame / 30.0f;
+        contour.setCircle(0, 400 + (300 * t), HEIGHT / 2, (RADIUS / 2) * (1 - t));
+        contour.setCircle(1, 700, HEIGHT / 2, (RADIUS / 2) * t);
+        contour.update();
+        return contour.trace(sink);
+    }
+}
@@ -0,0 +1,590 @@
+package com.metaballmenu.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Extracts the outline of a metaball field (the falloff of {@link MetaballDensityGrid}) with marching squares, and
+ * traces it as closed polygons on a {@link PathSink}.
+ *
+ * The work per frame is bounded by what moved. The field samples and the cell cases are kept from frame to frame:
+ * when a circle changes, its old falloff is taken out and the new one added over their bounding boxes only, and
+ * only the cells of those boxes get their case evaluated again. The circles which did not change cost nothing.
+ * The samples are rebuilt from scratch every {@link #REBUILD_INTERVAL} updates (and when the circles are added or
+ * removed) so that rounding errors do not pile up.
+ *
+ * The samples on the border of the grid are always outside, so that all the contours are closed. The buffers are
+ * reused as long as the grid and the number of circles do not grow, so an update does not allocate.
+ *
+ * @author Melvin Lobo
+ */
+public final class MarchingSquaresContour {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The number of incremental updates after which the samples are rebuilt
+     */
+    public static final int REBUILD_INTERVAL = 256;
+
+    /**
+     * The edges of a cell
+     */
+    private static final int TOP = 0;
+    private static final int RIGHT = 1;
+    private static final int BOTTOM = 2;
+    private static final int LEFT = 3;
+
+    /**
+     * The corners of a cell, as bits of its case
+     */
+    private static final int TOP_LEFT = 8;
+    private static final int TOP_RIGHT = 4;
+    private static final int BOTTOM_RIGHT = 2;
+    private static final int BOTTOM_LEFT = 1;
+    private static final int ALL_INSIDE = 15;
+
+    /**
+     * The cases where two opposite corners are inside, and bit set on a case when the center of such a cell is
+     * inside (the two inside corners are connected)
+     */
+    private static final int SADDLE_TOP_LEFT = TOP_LEFT | BOTTOM_RIGHT;
+    private static final int SADDLE_TOP_RIGHT = TOP_RIGHT | BOTTOM_LEFT;
+    private static final int CONNECTED = 16;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * The sample grid (@see MetaballDensityGrid)
+     */
+    private float mfOriginX = 0.0f;
+    private float mfOriginY = 0.0f;
+    private float mfCellSize = 1.0f;
+    private int mnColumns = 0;
+    private int mnRows = 0;
+    private float[] mfValues = new float[0];
+
+    /**
+     * The case of every cell, row by row. There is one cell less than samples in each direction
+     */
+    private byte[] mnCases = new byte[0];
+
+    /**
+     * The circles, as set for the next update and as the samples hold them
+     */
+    private int mnCount = 0;
+    private float[] mfX = new float[INITIAL_CAPACITY];
+    private float[] mfY = new float[INITIAL_CAPACITY];
+    private float[] mfRadius = new float[INITIAL_CAPACITY];
+    private float[] mfAppliedX = new float[INITIAL_CAPACITY];
+    private float[] mfAppliedY = new float[INITIAL_CAPACITY];
+    private float[] mfAppliedRadius = new float[INITIAL_CAPACITY];
+
+    /**
+     * Indicates if the samples have to be rebuilt, and the number of incremental updates since the last rebuild
+     */
+    private boolean mbRebuild = true;
+    private int mnUpdates = 0;
+
+    /**
+     * The sample boxes (first column, first row, last column, last row) to evaluate again, and their number. A
+     * circle which changed has two: where it was and where it is
+     */
+    private int[] mnDirtyBoxes = new int[INITIAL_CAPACITY * 8];
+    private int mnDirtyBoxCount = 0;
+
+    /**
+     * The number of cells evaluated in the last update
+     */
+    private int mnUpdatedCells = 0;
+
+    /**
+     * The traced edges: the trace stamp of each cell, and the entry edges already traced in the current trace
+     */
+    private int[] mnVisitStamps = new int[0];
+    private byte[] mnVisitedEdges = new byte[0];
+    private int mnTraceStamp = 0;
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Set the sample grid. The samples are rebuilt on the next update
+     *
+     * @param originX
+     *      The x co-ordinate of the first sample
+     * @param originY
+     *      The y co-ordinate of the first sample
+     * @param nColumns
+     *      The number of samples in a row
+     * @param nRows
+     *      The number of rows
+     * @param cellSize
+     *      The distance between two samples
+     *
+     * @author Melvin Lobo
+     */
+    public void setBounds(float originX, float originY, int nColumns, int nRows, float cellSize) {
+        if((nColumns < 0) || (nRows < 0) || (cellSize <= 0.0f))
+            throw new IllegalArgumentException("Invalid grid " + nColumns + "x" + nRows + " of " + cellSize);
+
+        if((originX == mfOriginX) && (originY == mfOriginY) && (nColumns == mnColumns) && (nRows == mnRows) && (cellSize == mfCellSize))
+            return;
+
+        mfOriginX = originX;
+        mfOriginY = originY;
+        mfCellSize = cellSize;
+        mnColumns = nColumns;
+        mnRows = nRows;
+
+        if(mfValues.length < nColumns * nRows)
+            mfValues = new float[nColumns * nRows];
+
+        int nCells = Math.max(0, nColumns - 1) * Math.max(0, nRows - 1);
+        if(mnCases.length < nCells) {
+            mnCases = new byte[nCells];
+            mnVisitStamps = new int[nCells];
+            mnVisitedEdges = new byte[nCells];
+        }
+
+        mbRebuild = true;
+    }
+
+    /**
+     * Set the number of circles. Changing it rebuilds the samples on the next update
+     *
+     * @author Melvin Lobo
+     */
+    public void setCount(int nCount) {
+        if(nCount == mnCount)
+            return;
+
+        if(mfX.length < nCount) {
+            int nCapacity = Math.max(nCount, mfX.length * 2);
+            mfX = Arrays.copyOf(mfX, nCapacity);
+            mfY = Arrays.copyOf(mfY, nCapacity);
+            mfRadius = Arrays.copyOf(mfRadius, nCapacity);
+            mfAppliedX = new float[nCapacity];
+            mfAppliedY = new float[nCapacity];
+            mfAppliedRadius = new float[nCapacity];
+            mnDirtyBoxes = new int[nCapacity * 8];
+        }
+
+        for(int nCtr = mnCount; nCtr < nCount; ++nCtr)
+            mfRadius[nCtr] = 0.0f;
+
+        mnCount = nCount;
+        mbRebuild = true;
+    }
+
+    /**
+     * Move or resize a circle. The samples are updated on the next update
+     *
+     * @author Melvin Lobo
+     */
+    public void setCircle(int nIndex, float x, float y, float radius) {
+        mfX[nIndex] = x;
+        mfY[nIndex] = y;
+        mfRadius[nIndex] = Math.max(0.0f, radius);
+    }
+
+    /**
+     * Apply the changes of the circles to the samples and the cells
+     *
+     * @author Melvin Lobo
+     */
+    public void update() {
+        mnUpdatedCells = 0;
+        if((mnColumns < 2) || (mnRows < 2))
+            return;
+
+        if(mbRebuild || (mnUpdates >= REBUILD_INTERVAL)) {
+            rebuild();
+            return;
+        }
+
+        mnDirtyBoxCount = 0;
+        for(int nCtr = 0; nCtr < mnCount; ++nCtr) {
+            if((mfX[nCtr] == mfAppliedX[nCtr]) && (mfY[nCtr] == mfAppliedY[nCtr]) && (mfRadius[nCtr] == mfAppliedRadius[nCtr]))
+                continue;
+
+            addFalloff(mfAppliedX[nCtr], mfAppliedY[nCtr], mfAppliedRadius[nCtr], -1.0f);
+            addFalloff(mfX[nCtr], mfY[nCtr], mfRadius[nCtr], 1.0f);
+            mfAppliedX[nCtr] = mfX[nCtr];
+            mfAppliedY[nCtr] = mfY[nCtr];
+            mfAppliedRadius[nCtr] = mfRadius[nCtr];
+        }
+
+        // The cases are evaluated once all the samples are up to date, as the boxes may overlap
+        for(int nBox = 0; nBox < mnDirtyBoxCount; ++nBox) {
+            int nOffset = nBox * 4;
+            updateCases(mnDirtyBoxes[nOffset] - 1, mnDirtyBoxes[nOffset + 1] - 1, mnDirtyBoxes[nOffset + 2], mnDirtyBoxes[nOffset + 3]);
+        }
+
+        ++mnUpdates;
+    }
+
+    /**
+     * Trace the contours as closed polygons
+     *
+     * @param sink
+     *      The path to trace on. It is not reset first
+     *
+     * @return
+     *      The number of contours
+     *
+     * @author Melvin Lobo
+     */
+    public int trace(PathSink sink) {
+        if((mnColumns < 2) || (mnRows < 2) || (mnCount == 0))
+            return 0;
+
+        // The contours lie within the reach of the circles
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE, right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+        for(int nCtr = 0; nCtr < mnCount; ++nCtr) {
+            float reach = mfAppliedRadius[nCtr] * MetaballDensityGrid.INFLUENCE_RATIO;
+            if(reach <= 0.0f)
+                continue;
+
+            left = Math.min(left, mfAppliedX[nCtr] - reach);
+            top = Math.min(top, mfAppliedY[nCtr] - reach);
+            right = Math.max(right, mfAppliedX[nCtr] + reach);
+            bottom = Math.max(bottom, mfAppliedY[nCtr] + reach);
+        }
+        if(left > right)
+            return 0;
+
+        int nFirstColumn = Math.max(0, column(left) - 1);
+        int nLastColumn = Math.min(mnColumns - 2, column(right) + 1);
+        int nFirstRow = Math.max(0, row(top) - 1);
+        int nLastRow = Math.min(mnRows - 2, row(bottom) + 1);
+
+        if(++mnTraceStamp == 0)
+            Arrays.fill(mnVisitStamps, 0);
+
+        int nContours = 0;
+        int nCellColumns = mnColumns - 1;
+        for(int nRow = nFirstRow; nRow <= nLastRow; ++nRow) {
+            for(int nColumn = nFirstColumn; nColumn <= nLastColumn; ++nColumn) {
+                int nCell = (nRow * nCellColumns) + nColumn;
+                int nCase = mnCases[nCell] & ALL_INSIDE;
+                if((nCase == 0) || (nCase == ALL_INSIDE))
+                    continue;
+
+                for(int nEdge = TOP; nEdge <= LEFT; ++nEdge) {
+                    if(isEntry(nCase, nEdge) && !isVisited(nCell, nEdge)) {
+                        traceContour(sink, nColumn, nRow, nEdge);
+                        ++nContours;
+                    }
+                }
+            }
+        }
+
+        return nContours;
+    }
+
+    /**
+     * Getters
+     *
+     * @author Melvin Lobo
+     */
+    public float valueAt(int nColumn, int nRow) {
+        return mfValues[(nRow * mnColumns) + nColumn];
+    }
+
+    /**
+     * Get the number of cells whose case was evaluated in the last update
+     *
+     * @author Melvin Lobo
+     */
+    public int getUpdatedCellCount() {
+        return mnUpdatedCells;
+    }
+
+    /**
+     * Rebuild all the samples and the cells
+     *
+     * @author Melvin Lobo
+     */
+    private void rebuild() {
+        Arrays.fill(mfValues, 0, mnColumns * mnRows, 0.0f);
+        mnDirtyBoxCount = 0;
+        for(int nCtr = 0; nCtr < mnCount; ++nCtr) {
+            addFalloff(mfX[nCtr], mfY[nCtr], mfRadius[nCtr], 1.0f);
+            mfAppliedX[nCtr] = mfX[nCtr];
+            mfAppliedY[nCtr] = mfY[nCtr];
+            mfAppliedRadius[nCtr] = mfRadius[nCtr];
+        }
+
+        updateCases(0, 0, mnColumns - 2, mnRows - 2);
+        mnDirtyBoxCount = 0;
+        mbRebuild = false;
+        mnUpdates = 0;
+    }
+
+    /**
+     * Add the falloff of a circle to the samples within its reach, and record the box of the samples
+     *
+     * @param sign
+     *      1 to add the circle, -1 to take it out
+     *
+     * @author Melvin Lobo
+     */
+    private void addFalloff(float x, float y, float radius, float sign) {
+        if(radius <= 0.0f)
+            return;
+
+        float reach = radius * MetaballDensityGrid.INFLUENCE_RATIO;
+        float inverseReachSquared = 1.0f / (reach * reach);
+
+        int nFirstColumn = Math.max(0, (int) Math.ceil((x - reach - mfOriginX) / mfCellSize));
+        int nLastColumn = Math.min(mnColumns - 1, (int) Math.floor((x + reach - mfOriginX) / mfCellSize));
+        int nFirstRow = Math.max(0, (int) Math.ceil((y - reach - mfOriginY) / mfCellSize));
+        int nLastRow = Math.min(mnRows - 1, (int) Math.floor((y + reach - mfOriginY) / mfCellSize));
+        if((nFirstColumn > nLastColumn) || (nFirstRow > nLastRow))
+            return;
+
+        for(int nRow = nFirstRow; nRow <= nLastRow; ++nRow) {
+            float dy = mfOriginY + (nRow * mfCellSize) - y;
+            float dySquared = dy * dy;
+            int nRowStart = nRow * mnColumns;
+            for(int nColumn = nFirstColumn; nColumn <= nLastColumn; ++nColumn) {
+                float dx = mfOriginX + (nColumn * mfCellSize) - x;
+                float falloff = 1.0f - (((dx * dx) + dySquared) * inverseReachSquared);
+                if(falloff > 0.0f)
+                    mfValues[nRowStart + nColumn] += sign * falloff * falloff;
+            }
+        }
+
+        int nOffset = mnDirtyBoxCount * 4;
+        mnDirtyBoxes[nOffset] = nFirstColumn;
+        mnDirtyBoxes[nOffset + 1] = nFirstRow;
+        mnDirtyBoxes[nOffset + 2] = nLastColumn;
+        mnDirtyBoxes[nOffset + 3] = nLastRow;
+        ++mnDirtyBoxCount;
+    }
+
+    /**
+     * Evaluate the case of the cells of a box (the cells around the samples of a box start one column and one row
+     * before them)
+     *
+     * @author Melvin Lobo
+     */
+    private void updateCases(int nFirstColumn, int nFirstRow, int nLastColumn, int nLastRow) {
+        nFirstColumn = Math.max(0, nFirstColumn);
+        nFirstRow = Math.max(0, nFirstRow);
+        nLastColumn = Math.min(mnColumns - 2, nLastColumn);
+        nLastRow = Math.min(mnRows - 2, nLastRow);
+
+        int nCellColumns = mnColumns - 1;
+        for(int nRow = nFirstRow; nRow <= nLastRow; ++nRow) {
+            for(int nColumn = nFirstColumn; nColumn <= nLastColumn; ++nColumn) {
+                int nCase = (isInside(nColumn, nRow) ? TOP_LEFT : 0)
+                        | (isInside(nColumn + 1, nRow) ? TOP_RIGHT : 0)
+                        | (isInside(nColumn + 1, nRow + 1) ? BOTTOM_RIGHT : 0)
+                        | (isInside(nColumn, nRow + 1) ? BOTTOM_LEFT : 0);
+
+                // Saddles: the center (the mean of the corners) tells if the inside corners are connected
+                if((nCase == SADDLE_TOP_LEFT) || (nCase == SADDLE_TOP_RIGHT)) {
+                    float center = (valueAt(nColumn, nRow) + valueAt(nColumn + 1, nRow)
+                            + valueAt(nColumn + 1, nRow + 1) + valueAt(nColumn, nRow + 1)) / 4.0f;
+                    if(center >= MetaballDensityGrid.THRESHOLD)
+                        nCase |= CONNECTED;
+                }
+
+                mnCases[(nRow * nCellColumns) + nColumn] = (byte) nCase;
+            }
+        }
+
+        mnUpdatedCells += Math.max(0, nLastColumn - nFirstColumn + 1) * Math.max(0, nLastRow - nFirstRow + 1);
+    }
+
+    /**
+     * Check if a sample is inside the surface. The border samples are always outside
+     *
+     * @author Melvin Lobo
+     */
+    private boolean isInside(int nColumn, int nRow) {
+        if((nColumn == 0) || (nRow == 0) || (nColumn == mnColumns - 1) || (nRow == mnRows - 1))
+            return false;
+
+        return mfValues[(nRow * mnColumns) + nColumn] >= MetaballDensityGrid.THRESHOLD;
+    }
+
+    /**
+     * Trace one contour, starting where it enters a cell
+     *
+     * @author Melvin Lobo
+     */
+    private void traceContour(PathSink sink, int nStartColumn, int nStartRow, int nStartEdge) {
+        int nCellColumns = mnColumns - 1;
+        int nColumn = nStartColumn;
+        int nRow = nStartRow;
+        int nEdge = nStartEdge;
+
+        emitEdgePoint(sink, nColumn, nRow, nEdge, true);
+        while(true) {
+            int nCell = (nRow * nCellColumns) + nColumn;
+            markVisited(nCell, nEdge);
+            int nExit = exitEdge(mnCases[nCell], nEdge);
+
+            // Move to the cell across the exit edge, entering it through the opposite edge
+            switch(nExit) {
+                case TOP:
+                    --nRow;
+                    break;
+                case RIGHT:
+                    ++nColumn;
+                    break;
+                case BOTTOM:
+                    ++nRow;
+                    break;
+                default:
+                    --nColumn;
+                    break;
+            }
+            nEdge = (nExit + 2) % 4;
+
+            if((nColumn == nStartColumn) && (nRow == nStartRow) && (nEdge == nStartEdge))
+                break;
+
+            emitEdgePoint(sink, nColumn, nRow, nEdge, false);
+        }
+
+        sink.close();
+    }
+
+    /**
+     * Emit the point where the surface crosses an edge of a cell, interpolated between the two samples of the edge
+     *
+     * @author Melvin Lobo
+     */
+    private void emitEdgePoint(PathSink sink, int nColumn, int nRow, int nEdge, boolean bMove) {
+        int nColumnA, nRowA, nColumnB, nRowB;
+        switch(nEdge) {
+            case TOP:
+                nColumnA = nColumn; nRowA = nRow; nColumnB = nColumn + 1; nRowB = nRow;
+                break;
+            case RIGHT:
+                nColumnA = nColumn + 1; nRowA = nRow; nColumnB = nColumn + 1; nRowB = nRow + 1;
+                break;
+            case BOTTOM:
+                nColumnA = nColumn; nRowA = nRow + 1; nColumnB = nColumn + 1; nRowB = nRow + 1;
+                break;
+            default:
+                nColumnA = nColumn; nRowA = nRow; nColumnB = nColumn; nRowB = nRow + 1;
+                break;
+        }
+
+        float valueA = isInside(nColumnA, nRowA) ? valueAt(nColumnA, nRowA) : Math.min(valueAt(nColumnA, nRowA), MetaballDensityGrid.THRESHOLD);
+        float valueB = isInside(nColumnB, nRowB) ? valueAt(nColumnB, nRowB) : Math.min(valueAt(nColumnB, nRowB), MetaballDensityGrid.THRESHOLD);
+        float t = (valueA == valueB) ? 0.5f : Math.max(0.0f, Math.min(1.0f, (MetaballDensityGrid.THRESHOLD - valueA) / (valueB - valueA)));
+
+        float x = mfOriginX + ((nColumnA + ((nColumnB - nColumnA) * t)) * mfCellSize);
+        float y = mfOriginY + ((nRowA + ((nRowB - nRowA) * t)) * mfCellSize);
+        if(bMove)
+            sink.moveTo(x, y);
+        else
+            sink.lineTo(x, y);
+    }
+
+    /**
+     * Check if the contour enters a cell through an edge. The contours are traced with the inside on their right
+     * (in screen co-ordinates), so a contour enters through an edge whose inside corner is on its right going in
+     *
+     * @author Melvin Lobo
+     */
+    private static boolean isEntry(int nCase, int nEdge) {
+        switch(nEdge) {
+            case TOP:
+                return ((nCase & TOP_LEFT) != 0) && ((nCase & TOP_RIGHT) == 0);
+            case RIGHT:
+                return ((nCase & TOP_RIGHT) != 0) && ((nCase & BOTTOM_RIGHT) == 0);
+            case BOTTOM:
+                return ((nCase & BOTTOM_RIGHT) != 0) && ((nCase & BOTTOM_LEFT) == 0);
+            default:
+                return ((nCase & BOTTOM_LEFT) != 0) && ((nCase & TOP_LEFT) == 0);
+        }
+    }
+
+    /**
+     * Get the edge through which a contour leaves a cell
+     *
+     * @param nCellCase
+     *      The case of the cell, with the CONNECTED bit
+     * @param nEntry
+     *      The edge the contour entered through
+     *
+     * @author Melvin Lobo
+     */
+    private static int exitEdge(int nCellCase, int nEntry) {
+        int nCase = nCellCase & ALL_INSIDE;
+        boolean bConnected = (nCellCase & CONNECTED) != 0;
+
+        // Saddles: connected, the contours cut off the outside corners. Otherwise they go around the inside corners
+        if(nCase == SADDLE_TOP_LEFT) {
+            if(nEntry == TOP)
+                return bConnected ? RIGHT : LEFT;
+            return bConnected ? LEFT : RIGHT;
+        }
+        if(nCase == SADDLE_TOP_RIGHT) {
+            if(nEntry == RIGHT)
+                return bConnected ? BOTTOM : TOP;
+            return bConnected ? TOP : BOTTOM;
+        }
+
+        // A single exit: the edge whose inside corner is on the right going out
+        if(((nCase & TOP_RIGHT) != 0) && ((nCase & TOP_LEFT) == 0))
+            return TOP;
+        if(((nCase & BOTTOM_RIGHT) != 0) && ((nCase & TOP_RIGHT) == 0))
+            return RIGHT;
+        if(((nCase & BOTTOM_LEFT) != 0) && ((nCase & BOTTOM_RIGHT) == 0))
+            return BOTTOM;
+        return LEFT;
+    }
+
+    /**
+     * Record the traced entries of the cells in the current trace
+     *
+     * @author Melvin Lobo
+     */
+    private boolean isVisited(int nCell, int nEdge) {
+        return (mnVisitStamps[nCell] == mnTraceStamp) && ((mnVisitedEdges[nCell] & (1 << nEdge)) != 0);
+    }
+
+    private void markVisited(int nCell, int nEdge) {
+        if(mnVisitStamps[nCell] != mnTraceStamp) {
+            mnVisitStamps[nCell] = mnTraceStamp;
+            mnVisitedEdges[nCell] = 0;
+        }
+        mnVisitedEdges[nCell] |= (1 << nEdge);
+    }
+
+    private int column(float x) {
+        return (int) Math.floor((x - mfOriginX) / mfCellSize);
+    }
+
+    private int row(float y) {
+        return (int) Math.floor((y - mfOriginY) / mfCellSize);
+    }
+
+    //////////////////////////////////////// INTERFACES ////////////////////////////////////////////
+    /**
+     * The path the contours are traced on, so that this class does not depend on android.graphics.Path
+     *
+     * @author Melvin Lobo
+     */
+    public interface PathSink {
+
+        /**
+         * Start a contour
+         */
+        void moveTo(float x, float y);
+
+        /**
+         * Add a point to the contour
+         */
+        void lineTo(float x, float y);
+
+        /**
+         * Close the contour
+         */
+        void close();
+    }
+}
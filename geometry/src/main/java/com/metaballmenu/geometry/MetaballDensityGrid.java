@@ -0,0 +1,185 @@
+package com.metaballmenu.geometry;
+
+import java.util.Arrays;
+
+/**
+ * A true metaball field sampled on a grid: every circle adds a falloff around its center, and the surface is where
+ * the sum crosses {@link #THRESHOLD}. Unlike the bridges of {@link MetaballGeometry}, any number of circles merge
+ * the way they would as blobs, and there are no seams at small radii.
+ *
+ * The falloff of a circle of radius r is (1 - d^2 / R^2)^2 within R = {@link #INFLUENCE_RATIO} * r of its center, and
+ * 0 beyond, so a circle only touches the samples of its bounding box. The threshold puts the surface of a lone
+ * circle on its radius.
+ *
+ * The sample buffers are reused as long as the grid does not grow, so a frame does not allocate.
+ *
+ * @author Melvin Lobo
+ */
+public final class MetaballDensityGrid {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The reach of a circle's falloff, relative to its radius
+     */
+    public static final float INFLUENCE_RATIO = 2.0f;
+
+    /**
+     * The field value on the surface: the falloff of a lone circle at its radius
+     */
+    public static final float THRESHOLD = (1.0f - (1.0f / (INFLUENCE_RATIO * INFLUENCE_RATIO))) * (1.0f - (1.0f / (INFLUENCE_RATIO * INFLUENCE_RATIO)));
+
+    /**
+     * The grid: the position of the first sample, the distance between two samples, and the number of samples
+     */
+    private float mfOriginX = 0.0f;
+    private float mfOriginY = 0.0f;
+    private float mfCellSize = 1.0f;
+    private int mnColumns = 0;
+    private int mnRows = 0;
+
+    /**
+     * The field values, row by row
+     */
+    private float[] mfValues = new float[0];
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Set the area covered by the grid, and clear it
+     *
+     * @param originX
+     *      The x co-ordinate of the first sample
+     * @param originY
+     *      The y co-ordinate of the first sample
+     * @param nColumns
+     *      The number of samples in a row
+     * @param nRows
+     *      The number of rows
+     * @param cellSize
+     *      The distance between two samples
+     *
+     * @author Melvin Lobo
+     */
+    public void setBounds(float originX, float originY, int nColumns, int nRows, float cellSize) {
+        if((nColumns < 0) || (nRows < 0) || (cellSize <= 0.0f))
+            throw new IllegalArgumentException("Invalid grid " + nColumns + "x" + nRows + " of " + cellSize);
+
+        mfOriginX = originX;
+        mfOriginY = originY;
+        mfCellSize = cellSize;
+        mnColumns = nColumns;
+        mnRows = nRows;
+        if(mfValues.length < nColumns * nRows)
+            mfValues = new float[nColumns * nRows];
+
+        clear();
+    }
+
+    /**
+     * Remove all the circles
+     *
+     * @author Melvin Lobo
+     */
+    public void clear() {
+        Arrays.fill(mfValues, 0, mnColumns * mnRows, 0.0f);
+    }
+
+    /**
+     * Add the falloff of a circle to the samples within its reach
+     *
+     * @author Melvin Lobo
+     */
+    public void addBlob(float x, float y, float radius) {
+        if(radius <= 0.0f)
+            return;
+
+        float reach = radius * INFLUENCE_RATIO;
+        float inverseReachSquared = 1.0f / (reach * reach);
+
+        int nFirstColumn = Math.max(0, (int) Math.ceil((x - reach - mfOriginX) / mfCellSize));
+        int nLastColumn = Math.min(mnColumns - 1, (int) Math.floor((x + reach - mfOriginX) / mfCellSize));
+        int nFirstRow = Math.max(0, (int) Math.ceil((y - reach - mfOriginY) / mfCellSize));
+        int nLastRow = Math.min(mnRows - 1, (int) Math.floor((y + reach - mfOriginY) / mfCellSize));
+
+        for(int nRow = nFirstRow; nRow <= nLastRow; ++nRow) {
+            float dy = mfOriginY + (nRow * mfCellSize) - y;
+            float dySquared = dy * dy;
+            int nRowStart = nRow * mnColumns;
+            for(int nColumn = nFirstColumn; nColumn <= nLastColumn; ++nColumn) {
+                float dx = mfOriginX + (nColumn * mfCellSize) - x;
+                float falloff = 1.0f - (((dx * dx) + dySquared) * inverseReachSquared);
+                if(falloff > 0.0f)
+                    mfValues[nRowStart + nColumn] += falloff * falloff;
+            }
+        }
+    }
+
+    /**
+     * Getters
+     *
+     * @author Melvin Lobo
+     */
+    public float valueAt(int nColumn, int nRow) {
+        return mfValues[(nRow * mnColumns) + nColumn];
+    }
+
+    public int getColumns() {
+        return mnColumns;
+    }
+
+    public int getRows() {
+        return mnRows;
+    }
+
+    public float getCellSize() {
+        return mfCellSize;
+    }
+
+    public float getOriginX() {
+        return mfOriginX;
+    }
+
+    public float getOriginY() {
+        return mfOriginY;
+    }
+
+    /**
+     * Rasterize the surface, one pixel per sample. The coverage of a pixel is its distance to the surface in samples
+     * (the distance to the threshold over the local gradient of the field), so the edges are anti-aliased
+     *
+     * @param pixels
+     *      The ARGB pixels, row by row. Must hold at least columns * rows pixels
+     * @param nColor
+     *      The ARGB color of the surface
+     *
+     * @author Melvin Lobo
+     */
+    public void rasterize(int[] pixels, int nColor) {
+        int nAlpha = nColor >>> 24;
+        int nRgb = nColor & 0x00FFFFFF;
+
+        for(int nRow = 0; nRow < mnRows; ++nRow) {
+            int nRowStart = nRow * mnColumns;
+            for(int nColumn = 0; nColumn < mnColumns; ++nColumn) {
+                int nIndex = nRowStart + nColumn;
+                float value = mfValues[nIndex];
+                if(value <= 0.0f) {
+                    pixels[nIndex] = 0;
+                    continue;
+                }
+
+                // Central differences, one sided on the borders
+                float gx = mfValues[nRowStart + Math.min(nColumn + 1, mnColumns - 1)] - mfValues[nRowStart + Math.max(nColumn - 1, 0)];
+                float gy = mfValues[(Math.min(nRow + 1, mnRows - 1) * mnColumns) + nColumn] - mfValues[(Math.max(nRow - 1, 0) * mnColumns) + nColumn];
+                float gradient = 0.5f * (float) Math.sqrt((gx * gx) + (gy * gy));
+
+                float coverage;
+                if(gradient <= 0.0f)
+                    coverage = (value >= THRESHOLD) ? 1.0f : 0.0f;
+                else
+                    coverage = Math.max(0.0f, Math.min(1.0f, 0.5f + ((value - THRESHOLD) / gradient)));
+
+                pixels[nIndex] = ((int) ((coverage * nAlpha) + 0.5f) << 24) | nRgb;
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.metaballmenu.geometry;
+
+import java.util.Arrays;
+
+/**
+ * A field of any number of metaballs: the circles, and the bridges between the pairs of circles which are close
+ * enough to merge. Two circles merge when the gap between their circumferences is below the merge gap.
+ *
+ * Testing every pair would cost O(n^2) per frame. Instead the circles are hashed into a grid of cells as large as
+ * the longest merge distance, so a circle can only merge with circles in its own cell or in the 8 cells around it.
+ * A frame costs O(n) plus the pairs in neighbouring cells, which is what actually has to be drawn.
+ *
+ * The buffers are grown when needed and reused otherwise, so once warmed up a frame does not allocate. The bridge
+ * outlines have the layout of {@link MetaballGeometry}, one after the other.
+ *
+ * @author Melvin Lobo
+ */
+public final class MetaballField {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The initial number of circles and bridges the buffers hold
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * Primes used to hash the cell co-ordinates
+     */
+    private static final int HASH_X = 73856093;
+    private static final int HASH_Y = 19349663;
+
+    /**
+     * The circles
+     */
+    private int mnCount = 0;
+    private float[] mfX = new float[INITIAL_CAPACITY];
+    private float[] mfY = new float[INITIAL_CAPACITY];
+    private float[] mfRadius = new float[INITIAL_CAPACITY];
+
+    /**
+     * The largest gap between two circumferences at which the circles still merge
+     */
+    private float mfMergeGap = 0.0f;
+
+    /**
+     * The spatial hash: the cell of each circle, and the circles sorted by hash bucket. The circles of bucket b are
+     * mnSorted[mnBucketStart[b]] to mnSorted[mnBucketStart[b + 1] - 1]
+     */
+    private int[] mnCellX = new int[INITIAL_CAPACITY];
+    private int[] mnCellY = new int[INITIAL_CAPACITY];
+    private int[] mnBucket = new int[INITIAL_CAPACITY];
+    private int[] mnSorted = new int[INITIAL_CAPACITY];
+    private int[] mnBucketStart = new int[(INITIAL_CAPACITY * 2) + 1];
+
+    /**
+     * The bridges: the two circles of each bridge, and their outlines
+     */
+    private int mnBridgeCount = 0;
+    private int[] mnBridgeCircles = new int[INITIAL_CAPACITY * 2];
+    private float[] mfOutlines = new float[INITIAL_CAPACITY * MetaballGeometry.OUTLINE_SIZE];
+
+    /**
+     * The number of pairs whose distance was tested in the last computation
+     */
+    private int mnTestedPairs = 0;
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Remove all the circles (and the bridges)
+     *
+     * @author Melvin Lobo
+     */
+    public void clear() {
+        mnCount = 0;
+        mnBridgeCount = 0;
+        mnTestedPairs = 0;
+    }
+
+    /**
+     * Add a circle. A circle with no radius is kept (so that the indices stay stable) but never merges
+     *
+     * @return
+     *      The index of the circle
+     *
+     * @author Melvin Lobo
+     */
+    public int add(float x, float y, float radius) {
+        if(mnCount == mfX.length) {
+            int nCapacity = mfX.length * 2;
+            mfX = Arrays.copyOf(mfX, nCapacity);
+            mfY = Arrays.copyOf(mfY, nCapacity);
+            mfRadius = Arrays.copyOf(mfRadius, nCapacity);
+        }
+
+        mfX[mnCount] = x;
+        mfY[mnCount] = y;
+        mfRadius[mnCount] = radius;
+        return mnCount++;
+    }
+
+    /**
+     * Move or resize a circle
+     *
+     * @author Melvin Lobo
+     */
+    public void set(int nIndex, float x, float y, float radius) {
+        mfX[nIndex] = x;
+        mfY[nIndex] = y;
+        mfRadius[nIndex] = radius;
+    }
+
+    /**
+     * Getters and setters
+     *
+     * @author Melvin Lobo
+     */
+    public int getCount() {
+        return mnCount;
+    }
+
+    public float getX(int nIndex) {
+        return mfX[nIndex];
+    }
+
+    public float getY(int nIndex) {
+        return mfY[nIndex];
+    }
+
+    public float getRadius(int nIndex) {
+        return mfRadius[nIndex];
+    }
+
+    public float getMergeGap() {
+        return mfMergeGap;
+    }
+
+    public void setMergeGap(float mergeGap) {
+        mfMergeGap = Math.max(0.0f, mergeGap);
+    }
+
+    /**
+     * Find the pairs of circles which merge and compute their bridges
+     *
+     * @return
+     *      The number of bridges
+     *
+     * @author Melvin Lobo
+     */
+    public int computeBridges() {
+        mnBridgeCount = 0;
+        mnTestedPairs = 0;
+        if(mnCount < 2)
+            return 0;
+
+        float maxRadius = 0.0f;
+        for(int nCtr = 0; nCtr < mnCount; ++nCtr)
+            maxRadius = Math.max(maxRadius, mfRadius[nCtr]);
+        if(maxRadius <= 0.0f)
+            return 0;
+
+        // Two circles which merge are at most this far apart, so they lie in the same or in adjacent cells
+        float cellSize = (maxRadius * 2.0f) + mfMergeGap;
+        int nBucketMask = buildHash(cellSize);
+
+        for(int nFirst = 0; nFirst < mnCount; ++nFirst) {
+            if(mfRadius[nFirst] <= 0.0f)
+                continue;
+
+            for(int nCellX = mnCellX[nFirst] - 1; nCellX <= mnCellX[nFirst] + 1; ++nCellX) {
+                for(int nCellY = mnCellY[nFirst] - 1; nCellY <= mnCellY[nFirst] + 1; ++nCellY) {
+                    int nBucket = hash(nCellX, nCellY) & nBucketMask;
+                    for(int nCtr = mnBucketStart[nBucket]; nCtr < mnBucketStart[nBucket + 1]; ++nCtr) {
+                        // Each pair once, and only the circles of this cell (other cells may share the bucket)
+                        int nSecond = mnSorted[nCtr];
+                        if((nSecond > nFirst) && (mnCellX[nSecond] == nCellX) && (mnCellY[nSecond] == nCellY))
+                            bridge(nFirst, nSecond);
+                    }
+                }
+            }
+        }
+
+        return mnBridgeCount;
+    }
+
+    /**
+     * Get the bridges of the last computation
+     *
+     * @author Melvin Lobo
+     */
+    public int getBridgeCount() {
+        return mnBridgeCount;
+    }
+
+    public int getBridgeFirst(int nBridge) {
+        return mnBridgeCircles[nBridge * 2];
+    }
+
+    public int getBridgeSecond(int nBridge) {
+        return mnBridgeCircles[(nBridge * 2) + 1];
+    }
+
+    /**
+     * Get the outlines of the bridges. The outline of bridge b starts at b * {@link MetaballGeometry#OUTLINE_SIZE}.
+     * The buffer is reused, so it is only valid until the next computation
+     *
+     * @author Melvin Lobo
+     */
+    public float[] getOutlines() {
+        return mfOutlines;
+    }
+
+    /**
+     * Get the number of pairs whose distance was tested in the last computation (the pairs in neighbouring cells)
+     *
+     * @author Melvin Lobo
+     */
+    public int getTestedPairCount() {
+        return mnTestedPairs;
+    }
+
+    /**
+     * Hash the circles into buckets by cell (a counting sort)
+     *
+     * @param cellSize
+     *      The cell size
+     *
+     * @return
+     *      The bucket mask. The number of buckets is a power of two of at least twice the number of circles
+     *
+     * @author Melvin Lobo
+     */
+    private int buildHash(float cellSize) {
+        int nBuckets = Integer.highestOneBit(Math.max(1, mnCount * 2) - 1) << 1;
+        if(mnCellX.length < mnCount) {
+            int nCapacity = mfX.length;
+            mnCellX = new int[nCapacity];
+            mnCellY = new int[nCapacity];
+            mnBucket = new int[nCapacity];
+            mnSorted = new int[nCapacity];
+        }
+        if(mnBucketStart.length < nBuckets + 1)
+            mnBucketStart = new int[nBuckets + 1];
+
+        int nMask = nBuckets - 1;
+        Arrays.fill(mnBucketStart, 0, nBuckets + 1, 0);
+        for(int nCtr = 0; nCtr < mnCount; ++nCtr) {
+            mnCellX[nCtr] = (int) Math.floor(mfX[nCtr] / cellSize);
+            mnCellY[nCtr] = (int) Math.floor(mfY[nCtr] / cellSize);
+            mnBucket[nCtr] = hash(mnCellX[nCtr], mnCellY[nCtr]) & nMask;
+            ++mnBucketStart[mnBucket[nCtr] + 1];
+        }
+
+        for(int nBucket = 0; nBucket < nBuckets; ++nBucket)
+            mnBucketStart[nBucket + 1] += mnBucketStart[nBucket];
+
+        // Fill the buckets from their end, using the start of the next bucket as the cursor
+        for(int nCtr = mnCount - 1; nCtr >= 0; --nCtr)
+            mnSorted[--mnBucketStart[mnBucket[nCtr] + 1]] = nCtr;
+
+        // The cursors ended at the start of each bucket, one bucket off: shift them back
+        System.arraycopy(mnBucketStart, 1, mnBucketStart, 0, nBuckets);
+        mnBucketStart[nBuckets] = mnCount;
+        return nMask;
+    }
+
+    /**
+     * Bridge two circles if they merge
+     *
+     * @author Melvin Lobo
+     */
+    private void bridge(int nFirst, int nSecond) {
+        ++mnTestedPairs;
+
+        float r1 = mfRadius[nFirst];
+        float r2 = mfRadius[nSecond];
+        if(r2 <= 0.0f)
+            return;
+
+        float dx = mfX[nSecond] - mfX[nFirst];
+        float dy = mfY[nSecond] - mfY[nFirst];
+        float reach = r1 + r2 + mfMergeGap;
+        if((dx * dx) + (dy * dy) >= reach * reach)
+            return;
+
+        if((mnBridgeCount + 1) * MetaballGeometry.OUTLINE_SIZE > mfOutlines.length) {
+            mfOutlines = Arrays.copyOf(mfOutlines, mfOutlines.length * 2);
+            mnBridgeCircles = Arrays.copyOf(mnBridgeCircles, mnBridgeCircles.length * 2);
+        }
+
+        if(MetaballGeometry.computeOutline(mfX[nFirst], mfY[nFirst], r1, mfX[nSecond], mfY[nSecond], r2,
+                mfOutlines, mnBridgeCount * MetaballGeometry.OUTLINE_SIZE)) {
+            mnBridgeCircles[mnBridgeCount * 2] = nFirst;
+            mnBridgeCircles[(mnBridgeCount * 2) + 1] = nSecond;
+            ++mnBridgeCount;
+        }
+    }
+
+    /**
+     * Hash a cell
+     *
+     * @author Melvin Lobo
+     */
+    private static int hash(int nCellX, int nCellY) {
+        return (nCellX * HASH_X) ^ (nCellY * HASH_Y);
+    }
+}
@@ -0,0 +1,209 @@
+package com.metaballmenu.geometry;
+
+/**
+ * Android-free geometry for the metaball bridge between two circles. The math was originally part of
+ * MetaballMenu.drawMetaballTransition and is based on the same references (dodola's MetaballView and the
+ * paper.js meta-balls example). It has no Android dependencies, so it can be unit tested and benchmarked
+ * on a plain JVM (see the jmh source set of this module).
+ *
+ * The outline is written into a caller-supplied float buffer of at least {@link #OUTLINE_SIZE} floats, so
+ * that the per-frame path does not allocate anything. The buffer holds (x, y) pairs in the order in which
+ * the path has to be traced:
+ *
+ *  moveTo(P1A) -> cubicTo(C1, C2, P2A) -> lineTo(P2B) -> cubicTo(C3, C4, P1B) -> close
+ *
+ * The trigonometry comes from the lookup tables of {@link FastTrig#DEFAULT}, unless other tables (or none, for
+ * java.lang.Math) are given.
+ *
+ * @author Melvin Lobo
+ */
+public final class MetaballGeometry {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * Offsets of the (x, y) pairs in the outline buffer. The y co-ordinate is always at offset + 1
+     */
+    public static final int P1A = 0;
+    public static final int C1 = 2;
+    public static final int C2 = 4;
+    public static final int P2A = 6;
+    public static final int P2B = 8;
+    public static final int C3 = 10;
+    public static final int C4 = 12;
+    public static final int P1B = 14;
+
+    /**
+     * The number of floats required to hold one outline
+     */
+    public static final int OUTLINE_SIZE = 16;
+
+    /**
+     * The spread of the bridge on the circle circumference (v in the references)
+     */
+    private static final float SPREAD = 0.5f;
+
+    /**
+     * The rate used to calculate the bezier handle length
+     */
+    private static final float HANDLE_LEN_RATE = 2.4f;
+
+    private static final float PI = (float) Math.PI;
+    private static final float HALF_PI = (float) (Math.PI / 2);
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * No instances. All the state lives in the caller supplied buffer
+     *
+     * @author Melvin Lobo
+     */
+    private MetaballGeometry() {}
+
+    /**
+     * Compute the bridge outline between two circles. Nothing is allocated here, so this can be called on every
+     * animation frame.
+     *
+     * @param x1
+     *      Center x of the first (origin / transitional) circle
+     * @param y1
+     *      Center y of the first circle
+     * @param r1
+     *      Radius of the first circle
+     * @param x2
+     *      Center x of the second (destination) circle
+     * @param y2
+     *      Center y of the second circle
+     * @param r2
+     *      Radius of the second circle
+     * @param outline
+     *      The buffer to write the outline into. Must hold at least {@link #OUTLINE_SIZE} floats
+     *
+     * @return
+     *      True if a bridge has to be drawn, false otherwise (one of the circles is empty or contains the other)
+     *
+     * @author Melvin Lobo
+     */
+    public static boolean computeOutline(float x1, float y1, float r1, float x2, float y2, float r2, float[] outline) {
+        return computeOutline(x1, y1, r1, x2, y2, r2, outline, 0);
+    }
+
+    /**
+     * Compute the bridge outline between two circles into a buffer holding several outlines
+     *
+     * @param nOffset
+     *      The offset of the outline in the buffer. The buffer must hold at least nOffset + {@link #OUTLINE_SIZE}
+     *      floats
+     *
+     * @see #computeOutline(float, float, float, float, float, float, float[])
+     *
+     * @author Melvin Lobo
+     */
+    public static boolean computeOutline(float x1, float y1, float r1, float x2, float y2, float r2, float[] outline, int nOffset) {
+        return computeOutline(x1, y1, r1, x2, y2, r2, outline, nOffset, FastTrig.DEFAULT);
+    }
+
+    /**
+     * Compute the bridge outline between two circles with the given trigonometry
+     *
+     * @param trig
+     *      The lookup tables to use, or null to use java.lang.Math
+     *
+     * @see #computeOutline(float, float, float, float, float, float, float[], int)
+     *
+     * @author Melvin Lobo
+     */
+    public static boolean computeOutline(float x1, float y1, float r1, float x2, float y2, float r2, float[] outline, int nOffset,
+                                         FastTrig trig) {
+        if((r1 <= 0) || (r2 <= 0))
+            return false;
+
+        // Get the difference of the two centres and the distance between them
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float distance = (float) Math.sqrt((dx * dx) + (dy * dy));
+
+        // One circle lies completely inside the other. There is nothing to bridge
+        if(distance <= Math.abs(r1 - r2))
+            return false;
+
+        float radiusSum = r1 + r2;
+        float arc1, arc2;
+
+        if(distance < radiusSum) {
+            arc1 = acos(trig, ((r1 * r1) + (distance * distance) - (r2 * r2)) / (2 * r1 * distance));
+            arc2 = acos(trig, ((r2 * r2) + (distance * distance) - (r1 * r1)) / (2 * r2 * distance));
+        }
+        else {
+            arc1 = arc2 = 0.0f;
+        }
+
+        // Get the angle in radians
+        float angle1 = atan2(trig, dy, dx);
+        float angle2 = acos(trig, (r1 - r2) / distance);
+
+        float angle1a = angle1 + arc1 + (angle2 - arc1) * SPREAD;
+        float angle1b = angle1 - arc1 - (angle2 - arc1) * SPREAD;
+        float angle2a = angle1 + PI - arc2 - (PI - arc2 - angle2) * SPREAD;
+        float angle2b = angle1 - PI + arc2 + (PI - arc2 - angle2) * SPREAD;
+
+        // The points where the bridge touches the circles
+        float p1ax = x1 + cos(trig, angle1a) * r1;
+        float p1ay = y1 + sin(trig, angle1a) * r1;
+        float p1bx = x1 + cos(trig, angle1b) * r1;
+        float p1by = y1 + sin(trig, angle1b) * r1;
+        float p2ax = x2 + cos(trig, angle2a) * r2;
+        float p2ay = y2 + sin(trig, angle2a) * r2;
+        float p2bx = x2 + cos(trig, angle2b) * r2;
+        float p2by = y2 + sin(trig, angle2b) * r2;
+
+        // Define handle length by the distance between both ends of the curve to draw
+        float hx = p1ax - p2ax;
+        float hy = p1ay - p2ay;
+        float handle = Math.min(SPREAD * HANDLE_LEN_RATE, (float) Math.sqrt((hx * hx) + (hy * hy)) / radiusSum);
+
+        // In case circles are overlapping
+        handle *= Math.min(1, (distance * 2) / radiusSum);
+
+        float handle1 = r1 * handle;
+        float handle2 = r2 * handle;
+
+        outline[nOffset + P1A] = p1ax;
+        outline[nOffset + P1A + 1] = p1ay;
+        outline[nOffset + C1] = p1ax + cos(trig, angle1a - HALF_PI) * handle1;
+        outline[nOffset + C1 + 1] = p1ay + sin(trig, angle1a - HALF_PI) * handle1;
+        outline[nOffset + C2] = p2ax + cos(trig, angle2a + HALF_PI) * handle2;
+        outline[nOffset + C2 + 1] = p2ay + sin(trig, angle2a + HALF_PI) * handle2;
+        outline[nOffset + P2A] = p2ax;
+        outline[nOffset + P2A + 1] = p2ay;
+        outline[nOffset + P2B] = p2bx;
+        outline[nOffset + P2B + 1] = p2by;
+        outline[nOffset + C3] = p2bx + cos(trig, angle2b - HALF_PI) * handle2;
+        outline[nOffset + C3 + 1] = p2by + sin(trig, angle2b - HALF_PI) * handle2;
+        outline[nOffset + C4] = p1bx + cos(trig, angle1b + HALF_PI) * handle1;
+        outline[nOffset + C4 + 1] = p1by + sin(trig, angle1b + HALF_PI) * handle1;
+        outline[nOffset + P1B] = p1bx;
+        outline[nOffset + P1B + 1] = p1by;
+
+        return true;
+    }
+
+    /**
+     * The trigonometry, from the tables if there are some, from java.lang.Math otherwise
+     *
+     * @author Melvin Lobo
+     */
+    private static float sin(FastTrig trig, float angle) {
+        return (trig != null) ? trig.sin(angle) : (float) Math.sin(angle);
+    }
+
+    private static float cos(FastTrig trig, float angle) {
+        return (trig != null) ? trig.cos(angle) : (float) Math.cos(angle);
+    }
+
+    private static float acos(FastTrig trig, float x) {
+        return (trig != null) ? trig.acos(x) : (float) Math.acos(x);
+    }
+
+    private static float atan2(FastTrig trig, float y, float x) {
+        return (trig != null) ? trig.atan2(y, x) : (float) Math.atan2(y, x);
+    }
+}
@@ -0,0 +1,255 @@
+package com.metaballmenu.geometry;
+
+/**
+ * A triangle mesh of metaball circles and bridges, to be drawn in one call with Canvas.drawVertices
+ * (VertexMode.TRIANGLES) instead of filling a path, which has to be flattened and tessellated again on every frame.
+ *
+ * A circle is a fan of triangles around its center. The number of segments follows the radius, so that the chord
+ * of a segment is never further than the tolerance from the circle. A bridge is a strip of triangles between its two
+ * bezier curves (@see MetaballGeometry), flattened in segments of about CURVE_SEGMENT_LENGTH pixels.
+ *
+ * The triangles of the circles and the bridges overlap, which does not show with an opaque color. The buffers
+ * are grown when needed and reused otherwise, so a frame does not allocate.
+ *
+ * @author Melvin Lobo
+ */
+public final class MetaballMesh {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The default maximum distance, in pixels, between a circle and the chords which replace it
+     */
+    public static final float DEFAULT_TOLERANCE = 0.25f;
+
+    /**
+     * The bounds of the number of segments of a circle
+     */
+    public static final int MIN_CIRCLE_SEGMENTS = 8;
+    public static final int MAX_CIRCLE_SEGMENTS = 180;
+
+    /**
+     * The length of a segment of a flattened bridge curve, in pixels, and the bounds of the number of segments
+     */
+    public static final float CURVE_SEGMENT_LENGTH = 6.0f;
+    public static final int MIN_CURVE_SEGMENTS = 2;
+    public static final int MAX_CURVE_SEGMENTS = 32;
+
+    /**
+     * The initial capacity: two circles and a bridge of moderate sizes
+     */
+    private static final int INITIAL_VERTICES = 256;
+
+    /**
+     * The maximum distance between a circle and its chords
+     */
+    private float mfTolerance = DEFAULT_TOLERANCE;
+
+    /**
+     * The vertices, as x and y pairs, and the number of floats used
+     */
+    private float[] mfVertices = new float[INITIAL_VERTICES * 2];
+    private int mnVertexCount = 0;
+
+    /**
+     * The vertex indices, three per triangle, and the number used
+     */
+    private short[] mnIndices = new short[INITIAL_VERTICES * 3];
+    private int mnIndexCount = 0;
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Set the maximum distance between a circle and the chords which replace it
+     *
+     * @param tolerance
+     *      The distance in pixels
+     *
+     * @author Melvin Lobo
+     */
+    public void setTolerance(float tolerance) {
+        if(tolerance <= 0.0f)
+            throw new IllegalArgumentException("The tolerance has to be positive");
+
+        mfTolerance = tolerance;
+    }
+
+    public float getTolerance() {
+        return mfTolerance;
+    }
+
+    /**
+     * Remove all the triangles
+     *
+     * @author Melvin Lobo
+     */
+    public void clear() {
+        mnVertexCount = 0;
+        mnIndexCount = 0;
+    }
+
+    /**
+     * Add a circle as a fan of triangles around its center
+     *
+     * @author Melvin Lobo
+     */
+    public void addCircle(float x, float y, float radius) {
+        if(radius <= 0.0f)
+            return;
+
+        int nSegments = circleSegments(radius, mfTolerance);
+        ensureCapacity(nSegments + 1, nSegments);
+
+        int nCenter = mnVertexCount / 2;
+        putVertex(x, y);
+
+        // Step the angle with a rotation, instead of a sin and cos per segment
+        double step = (2 * Math.PI) / nSegments;
+        float cos = (float) Math.cos(step);
+        float sin = (float) Math.sin(step);
+        float dx = radius;
+        float dy = 0.0f;
+        for(int nCtr = 0; nCtr < nSegments; ++nCtr) {
+            putVertex(x + dx, y + dy);
+            float nextDx = (dx * cos) - (dy * sin);
+            dy = (dx * sin) + (dy * cos);
+            dx = nextDx;
+
+            int nNext = (nCtr + 1 < nSegments) ? nCenter + 2 + nCtr : nCenter + 1;
+            putTriangle(nCenter, nCenter + 1 + nCtr, nNext);
+        }
+    }
+
+    /**
+     * Add a bridge as a strip of triangles between its two curves: P1A to P2A and P1B to P2B (the second curve of
+     * the outline, run backwards)
+     *
+     * @param outline
+     *      The buffer holding the outline computed by MetaballGeometry
+     * @param nOffset
+     *      The offset of the outline in the buffer
+     *
+     * @author Melvin Lobo
+     */
+    public void addBridge(float[] outline, int nOffset) {
+        float p1ax = outline[nOffset + MetaballGeometry.P1A], p1ay = outline[nOffset + MetaballGeometry.P1A + 1];
+        float c1x = outline[nOffset + MetaballGeometry.C1], c1y = outline[nOffset + MetaballGeometry.C1 + 1];
+        float c2x = outline[nOffset + MetaballGeometry.C2], c2y = outline[nOffset + MetaballGeometry.C2 + 1];
+        float p2ax = outline[nOffset + MetaballGeometry.P2A], p2ay = outline[nOffset + MetaballGeometry.P2A + 1];
+        float p2bx = outline[nOffset + MetaballGeometry.P2B], p2by = outline[nOffset + MetaballGeometry.P2B + 1];
+        float c3x = outline[nOffset + MetaballGeometry.C3], c3y = outline[nOffset + MetaballGeometry.C3 + 1];
+        float c4x = outline[nOffset + MetaballGeometry.C4], c4y = outline[nOffset + MetaballGeometry.C4 + 1];
+        float p1bx = outline[nOffset + MetaballGeometry.P1B], p1by = outline[nOffset + MetaballGeometry.P1B + 1];
+
+        // A bezier curve is no longer than its control polygon
+        float length = Math.max(polygonLength(p1ax, p1ay, c1x, c1y, c2x, c2y, p2ax, p2ay),
+                polygonLength(p1bx, p1by, c4x, c4y, c3x, c3y, p2bx, p2by));
+        int nSegments = Math.max(MIN_CURVE_SEGMENTS, Math.min(MAX_CURVE_SEGMENTS, (int) Math.ceil(length / CURVE_SEGMENT_LENGTH)));
+        ensureCapacity((nSegments + 1) * 2, nSegments * 2);
+
+        // The vertices go in pairs, one on each curve
+        int nFirst = mnVertexCount / 2;
+        for(int nCtr = 0; nCtr <= nSegments; ++nCtr) {
+            float t = (float) nCtr / nSegments;
+            float u = 1.0f - t;
+            float b0 = u * u * u;
+            float b1 = 3 * u * u * t;
+            float b2 = 3 * u * t * t;
+            float b3 = t * t * t;
+            putVertex((b0 * p1ax) + (b1 * c1x) + (b2 * c2x) + (b3 * p2ax), (b0 * p1ay) + (b1 * c1y) + (b2 * c2y) + (b3 * p2ay));
+            putVertex((b0 * p1bx) + (b1 * c4x) + (b2 * c3x) + (b3 * p2bx), (b0 * p1by) + (b1 * c4y) + (b2 * c3y) + (b3 * p2by));
+
+            if(nCtr > 0) {
+                int nA = nFirst + ((nCtr - 1) * 2);
+                putTriangle(nA, nA + 1, nA + 2);
+                putTriangle(nA + 2, nA + 1, nA + 3);
+            }
+        }
+    }
+
+    /**
+     * Getters for the buffers to pass to Canvas.drawVertices. The vertex count is the number of floats used, as
+     * drawVertices expects
+     *
+     * @author Melvin Lobo
+     */
+    public float[] getVertices() {
+        return mfVertices;
+    }
+
+    public int getVertexCount() {
+        return mnVertexCount;
+    }
+
+    public short[] getIndices() {
+        return mnIndices;
+    }
+
+    public int getIndexCount() {
+        return mnIndexCount;
+    }
+
+    /**
+     * The number of segments for a circle, so that the middle of a chord is within the tolerance of the circle.
+     * A chord over an angle a is r * (1 - cos(a / 2)) away from the circle at its middle
+     *
+     * @param radius
+     *      The radius of the circle in pixels
+     * @param tolerance
+     *      The maximum distance in pixels
+     *
+     * @return
+     *      The number of segments
+     *
+     * @author Melvin Lobo
+     */
+    public static int circleSegments(float radius, float tolerance) {
+        if(radius <= tolerance)
+            return MIN_CIRCLE_SEGMENTS;
+
+        double angle = 2 * Math.acos(1 - (tolerance / radius));
+        return Math.max(MIN_CIRCLE_SEGMENTS, Math.min(MAX_CIRCLE_SEGMENTS, (int) Math.ceil((2 * Math.PI) / angle)));
+    }
+
+    /**
+     * The length of the control polygon of a cubic bezier
+     *
+     * @author Melvin Lobo
+     */
+    private static float polygonLength(float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3) {
+        return (float) (Math.hypot(x1 - x0, y1 - y0) + Math.hypot(x2 - x1, y2 - y1) + Math.hypot(x3 - x2, y3 - y2));
+    }
+
+    /**
+     * Make room for more vertices and triangles. The indices are shorts, so a mesh holds at most 32768 vertices
+     *
+     * @author Melvin Lobo
+     */
+    private void ensureCapacity(int nVertices, int nTriangles) {
+        int nVertexFloats = mnVertexCount + (nVertices * 2);
+        if((nVertexFloats / 2) > Short.MAX_VALUE + 1)
+            throw new IllegalStateException("Too many vertices for a mesh");
+
+        if(nVertexFloats > mfVertices.length) {
+            float[] vertices = new float[Math.max(nVertexFloats, mfVertices.length * 2)];
+            System.arraycopy(mfVertices, 0, vertices, 0, mnVertexCount);
+            mfVertices = vertices;
+        }
+
+        int nIndices = mnIndexCount + (nTriangles * 3);
+        if(nIndices > mnIndices.length) {
+            short[] indices = new short[Math.max(nIndices, mnIndices.length * 2)];
+            System.arraycopy(mnIndices, 0, indices, 0, mnIndexCount);
+            mnIndices = indices;
+        }
+    }
+
+    private void putVertex(float x, float y) {
+        mfVertices[mnVertexCount++] = x;
+        mfVertices[mnVertexCount++] = y;
+    }
+
+    private void putTriangle(int nA, int nB, int nC) {
+        mnIndices[mnIndexCount++] = (short) nA;
+        mnIndices[mnIndexCount++] = (short) nB;
+        mnIndices[mnIndexCount++] = (short) nC;
+    }
+}
@@ -0,0 +1,325 @@
+package com.metaballmenu.geometry;
+
+import java.util.Arrays;
+
+/**
+ * A damped spring per channel, pulling each value to its target, for transitions driven by physics instead of a
+ * duration and a time curve. A transition started while another runs keeps the velocity of the values, and the
+ * springs settle in the same time on any display refresh rate.
+ *
+ * The springs are integrated with semi-implicit Euler in fixed steps of STEP_NANOS, whatever the frame rate, so the
+ * state after a given time is the same whether it was reached in frames of 16.7ms, 11.1ms or 8.3ms, or in one long
+ * dropped frame. Between two steps, the values are interpolated, so that a frame which falls in between still sees
+ * a smooth motion.
+ *
+ * All the channels share the stiffness and the damping, with a unit mass. The simulation settles as soon as every
+ * channel is within the rest displacement of its target and slower than the rest velocity, i.e. when the motion is
+ * too small to see, and the values are then snapped to their targets.
+ *
+ * The state is allocated once, so a step does not allocate.
+ *
+ * @author Melvin Lobo
+ */
+public final class SpringSimulation {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The integration step: 1ms, well within the stability of semi-implicit Euler for the allowed stiffness
+     */
+    public static final long STEP_NANOS = 1000000L;
+    private static final float STEP_SECONDS = STEP_NANOS / 1000000000.0f;
+
+    /**
+     * The default stiffness and damping ratio: a slight overshoot, settled in about half a second
+     */
+    public static final float DEFAULT_STIFFNESS = 700.0f;
+    public static final float DEFAULT_DAMPING_RATIO = 0.6f;
+
+    /**
+     * The highest stiffness. The step stays stable as long as sqrt(stiffness) * step is well under 2
+     */
+    public static final float MAX_STIFFNESS = 100000.0f;
+
+    /**
+     * The default rest thresholds, in pixels and pixels per second: a tenth of a pixel, or that much per frame at 60Hz
+     */
+    public static final float DEFAULT_REST_DISPLACEMENT = 0.1f;
+    public static final float DEFAULT_REST_VELOCITY = 6.0f;
+
+    /**
+     * The spring constants
+     */
+    private float mfStiffness = DEFAULT_STIFFNESS;
+    private float mfDampingRatio = DEFAULT_DAMPING_RATIO;
+    private float mfDamping;
+
+    /**
+     * The rest thresholds
+     */
+    private float mfRestDisplacement = DEFAULT_REST_DISPLACEMENT;
+    private float mfRestVelocity = DEFAULT_REST_VELOCITY;
+
+    /**
+     * The state of the channels: after the last step and the one before it, and the targets
+     */
+    private final float[] mfValues;
+    private final float[] mfVelocities;
+    private final float[] mfPreviousValues;
+    private final float[] mfPreviousVelocities;
+    private final float[] mfTargets;
+
+    /**
+     * The values and velocities at the time of the last advance
+     */
+    private final float[] mfCurrentValues;
+    private final float[] mfCurrentVelocities;
+
+    /**
+     * The number of steps taken since the start
+     */
+    private long mnSteps = 0;
+
+    /**
+     * Indicates if all the channels are at rest on their targets
+     */
+    private boolean mbSettled = true;
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Constructor
+     *
+     * @param nChannels
+     *      The number of values to animate
+     *
+     * @author Melvin Lobo
+     */
+    public SpringSimulation(int nChannels) {
+        if(nChannels <= 0)
+            throw new IllegalArgumentException("A spring simulation needs at least one channel");
+
+        mfValues = new float[nChannels];
+        mfVelocities = new float[nChannels];
+        mfPreviousValues = new float[nChannels];
+        mfPreviousVelocities = new float[nChannels];
+        mfTargets = new float[nChannels];
+        mfCurrentValues = new float[nChannels];
+        mfCurrentVelocities = new float[nChannels];
+        updateDamping();
+    }
+
+    /**
+     * Getters and Setters
+     *
+     * @author Melvin Lobo
+     */
+    public int getChannelCount() {
+        return mfValues.length;
+    }
+
+    public float getStiffness() {
+        return mfStiffness;
+    }
+
+    /**
+     * Set the stiffness of the springs: the higher, the faster
+     *
+     * @param stiffness
+     *      The stiffness, per second squared for a unit mass, in (0, MAX_STIFFNESS]
+     *
+     * @author Melvin Lobo
+     */
+    public void setStiffness(float stiffness) {
+        if(!(stiffness > 0.0f) || (stiffness > MAX_STIFFNESS))
+            throw new IllegalArgumentException("The stiffness has to be in (0, " + MAX_STIFFNESS + "], not " + stiffness);
+
+        mfStiffness = stiffness;
+        updateDamping();
+    }
+
+    public float getDampingRatio() {
+        return mfDampingRatio;
+    }
+
+    /**
+     * Set the damping ratio of the springs: under 1 they overshoot and bounce, 1 is the fastest without an overshoot,
+     * and over 1 they creep to the target
+     *
+     * @param dampingRatio
+     *      The damping ratio, positive
+     *
+     * @author Melvin Lobo
+     */
+    public void setDampingRatio(float dampingRatio) {
+        if(!(dampingRatio > 0.0f))
+            throw new IllegalArgumentException("The damping ratio has to be positive, not " + dampingRatio);
+
+        mfDampingRatio = dampingRatio;
+        updateDamping();
+    }
+
+    /**
+     * Set the thresholds under which the motion is too small to see
+     *
+     * @param displacement
+     *      The distance to the target
+     * @param velocity
+     *      The speed, per second
+     *
+     * @author Melvin Lobo
+     */
+    public void setRestThresholds(float displacement, float velocity) {
+        if(!(displacement > 0.0f) || !(velocity > 0.0f))
+            throw new IllegalArgumentException("The rest thresholds have to be positive");
+
+        mfRestDisplacement = displacement;
+        mfRestVelocity = velocity;
+    }
+
+    public float getRestDisplacement() {
+        return mfRestDisplacement;
+    }
+
+    public float getRestVelocity() {
+        return mfRestVelocity;
+    }
+
+    /**
+     * Set the start of a channel, and restart the clock of the simulation at 0. All the channels are usually set
+     * before the first advance
+     *
+     * @param nChannel
+     *      The channel
+     * @param value
+     *      The start value
+     * @param velocity
+     *      The start velocity, per second
+     * @param target
+     *      The value the spring pulls to
+     *
+     * @author Melvin Lobo
+     */
+    public void setChannel(int nChannel, float value, float velocity, float target) {
+        mfValues[nChannel] = value;
+        mfVelocities[nChannel] = velocity;
+        mfPreviousValues[nChannel] = value;
+        mfPreviousVelocities[nChannel] = velocity;
+        mfCurrentValues[nChannel] = value;
+        mfCurrentVelocities[nChannel] = velocity;
+        mfTargets[nChannel] = target;
+
+        mnSteps = 0;
+        mbSettled = false;
+    }
+
+    /**
+     * Run the simulation up to a time. The time is expected to go forward: the steps already taken are never undone
+     *
+     * @param nElapsedNanos
+     *      The time since the channels were set
+     *
+     * @return
+     *      True if the simulation has settled, false otherwise
+     *
+     * @author Melvin Lobo
+     */
+    public boolean advanceTo(long nElapsedNanos) {
+        if(mbSettled)
+            return true;
+
+        // Step until the last step is at or past the time
+        long nTargetSteps = (Math.max(0L, nElapsedNanos) + STEP_NANOS - 1) / STEP_NANOS;
+        while((mnSteps < nTargetSteps) && !mbSettled)
+            step();
+
+        if(mbSettled) {
+            System.arraycopy(mfTargets, 0, mfCurrentValues, 0, mfTargets.length);
+            Arrays.fill(mfCurrentVelocities, 0.0f);
+            return true;
+        }
+
+        // Interpolate between the last two steps
+        float alpha = 1.0f;
+        if(mnSteps > 0)
+            alpha = Math.max(0.0f, Math.min(1.0f, (float) (nElapsedNanos - ((mnSteps - 1) * STEP_NANOS)) / STEP_NANOS));
+        for(int nCtr = 0; nCtr < mfValues.length; ++nCtr) {
+            mfCurrentValues[nCtr] = mfPreviousValues[nCtr] + ((mfValues[nCtr] - mfPreviousValues[nCtr]) * alpha);
+            mfCurrentVelocities[nCtr] = mfPreviousVelocities[nCtr] + ((mfVelocities[nCtr] - mfPreviousVelocities[nCtr]) * alpha);
+        }
+
+        return false;
+    }
+
+    /**
+     * The value of a channel at the time of the last advance
+     *
+     * @author Melvin Lobo
+     */
+    public float getValue(int nChannel) {
+        return mfCurrentValues[nChannel];
+    }
+
+    /**
+     * The velocity of a channel, per second, at the time of the last advance
+     *
+     * @author Melvin Lobo
+     */
+    public float getVelocity(int nChannel) {
+        return mfCurrentVelocities[nChannel];
+    }
+
+    public float getTarget(int nChannel) {
+        return mfTargets[nChannel];
+    }
+
+    public boolean isSettled() {
+        return mbSettled;
+    }
+
+    /**
+     * The number of integration steps taken since the channels were set
+     *
+     * @author Melvin Lobo
+     */
+    public long getStepCount() {
+        return mnSteps;
+    }
+
+    /**
+     * Take one integration step, and check if all the channels are at rest
+     *
+     * @author Melvin Lobo
+     */
+    private void step() {
+        System.arraycopy(mfValues, 0, mfPreviousValues, 0, mfValues.length);
+        System.arraycopy(mfVelocities, 0, mfPreviousVelocities, 0, mfVelocities.length);
+
+        boolean bRest = true;
+        for(int nCtr = 0; nCtr < mfValues.length; ++nCtr) {
+            // Semi-implicit Euler: the velocity first, then the position with the new velocity
+            float displacement = mfValues[nCtr] - mfTargets[nCtr];
+            float velocity = mfVelocities[nCtr] - (((mfStiffness * displacement) + (mfDamping * mfVelocities[nCtr])) * STEP_SECONDS);
+            float value = mfValues[nCtr] + (velocity * STEP_SECONDS);
+            mfVelocities[nCtr] = velocity;
+            mfValues[nCtr] = value;
+
+            if((Math.abs(value - mfTargets[nCtr]) >= mfRestDisplacement) || (Math.abs(velocity) >= mfRestVelocity))
+                bRest = false;
+        }
+        ++mnSteps;
+
+        if(bRest) {
+            System.arraycopy(mfTargets, 0, mfValues, 0, mfTargets.length);
+            Arrays.fill(mfVelocities, 0.0f);
+            mbSettled = true;
+        }
+    }
+
+    /**
+     * The damping coefficient for the damping ratio: 2 * ratio * sqrt(stiffness) for a unit mass
+     *
+     * @author Melvin Lobo
+     */
+    private void updateDamping() {
+        mfDamping = 2.0f * mfDampingRatio * (float) Math.sqrt(mfStiffness);
+    }
+}
@@ -0,0 +1,209 @@
+package com.metaballmenu.geometry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of sampled transitions. Users tend to hop between the same few menu items, so the keyframes
+ * of a transition are sampled once and replayed on the next hop between the same two items.
+ *
+ * The key is (origin index, destination index, origin and destination selector radii, view width). The sampled outlines hold
+ * absolute co-ordinates, so the owner has to call {@link #invalidate()} whenever the layout changes.
+ *
+ * @author Melvin Lobo
+ */
+public final class TransitionKeyframeCache {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * Default values
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 8;
+    public static final int DEFAULT_STEPS = 64;
+
+    /**
+     * The number of interpolation steps sampled for each transition
+     */
+    private final int mnSteps;
+
+    /**
+     * The cached transitions in access order, so that the eldest entry is the least recently used
+     */
+    private final LinkedHashMap<Key, TransitionKeyframes> mEntries;
+
+    /**
+     * Key used for the lookups, so that a cache hit does not allocate
+     */
+    private final Key mLookupKey = new Key();
+
+    /**
+     * Statistics
+     */
+    private int mnHits = 0;
+    private int mnMisses = 0;
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Constructor with the default size and steps
+     *
+     * @author Melvin Lobo
+     */
+    public TransitionKeyframeCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_STEPS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param nMaxEntries
+     *      The maximum number of transitions to keep
+     * @param nSteps
+     *      The number of interpolation steps sampled for each transition
+     *
+     * @author Melvin Lobo
+     */
+    public TransitionKeyframeCache(final int nMaxEntries, int nSteps) {
+        if(nMaxEntries < 1)
+            throw new IllegalArgumentException("The cache needs at least one entry");
+
+        mnSteps = nSteps;
+        mEntries = new LinkedHashMap<Key, TransitionKeyframes>(nMaxEntries + 1, 1.0f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, TransitionKeyframes> eldest) {
+                return size() > nMaxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get the keyframes of a transition with the same selector radius on both ends, sampling them if they are not
+     * cached yet
+     *
+     * @see #get(int, int, float, float, int, float, float, float, float)
+     *
+     * @author Melvin Lobo
+     */
+    public TransitionKeyframes get(int nOrigin, int nDestination, float radius, int nWidth,
+                                   float originX, float originY, float destinationX, float destinationY) {
+        return get(nOrigin, nDestination, radius, radius, nWidth, originX, originY, destinationX, destinationY);
+    }
+
+    /**
+     * Get the keyframes of a transition, sampling them if they are not cached yet
+     *
+     * @param nOrigin
+     *      The index of the origin item
+     * @param nDestination
+     *      The index of the destination item
+     * @param originRadius
+     *      The selector radius on the origin item
+     * @param destinationRadius
+     *      The selector radius on the destination item
+     * @param nWidth
+     *      The width of the menu
+     * @param originX
+     *      The origin center x. The centers are only used if the transition has to be sampled
+     * @param originY
+     *      The origin center y
+     * @param destinationX
+     *      The destination center x
+     * @param destinationY
+     *      The destination center y
+     *
+     * @return
+     *      The keyframes of the transition
+     *
+     * @author Melvin Lobo
+     */
+    public TransitionKeyframes get(int nOrigin, int nDestination, float originRadius, float destinationRadius, int nWidth,
+                                   float originX, float originY, float destinationX, float destinationY) {
+        mLookupKey.set(nOrigin, nDestination, originRadius, destinationRadius, nWidth);
+
+        TransitionKeyframes keyframes = mEntries.get(mLookupKey);
+        if(keyframes != null) {
+            ++mnHits;
+            return keyframes;
+        }
+
+        ++mnMisses;
+        keyframes = new TransitionKeyframes(mnSteps);
+        keyframes.sample(originX, originY, destinationX, destinationY, originRadius, destinationRadius);
+
+        Key key = new Key();
+        key.set(nOrigin, nDestination, originRadius, destinationRadius, nWidth);
+        mEntries.put(key, keyframes);
+
+        return keyframes;
+    }
+
+    /**
+     * Drop all the cached transitions. To be called when the layout of the items changes
+     *
+     * @author Melvin Lobo
+     */
+    public void invalidate() {
+        mEntries.clear();
+    }
+
+    /**
+     * Getters for the statistics
+     *
+     * @author Melvin Lobo
+     */
+    public int size() {
+        return mEntries.size();
+    }
+
+    public int getHitCount() {
+        return mnHits;
+    }
+
+    public int getMissCount() {
+        return mnMisses;
+    }
+
+    //////////////////////////////////// INNER CLASSES /////////////////////////////////////////////
+    /**
+     * The cache key
+     *
+     * @author Melvin Lobo
+     */
+    private static final class Key {
+        int mnOrigin;
+        int mnDestination;
+        int mnOriginRadiusBits;
+        int mnDestinationRadiusBits;
+        int mnWidth;
+
+        void set(int nOrigin, int nDestination, float originRadius, float destinationRadius, int nWidth) {
+            mnOrigin = nOrigin;
+            mnDestination = nDestination;
+            mnOriginRadiusBits = Float.floatToIntBits(originRadius);
+            mnDestinationRadiusBits = Float.floatToIntBits(destinationRadius);
+            mnWidth = nWidth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o)
+                return true;
+            if(!(o instanceof Key))
+                return false;
+
+            Key other = (Key) o;
+            return (mnOrigin == other.mnOrigin) && (mnDestination == other.mnDestination)
+                    && (mnOriginRadiusBits == other.mnOriginRadiusBits) && (mnDestinationRadiusBits == other.mnDestinationRadiusBits)
+                    && (mnWidth == other.mnWidth);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mnOrigin;
+            result = 31 * result + mnDestination;
+            result = 31 * result + mnOriginRadiusBits;
+            result = 31 * result + mnDestinationRadiusBits;
+            result = 31 * result + mnWidth;
+            return result;
+        }
+    }
+}
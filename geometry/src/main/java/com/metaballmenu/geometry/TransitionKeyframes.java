@@ -0,0 +1,170 @@
+package com.metaballmenu.geometry;
+
+/**
+ * The bridge outlines of one transition, sampled at fixed interpolation steps. Replaying a frame is a
+ * lerp between the two neighbouring samples instead of the full trigonometry of MetaballGeometry.
+ *
+ * The transition follows MetaballMenu: the origin circle moves from the origin center to the destination
+ * center while shrinking from the origin selector radius to 0, and the destination circle grows from 0 to the
+ * destination selector radius. Both radii are the same unless the items have different sizes.
+ *
+ * @author Melvin Lobo
+ */
+public final class TransitionKeyframes {
+
+    //////////////////////////////////// CLASS MEMBERS /////////////////////////////////////////////
+    /**
+     * The maximum deviation (in pixels) of an interpolated outline from the exact one, checked at the middle
+     * of each step when sampling
+     */
+    private static final float TOLERANCE = 0.5f;
+
+    /**
+     * The number of interpolation steps. There are (steps + 1) samples from t = 0 to t = 1
+     */
+    private final int mnSteps;
+
+    /**
+     * The sampled outlines, OUTLINE_SIZE floats per sample
+     */
+    private final float[] mfSamples;
+
+    /**
+     * Indicates if a step can be interpolated. This is false if there is no bridge at one of its ends, or if the
+     * outline changes too fast within the step (close to where one circle starts containing the other)
+     */
+    private final boolean[] mbInterpolable;
+
+    /**
+     * The transition parameters, kept to compute the frames we cannot interpolate
+     */
+    private float mfOriginX, mfOriginY, mfDestinationX, mfDestinationY, mfOriginRadius, mfDestinationRadius;
+
+    //////////////////////////////////// CLASS METHODS /////////////////////////////////////////////
+    /**
+     * Constructor
+     *
+     * @param nSteps
+     *      The number of interpolation steps to sample
+     *
+     * @author Melvin Lobo
+     */
+    public TransitionKeyframes(int nSteps) {
+        if(nSteps < 1)
+            throw new IllegalArgumentException("At least one interpolation step is required");
+
+        mnSteps = nSteps;
+        mfSamples = new float[(nSteps + 1) * MetaballGeometry.OUTLINE_SIZE];
+        mbInterpolable = new boolean[nSteps];
+    }
+
+    /**
+     * Sample the transition between two centers, with the same selector radius on both ends
+     *
+     * @author Melvin Lobo
+     */
+    public void sample(float originX, float originY, float destinationX, float destinationY, float radius) {
+        sample(originX, originY, destinationX, destinationY, radius, radius);
+    }
+
+    /**
+     * Sample the transition between two centers
+     *
+     * @param originRadius
+     *      The selector radius on the origin item
+     * @param destinationRadius
+     *      The selector radius on the destination item
+     *
+     * @author Melvin Lobo
+     */
+    public void sample(float originX, float originY, float destinationX, float destinationY, float originRadius, float destinationRadius) {
+        mfOriginX = originX;
+        mfOriginY = originY;
+        mfDestinationX = destinationX;
+        mfDestinationY = destinationY;
+        mfOriginRadius = originRadius;
+        mfDestinationRadius = destinationRadius;
+
+        float[] outline = new float[MetaballGeometry.OUTLINE_SIZE];
+        boolean bPreviousValid = false;
+        for(int nStep = 0; nStep <= mnSteps; ++nStep) {
+            boolean bValid = computeDirect((float) nStep / mnSteps, outline);
+            System.arraycopy(outline, 0, mfSamples, nStep * MetaballGeometry.OUTLINE_SIZE, MetaballGeometry.OUTLINE_SIZE);
+
+            if(nStep > 0)
+                mbInterpolable[nStep - 1] = bPreviousValid && bValid && isLinear(nStep - 1, outline);
+
+            bPreviousValid = bValid;
+        }
+    }
+
+    /**
+     * Check if the middle of a step is close enough to the lerp of both its ends
+     *
+     * @param nStep
+     *      The step to check. Both ends need to be sampled already
+     * @param outline
+     *      Scratch buffer
+     *
+     * @author Melvin Lobo
+     */
+    private boolean isLinear(int nStep, float[] outline) {
+        if(!computeDirect((nStep + 0.5f) / mnSteps, outline))
+            return false;
+
+        int nFrom = nStep * MetaballGeometry.OUTLINE_SIZE;
+        int nTo = nFrom + MetaballGeometry.OUTLINE_SIZE;
+        for(int nCtr = 0; nCtr < MetaballGeometry.OUTLINE_SIZE; ++nCtr) {
+            float middle = (mfSamples[nFrom + nCtr] + mfSamples[nTo + nCtr]) / 2;
+            if(Math.abs(middle - outline[nCtr]) > TOLERANCE)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the outline at an interpolated time. If the step can be interpolated, the outline is a lerp
+     * between its two samples, otherwise it is computed directly.
+     *
+     * @param t
+     *      The interpolated time. Values outside [0, 1] are computed directly
+     * @param outline
+     *      The buffer to write the outline to
+     *
+     * @return
+     *      True if a bridge has to be drawn, false otherwise
+     *
+     * @author Melvin Lobo
+     */
+    public boolean outlineAt(float t, float[] outline) {
+        if((t < 0) || (t > 1))
+            return computeDirect(t, outline);
+
+        float position = t * mnSteps;
+        int nStep = Math.min((int) position, mnSteps - 1);
+        float fraction = position - nStep;
+
+        if(!mbInterpolable[nStep])
+            return computeDirect(t, outline);
+
+        int nFrom = nStep * MetaballGeometry.OUTLINE_SIZE;
+        int nTo = nFrom + MetaballGeometry.OUTLINE_SIZE;
+        for(int nCtr = 0; nCtr < MetaballGeometry.OUTLINE_SIZE; ++nCtr) {
+            float from = mfSamples[nFrom + nCtr];
+            outline[nCtr] = from + ((mfSamples[nTo + nCtr] - from) * fraction);
+        }
+
+        return true;
+    }
+
+    /**
+     * Compute the outline for an interpolated time without the samples
+     *
+     * @author Melvin Lobo
+     */
+    private boolean computeDirect(float t, float[] outline) {
+        return MetaballGeometry.computeOutline(mfOriginX + ((mfDestinationX - mfOriginX) * t), mfOriginY + ((mfDestinationY - mfOriginY) * t),
+                mfOriginRadius - (mfOriginRadius * t), mfDestinationX, mfDestinationY, mfDestinationRadius * t, outline);
+    }
+}
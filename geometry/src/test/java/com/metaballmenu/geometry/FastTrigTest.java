@@ -0,0 +1,75 @@
+package com.metaballmenu.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for the lookup table trigonometry
+ */
+public class FastTrigTest {
+
+    private static final int SAMPLES = 100000;
+
+    @Test
+    public void sinAndCosFollowMath() throws Exception {
+        FastTrig trig = FastTrig.DEFAULT;
+        for(int nCtr = 0; nCtr <= SAMPLES; ++nCtr) {
+            // Several turns either way, negative angles included. Far from 0 the float angle itself loses precision
+            float angle = -20.0f + ((40.0f * nCtr) / SAMPLES);
+            assertEquals("sin " + angle, Math.sin(angle), trig.sin(angle), 5e-6);
+            assertEquals("cos " + angle, Math.cos(angle), trig.cos(angle), 5e-6);
+        }
+    }
+
+    @Test
+    public void acosFollowsMathUpToTheEnds() throws Exception {
+        FastTrig trig = FastTrig.DEFAULT;
+        for(int nCtr = 0; nCtr <= SAMPLES; ++nCtr) {
+            float x = -1.0f + ((2.0f * nCtr) / SAMPLES);
+            assertEquals("acos " + x, Math.acos(x), trig.acos(x), 2e-6);
+        }
+
+        assertEquals(0.0f, trig.acos(1.0f), 0.0f);
+        assertEquals(Math.PI, trig.acos(-1.0f), 1e-6);
+
+        // Rounding can push the cosine of the bridge angles out of [-1, 1]
+        assertEquals(0.0f, trig.acos(1.0001f), 0.0f);
+        assertEquals(Math.PI, trig.acos(-1.0001f), 1e-6);
+    }
+
+    @Test
+    public void atan2FollowsMathInEveryOctant() throws Exception {
+        FastTrig trig = FastTrig.DEFAULT;
+        for(int nCtr = 0; nCtr < SAMPLES; ++nCtr) {
+            double angle = (2 * Math.PI * nCtr) / SAMPLES;
+            float x = (float) (50 * Math.cos(angle));
+            float y = (float) (50 * Math.sin(angle));
+            assertEquals("atan2 " + y + ", " + x, Math.atan2(y, x), trig.atan2(y, x), 1e-6);
+        }
+        assertEquals(0.0f, trig.atan2(0, 0), 0.0f);
+    }
+
+    @Test
+    public void errorShrinksWithTheTableSize() throws Exception {
+        FastTrig coarse = new FastTrig(64);
+        FastTrig fine = new FastTrig(1024);
+        double coarseError = 0;
+        double fineError = 0;
+        for(int nCtr = 0; nCtr <= SAMPLES; ++nCtr) {
+            float angle = (7.0f * nCtr) / SAMPLES;
+            coarseError = Math.max(coarseError, Math.abs(coarse.sin(angle) - Math.sin(angle)));
+            fineError = Math.max(fineError, Math.abs(fine.sin(angle) - Math.sin(angle)));
+        }
+
+        // Linear interpolation: 16 times the entries, 256 times less error
+        assertTrue("Coarse " + coarseError, coarseError < 2e-3);
+        assertTrue("Fine " + fineError, fineError < 1e-5);
+        assertTrue(coarseError > 100 * fineError);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tableSizeMustBeAPowerOfTwo() throws Exception {
+        new FastTrig(1000);
+    }
+}
@@ -0,0 +1,172 @@
+package com.metaballmenu.geometry;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for the incremental marching squares contours
+ */
+public class MarchingSquaresContourTest {
+
+    private static final int SIZE = 101;
+
+    @Test
+    public void loneCircleIsTracedOnItsRadius() throws Exception {
+        MarchingSquaresContour contour = grid();
+        contour.setCount(1);
+        contour.setCircle(0, 50, 50, 20);
+        contour.update();
+
+        RecordingSink sink = new RecordingSink();
+        assertEquals(1, contour.trace(sink));
+        assertEquals(1, sink.mnContours);
+        assertTrue(sink.mnPoints > 40);
+
+        for(int nCtr = 0; nCtr < sink.mnPoints; ++nCtr) {
+            float dx = sink.mfX[nCtr] - 50;
+            float dy = sink.mfY[nCtr] - 50;
+            assertEquals(20, Math.sqrt((dx * dx) + (dy * dy)), 0.25);
+        }
+        assertEquals(Math.PI * 20 * 20, Math.abs(sink.area()), Math.PI * 20 * 20 * 0.02);
+    }
+
+    @Test
+    public void closeCirclesMergeIntoOneContour() throws Exception {
+        MarchingSquaresContour contour = grid();
+        contour.setCount(2);
+        contour.setCircle(0, 25, 50, 15);
+        contour.setCircle(1, 75, 50, 15);
+        contour.update();
+        assertEquals(2, contour.trace(new RecordingSink()));
+
+        contour.setCircle(1, 57, 50, 15);
+        contour.update();
+        assertEquals(1, contour.trace(new RecordingSink()));
+    }
+
+    @Test
+    public void contoursAreClosedOnTheBorder() throws Exception {
+        MarchingSquaresContour contour = grid();
+        contour.setCount(1);
+        contour.setCircle(0, 0, 0, 30);
+        contour.update();
+
+        RecordingSink sink = new RecordingSink();
+        assertEquals(1, contour.trace(sink));
+        assertEquals(1, sink.mnCloses);
+    }
+
+    @Test
+    public void incrementalUpdatesMatchARebuild() throws Exception {
+        Random random = new Random(7);
+        MarchingSquaresContour incremental = grid();
+        incremental.setCount(5);
+
+        float[] circles = new float[15];
+        for(int nFrame = 0; nFrame < 60; ++nFrame) {
+            // Move some of the circles
+            for(int nCtr = 0; nCtr < 5; ++nCtr) {
+                if((nFrame == 0) || random.nextBoolean()) {
+                    circles[nCtr * 3] = random.nextFloat() * SIZE;
+                    circles[(nCtr * 3) + 1] = random.nextFloat() * SIZE;
+                    circles[(nCtr * 3) + 2] = 4 + random.nextFloat() * 12;
+                    incremental.setCircle(nCtr, circles[nCtr * 3], circles[(nCtr * 3) + 1], circles[(nCtr * 3) + 2]);
+                }
+            }
+            incremental.update();
+
+            MarchingSquaresContour rebuilt = grid();
+            rebuilt.setCount(5);
+            for(int nCtr = 0; nCtr < 5; ++nCtr)
+                rebuilt.setCircle(nCtr, circles[nCtr * 3], circles[(nCtr * 3) + 1], circles[(nCtr * 3) + 2]);
+            rebuilt.update();
+
+            for(int nRow = 0; nRow < SIZE; ++nRow)
+                for(int nColumn = 0; nColumn < SIZE; ++nColumn)
+                    assertEquals(rebuilt.valueAt(nColumn, nRow), incremental.valueAt(nColumn, nRow), 0.0001f);
+
+            RecordingSink expected = new RecordingSink();
+            RecordingSink actual = new RecordingSink();
+            assertEquals("Frame " + nFrame, rebuilt.trace(expected), incremental.trace(actual));
+            assertEquals(expected.mnPoints, actual.mnPoints);
+            assertEquals(expected.area(), actual.area(), 0.01);
+        }
+    }
+
+    @Test
+    public void onlyTheCellsAroundMovingCirclesAreUpdated() throws Exception {
+        // A row of static badges, and a selector moving along them
+        MarchingSquaresContour contour = grid();
+        contour.setCount(11);
+        for(int nCtr = 0; nCtr < 10; ++nCtr)
+            contour.setCircle(nCtr, 5 + (nCtr * 10), 80, 3);
+        contour.setCircle(10, 10, 30, 8);
+        contour.update();
+        assertEquals((SIZE - 1) * (SIZE - 1), contour.getUpdatedCellCount());
+
+        contour.setCircle(10, 12, 30, 8);
+        contour.update();
+        int nUpdated = contour.getUpdatedCellCount();
+        assertTrue(nUpdated > 0);
+        assertTrue("Updated " + nUpdated, nUpdated <= 2 * 34 * 34);
+
+        // Nothing moved
+        contour.update();
+        assertEquals(0, contour.getUpdatedCellCount());
+    }
+
+    private static MarchingSquaresContour grid() {
+        MarchingSquaresContour contour = new MarchingSquaresContour();
+        contour.setBounds(0, 0, SIZE, SIZE, 1);
+        return contour;
+    }
+
+    /**
+     * Records the traced polygons
+     */
+    private static class RecordingSink implements MarchingSquaresContour.PathSink {
+        final float[] mfX = new float[4096];
+        final float[] mfY = new float[4096];
+        final int[] mnContourStarts = new int[64];
+        int mnPoints = 0;
+        int mnContours = 0;
+        int mnCloses = 0;
+
+        @Override
+        public void moveTo(float x, float y) {
+            mnContourStarts[mnContours++] = mnPoints;
+            lineTo(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            mfX[mnPoints] = x;
+            mfY[mnPoints] = y;
+            ++mnPoints;
+        }
+
+        @Override
+        public void close() {
+            ++mnCloses;
+        }
+
+        /**
+         * The signed area of all the polygons (shoelace formula)
+         */
+        double area() {
+            double area = 0;
+            for(int nContour = 0; nContour < mnContours; ++nContour) {
+                int nStart = mnContourStarts[nContour];
+                int nEnd = (nContour + 1 < mnContours) ? mnContourStarts[nContour + 1] : mnPoints;
+                for(int nCtr = nStart; nCtr < nEnd; ++nCtr) {
+                    int nNext = (nCtr + 1 < nEnd) ? nCtr + 1 : nStart;
+                    area += (mfX[nCtr] * mfY[nNext]) - (mfX[nNext] * mfY[nCtr]);
+                }
+            }
+            return area / 2;
+        }
+    }
+}
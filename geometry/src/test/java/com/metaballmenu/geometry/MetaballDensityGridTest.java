@@ -0,0 +1,88 @@
+package com.metaballmenu.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for the sampled metaball field
+ */
+public class MetaballDensityGridTest {
+
+    private static final int COLOR = 0xFF336699;
+
+    @Test
+    public void loneCircleSurfaceLiesOnItsRadius() throws Exception {
+        MetaballDensityGrid grid = new MetaballDensityGrid();
+        grid.setBounds(0, 0, 101, 101, 1);
+        grid.addBlob(50, 50, 20);
+
+        assertEquals(MetaballDensityGrid.THRESHOLD, grid.valueAt(70, 50), 0.0001f);
+        assertEquals(MetaballDensityGrid.THRESHOLD, grid.valueAt(50, 30), 0.0001f);
+        assertTrue(grid.valueAt(69, 50) > MetaballDensityGrid.THRESHOLD);
+        assertTrue(grid.valueAt(71, 50) < MetaballDensityGrid.THRESHOLD);
+
+        // Nothing beyond the reach
+        assertEquals(0, grid.valueAt(91, 50), 0.0f);
+        assertEquals(0, grid.valueAt(0, 0), 0.0f);
+    }
+
+    @Test
+    public void closeCirclesMergeAndFarCirclesDoNot() throws Exception {
+        MetaballDensityGrid grid = new MetaballDensityGrid();
+        grid.setBounds(0, 0, 200, 60, 1);
+
+        // 4 apart: the gap between them is filled
+        grid.addBlob(40, 30, 20);
+        grid.addBlob(84, 30, 20);
+        assertTrue(grid.valueAt(62, 30) > MetaballDensityGrid.THRESHOLD);
+
+        // 60 apart: they stay separate
+        grid.clear();
+        grid.addBlob(40, 30, 20);
+        grid.addBlob(140, 30, 20);
+        assertTrue(grid.valueAt(90, 30) < MetaballDensityGrid.THRESHOLD);
+    }
+
+    @Test
+    public void rasterizedSurfaceIsAntiAliased() throws Exception {
+        MetaballDensityGrid grid = new MetaballDensityGrid();
+        grid.setBounds(0.5f, 0.5f, 64, 64, 1);
+        grid.addBlob(32, 32, 16);
+
+        int[] pixels = new int[64 * 64];
+        grid.rasterize(pixels, COLOR);
+
+        assertEquals(COLOR, pixels[(32 * 64) + 32]);
+        assertEquals(0, pixels[0] >>> 24);
+        assertEquals(COLOR & 0x00FFFFFF, pixels[(32 * 64) + 32] & 0x00FFFFFF);
+
+        // Along a row, the alpha falls from opaque to clear over about a pixel around the radius
+        int nPartial = 0;
+        for(int nColumn = 32; nColumn < 64; ++nColumn) {
+            int nAlpha = pixels[(32 * 64) + nColumn] >>> 24;
+            if((nAlpha > 0) && (nAlpha < 255))
+                ++nPartial;
+            if(nColumn < 47)
+                assertEquals(255, nAlpha);
+            if(nColumn > 49)
+                assertEquals(0, nAlpha);
+        }
+        assertTrue(nPartial >= 1 && nPartial <= 2);
+    }
+
+    @Test
+    public void blobsAreClippedToTheGrid() throws Exception {
+        MetaballDensityGrid grid = new MetaballDensityGrid();
+        grid.setBounds(0, 0, 10, 10, 2);
+        grid.addBlob(-5, 25, 8);
+        assertTrue(grid.valueAt(0, 9) > 0);
+        grid.addBlob(0, 0, 0);
+
+        // Shrinking the grid reuses the samples
+        grid.setBounds(0, 0, 4, 4, 2);
+        for(int nRow = 0; nRow < 4; ++nRow)
+            for(int nColumn = 0; nColumn < 4; ++nColumn)
+                assertEquals(0, grid.valueAt(nColumn, nRow), 0.0f);
+    }
+}
@@ -0,0 +1,116 @@
+package com.metaballmenu.geometry;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for the multi-blob field
+ */
+public class MetaballFieldTest {
+
+    @Test
+    public void noBridgesBelowTwoCircles() throws Exception {
+        MetaballField field = new MetaballField();
+        assertEquals(0, field.computeBridges());
+
+        field.add(0, 0, 20);
+        assertEquals(0, field.computeBridges());
+    }
+
+    @Test
+    public void circlesMergeWithinTheMergeGap() throws Exception {
+        MetaballField field = new MetaballField();
+        field.setMergeGap(10);
+        field.add(0, 0, 20);
+        field.add(45, 0, 20);           // 5 apart
+        field.add(200, 0, 20);          // Far from both
+
+        assertEquals(1, field.computeBridges());
+        assertEquals(0, field.getBridgeFirst(0));
+        assertEquals(1, field.getBridgeSecond(0));
+
+        // The outline is the one of the pair
+        float[] outline = new float[MetaballGeometry.OUTLINE_SIZE];
+        MetaballGeometry.computeOutline(0, 0, 20, 45, 0, 20, outline);
+        for(int nCtr = 0; nCtr < MetaballGeometry.OUTLINE_SIZE; ++nCtr)
+            assertEquals(outline[nCtr], field.getOutlines()[nCtr], 0.0f);
+
+        // Move the far one closer to the second
+        field.set(2, 90, 0, 20);
+        assertEquals(2, field.computeBridges());
+        assertEquals(1, field.getBridgeFirst(1));
+        assertEquals(2, field.getBridgeSecond(1));
+    }
+
+    @Test
+    public void emptyAndContainedCirclesDoNotMerge() throws Exception {
+        MetaballField field = new MetaballField();
+        field.setMergeGap(50);
+        field.add(0, 0, 40);
+        field.add(5, 0, 10);            // Inside the first one
+        field.add(60, 0, 0);            // Empty
+
+        assertEquals(0, field.computeBridges());
+        assertEquals(3, field.getCount());
+    }
+
+    @Test
+    public void sameBridgesAsTestingEveryPair() throws Exception {
+        Random random = new Random(42);
+        MetaballField field = new MetaballField();
+        field.setMergeGap(12);
+
+        for(int nRound = 0; nRound < 20; ++nRound) {
+            field.clear();
+            int nCount = 2 + random.nextInt(120);
+            for(int nCtr = 0; nCtr < nCount; ++nCtr)
+                field.add(random.nextFloat() * 800 - 400, random.nextFloat() * 800 - 400, 2 + random.nextFloat() * 30);
+
+            int nBridges = field.computeBridges();
+            boolean[][] bridged = new boolean[nCount][nCount];
+            for(int nBridge = 0; nBridge < nBridges; ++nBridge) {
+                int nFirst = field.getBridgeFirst(nBridge);
+                int nSecond = field.getBridgeSecond(nBridge);
+                assertTrue(nFirst < nSecond);
+                assertFalse("Duplicate bridge", bridged[nFirst][nSecond]);
+                bridged[nFirst][nSecond] = true;
+            }
+
+            float[] outline = new float[MetaballGeometry.OUTLINE_SIZE];
+            for(int nFirst = 0; nFirst < nCount; ++nFirst) {
+                for(int nSecond = nFirst + 1; nSecond < nCount; ++nSecond) {
+                    float dx = field.getX(nSecond) - field.getX(nFirst);
+                    float dy = field.getY(nSecond) - field.getY(nFirst);
+                    float reach = field.getRadius(nFirst) + field.getRadius(nSecond) + field.getMergeGap();
+                    boolean bMerge = ((dx * dx) + (dy * dy) < reach * reach) && MetaballGeometry.computeOutline(
+                            field.getX(nFirst), field.getY(nFirst), field.getRadius(nFirst),
+                            field.getX(nSecond), field.getY(nSecond), field.getRadius(nSecond), outline);
+                    assertEquals(nFirst + " - " + nSecond, bMerge, bridged[nFirst][nSecond]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void farApartCirclesAreNotTested() throws Exception {
+        // A row of badges, each far from the others
+        MetaballField field = new MetaballField();
+        field.setMergeGap(8);
+        for(int nCtr = 0; nCtr < 500; ++nCtr)
+            field.add(nCtr * 100, 0, 10);
+
+        assertEquals(0, field.computeBridges());
+        assertEquals(0, field.getTestedPairCount());
+
+        // A chain: only the neighbours are tested, not every pair
+        field.clear();
+        for(int nCtr = 0; nCtr < 500; ++nCtr)
+            field.add(nCtr * 25, 0, 10);
+
+        assertEquals(499, field.computeBridges());
+        assertTrue(field.getTestedPairCount() < 500 * 4);
+    }
+}
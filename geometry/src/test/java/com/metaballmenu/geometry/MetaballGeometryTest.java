@@ -0,0 +1,149 @@
+package com.metaballmenu.geometry;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for the metaball bridge geometry
+ */
+public class MetaballGeometryTest {
+
+    private static final int FRAMES = 10000;
+
+    @Test
+    public void noBridgeForEmptyCircles() throws Exception {
+        float[] outline = new float[MetaballGeometry.OUTLINE_SIZE];
+        assertFalse(MetaballGeometry.computeOutline(0, 0, 0, 100, 0, 40, outline));
+        assertFalse(MetaballGeometry.computeOutline(0, 0, 40, 100, 0, 0, outline));
+    }
+
+    @Test
+    public void noBridgeForContainedCircles() throws Exception {
+        float[] outline = new float[MetaballGeometry.OUTLINE_SIZE];
+        assertFalse(MetaballGeometry.computeOutline(0, 0, 40, 5, 0, 10, outline));
+    }
+
+    @Test
+    public void bridgeEndsLieOnTheCircles() throws Exception {
+        float[] outline = new float[MetaballGeometry.OUTLINE_SIZE];
+        assertTrue(MetaballGeometry.computeOutline(0, 0, 30, 50, 0, 20, outline));
+
+        assertEquals(30, distance(outline, MetaballGeometry.P1A, 0, 0), 0.01f);
+        assertEquals(30, distance(outline, MetaballGeometry.P1B, 0, 0), 0.01f);
+        assertEquals(20, distance(outline, MetaballGeometry.P2A, 50, 0), 0.01f);
+        assertEquals(20, distance(outline, MetaballGeometry.P2B, 50, 0), 0.01f);
+
+        // The bridge is symmetric around the line joining both centers
+        assertEquals(outline[MetaballGeometry.P1A + 1], -outline[MetaballGeometry.P1B + 1], 0.01f);
+        assertEquals(outline[MetaballGeometry.P2A + 1], -outline[MetaballGeometry.P2B + 1], 0.01f);
+    }
+
+    @Test
+    public void bridgeDoesNotDependOnTheDirection() throws Exception {
+        float[] horizontal = new float[MetaballGeometry.OUTLINE_SIZE];
+        float[] rotated = new float[MetaballGeometry.OUTLINE_SIZE];
+        assertTrue(MetaballGeometry.computeOutline(0, 0, 30, 50, 0, 20, horizontal));
+
+        // The same circles along a vertical rail, and along a grid diagonal
+        for(int nDegrees = 90; nDegrees < 360; nDegrees += 45) {
+            double angle = Math.toRadians(nDegrees);
+            float cos = (float) Math.cos(angle);
+            float sin = (float) Math.sin(angle);
+            assertTrue(MetaballGeometry.computeOutline(0, 0, 30, 50 * cos, 50 * sin, 20, rotated));
+
+            for(int nCtr = 0; nCtr < MetaballGeometry.OUTLINE_SIZE; nCtr += 2) {
+                float x = horizontal[nCtr];
+                float y = horizontal[nCtr + 1];
+                assertEquals(nDegrees + " degrees", (x * cos) - (y * sin), rotated[nCtr], 0.01f);
+                assertEquals(nDegrees + " degrees", (x * sin) + (y * cos), rotated[nCtr + 1], 0.01f);
+            }
+        }
+    }
+
+    @Test
+    public void lookupTablesKeepTheOutlineWithinAFractionOfAPixel() throws Exception {
+        assertTrue(maxOutlineError(FastTrig.DEFAULT) < 0.01f);
+
+        // Even a table 64 times smaller stays well under a pixel
+        assertTrue(maxOutlineError(new FastTrig(64)) < 0.5f);
+    }
+
+    @Test
+    public void transitionDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        float[] outline = new float[MetaballGeometry.OUTLINE_SIZE];
+
+        // Warm up, so that class loading and the bean itself don't show up in the count
+        runTransition(outline);
+        threadBean.getThreadAllocatedBytes(threadId);
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        runTransition(outline);
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+
+        assertEquals(0, after - before);
+    }
+
+    /**
+     * Run the same math as MetaballMenu.drawMetaballTransition over FRAMES interpolation steps
+     */
+    private static void runTransition(float[] outline) {
+        float radius = 60;
+        float originX = 80;
+        float destinationX = 400;
+        float y = 60;
+
+        for(int nFrame = 0; nFrame <= FRAMES; ++nFrame) {
+            float t = (float) nFrame / FRAMES;
+            MetaballGeometry.computeOutline(originX + ((destinationX - originX) * t), y, radius - (radius * t),
+                    destinationX, y, radius * t, outline);
+        }
+    }
+
+    /**
+     * The largest distance, in pixels, between an outline point computed with the given tables and with java.lang.Math,
+     * over transitions between selectors of up to 300 pixels in every direction
+     */
+    private static float maxOutlineError(FastTrig trig) {
+        float[] exact = new float[MetaballGeometry.OUTLINE_SIZE];
+        float[] approximate = new float[MetaballGeometry.OUTLINE_SIZE];
+        float maxError = 0;
+
+        for(int nDegrees = 0; nDegrees < 360; nDegrees += 15) {
+            float cos = (float) Math.cos(Math.toRadians(nDegrees));
+            float sin = (float) Math.sin(Math.toRadians(nDegrees));
+            for(float radius = 8; radius <= 300; radius *= 1.5f) {
+                float distance = radius * 6;
+                for(int nFrame = 0; nFrame <= 100; ++nFrame) {
+                    float t = nFrame / 100.0f;
+                    float x1 = distance * t * cos;
+                    float y1 = distance * t * sin;
+                    boolean bExact = MetaballGeometry.computeOutline(x1, y1, radius - (radius * t),
+                            distance * cos, distance * sin, radius * t, exact, 0, null);
+                    boolean bApproximate = MetaballGeometry.computeOutline(x1, y1, radius - (radius * t),
+                            distance * cos, distance * sin, radius * t, approximate, 0, trig);
+                    assertEquals(bExact, bApproximate);
+                    if(!bExact)
+                        continue;
+
+                    for(int nCtr = 0; nCtr < MetaballGeometry.OUTLINE_SIZE; nCtr += 2) {
+                        float dx = exact[nCtr] - approximate[nCtr];
+                        float dy = exact[nCtr + 1] - approximate[nCtr + 1];
+                        maxError = Math.max(maxError, (float) Math.sqrt((dx * dx) + (dy * dy)));
+                    }
+                }
+            }
+        }
+        return maxError;
+    }
+
+    private static float distance(float[] outline, int offset, float cx, float cy) {
+        float dx = outline[offset] - cx;
+        float dy = outline[offset + 1] - cy;
+        return (float) Math.sqrt((dx * dx) + (dy * dy));
+    }
+}
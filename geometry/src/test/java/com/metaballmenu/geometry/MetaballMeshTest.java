@@ -0,0 +1,145 @@
+package com.metaballmenu.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for the triangle mesh of the metaballs
+ */
+public class MetaballMeshTest {
+
+    @Test
+    public void circleSegmentsFollowTheRadius() throws Exception {
+        assertEquals(MetaballMesh.MIN_CIRCLE_SEGMENTS, MetaballMesh.circleSegments(2, MetaballMesh.DEFAULT_TOLERANCE));
+        int nSmall = MetaballMesh.circleSegments(20, MetaballMesh.DEFAULT_TOLERANCE);
+        int nLarge = MetaballMesh.circleSegments(200, MetaballMesh.DEFAULT_TOLERANCE);
+        assertTrue(nLarge > nSmall);
+        assertTrue(nLarge <= MetaballMesh.MAX_CIRCLE_SEGMENTS);
+    }
+
+    @Test
+    public void circleChordsStayWithinTheTolerance() throws Exception {
+        for(float radius = 4; radius < 400; radius *= 1.7f) {
+            MetaballMesh mesh = new MetaballMesh();
+            mesh.addCircle(100, 50, radius);
+
+            float[] vertices = mesh.getVertices();
+            short[] indices = mesh.getIndices();
+            double area = 0;
+            for(int nCtr = 0; nCtr < mesh.getIndexCount(); nCtr += 3) {
+                int nB = indices[nCtr + 1] * 2;
+                int nC = indices[nCtr + 2] * 2;
+                assertEquals(radius, Math.hypot(vertices[nB] - 100, vertices[nB + 1] - 50), 0.01 * radius);
+
+                // The middle of the chord
+                double middle = Math.hypot(((vertices[nB] + vertices[nC]) / 2) - 100, ((vertices[nB + 1] + vertices[nC + 1]) / 2) - 50);
+                assertTrue("Radius " + radius, radius - middle <= MetaballMesh.DEFAULT_TOLERANCE + 0.01f);
+                area += triangleArea(mesh, nCtr);
+            }
+
+            // The chords cut at most a band of the tolerance along the circumference
+            assertTrue(area <= Math.PI * radius * radius);
+            assertTrue(area >= (Math.PI * radius * radius) - (2 * Math.PI * radius * MetaballMesh.DEFAULT_TOLERANCE));
+        }
+    }
+
+    @Test
+    public void bridgeStripCoversTheOutline() throws Exception {
+        float[] outline = new float[MetaballGeometry.OUTLINE_SIZE];
+        assertTrue(MetaballGeometry.computeOutline(0, 0, 40, 120, 0, 30, outline));
+
+        MetaballMesh mesh = new MetaballMesh();
+        mesh.addBridge(outline, 0);
+
+        // The strip starts and ends on the bridge ends
+        float[] vertices = mesh.getVertices();
+        int nLast = mesh.getVertexCount() - 4;
+        assertEquals(outline[MetaballGeometry.P1A], vertices[0], 0.001f);
+        assertEquals(outline[MetaballGeometry.P1B + 1], vertices[3], 0.001f);
+        assertEquals(outline[MetaballGeometry.P2A], vertices[nLast], 0.001f);
+        assertEquals(outline[MetaballGeometry.P2B + 1], vertices[nLast + 3], 0.001f);
+
+        // Same area as the outline, flattened finely
+        double area = 0;
+        for(int nCtr = 0; nCtr < mesh.getIndexCount(); nCtr += 3)
+            area += triangleArea(mesh, nCtr);
+        double expected = Math.abs(outlineArea(outline, 1000));
+        assertEquals(expected, area, expected * 0.01);
+    }
+
+    @Test
+    public void buffersAreReused() throws Exception {
+        float[] outline = new float[MetaballGeometry.OUTLINE_SIZE];
+        MetaballGeometry.computeOutline(0, 0, 60, 200, 0, 60, outline);
+
+        MetaballMesh mesh = new MetaballMesh();
+        mesh.addCircle(0, 0, 60);
+        mesh.addCircle(200, 0, 60);
+        mesh.addBridge(outline, 0);
+        float[] vertices = mesh.getVertices();
+        short[] indices = mesh.getIndices();
+        int nVertexCount = mesh.getVertexCount();
+        int nIndexCount = mesh.getIndexCount();
+
+        for(int nFrame = 0; nFrame < 10; ++nFrame) {
+            mesh.clear();
+            mesh.addCircle(0, 0, 60);
+            mesh.addCircle(200, 0, 60);
+            mesh.addBridge(outline, 0);
+        }
+
+        assertSame(vertices, mesh.getVertices());
+        assertSame(indices, mesh.getIndices());
+        assertEquals(nVertexCount, mesh.getVertexCount());
+        assertEquals(nIndexCount, mesh.getIndexCount());
+        for(int nCtr = 0; nCtr < nIndexCount; ++nCtr)
+            assertTrue(indices[nCtr] * 2 < nVertexCount);
+    }
+
+    @Test
+    public void meshGrowsForLargeCircles() throws Exception {
+        MetaballMesh mesh = new MetaballMesh();
+        for(int nCtr = 0; nCtr < 10; ++nCtr)
+            mesh.addCircle(nCtr * 100, 0, 5000);
+
+        assertEquals(10 * (MetaballMesh.MAX_CIRCLE_SEGMENTS + 1) * 2, mesh.getVertexCount());
+        assertEquals(10 * MetaballMesh.MAX_CIRCLE_SEGMENTS * 3, mesh.getIndexCount());
+    }
+
+    private static double triangleArea(MetaballMesh mesh, int nIndex) {
+        float[] v = mesh.getVertices();
+        short[] indices = mesh.getIndices();
+        int nA = indices[nIndex] * 2;
+        int nB = indices[nIndex + 1] * 2;
+        int nC = indices[nIndex + 2] * 2;
+        return Math.abs(((v[nB] - v[nA]) * (v[nC + 1] - v[nA + 1])) - ((v[nC] - v[nA]) * (v[nB + 1] - v[nA + 1]))) / 2;
+    }
+
+    /**
+     * The area of the outline polygon: curve 1, line, curve 2 and the closing line (shoelace formula)
+     */
+    private static double outlineArea(float[] o, int nSteps) {
+        double[] x = new double[(nSteps + 1) * 2];
+        double[] y = new double[(nSteps + 1) * 2];
+        for(int nCtr = 0; nCtr <= nSteps; ++nCtr) {
+            double t = (double) nCtr / nSteps;
+            x[nCtr] = bezier(o[MetaballGeometry.P1A], o[MetaballGeometry.C1], o[MetaballGeometry.C2], o[MetaballGeometry.P2A], t);
+            y[nCtr] = bezier(o[MetaballGeometry.P1A + 1], o[MetaballGeometry.C1 + 1], o[MetaballGeometry.C2 + 1], o[MetaballGeometry.P2A + 1], t);
+            x[nSteps + 1 + nCtr] = bezier(o[MetaballGeometry.P2B], o[MetaballGeometry.C3], o[MetaballGeometry.C4], o[MetaballGeometry.P1B], t);
+            y[nSteps + 1 + nCtr] = bezier(o[MetaballGeometry.P2B + 1], o[MetaballGeometry.C3 + 1], o[MetaballGeometry.C4 + 1], o[MetaballGeometry.P1B + 1], t);
+        }
+
+        double area = 0;
+        for(int nCtr = 0; nCtr < x.length; ++nCtr) {
+            int nNext = (nCtr + 1) % x.length;
+            area += (x[nCtr] * y[nNext]) - (x[nNext] * y[nCtr]);
+        }
+        return area / 2;
+    }
+
+    private static double bezier(double p0, double p1, double p2, double p3, double t) {
+        double u = 1 - t;
+        return (u * u * u * p0) + (3 * u * u * t * p1) + (3 * u * t * t * p2) + (t * t * t * p3);
+    }
+}
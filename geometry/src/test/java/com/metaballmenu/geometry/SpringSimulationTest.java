@@ -0,0 +1,184 @@
+package com.metaballmenu.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for the fixed step spring simulation
+ */
+public class SpringSimulationTest {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    @Test
+    public void stateIsTheSameAtAnyFrameRate() throws Exception {
+        SpringSimulation at60 = hop();
+        SpringSimulation at90 = hop();
+        SpringSimulation at120 = hop();
+
+        // Every half second is a frame time at the three rates
+        for(int nHalf = 1; nHalf <= 4; ++nHalf) {
+            runFrames(at60, 60, 30 * (nHalf - 1), 30 * nHalf);
+            runFrames(at90, 90, 45 * (nHalf - 1), 45 * nHalf);
+            runFrames(at120, 120, 60 * (nHalf - 1), 60 * nHalf);
+
+            for(int nChannel = 0; nChannel < 3; ++nChannel) {
+                assertEquals(at60.getValue(nChannel), at90.getValue(nChannel), 0.0f);
+                assertEquals(at60.getValue(nChannel), at120.getValue(nChannel), 0.0f);
+                assertEquals(at60.getVelocity(nChannel), at120.getVelocity(nChannel), 0.0f);
+            }
+            assertEquals(at60.getStepCount(), at90.getStepCount());
+            assertEquals(at60.getStepCount(), at120.getStepCount());
+            assertEquals(at60.isSettled(), at120.isSettled());
+        }
+    }
+
+    @Test
+    public void droppedFramesDoNotChangeTheMotion() throws Exception {
+        SpringSimulation smooth = hop();
+        SpringSimulation janky = hop();
+
+        runFrames(smooth, 120, 0, 30);
+        janky.advanceTo(NANOS_PER_SECOND / 60);
+        janky.advanceTo(NANOS_PER_SECOND / 4);
+
+        for(int nChannel = 0; nChannel < 3; ++nChannel)
+            assertEquals(smooth.getValue(nChannel), janky.getValue(nChannel), 0.0f);
+    }
+
+    @Test
+    public void framesBetweenStepsAreInterpolated() throws Exception {
+        SpringSimulation spring = hop();
+        spring.advanceTo(20 * SpringSimulation.STEP_NANOS);
+        float before = spring.getValue(0);
+        spring.advanceTo(21 * SpringSimulation.STEP_NANOS);
+        float after = spring.getValue(0);
+
+        SpringSimulation between = hop();
+        between.advanceTo((20 * SpringSimulation.STEP_NANOS) + (SpringSimulation.STEP_NANOS / 2));
+        assertEquals((before + after) / 2, between.getValue(0), 0.001f);
+        assertTrue(between.getValue(0) > before);
+        assertTrue(between.getValue(0) < after);
+    }
+
+    @Test
+    public void settlesEarlyOnTheTargets() throws Exception {
+        SpringSimulation spring = hop();
+        long time = 0;
+        while(!spring.advanceTo(time)) {
+            time += NANOS_PER_SECOND / 60;
+            assertTrue("Not settled after " + time + "ns", time < NANOS_PER_SECOND);
+        }
+
+        // The default spring is done in well under a second, right on the targets
+        assertEquals(300.0f, spring.getValue(0), 0.0f);
+        assertEquals(0.0f, spring.getValue(1), 0.0f);
+        assertEquals(40.0f, spring.getValue(2), 0.0f);
+        assertEquals(0.0f, spring.getVelocity(0), 0.0f);
+
+        // And it does not step any more
+        long nSteps = spring.getStepCount();
+        assertTrue(spring.advanceTo(time + NANOS_PER_SECOND));
+        assertEquals(nSteps, spring.getStepCount());
+    }
+
+    @Test
+    public void dampingShapesTheOvershoot() throws Exception {
+        assertTrue(overshoot(0.3f) > overshoot(0.6f));
+        assertTrue(overshoot(0.6f) > 0.0f);
+        assertEquals(0.0f, overshoot(1.0f), 0.001f);
+        assertEquals(0.0f, overshoot(2.0f), 0.001f);
+    }
+
+    @Test
+    public void stifferSpringsSettleSooner() throws Exception {
+        SpringSimulation soft = hop();
+        soft.setStiffness(200.0f);
+        SpringSimulation stiff = hop();
+        stiff.setStiffness(2000.0f);
+
+        assertTrue(settleSteps(stiff) < settleSteps(soft));
+    }
+
+    @Test
+    public void startVelocityIsCarried() throws Exception {
+        // Already on the target, but moving: the value leaves the target in the direction of the velocity, and
+        // comes back
+        SpringSimulation spring = new SpringSimulation(1);
+        spring.setChannel(0, 100.0f, 2000.0f, 100.0f);
+        spring.advanceTo(NANOS_PER_SECOND / 60);
+        assertTrue(spring.getValue(0) > 100.0f);
+
+        settleSteps(spring);
+        assertEquals(100.0f, spring.getValue(0), 0.0f);
+    }
+
+    @Test
+    public void invalidConstantsAreRejected() throws Exception {
+        SpringSimulation spring = new SpringSimulation(1);
+        try {
+            spring.setStiffness(0.0f);
+            fail();
+        }
+        catch(IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            spring.setStiffness(SpringSimulation.MAX_STIFFNESS * 2);
+            fail();
+        }
+        catch(IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            spring.setDampingRatio(0.0f);
+            fail();
+        }
+        catch(IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * A selector hop: the position from 0 to 300 pixels, and the two radii trading 40 pixels
+     */
+    private static SpringSimulation hop() {
+        SpringSimulation spring = new SpringSimulation(3);
+        spring.setChannel(0, 0.0f, 0.0f, 300.0f);
+        spring.setChannel(1, 40.0f, 0.0f, 0.0f);
+        spring.setChannel(2, 0.0f, 0.0f, 40.0f);
+        return spring;
+    }
+
+    /**
+     * Advance a simulation frame by frame at a refresh rate
+     */
+    private static void runFrames(SpringSimulation spring, int nRate, int nFrom, int nTo) {
+        for(int nFrame = nFrom + 1; nFrame <= nTo; ++nFrame)
+            spring.advanceTo((nFrame * NANOS_PER_SECOND) / nRate);
+    }
+
+    /**
+     * How far past the target a hop goes with a damping ratio
+     */
+    private static float overshoot(float dampingRatio) {
+        SpringSimulation spring = hop();
+        spring.setDampingRatio(dampingRatio);
+
+        float max = 0.0f;
+        for(long time = 0; !spring.advanceTo(time) && (time < 5 * NANOS_PER_SECOND); time += SpringSimulation.STEP_NANOS)
+            max = Math.max(max, spring.getValue(0));
+        return Math.max(0.0f, max - 300.0f);
+    }
+
+    /**
+     * Run a simulation till it settles, and get the number of steps it took
+     */
+    private static long settleSteps(SpringSimulation spring) {
+        long time = 0;
+        while(!spring.advanceTo(time))
+            time += NANOS_PER_SECOND / 60;
+        return spring.getStepCount();
+    }
+}
@@ -0,0 +1,137 @@
+package com.metaballmenu.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests for the transition keyframe cache
+ */
+public class TransitionKeyframeCacheTest {
+
+    @Test
+    public void repeatedHopsHitTheCache() throws Exception {
+        TransitionKeyframeCache cache = new TransitionKeyframeCache();
+
+        TransitionKeyframes first = cache.get(0, 2, 40, 480, 60, 50, 300, 50);
+        TransitionKeyframes second = cache.get(0, 2, 40, 480, 60, 50, 300, 50);
+
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // A different radius or width is a different transition
+        assertNotSame(first, cache.get(0, 2, 41, 480, 60, 50, 300, 50));
+        assertNotSame(first, cache.get(0, 2, 40, 481, 60, 50, 300, 50));
+
+        // So is a hop between items of different sizes
+        assertSame(first, cache.get(0, 2, 40, 40, 480, 60, 50, 300, 50));
+        assertNotSame(first, cache.get(0, 2, 40, 30, 480, 60, 50, 300, 50));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() throws Exception {
+        TransitionKeyframeCache cache = new TransitionKeyframeCache(2, 8);
+
+        TransitionKeyframes hop01 = cache.get(0, 1, 40, 480, 0, 0, 100, 0);
+        TransitionKeyframes hop12 = cache.get(1, 2, 40, 480, 100, 0, 200, 0);
+        cache.get(0, 1, 40, 480, 0, 0, 100, 0);     // touch 0 -> 1
+        cache.get(2, 3, 40, 480, 200, 0, 300, 0);   // evicts 1 -> 2
+
+        assertEquals(2, cache.size());
+        assertSame(hop01, cache.get(0, 1, 40, 480, 0, 0, 100, 0));
+        assertNotSame(hop12, cache.get(1, 2, 40, 480, 100, 0, 200, 0));
+    }
+
+    @Test
+    public void invalidateDropsEverything() throws Exception {
+        TransitionKeyframeCache cache = new TransitionKeyframeCache();
+        TransitionKeyframes keyframes = cache.get(0, 1, 40, 480, 0, 0, 100, 0);
+
+        cache.invalidate();
+
+        assertEquals(0, cache.size());
+        assertNotSame(keyframes, cache.get(0, 1, 40, 480, 0, 0, 100, 0));
+    }
+
+    @Test
+    public void interpolatedOutlineStaysCloseToTheExactOne() throws Exception {
+        float radius = 60;
+        float originX = 80;
+        float destinationX = 400;
+        float y = 60;
+
+        TransitionKeyframes keyframes = new TransitionKeyframes(TransitionKeyframeCache.DEFAULT_STEPS);
+        keyframes.sample(originX, y, destinationX, y, radius);
+
+        float[] cached = new float[MetaballGeometry.OUTLINE_SIZE];
+        float[] exact = new float[MetaballGeometry.OUTLINE_SIZE];
+
+        for(int nFrame = 0; nFrame <= 1000; ++nFrame) {
+            float t = nFrame / 1000.0f;
+            boolean bExact = MetaballGeometry.computeOutline(originX + ((destinationX - originX) * t), y, radius - (radius * t),
+                    destinationX, y, radius * t, exact);
+
+            assertEquals(bExact, keyframes.outlineAt(t, cached));
+            if(bExact) {
+                for(int nCtr = 0; nCtr < MetaballGeometry.OUTLINE_SIZE; ++nCtr)
+                    assertEquals("t = " + t, exact[nCtr], cached[nCtr], 1.0f);
+            }
+        }
+    }
+
+    @Test
+    public void diagonalHopInterpolatesLikeTheExactOne() throws Exception {
+        // A hop between two cells of a grid
+        float radius = 48;
+        float originX = 80;
+        float originY = 60;
+        float destinationX = 300;
+        float destinationY = 420;
+
+        TransitionKeyframes keyframes = new TransitionKeyframes(TransitionKeyframeCache.DEFAULT_STEPS);
+        keyframes.sample(originX, originY, destinationX, destinationY, radius);
+
+        float[] cached = new float[MetaballGeometry.OUTLINE_SIZE];
+        float[] exact = new float[MetaballGeometry.OUTLINE_SIZE];
+
+        for(int nFrame = 0; nFrame <= 1000; ++nFrame) {
+            float t = nFrame / 1000.0f;
+            boolean bExact = MetaballGeometry.computeOutline(originX + ((destinationX - originX) * t),
+                    originY + ((destinationY - originY) * t), radius - (radius * t), destinationX, destinationY, radius * t, exact);
+
+            assertEquals(bExact, keyframes.outlineAt(t, cached));
+            if(bExact) {
+                for(int nCtr = 0; nCtr < MetaballGeometry.OUTLINE_SIZE; ++nCtr)
+                    assertEquals("t = " + t, exact[nCtr], cached[nCtr], 1.0f);
+            }
+        }
+    }
+
+    @Test
+    public void hopBetweenItemsOfDifferentSizesInterpolatesLikeTheExactOne() throws Exception {
+        float originRadius = 30;
+        float destinationRadius = 70;
+        float originX = 80;
+        float destinationX = 400;
+        float y = 80;
+
+        TransitionKeyframes keyframes = new TransitionKeyframes(TransitionKeyframeCache.DEFAULT_STEPS);
+        keyframes.sample(originX, y, destinationX, y, originRadius, destinationRadius);
+
+        float[] cached = new float[MetaballGeometry.OUTLINE_SIZE];
+        float[] exact = new float[MetaballGeometry.OUTLINE_SIZE];
+
+        for(int nFrame = 0; nFrame <= 1000; ++nFrame) {
+            float t = nFrame / 1000.0f;
+            boolean bExact = MetaballGeometry.computeOutline(originX + ((destinationX - originX) * t), y,
+                    originRadius - (originRadius * t), destinationX, y, destinationRadius * t, exact);
+
+            assertEquals(bExact, keyframes.outlineAt(t, cached));
+            if(bExact) {
+                for(int nCtr = 0; nCtr < MetaballGeometry.OUTLINE_SIZE; ++nCtr)
+                    assertEquals("t = " + t, exact[nCtr], cached[nCtr], 1.0f);
+            }
+        }
+    }
+}